@@ -23,6 +23,7 @@ import javax.sql.DataSource;
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.jdbc.identifier.DBIdentifierUtil;
 import org.apache.openjpa.jdbc.kernel.EagerFetchModes;
+import org.apache.openjpa.jdbc.kernel.FetchSizeAdvisor;
 import org.apache.openjpa.jdbc.kernel.LRSSizes;
 import org.apache.openjpa.jdbc.kernel.UpdateManager;
 import org.apache.openjpa.jdbc.meta.MappingDefaults;
@@ -374,6 +375,34 @@ public interface JDBCConfiguration
      */
     void setLRSSize(int size);
 
+    /**
+     * The memory in kilobytes that the rows fetched from the database in one
+     * round trip may take when the fetch size of a select is adapted to the
+     * number of rows earlier executions of its SQL read. 0 to disable the
+     * adaptive fetch size, which is the default.
+     *
+     * @since 3.2.3
+     */
+    int getAdaptiveFetchSize();
+
+    /**
+     * The memory in kilobytes that the rows fetched from the database in one
+     * round trip may take when the fetch size of a select is adapted to the
+     * number of rows earlier executions of its SQL read. 0 to disable the
+     * adaptive fetch size, which is the default.
+     *
+     * @since 3.2.3
+     */
+    void setAdaptiveFetchSize(int budget);
+
+    /**
+     * Return the advisor of the adaptive fetch size, or null if the adaptive
+     * fetch size is disabled.
+     *
+     * @since 3.2.3
+     */
+    FetchSizeAdvisor getFetchSizeAdvisorInstance();
+
     /**
      * Whether OpenJPA should try to automatically refresh O/R mapping
      * information and the database schema.
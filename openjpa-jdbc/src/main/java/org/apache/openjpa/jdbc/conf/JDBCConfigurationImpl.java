@@ -29,6 +29,7 @@ import org.apache.openjpa.jdbc.identifier.DBIdentifierUtil;
 import org.apache.openjpa.jdbc.kernel.BatchingConstraintUpdateManager;
 import org.apache.openjpa.jdbc.kernel.BatchingOperationOrderUpdateManager;
 import org.apache.openjpa.jdbc.kernel.EagerFetchModes;
+import org.apache.openjpa.jdbc.kernel.FetchSizeAdvisor;
 import org.apache.openjpa.jdbc.kernel.JDBCBrokerFactory;
 import org.apache.openjpa.jdbc.kernel.LRSSizes;
 import org.apache.openjpa.jdbc.kernel.PessimisticLockManager;
@@ -77,6 +78,7 @@ public class JDBCConfigurationImpl
     public FetchModeValue eagerFetchMode;
     public FetchModeValue subclassFetchMode;
     public IntValue lrsSize;
+    public IntValue adaptiveFetchSize;
     public StringValue synchronizeMappings;
     public ObjectValue jdbcListenerPlugins;
     public ObjectValue connectionDecoratorPlugins;
@@ -94,6 +96,7 @@ public class JDBCConfigurationImpl
     private String firstPass = null;
     private DecoratingDataSource dataSource = null;
     private DecoratingDataSource dataSource2 = null;
+    private FetchSizeAdvisor fetchSizeAdvisor = null;
 
     private static final Localizer _loc = Localizer.forPackage(JDBCConfigurationImpl.class);
 
@@ -188,6 +191,12 @@ public class JDBCConfigurationImpl
         lrsSize.set(LRSSizes.SIZE_QUERY);
         lrsSize.setAliasListComprehensive(true);
 
+        adaptiveFetchSize = addInt("jdbc.AdaptiveFetchSize");
+        aliases = new String[]{ "false", "0", "true", "1024" };
+        adaptiveFetchSize.setAliases(aliases);
+        adaptiveFetchSize.setDefault("0");
+        adaptiveFetchSize.set(0);
+
         synchronizeMappings = addString("jdbc.SynchronizeMappings");
         aliases = new String[]{ "false", null };
         synchronizeMappings.setAliases(aliases);
@@ -536,6 +545,26 @@ public class JDBCConfigurationImpl
         return lrsSize.get();
     }
 
+    @Override
+    public int getAdaptiveFetchSize() {
+        return adaptiveFetchSize.get();
+    }
+
+    @Override
+    public void setAdaptiveFetchSize(int budget) {
+        adaptiveFetchSize.set(budget);
+    }
+
+    @Override
+    public synchronized FetchSizeAdvisor getFetchSizeAdvisorInstance() {
+        int budget = getAdaptiveFetchSize();
+        if (budget <= 0)
+            return null;
+        if (fetchSizeAdvisor == null || fetchSizeAdvisor.getBudget() != budget * 1024L)
+            fetchSizeAdvisor = new FetchSizeAdvisor(budget);
+        return fetchSizeAdvisor;
+    }
+
     @Override
     public void setSynchronizeMappings(String synchronizeMappings) {
         this.synchronizeMappings.set(synchronizeMappings);
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import java.util.Map;
+
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.util.CacheMap;
+
+/**
+ * Chooses the JDBC fetch size of a select from the number of rows that
+ * earlier executions of the same SQL have read.
+ * <br>
+ * The history is kept per SQL string, whose parameters are markers, so that
+ * every execution of a query shares it regardless of the parameter values.
+ * The expected number of rows is a moving average, weighted towards recent
+ * executions. The fetch size covers the expected rows with some headroom,
+ * so that a typical result is read in one round trip, but no more rows than
+ * fit in the memory budget are fetched at a time. The dictionary maps the
+ * result to a fetch size its driver honors.
+ *
+ * @since 3.2.3
+ */
+public class FetchSizeAdvisor {
+
+    /**
+     * Estimated number of bytes a driver holds for a column of a fetched
+     * row.
+     */
+    public static final int BYTES_PER_COLUMN = 64;
+
+    /**
+     * Maximum number of SQL strings whose history is kept.
+     */
+    public static final int MAX_SHAPES = 1000;
+
+    private static final double WEIGHT = 0.25;
+
+    private final long _budget;
+    private final Map<String, Shape> _shapes = new CacheMap(true, MAX_SHAPES);
+
+    /**
+     * Constructor.
+     *
+     * @param budget the memory in kilobytes that the rows fetched in one
+     * round trip may take
+     */
+    public FetchSizeAdvisor(int budget) {
+        _budget = budget * 1024L;
+    }
+
+    /**
+     * Gets the memory in bytes that the rows fetched in one round trip may
+     * take.
+     */
+    public long getBudget() {
+        return _budget;
+    }
+
+    /**
+     * Gets the fetch size for the next execution of the given SQL.
+     *
+     * @param sql the SQL of the select
+     * @param columns the number of columns the select reads
+     * @param lrs whether the rows are read as a large result set, rather
+     * than all at once before the select returns
+     * @param dict the dictionary of the database
+     * @return the fetch size, or -1 to leave the fetch size of the statement
+     * as is because no history of the SQL is known yet
+     */
+    public int getFetchSize(String sql, int columns, boolean lrs, DBDictionary dict) {
+        Shape shape = _shapes.get(sql);
+        if (shape == null)
+            return -1;
+        long expected = shape.getExpected();
+        long limit = Math.max(1, _budget / (Math.max(1, columns) * (long) BYTES_PER_COLUMN));
+        return dict.getAdaptiveFetchSize((int) Math.min(expected, Integer.MAX_VALUE),
+            (int) Math.min(limit, Integer.MAX_VALUE), lrs);
+    }
+
+    /**
+     * Records the number of rows that an execution of the given SQL has
+     * read.
+     */
+    public void record(String sql, int rows) {
+        if (sql == null || rows < 0)
+            return;
+        Shape shape = _shapes.get(sql);
+        if (shape == null) {
+            shape = new Shape(rows);
+            _shapes.put(sql, shape);
+        } else
+            shape.record(rows);
+    }
+
+    /**
+     * Clears the history.
+     */
+    public void clear() {
+        _shapes.clear();
+    }
+
+    /**
+     * The history of the rows read by a SQL string.
+     */
+    private static class Shape {
+        private double _average;
+
+        Shape(int rows) {
+            _average = rows;
+        }
+
+        synchronized void record(int rows) {
+            _average += WEIGHT * (rows - _average);
+        }
+
+        /**
+         * Gets the expected rows with a quarter of headroom, plus one row
+         * to detect the end of the results in the same round trip.
+         */
+        synchronized long getExpected() {
+            long rows = (long) Math.ceil(_average);
+            return rows + rows / 4 + 1;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -50,6 +51,7 @@ import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.schema.Table;
 import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.PostgresDictionary;
+import org.apache.openjpa.jdbc.sql.Result;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
 import org.apache.openjpa.jdbc.sql.Select;
@@ -511,6 +513,106 @@ public class JDBCStoreQuery
             params, exps[0].updates);
     }
 
+    /**
+     * Select the ids of the candidates that match the filter of the bulk
+     * operation, in the transaction that executes it. The rows are selected
+     * for update, so that other transactions can not change them before the
+     * bulk operation does. If the dictionary can not lock the rows of the
+     * select, no ids are selected and the types are evicted instead.
+     */
+    @Override
+    protected Collection<Object> selectBulkIds(Executor ex, ClassMetaData base,
+        ClassMetaData[] metas, boolean subclasses, ExpressionFactory[] facts,
+        QueryExpressions[] exps, Object[] params, int limit) {
+        DBDictionary dict = _store.getDBDictionary();
+        if (dict.simulateLocking || !dict.supportsSelectForUpdate)
+            return null;
+
+        Context[] ctxs = new Context[exps.length];
+        for (int i = 0; i < exps.length; i++)
+            ctxs[i] = exps[i].ctx();
+        localContext.set(clone(ctxs, null));
+
+        ClassMapping[] mappings = (ClassMapping[]) metas;
+        JDBCFetchConfiguration fetch = (JDBCFetchConfiguration)
+            ctx.getFetchConfiguration();
+        ExpContext ctx = new ExpContext(_store, params, fetch);
+
+        // we need to make sure we have an active store connection
+        _store.getContext().beginStore();
+
+        Collection<Object> oids = new HashSet<>();
+        JDBCExpressionFactory jdbcFactory;
+        Select sel;
+        SQLBuffer sql = null;
+        Result res;
+        try {
+            for (int i = 0; i < mappings.length; i++) {
+                jdbcFactory = (JDBCExpressionFactory) facts[i];
+                QueryExpressionsState state = new QueryExpressionsState();
+                sel = jdbcFactory.getSelectConstructor().evaluate(ctx, null,
+                    null, exps[i], state);
+                jdbcFactory.getSelectConstructor().select(sel, ctx,
+                    mappings[i], subclasses, exps[i], state,
+                    EagerFetchModes.EAGER_NONE);
+
+                // only read what the ids are made of; the ids are collected
+                // in a set, as few databases lock distinct selects
+                sel.clearSelects();
+                sel.selectPrimaryKey(mappings[i]);
+                if (subclasses)
+                    mappings[i].getDiscriminator().select(sel, mappings[i]);
+                if (dict.supportsLockingWithSelectRange)
+                    sel.setRange(0, limit + 1L - oids.size());
+                if (!(sel instanceof SelectImpl) || !sel.supportsLocking())
+                    return null;
+
+                sql = sel.toSelect(true, fetch);
+                res = executeForUpdate((SelectImpl) sel, sql, fetch);
+                try {
+                    while (res.next()) {
+                        if (oids.size() == limit)
+                            return null;
+                        Object oid = mappings[i].getObjectId(_store, res, null,
+                            subclasses, null);
+                        if (oid != null)
+                            oids.add(oid);
+                    }
+                } finally {
+                    res.close();
+                }
+            }
+        } catch (SQLException se) {
+            throw (sql == null) ? SQLExceptions.getStore(se, dict)
+                : SQLExceptions.getStore(se, sql.getSQL(), dict);
+        } finally {
+            localContext.remove();
+        }
+        return oids;
+    }
+
+    /**
+     * Execute the given SQL of the given select, which locks the rows it
+     * reads.
+     */
+    private Result executeForUpdate(SelectImpl sel, SQLBuffer sql,
+        JDBCFetchConfiguration fetch)
+        throws SQLException {
+        Connection conn = _store.getConnection();
+        PreparedStatement stmnt = null;
+        try {
+            stmnt = prepareStatement(conn, sql);
+            _store.getDBDictionary().setTimeouts(stmnt, fetch, true);
+            return sel.getEagerResult(conn, stmnt, stmnt.executeQuery(),
+                _store, fetch, true, sql);
+        } catch (SQLException se) {
+            if (stmnt != null)
+                try { stmnt.close(); } catch (SQLException se2) {}
+            try { conn.close(); } catch (SQLException se2) {}
+            throw se;
+        }
+    }
+
     private Number executeBulkOperation(ClassMetaData[] metas,
         boolean subclasses, ExpressionFactory[] facts, QueryExpressions[] exps,
         Object[] params, Map updates) {
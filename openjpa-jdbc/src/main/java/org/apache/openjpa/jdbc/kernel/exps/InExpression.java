@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.sql.Arrayed;
+import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.Joins;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.Select;
@@ -130,12 +132,33 @@ class InExpression
 
     /**
      * Based on the inClauseLimit of the DBDictionary, create the needed IN
-     * clauses
+     * clauses. The values of a collection-valued parameter are bound as a
+     * single array or padded, as the DBDictionary chooses by their number.
      */
     private void createInContains(Select sel, ExpContext ctx, ExpState state,
         SQLBuffer buf, List list, Column[] cols) {
 
-        int inClauseLimit = ctx.store.getDBDictionary().inClauseLimit;
+        DBDictionary dict = ctx.store.getDBDictionary();
+        if (_const instanceof Parameter) {
+            Column col = (cols != null && cols.length == 1) ? cols[0] : null;
+            Arrayed array = dict.getInClauseArray(list, col);
+            if (array != null) {
+                dict.inArray(buf, new FilterValueImpl(sel, ctx, state, _val),
+                    array, col, (Parameter) _const);
+                return;
+            }
+
+            // repeat the last value, which does not change the result
+            int padded = dict.getInClausePaddedSize(list.size());
+            if (padded > list.size()) {
+                Object last = list.get(list.size() - 1);
+                list = new ArrayList(list);
+                while (list.size() < padded)
+                    list.add(last);
+            }
+        }
+
+        int inClauseLimit = dict.inClauseLimit;
         if (inClauseLimit <= 0 || list.size() <= inClauseLimit)
             inContains(sel, ctx, state, buf, list, cols);
         else {
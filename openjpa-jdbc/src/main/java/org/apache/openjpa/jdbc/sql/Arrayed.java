@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.sql;
+
+import java.util.Arrays;
+
+/**
+ * Values bound together as a single SQL array parameter. Used to represent
+ * the values of an <code>IN</code> clause and the SQL type of their array
+ * elements for calls to {@link DBDictionary#setUnknown}.
+ *
+ * @since 3.2.3
+ */
+public class Arrayed {
+
+    public final Object[] values;
+    public final String type;
+
+    public Arrayed(Object[] values, String type) {
+        this.values = values;
+        this.type = type;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
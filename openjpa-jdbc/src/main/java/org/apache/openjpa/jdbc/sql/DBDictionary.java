@@ -104,6 +104,7 @@ import org.apache.openjpa.kernel.Filters;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.Seq;
 import org.apache.openjpa.kernel.StateManagerImpl;
+import org.apache.openjpa.kernel.exps.Parameter;
 import org.apache.openjpa.kernel.exps.Path;
 import org.apache.openjpa.lib.conf.Configurable;
 import org.apache.openjpa.lib.conf.Configuration;
@@ -313,6 +314,8 @@ public class DBDictionary
     public int maxEmbeddedBlobSize = -1;
     public int maxEmbeddedClobSize = -1;
     public int inClauseLimit = -1;
+    public boolean inClausePadding = false;
+    public int inClauseArrayThreshold = -1;
 
     /**
      * Attention, while this is named datePrecision it actually only get used for Timestamp handling!
@@ -1693,6 +1696,9 @@ public class DBDictionary
             setBigInteger(stmnt, idx, (BigInteger) val, col);
         else if (val instanceof Array)
             setArray(stmnt, idx, (Array) val, col);
+        else if (val instanceof Arrayed)
+            setArray(stmnt, idx, stmnt.getConnection().createArrayOf(
+                ((Arrayed) val).type, ((Arrayed) val).values), col);
         else if (val instanceof Blob)
             setBlob(stmnt, idx, (Blob) val, col);
         else if (val instanceof byte[])
@@ -3329,6 +3335,81 @@ public class DBDictionary
         return null;
     }
 
+    /**
+     * Return the number of parameters to bind the given number of values of
+     * an <code>IN</code> clause of a collection-valued parameter to. If
+     * {@link #inClausePadding} is set, the values are padded to the next
+     * power of two, or to a multiple of the {@link #inClauseLimit}, so that
+     * collections of similar sizes share a statement.
+     *
+     * @since 3.2.3
+     */
+    public int getInClausePaddedSize(int size) {
+        if (!inClausePadding || size <= 1)
+            return size;
+        int padded = Integer.highestOneBit(size - 1) << 1;
+        if (inClauseLimit > 0 && padded > inClauseLimit)
+            padded = (size + inClauseLimit - 1) / inClauseLimit * inClauseLimit;
+        return (padded < size) ? size : padded;
+    }
+
+    /**
+     * Return the given values of an <code>IN</code> clause of a
+     * collection-valued parameter as a single array parameter, or null to
+     * bind each value to its own parameter. The values are bound as an array
+     * if there are at least {@link #inClauseArrayThreshold} of them and they
+     * all are of a simple type.
+     *
+     * @param values the values of the collection-valued parameter
+     * @param col the column the values are compared to, or null if unknown
+     * @since 3.2.3
+     */
+    public Arrayed getInClauseArray(List<?> values, Column col) {
+        if (inClauseArrayThreshold <= 0 || values.size() < inClauseArrayThreshold
+            || col == null)
+            return null;
+        for (Object val : values)
+            if (!(val instanceof String || val instanceof Number
+                || val instanceof Boolean || val instanceof Date))
+                return null;
+        String type = getArrayElementTypeName(col);
+        return (type == null) ? null : new Arrayed(values.toArray(), type);
+    }
+
+    /**
+     * Return the type name of the elements of an array of values of the
+     * given column, as given to {@link Connection#createArrayOf}, or null
+     * if the values of the column cannot be bound as an array.
+     *
+     * @since 3.2.3
+     */
+    protected String getArrayElementTypeName(Column col) {
+        String type = getTypeName(col.getType());
+        int idx = (type == null) ? -1 : type.indexOf("{0}");
+        if (idx != -1)
+            type = type.substring(0, idx) + type.substring(idx + 3);
+        return type;
+    }
+
+    /**
+     * Append a test of whether a value is one of the values of an array
+     * parameter. Defaults to <code>value = ANY (?)</code>.
+     *
+     * @param buf the SQL buffer to write the test to
+     * @param val a query value representing the value to test
+     * @param values the array of values to test against
+     * @param col the column the values are compared to
+     * @param userParam the user parameter the values come from
+     * @since 3.2.3
+     */
+    public void inArray(SQLBuffer buf, FilterValue val, Arrayed values,
+        Column col, Parameter userParam) {
+        val.appendTo(buf);
+        buf.append(" = ANY (");
+        buf.appendValue(values, col, userParam);
+        buf.append(")");
+    }
+
 
     ///////////
     // DDL SQL
@@ -3758,6 +3839,24 @@ public class DBDictionary
         return batchFetchSize;
     }
 
+    /**
+     * Return the fetch size to use for a select whose adaptive fetch size
+     * has been computed from the rows that earlier executions read. Returns
+     * the expected number of rows, capped by the number of rows that fit in
+     * the memory budget, by default.
+     *
+     * @param expected the expected number of rows, with some headroom
+     * @param limit the number of rows that fit in the memory budget
+     * @param lrs whether the rows are read as a large result set, rather
+     * than all at once before the select returns
+     * @return the fetch size, 0 for the driver default, or -1 to leave the
+     * fetch size of the statement as is
+     * @since 3.2.3
+     */
+    public int getAdaptiveFetchSize(int expected, int limit, boolean lrs) {
+        return Math.min(expected, limit);
+    }
+
     protected StringBuilder comment(StringBuilder buf, String comment) {
         return buf.append("-- ").append(comment);
     }
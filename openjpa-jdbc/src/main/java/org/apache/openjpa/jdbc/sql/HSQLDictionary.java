@@ -34,6 +34,7 @@ import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.schema.PrimaryKey;
 import org.apache.openjpa.jdbc.schema.Table;
 import org.apache.openjpa.jdbc.schema.Unique;
+import org.apache.openjpa.kernel.exps.Parameter;
 import org.apache.openjpa.lib.util.StringUtil;
 import org.apache.openjpa.meta.JavaTypes;
 import org.apache.openjpa.util.OpenJPAException;
@@ -86,6 +87,10 @@ public class HSQLDictionary extends DBDictionary {
         requiresCastForMathFunctions = true;
         requiresCastForComparisons = true;
 
+        // bind large collections of IN clauses as a single array
+        inClausePadding = true;
+        inClauseArrayThreshold = 64;
+
         reservedWordSet.addAll(Arrays.asList(new String[]{
             "BEFORE", "BIGINT", "BINARY", "CACHED", "DATETIME", "LIMIT",
             "LONGVARBINARY", "LONGVARCHAR", "OBJECT", "OTHER",
@@ -385,6 +390,19 @@ public class HSQLDictionary extends DBDictionary {
         buf.append(")");
     }
 
+    /**
+     * HSQL does not infer the type of an array parameter of
+     * <code>= ANY (?)</code>, so test against the rows of the array.
+     */
+    @Override
+    public void inArray(SQLBuffer buf, FilterValue val, Arrayed values,
+        Column col, Parameter userParam) {
+        val.appendTo(buf);
+        buf.append(" IN (UNNEST(");
+        buf.appendValue(values, col, userParam);
+        buf.append("))");
+    }
+
     @Override
     public String getPlaceholderValueString(Column col) {
         String type = getTypeName(col.getType());
@@ -434,6 +434,20 @@ public class MySQLDictionary
         return Integer.MIN_VALUE;
     }
 
+    /**
+     * The MySQL driver either reads all rows at once, or streams them one
+     * at a time when the fetch size is {@link Integer#MIN_VALUE}. Large
+     * result sets that fit in the memory budget are read at once, larger
+     * ones are streamed. Other results are always read at once, as a
+     * streaming result blocks every other statement on the connection
+     * until all its rows are read, such as those that load eager relations
+     * while the result is processed.
+     */
+    @Override
+    public int getAdaptiveFetchSize(int expected, int limit, boolean lrs) {
+        return (lrs && expected > limit) ? Integer.MIN_VALUE : 0;
+    }
+
     /**
      * Check to see if we have set the {@link #SELECT_HINT} in the
      * fetch configuration, and if so, append the MySQL hint after the
@@ -175,6 +175,10 @@ public class PostgresDictionary extends DBDictionary {
         }));
         booleanRepresentation = BooleanRepresentationFactory.BOOLEAN;
 
+        // bind large collections of IN clauses as a single array
+        inClausePadding = true;
+        inClauseArrayThreshold = 64;
+
         supportsLockingWithDistinctClause = false;
         supportsLockingWithOuterJoin = false;
 
@@ -343,6 +347,47 @@ public class PostgresDictionary extends DBDictionary {
         buf.append(")");
     }
 
+    /**
+     * Use the names of the server types, which the driver resolves
+     * the array types of.
+     */
+    @Override
+    protected String getArrayElementTypeName(Column col) {
+        switch (col.getType()) {
+            case Types.BIGINT:
+                return "int8";
+            case Types.INTEGER:
+                return "int4";
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return "int2";
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return "float8";
+            case Types.REAL:
+                return "float4";
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return "numeric";
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return "bool";
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.CLOB:
+                return "text";
+            case Types.DATE:
+                return "date";
+            case Types.TIME:
+                return "time";
+            case Types.TIMESTAMP:
+                return "timestamp";
+            default:
+                return null;
+        }
+    }
+
     @Override
     protected boolean supportsDeferredUniqueConstraints() {
         // Postgres only supports deferred foreign key constraints.
@@ -850,6 +895,19 @@ public class PostgresDictionary extends DBDictionary {
         return super.isFatalException(subtype, ex);
     }
 
+    /**
+     * The PostgreSQL driver reads all rows at once unless a fetch size is
+     * set, in which case it reads them through a cursor when auto-commit is
+     * off. Results that fit in the memory budget are read at once, larger
+     * results through a cursor of the budgeted size.
+     */
+    @Override
+    public int getAdaptiveFetchSize(int expected, int limit, boolean lrs) {
+        if (!supportsSetFetchSize)
+            return -1;
+        return (expected > limit) ? limit : 0;
+    }
+
     /**
      * If column is an XML column, PostgreSQL requires that its value is set
      * by using {@link PreparedStatement#setObject(int, Object, int)}
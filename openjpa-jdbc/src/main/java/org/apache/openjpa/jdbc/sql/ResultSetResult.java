@@ -44,6 +44,7 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.apache.openjpa.jdbc.identifier.DBIdentifier;
+import org.apache.openjpa.jdbc.kernel.FetchSizeAdvisor;
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
 import org.apache.openjpa.jdbc.meta.JavaSQLTypes;
 import org.apache.openjpa.jdbc.schema.Column;
@@ -68,6 +69,9 @@ public class ResultSetResult
     private boolean _closeConn = true;
     private int _row = -1;
     private int _size = -1;
+    private FetchSizeAdvisor _advisor = null;
+    private String _shape = null;
+    private int _read = 0;
 
     // optional; used to deserialize blobs containing refs to persistent objs
     private JDBCStore _store = null;
@@ -188,9 +192,24 @@ public class ResultSetResult
         _closeStatement = closeStatement;
     }
 
+    /**
+     * Set the advisor to tell the number of rows read on close, and the SQL
+     * the rows were read by.
+     *
+     * @since 3.2.3
+     */
+    public void setFetchSizeAdvisor(FetchSizeAdvisor advisor, String sql) {
+        _advisor = advisor;
+        _shape = sql;
+    }
+
     @Override
     public void close() {
         super.close();
+        if (_advisor != null) {
+            _advisor.record(_shape, _read);
+            _advisor = null;
+        }
         try {
             _rs.close();
         } catch (SQLException se) {
@@ -217,7 +236,7 @@ public class ResultSetResult
     protected boolean absoluteInternal(int row)
         throws SQLException {
         if (row == ++_row)
-            return _rs.next();
+            return read(_rs.next());
 
         // random access
         _rs.absolute(row + 1);
@@ -226,14 +245,23 @@ public class ResultSetResult
             return false;
         }
         _row = row;
-        return true;
+        return read(true);
     }
 
     @Override
     protected boolean nextInternal()
         throws SQLException {
         _row++;
-        return _rs.next();
+        return read(_rs.next());
+    }
+
+    /**
+     * Count the rows read up to the current row.
+     */
+    private boolean read(boolean found) {
+        if (found && _row >= _read)
+            _read = _row + 1;
+        return found;
     }
 
     @Override
@@ -40,6 +40,7 @@ import java.util.TreeMap;
 
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.kernel.EagerFetchModes;
+import org.apache.openjpa.jdbc.kernel.FetchSizeAdvisor;
 import org.apache.openjpa.jdbc.kernel.JDBCFetchConfiguration;
 import org.apache.openjpa.jdbc.kernel.JDBCLockManager;
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
@@ -442,6 +443,10 @@ public class SelectImpl
         boolean isLRS = isLRS();
         int rsType = (isLRS && supportsRandomAccess(forUpdate))
             ? -1 : ResultSet.TYPE_FORWARD_ONLY;
+        // an explicit fetch size takes precedence over the adapted one
+        FetchSizeAdvisor advisor = (fetch.getFetchBatchSize() < 0)
+            ? _conf.getFetchSizeAdvisorInstance() : null;
+        String shape = (advisor == null) ? null : sql.getSQL();
         Connection conn = store.getConnection();
         PreparedStatement stmnt = null;
         ResultSet rs = null;
@@ -452,6 +457,11 @@ public class SelectImpl
                 stmnt = prepareStatement(conn, sql, null, rsType, -1, false);
 
             _dict.setTimeouts(stmnt, fetch, forUpdate);
+            if (advisor != null) {
+                int fetchSize = advisor.getFetchSize(shape, getSelects().size(), isLRS, _dict);
+                if (fetchSize != -1)
+                    stmnt.setFetchSize(fetchSize);
+            }
 
             rs = executeQuery(conn, stmnt, sql, isLRS, store);
         } catch (SQLException se) {
@@ -461,7 +471,10 @@ public class SelectImpl
             try { conn.close(); } catch (SQLException se2) {}
             throw se;
         }
-        return getEagerResult(conn, stmnt, rs, store, fetch, forUpdate, sql);
+        Result res = getEagerResult(conn, stmnt, rs, store, fetch, forUpdate, sql);
+        if (advisor != null && res instanceof ResultSetResult)
+            ((ResultSetResult) res).setFetchSizeAdvisor(advisor, shape);
+        return res;
     }
 
     /**
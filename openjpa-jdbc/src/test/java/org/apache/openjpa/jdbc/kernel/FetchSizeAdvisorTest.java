@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.jdbc.sql.MariaDBDictionary;
+import org.apache.openjpa.jdbc.sql.MySQLDictionary;
+import org.apache.openjpa.jdbc.sql.PostgresDictionary;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+FetchSizeAdvisor expects the rows of a SQL string from a moving average of
+the rows its earlier executions read, adds headroom, and caps the result by
+the rows of the select's width that fit in the memory budget. Dictionaries
+map the result to a fetch size their driver honors; MySQL and MariaDB only
+ever stream large result sets.
+ */
+public class FetchSizeAdvisorTest {
+
+    private static final String SQL = "SELECT t0.ID, t0.NAME FROM T t0 WHERE t0.ID = ?";
+
+    private final DBDictionary dict = new DBDictionary();
+
+    @Test
+    public void testUnknownSqlLeavesFetchSize() {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor(1024);
+        Assert.assertEquals(-1, advisor.getFetchSize(SQL, 2, false, dict));
+        advisor.record(SQL, 10);
+        Assert.assertEquals(-1, advisor.getFetchSize("SELECT 1", 2, false, dict));
+    }
+
+    @Test
+    public void testExpectedRowsWithHeadroom() {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor(1024);
+        advisor.record(SQL, 10);
+        Assert.assertEquals(10 + 2 + 1, advisor.getFetchSize(SQL, 2, false, dict));
+
+        advisor.record(SQL, 0);
+        // 10 + 0.25 * (0 - 10)
+        Assert.assertEquals(8 + 2 + 1, advisor.getFetchSize(SQL, 2, false, dict));
+    }
+
+    @Test
+    public void testAverageFollowsRecentExecutions() {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor(1024);
+        advisor.record(SQL, 10);
+        for (int i = 0; i < 50; i++)
+            advisor.record(SQL, 1000);
+        Assert.assertEquals(1000 + 250 + 1, advisor.getFetchSize(SQL, 2, false, dict));
+    }
+
+    @Test
+    public void testBudgetCapsFetchSize() {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor(1);
+        Assert.assertEquals(1024, advisor.getBudget());
+        advisor.record(SQL, 1000);
+        Assert.assertEquals(1024 / (2 * FetchSizeAdvisor.BYTES_PER_COLUMN),
+            advisor.getFetchSize(SQL, 2, false, dict));
+        Assert.assertEquals(1, advisor.getFetchSize(SQL, 100, false, dict));
+    }
+
+    @Test
+    public void testInvalidRecordsAreIgnored() {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor(1024);
+        advisor.record(null, 10);
+        advisor.record(SQL, -1);
+        Assert.assertEquals(-1, advisor.getFetchSize(SQL, 2, false, dict));
+
+        advisor.record(SQL, 10);
+        advisor.clear();
+        Assert.assertEquals(-1, advisor.getFetchSize(SQL, 2, false, dict));
+    }
+
+    @Test
+    public void testMySQLOnlyStreamsLargeResultSets() {
+        assertStreamsOnlyLargeResultSets(new MySQLDictionary());
+        assertStreamsOnlyLargeResultSets(new MariaDBDictionary());
+    }
+
+    @Test
+    public void testPostgresUsesCursorOfBudgetedSize() {
+        PostgresDictionary postgres = new PostgresDictionary();
+        postgres.supportsSetFetchSize = true;
+        Assert.assertEquals(0, postgres.getAdaptiveFetchSize(10, 100, false));
+        Assert.assertEquals(100, postgres.getAdaptiveFetchSize(1000, 100, false));
+        Assert.assertEquals(100, postgres.getAdaptiveFetchSize(1000, 100, true));
+
+        postgres.supportsSetFetchSize = false;
+        Assert.assertEquals(-1, postgres.getAdaptiveFetchSize(1000, 100, true));
+    }
+
+    private static void assertStreamsOnlyLargeResultSets(DBDictionary dict) {
+        FetchSizeAdvisor advisor = new FetchSizeAdvisor(1024);
+        advisor.record(SQL, 10);
+        Assert.assertEquals(0, advisor.getFetchSize(SQL, 2, false, dict));
+        Assert.assertEquals(0, advisor.getFetchSize(SQL, 2, true, dict));
+
+        advisor.record(SQL, 100000);
+        // results read at once are never streamed, however large
+        Assert.assertEquals(0, advisor.getFetchSize(SQL, 2, false, dict));
+        Assert.assertEquals(Integer.MIN_VALUE, advisor.getFetchSize(SQL, 2, true, dict));
+    }
+}
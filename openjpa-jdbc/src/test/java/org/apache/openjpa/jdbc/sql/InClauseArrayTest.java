@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.openjpa.jdbc.kernel.exps.FilterValue;
+import org.apache.openjpa.jdbc.schema.Column;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/*
+The values of a collection-valued parameter of an IN clause are padded to
+the next power of two, or to a multiple of the IN clause limit, so that
+collections of similar sizes share a statement. From the array threshold,
+values of a simple type are bound as a single array instead, which the
+dictionary tests against with "= ANY (?)", or "IN (UNNEST(?))" on HSQLDB.
+ */
+public class InClauseArrayTest {
+
+    @Test
+    public void testNoPaddingByDefault() {
+        DBDictionary dict = new DBDictionary();
+        for (int size = 0; size < 100; size++)
+            Assert.assertEquals(size, dict.getInClausePaddedSize(size));
+    }
+
+    @Test
+    public void testPaddedToPowerOfTwo() {
+        DBDictionary dict = new DBDictionary();
+        dict.inClausePadding = true;
+        Assert.assertEquals(0, dict.getInClausePaddedSize(0));
+        Assert.assertEquals(1, dict.getInClausePaddedSize(1));
+        Assert.assertEquals(2, dict.getInClausePaddedSize(2));
+        Assert.assertEquals(4, dict.getInClausePaddedSize(3));
+        Assert.assertEquals(4, dict.getInClausePaddedSize(4));
+        Assert.assertEquals(8, dict.getInClausePaddedSize(5));
+        Assert.assertEquals(1024, dict.getInClausePaddedSize(513));
+    }
+
+    @Test
+    public void testPaddedToMultipleOfLimit() {
+        DBDictionary dict = new DBDictionary();
+        dict.inClausePadding = true;
+        dict.inClauseLimit = 100;
+        Assert.assertEquals(64, dict.getInClausePaddedSize(33));
+        Assert.assertEquals(100, dict.getInClausePaddedSize(65));
+        Assert.assertEquals(100, dict.getInClausePaddedSize(100));
+        Assert.assertEquals(200, dict.getInClausePaddedSize(101));
+        Assert.assertEquals(1000, dict.getInClausePaddedSize(901));
+    }
+
+    @Test
+    public void testArrayFromThreshold() {
+        DBDictionary dict = new DBDictionary();
+        Column col = column(Types.INTEGER);
+        Assert.assertNull(dict.getInClauseArray(values(100), col));
+
+        dict.inClauseArrayThreshold = 10;
+        Assert.assertNull(dict.getInClauseArray(values(9), col));
+        Assert.assertNull(dict.getInClauseArray(values(10), null));
+        Arrayed array = dict.getInClauseArray(values(10), col);
+        Assert.assertEquals(values(10), Arrays.asList(array.values));
+        Assert.assertEquals(dict.integerTypeName, array.type);
+    }
+
+    @Test
+    public void testOnlySimpleValuesAreArrayed() {
+        DBDictionary dict = new DBDictionary();
+        dict.inClauseArrayThreshold = 2;
+        Column col = column(Types.VARCHAR);
+        Assert.assertNotNull(dict.getInClauseArray(Arrays.asList("a", "b"), col));
+        Assert.assertNotNull(dict.getInClauseArray(Arrays.asList(new Date(), new Date()),
+            column(Types.TIMESTAMP)));
+        Assert.assertNull(dict.getInClauseArray(Arrays.asList("a", null), col));
+        Assert.assertNull(dict.getInClauseArray(Arrays.asList("a", new Object()), col));
+    }
+
+    @Test
+    public void testPostgresElementTypes() {
+        PostgresDictionary dict = new PostgresDictionary();
+        Assert.assertTrue(dict.inClausePadding);
+        Assert.assertEquals(64, dict.inClauseArrayThreshold);
+        Assert.assertEquals("int8", dict.getArrayElementTypeName(column(Types.BIGINT)));
+        Assert.assertEquals("int4", dict.getArrayElementTypeName(column(Types.INTEGER)));
+        Assert.assertEquals("text", dict.getArrayElementTypeName(column(Types.VARCHAR)));
+        Assert.assertEquals("numeric", dict.getArrayElementTypeName(column(Types.DECIMAL)));
+        Assert.assertNull(dict.getArrayElementTypeName(column(Types.BLOB)));
+        Assert.assertNull(dict.getInClauseArray(Arrays.asList(new byte[1], new byte[1]),
+            column(Types.BLOB)));
+    }
+
+    @Test
+    public void testArrayTests() {
+        Arrayed array = new Arrayed(new Object[] { 1, 2 }, "INTEGER");
+        Column col = column(Types.INTEGER);
+
+        DBDictionary dict = new DBDictionary();
+        SQLBuffer buf = new SQLBuffer(dict);
+        dict.inArray(buf, value("t0.ID"), array, col, null);
+        Assert.assertEquals("t0.ID = ANY (?)", buf.getSQL());
+        Assert.assertEquals(Arrays.asList(array), buf.getParameters());
+
+        HSQLDictionary hsql = new HSQLDictionary();
+        buf = new SQLBuffer(hsql);
+        hsql.inArray(buf, value("t0.ID"), array, col, null);
+        Assert.assertEquals("t0.ID IN (UNNEST(?))", buf.getSQL());
+        Assert.assertEquals(Arrays.asList(array), buf.getParameters());
+    }
+
+    @Test
+    public void testArrayIsBoundOnHSQL() throws Exception {
+        HSQLDictionary dict = new HSQLDictionary();
+        Column col = column(Types.INTEGER);
+        try (Connection conn = DriverManager.getConnection(
+            "jdbc:hsqldb:mem:inclausearray", "sa", "")) {
+            try (Statement stmnt = conn.createStatement()) {
+                stmnt.execute("CREATE TABLE T (ID INTEGER)");
+                for (int i = 0; i < 200; i++)
+                    stmnt.execute("INSERT INTO T VALUES (" + i + ")");
+            }
+
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 300; i += 3)
+                ids.add(i);
+            Arrayed array = dict.getInClauseArray(ids, col);
+            Assert.assertNotNull(array);
+
+            SQLBuffer buf = new SQLBuffer(dict).append("SELECT ID FROM T WHERE ");
+            dict.inArray(buf, value("ID"), array, col, null);
+            buf.append(" ORDER BY ID");
+            List<Integer> found = new ArrayList<>();
+            try (PreparedStatement stmnt = conn.prepareStatement(buf.getSQL())) {
+                dict.setUnknown(stmnt, 1, array, col);
+                try (ResultSet rs = stmnt.executeQuery()) {
+                    while (rs.next())
+                        found.add(rs.getInt(1));
+                }
+            }
+            Assert.assertEquals(ids.subList(0, 67), found);
+        }
+    }
+
+    private static Column column(int type) {
+        Column col = new Column();
+        col.setType(type);
+        return col;
+    }
+
+    private static List<Object> values(int count) {
+        List<Object> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            values.add(i);
+        return values;
+    }
+
+    private static FilterValue value(final String sql) {
+        FilterValue val = Mockito.mock(FilterValue.class);
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((SQLBuffer) invocation.getArguments()[0]).append(sql);
+                return null;
+            }
+        }).when(val).appendTo(Mockito.any(SQLBuffer.class));
+        return val;
+    }
+}
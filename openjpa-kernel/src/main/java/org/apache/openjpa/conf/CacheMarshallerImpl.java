@@ -21,6 +21,7 @@ package org.apache.openjpa.conf;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -61,11 +62,14 @@ public class CacheMarshallerImpl
     private String _inputResourceLocation;
 
     private boolean _consumeErrors = true;
+    private boolean _storeOnMiss = false;
+    private boolean _missed = false;
 
     @Override
     public Object load() {
         if (_inputURL == null) {
             _log.trace(_loc.get("cache-marshaller-no-inputs", getId()));
+            _missed = true;
             return null;
         }
 
@@ -90,6 +94,10 @@ public class CacheMarshallerImpl
             if (_log.isTraceEnabled())
                 _log.trace(_loc.get("cache-marshaller-loaded",
                     o == null ? null : o.getClass().getName(), _inputURL));
+        } catch (FileNotFoundException fnfe) {
+            // nothing has been stored yet
+            if (_log.isTraceEnabled())
+                _log.trace(_loc.get("cache-marshaller-no-inputs", getId()));
         } catch (Exception e) {
             if (_consumeErrors) {
                 if (_log.isWarnEnabled())
@@ -106,6 +114,7 @@ public class CacheMarshallerImpl
                 try { in.close(); } catch (IOException e) { }
         }
 
+        _missed = o == null;
         return o;
     }
 
@@ -132,6 +141,7 @@ public class CacheMarshallerImpl
             oos.writeObject(toStore);
             oos.flush();
             out.flush();
+            _missed = false;
             if (_log.isTraceEnabled())
                 _log.trace(_loc.get("cache-marshaller-stored",
                     o.getClass().getName(), _outputFile));
@@ -173,6 +183,32 @@ public class CacheMarshallerImpl
         _consumeErrors = consume;
     }
 
+    /**
+     * Whether the data should be stored by the component that requested it
+     * once it has been built, when no valid cached data could be loaded.
+     * This lets the first run of an application create the cache that later
+     * runs load. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public void setStoreOnMiss(boolean storeOnMiss) {
+        _storeOnMiss = storeOnMiss;
+    }
+
+    public boolean getStoreOnMiss() {
+        return _storeOnMiss;
+    }
+
+    /**
+     * Return true if {@link #getStoreOnMiss} is set, an output file is
+     * configured and the last {@link #load} found no valid cached data.
+     *
+     * @since 3.2.3
+     */
+    public boolean isStoreRequired() {
+        return _storeOnMiss && _missed && _outputFile != null;
+    }
+
     @Override
     public String getId() {
         return _id;
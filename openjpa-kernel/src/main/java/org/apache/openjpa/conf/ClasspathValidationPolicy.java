@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.conf;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.util.GeneralException;
+
+/**
+ * Extends {@link OpenJPAVersionAndConfigurationTypeValidationPolicy} to also
+ * reject cached data when the classpath has changed since the data was
+ * stored. The classpath is fingerprinted from the path, size and
+ * modification time of every jar and class file visible through the
+ * <code>java.class.path</code> system property and the URL class loaders
+ * of the configured class resolver. Keep the cache file itself outside of
+ * the fingerprinted classpath, or every store will invalidate it.
+ *
+ * @since 3.2.3
+ */
+public class ClasspathValidationPolicy
+    extends OpenJPAVersionAndConfigurationTypeValidationPolicy {
+
+    /**
+     * Version of the stored layout. Bump when the cached object graph
+     * changes incompatibly.
+     */
+    public static final int SNAPSHOT_VERSION = 1;
+
+    private OpenJPAConfiguration _conf;
+    private String _fingerprint;
+
+    @Override
+    public Object getCacheableData(Object o) {
+        return new Object[] {
+            SNAPSHOT_VERSION,
+            getFingerprint(),
+            super.getCacheableData(o),
+        };
+    }
+
+    @Override
+    public Object getValidData(Object o) {
+        if (!(o instanceof Object[]))
+            return null;
+        Object[] array = (Object[]) o;
+        if (array.length != 3)
+            return null;
+
+        if (Integer.valueOf(SNAPSHOT_VERSION).equals(array[0])
+            && getFingerprint().equals(array[1]))
+            return super.getValidData(array[2]);
+        else
+            return null;
+    }
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        super.setConfiguration(conf);
+        _conf = (OpenJPAConfiguration) conf;
+    }
+
+    /**
+     * Return the fingerprint of the current classpath, computed once.
+     */
+    public synchronized String getFingerprint() {
+        if (_fingerprint == null)
+            _fingerprint = computeFingerprint();
+        return _fingerprint;
+    }
+
+    private String computeFingerprint() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new GeneralException(nsae);
+        }
+        for (File entry : getClasspath())
+            update(digest, entry);
+
+        StringBuilder buf = new StringBuilder();
+        for (byte b : digest.digest())
+            buf.append(Character.forDigit((b >> 4) & 0xf, 16))
+                .append(Character.forDigit(b & 0xf, 16));
+        return buf.toString();
+    }
+
+    /**
+     * Return the classpath entries to fingerprint, in a stable order.
+     */
+    private Set<File> getClasspath() {
+        Set<File> entries = new LinkedHashSet<>();
+        String path = System.getProperty("java.class.path");
+        if (path != null)
+            for (String entry : path.split(File.pathSeparator))
+                if (entry.length() > 0)
+                    entries.add(new File(entry).getAbsoluteFile());
+
+        ClassLoader loader = (_conf == null) ? null : _conf
+            .getClassResolverInstance().getClassLoader(getClass(), null);
+        for (; loader != null; loader = loader.getParent()) {
+            if (!(loader instanceof URLClassLoader))
+                continue;
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                if (!"file".equals(url.getProtocol()))
+                    continue;
+                try {
+                    entries.add(new File(url.toURI()).getAbsoluteFile());
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    entries.add(new File(url.getPath()).getAbsoluteFile());
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Add the path, size and modification time of the given file, or of
+     * every file beneath the given directory, to the digest.
+     */
+    private static void update(MessageDigest digest, File file) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null)
+                return;
+            Arrays.sort(children);
+            for (File child : children)
+                update(digest, child);
+            return;
+        }
+        if (!file.exists())
+            return;
+        digest.update((file.getPath() + ":" + file.length() + ":"
+            + file.lastModified() + ";").getBytes(StandardCharsets.UTF_8));
+    }
+}
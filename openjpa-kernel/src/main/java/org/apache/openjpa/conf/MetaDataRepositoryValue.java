@@ -51,9 +51,12 @@ public class MetaDataRepositoryValue
         MetaDataRepository repos = null;
         OpenJPAConfiguration conf = (OpenJPAConfiguration) c;
 
-        Object[] os = (Object[]) CacheMarshallersValue.getMarshallerById(
-            conf, MetaDataCacheMaintenance.class.getName())
-            .load();
+        // only the configuration's own repository is restored; further
+        // instances, such as the mapping tool's, resolve their metadata anew
+        Object[] os = null;
+        if (!conf.metaDataRepositoryAvailable())
+            os = (Object[]) CacheMarshallersValue.getMarshallerById(
+                conf, MetaDataCacheMaintenance.class.getName()).load();
         if (os != null) {
             repos = (MetaDataRepository) os[0];
             if (os[1] != null)
@@ -45,6 +45,7 @@ import org.apache.openjpa.kernel.InverseManager;
 import org.apache.openjpa.kernel.LockManager;
 import org.apache.openjpa.kernel.PreparedQueryCache;
 import org.apache.openjpa.kernel.QueryFlushModes;
+import org.apache.openjpa.kernel.QueryWarmStart;
 import org.apache.openjpa.kernel.RestoreState;
 import org.apache.openjpa.kernel.SavepointManager;
 import org.apache.openjpa.kernel.Seq;
@@ -383,6 +384,26 @@ public interface OpenJPAConfiguration
      */
     void setDataCacheTimeout(Integer timeout);
 
+    /**
+     * The maximum number of instances a bulk delete or update selects the
+     * ids of before it executes, to evict only those instances from the
+     * data cache. A bulk operation that changes more instances evicts all
+     * instances of its types. Defaults to 0, which always evicts all
+     * instances of the types.
+     *
+     * @since 3.2.3
+     */
+    int getBulkUpdateEvictionLimit();
+
+    /**
+     * The maximum number of instances a bulk delete or update selects the
+     * ids of before it executes, to evict only those instances from the
+     * data cache. Use 0 to always evict all instances of the types.
+     *
+     * @since 3.2.3
+     */
+    void setBulkUpdateEvictionLimit(int limit);
+
     /**
      * Gets whether entity state is to be refreshed from {@link DataCache}.
      * The entities are never refreshed from DataCache if lock is being applied
@@ -1120,6 +1141,42 @@ public interface OpenJPAConfiguration
      */
     void setFetchBatchSize(Integer size);
 
+    /**
+     * Get the number of results of a query held in memory when all results
+     * are read at once. Further results are spilled to a temporary file.
+     * Use 0 to hold all results in memory.
+     *
+     * @since 3.2.3
+     */
+    int getResultSpillThreshold();
+
+    /**
+     * Set the number of results of a query held in memory when all results
+     * are read at once. Further results are spilled to a temporary file.
+     * Use 0 to hold all results in memory.
+     *
+     * @since 3.2.3
+     */
+    void setResultSpillThreshold(int threshold);
+
+    /**
+     * Get the number of candidates from which a query evaluated in memory
+     * filters and orders them in parallel. Use 0 to always evaluate them
+     * in the calling thread.
+     *
+     * @since 3.2.3
+     */
+    int getInMemoryParallelThreshold();
+
+    /**
+     * Set the number of candidates from which a query evaluated in memory
+     * filters and orders them in parallel. Use 0 to always evaluate them
+     * in the calling thread.
+     *
+     * @since 3.2.3
+     */
+    void setInMemoryParallelThreshold(int threshold);
+
     /**
      * The maximum relation depth to traverse when eager fetching.  Use
      * -1 for no limit.
@@ -1512,6 +1569,29 @@ public interface OpenJPAConfiguration
      */
     Map getQueryCompilationCacheInstance();
 
+    /**
+     * Plugin string for the {@link QueryWarmStart} that records the queries
+     * used most and compiles them in the background on the next start.
+     *
+     * @since 3.2.3
+     */
+    String getQueryWarmStart();
+
+    /**
+     * Plugin string for the {@link QueryWarmStart} that records the queries
+     * used most and compiles them in the background on the next start.
+     *
+     * @since 3.2.3
+     */
+    void setQueryWarmStart(String warmStart);
+
+    /**
+     * The {@link QueryWarmStart} to use, or null if none.
+     *
+     * @since 3.2.3
+     */
+    QueryWarmStart getQueryWarmStartInstance();
+
     /**
      * Return the {@link StoreFacadeTypeRegistry} instance associated with this
      * configuration.
@@ -50,6 +50,7 @@ import org.apache.openjpa.kernel.LockLevels;
 import org.apache.openjpa.kernel.LockManager;
 import org.apache.openjpa.kernel.PreparedQueryCache;
 import org.apache.openjpa.kernel.QueryFlushModes;
+import org.apache.openjpa.kernel.QueryWarmStart;
 import org.apache.openjpa.kernel.RestoreState;
 import org.apache.openjpa.kernel.SavepointManager;
 import org.apache.openjpa.kernel.Seq;
@@ -105,12 +106,15 @@ public class OpenJPAConfigurationImpl
     public ObjectValue auditorPlugin;
     public ObjectValue cacheDistributionPolicyPlugin;
     public IntValue dataCacheTimeout;
+    public IntValue bulkUpdateEvictionLimit;
     public ObjectValue queryCachePlugin;
     public BooleanValue dynamicDataStructs;
     public ObjectValue managedRuntimePlugin;
     public BooleanValue transactionMode;
     public IntValue connectionRetainMode;
     public IntValue fetchBatchSize;
+    public IntValue resultSpillThreshold;
+    public IntValue inMemoryParallelThreshold;
     public IntValue maxFetchDepth;
     public StringListValue fetchGroups;
     public IntValue flushBeforeQueries;
@@ -161,6 +165,7 @@ public class OpenJPAConfigurationImpl
     public ObjectValue compatibilityPlugin;
     public ObjectValue callbackPlugin;
     public QueryCompilationCacheValue queryCompilationCachePlugin;
+    public ObjectValue queryWarmStartPlugin;
     public IntValue runtimeUnenhancedClasses;
     public CacheMarshallersValue cacheMarshallerPlugins;
     public BooleanValue eagerInitialization;
@@ -279,6 +284,11 @@ public class OpenJPAConfigurationImpl
         dataCacheTimeout.set(-1);
         dataCacheTimeout.setDynamic(true);
 
+        bulkUpdateEvictionLimit = addInt("BulkUpdateEvictionLimit");
+        bulkUpdateEvictionLimit.setDefault("0");
+        bulkUpdateEvictionLimit.set(0);
+        bulkUpdateEvictionLimit.setDynamic(true);
+
         queryCachePlugin = addPlugin("QueryCache", false);
         aliases = new String[] {
             "false", null,
@@ -529,6 +539,16 @@ public class OpenJPAConfigurationImpl
         fetchBatchSize.set(-1);
         fetchBatchSize.setDynamic(true);
 
+        resultSpillThreshold = addInt("ResultSpillThreshold");
+        resultSpillThreshold.setDefault("0");
+        resultSpillThreshold.set(0);
+        resultSpillThreshold.setDynamic(true);
+
+        inMemoryParallelThreshold = addInt("InMemoryParallelThreshold");
+        inMemoryParallelThreshold.setDefault("0");
+        inMemoryParallelThreshold.set(0);
+        inMemoryParallelThreshold.setDynamic(true);
+
         maxFetchDepth = addInt("MaxFetchDepth");
         maxFetchDepth.setDefault("-1");
         maxFetchDepth.set(-1);
@@ -618,6 +638,16 @@ public class OpenJPAConfigurationImpl
         queryCompilationCachePlugin.setInstantiatingGetter("getQueryCompilationCacheInstance");
         addValue(queryCompilationCachePlugin);
 
+        queryWarmStartPlugin = addPlugin("QueryWarmStart", true);
+        aliases = new String[] {
+            "false", null,
+            "true", QueryWarmStart.class.getName(),
+        };
+        queryWarmStartPlugin.setAliases(aliases);
+        queryWarmStartPlugin.setDefault(aliases[0]);
+        queryWarmStartPlugin.setString(aliases[0]);
+        queryWarmStartPlugin.setInstantiatingGetter("getQueryWarmStartInstance");
+
         runtimeUnenhancedClasses = addInt("RuntimeUnenhancedClasses");
         runtimeUnenhancedClasses.setAliases(new String[] {
             "supported",   String.valueOf(RuntimeUnenhancedClassesModes.SUPPORTED),
@@ -845,6 +875,16 @@ public class OpenJPAConfigurationImpl
         return dataCacheTimeout.get();
     }
 
+    @Override
+    public void setBulkUpdateEvictionLimit(int limit) {
+        bulkUpdateEvictionLimit.set(limit);
+    }
+
+    @Override
+    public int getBulkUpdateEvictionLimit() {
+        return bulkUpdateEvictionLimit.get();
+    }
+
     @Override
     public void setQueryCache(String queryCache) {
         queryCachePlugin.setString(queryCache);
@@ -1521,6 +1561,26 @@ public class OpenJPAConfigurationImpl
         return fetchBatchSize.get();
     }
 
+    @Override
+    public void setResultSpillThreshold(int threshold) {
+        resultSpillThreshold.set(threshold);
+    }
+
+    @Override
+    public int getResultSpillThreshold() {
+        return resultSpillThreshold.get();
+    }
+
+    @Override
+    public void setInMemoryParallelThreshold(int threshold) {
+        inMemoryParallelThreshold.set(threshold);
+    }
+
+    @Override
+    public int getInMemoryParallelThreshold() {
+        return inMemoryParallelThreshold.get();
+    }
+
     @Override
     public void setMaxFetchDepth(int maxFetchDepth) {
         this.maxFetchDepth.set(maxFetchDepth);
@@ -1808,6 +1868,23 @@ public class OpenJPAConfigurationImpl
         return (Map) queryCompilationCachePlugin.get();
     }
 
+    @Override
+    public String getQueryWarmStart() {
+        return queryWarmStartPlugin.getString();
+    }
+
+    @Override
+    public void setQueryWarmStart(String warmStart) {
+        queryWarmStartPlugin.setString(warmStart);
+    }
+
+    @Override
+    public QueryWarmStart getQueryWarmStartInstance() {
+        if (queryWarmStartPlugin.get() == null)
+            queryWarmStartPlugin.instantiate(QueryWarmStart.class, this);
+        return (QueryWarmStart) queryWarmStartPlugin.get();
+    }
+
     @Override
     public StoreFacadeTypeRegistry getStoreFacadeTypeRegistry() {
         return _storeFacadeRegistry;
@@ -27,6 +27,7 @@ import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.conf.PluginValue;
 import org.apache.openjpa.lib.util.ParseException;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.FrequencyCacheMap;
 
 /**
  * A cache of compiled queries.
@@ -38,7 +39,8 @@ public class QueryCompilationCacheValue
     extends PluginValue {
 
     public static final String[] ALIASES = {
-        "true", CacheMap.class.getName(),
+        "true", FrequencyCacheMap.class.getName(),
+        "lru", CacheMap.class.getName(),
         "all", ConcurrentHashMap.class.getName(),
         "false", null,
     };
@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.event.RemoteCommitEvent;
@@ -86,6 +88,12 @@ public abstract class AbstractQueryCache
     // default evict policy
     public EvictPolicy evictPolicy = EvictPolicy.DEFAULT;
 
+    // executions of queries in progress, to coalesce concurrent misses
+    private static final long EXECUTION_TIMEOUT = 30000;
+    private final ConcurrentHashMap<QueryKey, Execution> _executions =
+        new ConcurrentHashMap<>();
+    private long _coalesceTimeout = 0;
+
     private QueryStatistics<QueryKey> _stats;
     private boolean _statsEnabled = false;
 
@@ -166,15 +174,30 @@ public abstract class AbstractQueryCache
 
     @Override
     public QueryResult get(QueryKey key) {
+        return get(key, false);
+    }
+
+    /**
+     * Return the result cached for the given key. A result that has timed
+     * out is removed, unless <code>stale</code> is set, in which case it is
+     * kept and returned, so that it can be served while the query is
+     * executed again.
+     *
+     * @since 3.2.3
+     */
+    public QueryResult get(QueryKey key, boolean stale) {
         if (_statsEnabled) {
             _stats.recordExecution(key);
         }
         QueryResult o = getInternal(key);
         if (o != null && o.isTimedOut()) {
-            o = null;
-            removeInternal(key);
             if (log.isTraceEnabled())
                 log.trace(s_loc.get("cache-timeout", key));
+            // a stale result is not counted as a hit
+            if (stale)
+                return o;
+            o = null;
+            removeInternal(key);
         }
 
         if (log.isTraceEnabled()) {
@@ -468,6 +491,101 @@ public abstract class AbstractQueryCache
         return tmval;
     }
 
+    /**
+     * The number of milliseconds a query that misses the cache waits for
+     * an execution of the same query in progress to cache its result,
+     * rather than executing the query again. Defaults to 0, which does not
+     * wait.
+     *
+     * @since 3.2.3
+     */
+    public void setCoalesceTimeout(long timeout) {
+        _coalesceTimeout = timeout;
+    }
+
+    /**
+     * The number of milliseconds a query that misses the cache waits for
+     * an execution of the same query in progress.
+     *
+     * @since 3.2.3
+     */
+    public long getCoalesceTimeout() {
+        return _coalesceTimeout;
+    }
+
+    /**
+     * Register an execution of the query of the given key, whose result is
+     * to be cached. An execution that has not ended within the
+     * {@link #getCoalesceTimeout coalesce timeout}, or within 30 seconds if
+     * there is none, is taken over by the next one.
+     *
+     * @return a latch to pass to {@link #endExecution} once the result is
+     * cached or abandoned, or null if an execution of the same query is
+     * already in progress
+     * @since 3.2.3
+     */
+    public CountDownLatch startExecution(QueryKey key) {
+        Execution execution = new Execution();
+        Execution other = _executions.putIfAbsent(key, execution);
+        if (other == null)
+            return execution;
+
+        // take over an execution whose result is not read in time, so that
+        // a result that is never closed does not keep the query from being
+        // cached again
+        long timeout = (_coalesceTimeout > 0) ? _coalesceTimeout
+            : EXECUTION_TIMEOUT;
+        if (System.currentTimeMillis() - other.start > timeout
+            && _executions.replace(key, other, execution)) {
+            other.countDown();
+            return execution;
+        }
+        return null;
+    }
+
+    /**
+     * Wait at most the {@link #getCoalesceTimeout coalesce timeout} for the
+     * execution of the query of the given key in progress to end.
+     *
+     * @return true if the execution ended
+     * @since 3.2.3
+     */
+    public boolean awaitExecution(QueryKey key) {
+        CountDownLatch latch = _executions.get(key);
+        if (latch == null)
+            return true;
+        if (_coalesceTimeout <= 0)
+            return false;
+        try {
+            return latch.await(_coalesceTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * End an execution registered by {@link #startExecution}, releasing the
+     * queries waiting for it.
+     *
+     * @since 3.2.3
+     */
+    public void endExecution(QueryKey key, CountDownLatch latch) {
+        _executions.remove(key, latch);
+        latch.countDown();
+    }
+
+    /**
+     * An execution of a query in progress.
+     */
+    private static class Execution extends CountDownLatch {
+        final long start = System.currentTimeMillis();
+
+        Execution() {
+            super(1);
+        }
+    }
+
     public void setName(String n) {
         _name = n;
     }
@@ -29,12 +29,16 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 
 import org.apache.openjpa.datacache.AbstractQueryCache.EvictPolicy;
+import org.apache.openjpa.kernel.ExpressionStoreQuery;
 import org.apache.openjpa.kernel.FetchConfiguration;
+import org.apache.openjpa.kernel.Filters;
 import org.apache.openjpa.kernel.LockLevels;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.QueryContext;
+import org.apache.openjpa.kernel.QueryHints;
 import org.apache.openjpa.kernel.ResultShape;
 import org.apache.openjpa.kernel.StoreContext;
 import org.apache.openjpa.kernel.StoreQuery;
@@ -109,8 +113,11 @@ public class QueryCacheStoreQuery
      * are of READ_COMMITTED isolation level. It'd be nice to support
      * READ_SERIALIZABLE -- to do so, we'd just return false when in
      * a transaction.
+     *  If the query is to serve stale results, a result that has timed out
+     * is kept in the cache, and only returned if <code>stale</code> is set.
      */
-    private List<Object> checkCache(QueryKey qk, FetchConfiguration loadFc) {
+    private List<Object> checkCache(QueryKey qk, FetchConfiguration loadFc,
+        boolean stale) {
         if (qk == null)
             return null;
         FetchConfiguration fetch = getContext().getFetchConfiguration();
@@ -120,7 +127,13 @@ public class QueryCacheStoreQuery
             return null;
 
         // get the cached data
-        QueryResult res = _cache.get(qk);
+        QueryResult res;
+        if (isStaleWhileRevalidate()) {
+            res = ((AbstractQueryCache) _cache).get(qk, true);
+            if (res != null && res.isTimedOut() && !stale)
+                return null;
+        } else
+            res = _cache.get(qk);
         if (res == null) {
             return null;
         }
@@ -163,16 +176,27 @@ public class QueryCacheStoreQuery
         return new CachedList(res, projs != 0, _sctx, loadFc);
     }
 
+    /**
+     * Whether the query serves the results that have timed out in the cache
+     * while it is executed again.
+     */
+    private boolean isStaleWhileRevalidate() {
+        Object hint = getContext().getFetchConfiguration().getHint(
+            QueryHints.HINT_QUERY_CACHE_STALE_WHILE_REVALIDATE);
+        return hint != null && _cache instanceof AbstractQueryCache
+            && (Boolean) Filters.convert(hint, Boolean.class);
+    }
+
     /**
      * Wrap the result object provider returned by our delegate in a
      * caching provider.
      */
     private ResultObjectProvider wrapResult(ResultObjectProvider rop,
-        QueryKey key) {
+        QueryKey key, CountDownLatch execution) {
         if (key == null)
             return rop;
         return new CachingResultObjectProvider(rop, getContext().
-            getProjectionAliases().length > 0, key);
+            getProjectionAliases().length > 0, key, execution);
     }
 
     /**
@@ -372,18 +396,52 @@ public class QueryCacheStoreQuery
                     cacheFc.addField(fetchFields);
                 }
             }
+            CountDownLatch execution = null;
             try {
-                List<Object> cached = cq.checkCache(key, cacheFc);
+                List<Object> cached = cq.checkCache(key, cacheFc, false);
                 if (cached != null) {
                     return new ListResultObjectProvider(cached);
                 }
+
+                // register the execution of the query; if the same query is
+                // being executed, serve its stale result or wait for the
+                // execution to cache a new one
+                if (key != null && _fc.getQueryCacheEnabled()
+                    && cq.getCache() instanceof AbstractQueryCache) {
+                    AbstractQueryCache qcache = (AbstractQueryCache) cq.getCache();
+                    boolean stale = cq.isStaleWhileRevalidate();
+                    if (stale || qcache.getCoalesceTimeout() > 0) {
+                        execution = qcache.startExecution(key);
+                        if (execution == null) {
+                            if (stale)
+                                cached = cq.checkCache(key, cacheFc, true);
+                            if (cached == null && qcache.awaitExecution(key))
+                                cached = cq.checkCache(key, cacheFc, false);
+                            if (cached != null) {
+                                return new ListResultObjectProvider(cached);
+                            }
+                        }
+                    }
+                }
+            } catch (RuntimeException re) {
+                // release the queries waiting for the execution
+                if (execution != null)
+                    ((AbstractQueryCache) cq.getCache()).endExecution(key, execution);
+                throw re;
             } finally {
                 store.popFetchConfiguration();
             }
 
-            ResultObjectProvider rop = _ex.executeQuery(cq.getDelegate(), params, range);
+            ResultObjectProvider rop;
+            try {
+                rop = _ex.executeQuery(cq.getDelegate(), params, range);
+            } catch (RuntimeException re) {
+                if (execution != null)
+                    ((AbstractQueryCache) cq.getCache()).endExecution(key, execution);
+                throw re;
+            }
             if (_fc.getQueryCacheEnabled())
-                return cq.wrapResult(rop, key);
+                return cq.wrapResult(rop, key, execution);
             else
                 return rop;
         }
@@ -417,7 +475,10 @@ public class QueryCacheStoreQuery
             cq.getCache().onTypesChanged(new TypesChangedEvent
                 (q.getContext(), classes));
 
-            // evict from the data cache
+            // evict from the data cache, unless the executor has evicted the
+            // instances the bulk operation changed itself
+            if (_ex instanceof ExpressionStoreQuery.DataStoreExecutor)
+                return;
             for (ClassMetaData classMetaData : cmd) {
                 if (classMetaData.getDataCache() != null && classMetaData.getDataCache().getEvictOnBulkUpdate())
                     classMetaData.getDataCache().removeAll(
@@ -607,6 +668,7 @@ public class QueryCacheStoreQuery
         private final ResultObjectProvider _rop;
         private final boolean _proj;
         private final QueryKey _qk;
+        private final CountDownLatch _execution;
         private final TreeMap<Integer,Object> _data = new TreeMap<>();
         private boolean _maintainCache = true;
         private int _pos = -1;
@@ -617,13 +679,15 @@ public class QueryCacheStoreQuery
         private int _size = Integer.MAX_VALUE;
 
         /**
-         * Constructor. Supply delegate result provider and our query key.
+         * Constructor. Supply delegate result provider, our query key and
+         * the execution registered for it, if any.
          */
         public CachingResultObjectProvider(ResultObjectProvider rop,
-            boolean proj, QueryKey key) {
+            boolean proj, QueryKey key, CountDownLatch execution) {
             _rop = rop;
             _proj = proj;
             _qk = key;
+            _execution = execution;
             _cache.addTypesChangedListener(this);
         }
 
@@ -642,6 +706,8 @@ public class QueryCacheStoreQuery
                 _cache.removeTypesChangedListener(this);
                 _data.clear();
             }
+            if (_execution != null)
+                ((AbstractQueryCache) _cache).endExecution(_qk, _execution);
         }
 
         /**
@@ -38,8 +38,10 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 import org.apache.openjpa.enhance.PCRegistry;
+import org.apache.openjpa.kernel.Filters;
 import org.apache.openjpa.kernel.Query;
 import org.apache.openjpa.kernel.QueryContext;
+import org.apache.openjpa.kernel.QueryHints;
 import org.apache.openjpa.kernel.StoreContext;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.JavaTypes;
@@ -243,6 +245,12 @@ public class QueryKey
         key._subclasses = subclasses;
         key._accessPathClassNames = accessPathClassNames;
         key._timeout = timeout;
+
+        // a timeout given for the query replaces that of the candidate class
+        Object hint = q.getFetchConfiguration().getHint(
+            QueryHints.HINT_QUERY_CACHE_TIMEOUT);
+        if (hint != null)
+            key._timeout = (Integer) Filters.convert(hint, Integer.class);
         key._query = q.getQueryString();
         if (key._query == null && parsed != null) {
             // this is a criteria query. Store the Stringified query value rather than the full cq.
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.enhance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.openjpa.conf.OpenJPAVersion;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.util.GeneralException;
+
+/**
+ * On-disk cache of runtime enhancement results, keyed by a digest of the
+ * original bytecode together with the enhancer version and flags, the
+ * bytecode of its superclasses, the configured metadata factory and the
+ * contents of the metadata source files, such as <code>orm.xml</code>, of
+ * the class and its persistent superclasses. Classes whose inputs have not
+ * changed since a previous run are served from the cache instead of being
+ * enhanced again.
+ *
+ * A cached empty entry records that the class needed no enhancement.
+ *
+ * @since 3.2.3
+ */
+class EnhancementCache {
+
+    private static final Localizer _loc = Localizer.forPackage
+        (EnhancementCache.class);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File _dir;
+    private final byte[] _salt;
+    private final Log _log;
+
+    // digests of metadata source files, which are shared by many classes
+    private final Map<File, byte[]> _sources = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param dir directory holding the cached class files
+     * @param flags enhancer flags that influence the generated bytecode
+     * @param log log for cache activity and failures
+     */
+    EnhancementCache(File dir, PCEnhancer.Flags flags, String metaFactory,
+        Log log) {
+        _dir = dir;
+        _log = log;
+        _salt = (OpenJPAVersion.VERSION_NUMBER + ":"
+            + PCEnhancer.ENHANCER_VERSION + ":" + flags.addDefaultConstructor
+            + ":" + flags.enforcePropertyRestrictions + ":" + metaFactory)
+            .getBytes(StandardCharsets.UTF_8);
+        if (!_dir.isDirectory() && !_dir.mkdirs())
+            _log.warn(_loc.get("enhance-cache-dir", _dir));
+    }
+
+    /**
+     * Return the cache key for the given class bytecode.
+     *
+     * @param className the internal name of the class
+     * @param bytes the original bytecode of the class
+     * @param type the class, loaded without enhancement
+     * @param meta the metadata of the class, or null if none
+     */
+    String getKey(String className, byte[] bytes, Class<?> type,
+        ClassMetaData meta) {
+        MessageDigest digest = newDigest();
+        digest.update(_salt);
+        digest.update(className.getBytes(StandardCharsets.UTF_8));
+        digest.update(bytes);
+
+        // superclasses contribute mapped fields, access type and callbacks
+        for (Class<?> sup = type.getSuperclass(); sup != null
+            && sup != Object.class; sup = sup.getSuperclass()) {
+            digest.update(sup.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update(getBytes(sup));
+        }
+        for (ClassMetaData m = meta; m != null;
+            m = m.getPCSuperclassMetaData()) {
+            digest.update((byte) m.getSourceType());
+            File file = m.getSourceFile();
+            if (file != null) {
+                digest.update(file.getPath().getBytes(StandardCharsets.UTF_8));
+                digest.update(getDigest(file));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Return the bytecode of the given class, or an empty array if it
+     * cannot be read.
+     */
+    private static byte[] getBytes(Class<?> type) {
+        String name = type.getName();
+        name = name.substring(name.lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = type.getResourceAsStream(name)) {
+            if (in == null)
+                return new byte[0];
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            for (int r; (r = in.read(buf)) != -1;)
+                out.write(buf, 0, r);
+            return out.toByteArray();
+        } catch (IOException ioe) {
+            return new byte[0];
+        }
+    }
+
+    /**
+     * Return the digest of the contents of the given metadata source file.
+     * A file that cannot be read, such as one inside an archive, contributes
+     * only its name.
+     */
+    private byte[] getDigest(File file) {
+        byte[] hash = _sources.get(file);
+        if (hash == null) {
+            try {
+                hash = (file.isFile())
+                    ? newDigest().digest(Files.readAllBytes(file.toPath()))
+                    : new byte[0];
+            } catch (IOException ioe) {
+                hash = new byte[0];
+            }
+            _sources.put(file, hash);
+        }
+        return hash;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new GeneralException(nsae);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Return the cached enhanced bytecode for the given key, an empty array
+     * if the class was recorded as not needing enhancement, or null if
+     * nothing is cached.
+     */
+    byte[] get(String key) {
+        File file = new File(_dir, key + ".class");
+        if (!file.isFile())
+            return null;
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException ioe) {
+            _log.warn(_loc.get("enhance-cache-read", file), ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Record the enhanced bytecode for the given key. Pass an empty array
+     * to record that the class needs no enhancement. Failures are logged
+     * and otherwise ignored.
+     */
+    void put(String key, byte[] bytes) {
+        File file = new File(_dir, key + ".class");
+        try {
+            // write to a temporary file first so that concurrent JVMs
+            // sharing the directory never read a partial entry
+            File tmp = File.createTempFile(key, ".tmp", _dir);
+            try {
+                Files.write(tmp.toPath(), bytes);
+                Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        } catch (IOException ioe) {
+            _log.warn(_loc.get("enhance-cache-write", file), ioe);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.openjpa.enhance;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.AccessController;
@@ -30,6 +31,7 @@ import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.Options;
+import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.MetaDataRepository;
 import org.apache.openjpa.util.GeneralException;
 
@@ -54,6 +56,7 @@ public class PCClassFileTransformer
     private final ClassLoader _tmpLoader;
     private final Log _log;
     private final Set _names;
+    private final EnhancementCache _cache;
 
     /**
      * Constructor.
@@ -78,6 +81,10 @@ public class PCClassFileTransformer
         flags.enforcePropertyRestrictions = opts.removeBooleanProperty
             ("enforcePropertyRestrictions", "EnforcePropertyRestrictions",
                 flags.enforcePropertyRestrictions);
+        String cacheDir = opts.removeProperty("cacheDirectory",
+            "CacheDirectory", null);
+        if (cacheDir != null)
+            flags.cacheDirectory = new File(cacheDir);
         return flags;
     }
 
@@ -101,6 +108,10 @@ public class PCClassFileTransformer
         _names = repos.getPersistentTypeNames(devscan, tmpLoader);
         if (_names == null && _log.isInfoEnabled())
             _log.info(_loc.get("runtime-enhance-pcclasses"));
+
+        _cache = (flags.cacheDirectory == null) ? null
+            : new EnhancementCache(flags.cacheDirectory, flags,
+                repos.getConfiguration().getMetaDataFactory(), _log);
     }
 
     public static PCClassFileTransformer newInstance(final MetaDataRepository repos, final Options parseProperties,
@@ -144,6 +155,21 @@ public class PCClassFileTransformer
             ClassLoader oldLoader = AccessController.doPrivileged(J2DoPrivHelper.getContextClassLoaderAction());
             AccessController.doPrivileged(J2DoPrivHelper.setContextClassLoaderAction(_tmpLoader));
             try {
+                // serve unchanged classes from the enhancement cache
+                String key = null;
+                if (_cache != null) {
+                    key = getCacheKey(className, bytes);
+                    byte[] cached = _cache.get(key);
+                    if (cached != null) {
+                        if (_log.isTraceEnabled())
+                            _log.trace(_loc.get("enhance-cache-hit", className));
+                        if (cached.length == 0)
+                            return null;
+                        returnBytes = cached;
+                        return returnBytes;
+                    }
+                }
+
                 PCEnhancer enhancer = new PCEnhancer(_repos.getConfiguration(),
                         new Project().loadClass(new ByteArrayInputStream(bytes),
                                 _tmpLoader), _repos);
@@ -151,10 +177,15 @@ public class PCClassFileTransformer
                 enhancer.setEnforcePropertyRestrictions
                         (_flags.enforcePropertyRestrictions);
 
-                if (enhancer.run() == PCEnhancer.ENHANCE_NONE)
+                if (enhancer.run() == PCEnhancer.ENHANCE_NONE) {
+                    if (_cache != null)
+                        _cache.put(key, new byte[0]);
                     return null;
+                }
                 BCClass pcb = enhancer.getPCBytecode();
                 returnBytes = AsmAdaptor.toByteArray(pcb, pcb.toByteArray());
+                if (_cache != null)
+                    _cache.put(key, returnBytes);
                 return returnBytes;
             } finally {
                 AccessController.doPrivileged(J2DoPrivHelper.setContextClassLoaderAction(oldLoader));
@@ -173,6 +204,18 @@ public class PCClassFileTransformer
         }
     }
 
+    /**
+     * Return the enhancement cache key of the given class, covering its
+     * superclasses and metadata as resolved by the repository.
+     */
+    private String getCacheKey(String className, byte[] bytes)
+        throws ClassNotFoundException {
+        Class<?> type = Class.forName(className.replace('/', '.'), false,
+            _tmpLoader);
+        ClassMetaData meta = _repos.getMetaData(type, _tmpLoader, false);
+        return _cache.getKey(className, bytes, type, meta);
+    }
+
     /**
      * Return whether the given class needs enhancement.
      */
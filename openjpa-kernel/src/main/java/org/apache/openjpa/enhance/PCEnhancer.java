@@ -20,6 +20,7 @@ package org.apache.openjpa.enhance;
 
 import java.io.Externalizable;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInput;
@@ -28,17 +29,23 @@ import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
 import java.io.ObjectStreamException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.file.StandardCopyOption;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -48,6 +55,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
@@ -209,6 +220,7 @@ public class PCEnhancer {
     private Set _violations = null;
     private File _dir = null;
     private BytecodeWriter _writer = null;
+    private boolean _atomicWrite = false;
     private Map _backingFields = null; // map of set / get names => field names
     private Map _attrsToFields = null; // map of attr names => field names
     private Map _fieldsToAttrs = null; // map of field names => attr names
@@ -523,6 +535,28 @@ public class PCEnhancer {
         _writer = writer;
     }
 
+    /**
+     * Whether class files are written to a temporary file that is then
+     * renamed over the target, so that concurrent readers never see a
+     * partially written class. Not used with a {@link BytecodeWriter}.
+     *
+     * @since 3.2.3
+     */
+    public boolean getAtomicWrite() {
+        return _atomicWrite;
+    }
+
+    /**
+     * Whether class files are written to a temporary file that is then
+     * renamed over the target, so that concurrent readers never see a
+     * partially written class. Not used with a {@link BytecodeWriter}.
+     *
+     * @since 3.2.3
+     */
+    public void setAtomicWrite(boolean atomic) {
+        _atomicWrite = atomic;
+    }
+
     /**
      * Perform bytecode enhancements.
      *
@@ -637,11 +671,54 @@ public class PCEnhancer {
         throws IOException {
         if (_writer != null)
             _writer.write(bc);
-        else if (_dir == null)
-            AsmAdaptor.write(bc);
-        else {
+        else if (_dir == null) {
+            File file = (_atomicWrite) ? getClassFile(bc) : null;
+            if (file != null)
+                writeAtomic(bc, file);
+            else
+                AsmAdaptor.write(bc);
+        } else {
             File dir = Files.getPackageFile(_dir, bc.getPackageName(), true);
-            AsmAdaptor.write(bc, new File(dir, bc.getClassName() + ".class"));
+            File file = new File(dir, bc.getClassName() + ".class");
+            if (_atomicWrite)
+                writeAtomic(bc, file);
+            else
+                AsmAdaptor.write(bc, file);
+        }
+    }
+
+    /**
+     * Return the class file the given class was loaded from, or null if it
+     * was not loaded from a file.
+     */
+    private static File getClassFile(BCClass bc) {
+        URL url = bc.getType().getResource(bc.getClassName() + ".class");
+        if (url == null || !"file".equals(url.getProtocol()))
+            return null;
+        try {
+            return new File(URLDecoder.decode(url.getFile(), "UTF-8"));
+        } catch (UnsupportedEncodingException uee) {
+            return null;
+        }
+    }
+
+    /**
+     * Write the given class to a temporary file beside the given file and
+     * rename it over the file.
+     */
+    private static void writeAtomic(BCClass bc, File file)
+        throws IOException {
+        File tmp = File.createTempFile(bc.getClassName(), ".tmp",
+            file.getParentFile());
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                AsmAdaptor.write(bc, out);
+            }
+            java.nio.file.Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            java.nio.file.Files.deleteIfExists(tmp.toPath());
         }
     }
 
@@ -4778,6 +4855,8 @@ public class PCEnhancer {
      * <li><i>-enforcePropertyRestrictions/-epr [true/t | false/f]</i>:
      * Whether to throw an exception if a PROPERTY access entity appears
      * to be violating standard property restrictions. Defaults to false.</li>
+     * <li><i>-threads/-th &lt;count&gt;</i>: The number of threads used to
+     * enhance classes in parallel. Defaults to 1.</li>
      * </ul>
      *  Each additional argument can be either the full class name of the
      * type to enhance, the path to the .java file for the type, the path to
@@ -4836,6 +4915,7 @@ public class PCEnhancer {
         flags.enforcePropertyRestrictions = opts.removeBooleanProperty
             ("enforcePropertyRestrictions", "epr",
                 flags.enforcePropertyRestrictions);
+        flags.threads = opts.removeIntProperty("threads", "th", flags.threads);
 
         // for unit testing
         BytecodeWriter writer = (BytecodeWriter) opts.get(
@@ -4882,42 +4962,17 @@ public class PCEnhancer {
             }
         }
 
-        Project project = new Project();
-        BCClass bc;
-        PCEnhancer enhancer;
-        Collection persAwareClasses = new HashSet();
-
-        int status;
-        for (Object o : classes) {
-            if (log.isInfoEnabled())
-                log.info(_loc.get("enhance-running", o));
-
-            if (o instanceof String)
-                bc = project.loadClass((String) o, loader);
-            else
-                bc = project.loadClass((Class) o);
-            enhancer = new PCEnhancer(conf, bc, repos, loader);
-            if (writer != null)
-                enhancer.setBytecodeWriter(writer);
-            enhancer.setDirectory(flags.directory);
-            enhancer.setAddDefaultConstructor(flags.addDefaultConstructor);
-            status = enhancer.run();
-            if (status == ENHANCE_NONE) {
-                if (log.isTraceEnabled())
-                    log.trace(_loc.get("enhance-norun"));
-            }
-            else if (status == ENHANCE_INTERFACE) {
-                if (log.isTraceEnabled())
-                    log.trace(_loc.get("enhance-interface"));
-            }
-            else if (status == ENHANCE_AWARE) {
-                persAwareClasses.add(o);
-                enhancer.record();
-            }
-            else {
-                enhancer.record();
+        Collection persAwareClasses = Collections.synchronizedSet(new HashSet());
+        if (flags.threads > 1 && classes.size() > 1)
+            enhanceParallel(conf, classes, flags, repos, writer, loader, log,
+                persAwareClasses);
+        else {
+            Project project = new Project();
+            for (Object o : classes) {
+                enhance(conf, o, project, flags, repos, writer, loader, log,
+                    persAwareClasses);
+                project.clear();
             }
-            project.clear();
         }
         if(log.isInfoEnabled() && !persAwareClasses.isEmpty()){
         	log.info(_loc.get("pers-aware-classes", persAwareClasses.size(), persAwareClasses));
@@ -4925,6 +4980,91 @@ public class PCEnhancer {
         return true;
     }
 
+    /**
+     * Enhance the given classes on a fork-join pool of
+     * {@link Flags#threads} workers. Each class is loaded into its own
+     * bytecode project, as projects are not thread safe; metadata is
+     * resolved through the shared, synchronized repository.
+     */
+    private static void enhanceParallel(final OpenJPAConfiguration conf,
+        Collection classes, final Flags flags, final MetaDataRepository repos,
+        final BytecodeWriter writer, final ClassLoader loader, final Log log,
+        final Collection persAwareClasses)
+        throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(flags.threads);
+        try {
+            List<Future<Void>> results = new ArrayList<>(classes.size());
+            for (final Object o : classes) {
+                results.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        enhance(conf, o, new Project(), flags, repos, writer,
+                            loader, log, persAwareClasses);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new GeneralException(ie);
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof IOException)
+                        throw (IOException) cause;
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    throw new GeneralException(cause);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Enhance a single class, loading its bytecode into the given project.
+     */
+    private static void enhance(OpenJPAConfiguration conf, Object o,
+        Project project, Flags flags, MetaDataRepository repos,
+        BytecodeWriter writer, ClassLoader loader, Log log,
+        Collection persAwareClasses)
+        throws IOException {
+        if (log.isInfoEnabled())
+            log.info(_loc.get("enhance-running", o));
+
+        BCClass bc;
+        if (o instanceof String)
+            bc = project.loadClass((String) o, loader);
+        else
+            bc = project.loadClass((Class) o);
+        PCEnhancer enhancer = new PCEnhancer(conf, bc, repos, loader);
+        if (writer != null)
+            enhancer.setBytecodeWriter(writer);
+        enhancer.setDirectory(flags.directory);
+        enhancer.setAddDefaultConstructor(flags.addDefaultConstructor);
+        // other workers may be loading the classes being written
+        enhancer.setAtomicWrite(flags.threads > 1);
+        int status = enhancer.run();
+        if (status == ENHANCE_NONE) {
+            if (log.isTraceEnabled())
+                log.trace(_loc.get("enhance-norun"));
+        }
+        else if (status == ENHANCE_INTERFACE) {
+            if (log.isTraceEnabled())
+                log.trace(_loc.get("enhance-interface"));
+        }
+        else if (status == ENHANCE_AWARE) {
+            persAwareClasses.add(o);
+            enhancer.record();
+        }
+        else {
+            enhancer.record();
+        }
+    }
+
     /**
      * Run flags.
      */
@@ -4934,6 +5074,21 @@ public class PCEnhancer {
         public boolean addDefaultConstructor = true;
         public boolean tmpClassLoader = true;
         public boolean enforcePropertyRestrictions = false;
+
+        /**
+         * Number of threads used to enhance classes at build time.
+         *
+         * @since 3.2.3
+         */
+        public int threads = 1;
+
+        /**
+         * Directory of the on-disk cache of runtime enhancement results,
+         * or null for no cache.
+         *
+         * @since 3.2.3
+         */
+        public File cacheDirectory = null;
     }
 
     /**
@@ -22,12 +22,16 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Map;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.StateManagerImpl;
+import org.apache.openjpa.lib.util.collections.AbstractReferenceMap.ReferenceStrength;
+import org.apache.openjpa.lib.util.concurrent.ConcurrentReferenceHashMap;
 import org.apache.openjpa.meta.AccessCode;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.FieldMetaData;
@@ -49,6 +53,14 @@ public class ReflectingPersistenceCapable
 
     
     private static final long serialVersionUID = 1L;
+
+    // per-type method handles for reading and writing persistent attributes,
+    // resolved lazily on first access and shared by all instances of a type
+    private static final Map<ClassMetaData, MethodHandle[]> _getters =
+        new ConcurrentReferenceHashMap(ReferenceStrength.WEAK, ReferenceStrength.HARD);
+    private static final Map<ClassMetaData, MethodHandle[]> _setters =
+        new ConcurrentReferenceHashMap(ReferenceStrength.WEAK, ReferenceStrength.HARD);
+
     private Object o;
     private StateManager sm;
 
@@ -370,15 +382,34 @@ public class ReflectingPersistenceCapable
     }
 
     private Object getValue(int i, Object o) {
-        FieldMetaData fmd = meta.getField(i);
-        if (AccessCode.isProperty(fmd.getAccessType())) {
-            Field field = Reflection.findField(meta.getDescribedType(),
-                toFieldName(i), true);
-            return Reflection.get(o, field);
-        } else {
-            Field field = (Field) meta.getField(i).getBackingMember();
-            return Reflection.get(o, field);
+        MethodHandle[] getters = getHandles(_getters);
+        MethodHandle getter = getters[i];
+        if (getter == null) {
+            FieldMetaData fmd = meta.getField(i);
+            Field field;
+            if (AccessCode.isProperty(fmd.getAccessType()))
+                field = Reflection.findField(meta.getDescribedType(),
+                    toFieldName(i), true);
+            else
+                field = (Field) fmd.getBackingMember();
+            getter = Reflection.unreflectGetter(field);
+            getters[i] = getter;
         }
+        return Reflection.get(o, getter);
+    }
+
+    /**
+     * Return the handles of the described type from the given cache,
+     * creating an empty array for the type if needed. Concurrent callers
+     * may race to create the array; the handles are simply resolved again.
+     */
+    private MethodHandle[] getHandles(Map<ClassMetaData, MethodHandle[]> cache) {
+        MethodHandle[] handles = cache.get(meta);
+        if (handles == null) {
+            handles = new MethodHandle[meta.getFields().length];
+            cache.put(meta, handles);
+        }
+        return handles;
     }
 
     private String toFieldName(int i) {
@@ -390,21 +421,27 @@ public class ReflectingPersistenceCapable
     }
 
     private void setValue(int i, Object o, Object val) {
-        FieldMetaData fmd = meta.getField(i);
-        if (AccessCode.isProperty(fmd.getAccessType())) {
-            if (!meta.isIntercepting()) {
-                Method meth = Reflection.findSetter(meta.getDescribedType(),
-                    meta.getField(i).getName(), true);
-                Reflection.set(o, meth, val);
+        MethodHandle[] setters = getHandles(_setters);
+        MethodHandle setter = setters[i];
+        if (setter == null) {
+            FieldMetaData fmd = meta.getField(i);
+            if (AccessCode.isProperty(fmd.getAccessType())) {
+                if (!meta.isIntercepting()) {
+                    Method meth = Reflection.findSetter(
+                        meta.getDescribedType(), fmd.getName(), true);
+                    setter = Reflection.unreflectSetter(meth);
+                } else {
+                    Field field = Reflection.findField(meta.getDescribedType(),
+                        toFieldName(i), true);
+                    setter = Reflection.unreflectSetter(field);
+                }
             } else {
-                Field field = Reflection.findField(meta.getDescribedType(),
-                    toFieldName(i), true);
-                Reflection.set(o, field, val);
+                Field field = (Field) fmd.getBackingMember();
+                setter = Reflection.unreflectSetter(field);
             }
-        } else {
-            Field field = (Field) meta.getField(i).getBackingMember();
-            Reflection.set(o, field, val);
+            setters[i] = setter;
         }
+        Reflection.set(o, setter, val);
     }
 
     private void writeObject(ObjectOutputStream out) throws IOException {
@@ -18,7 +18,12 @@
  */
 package org.apache.openjpa.enhance;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -58,6 +63,14 @@ public class Reflection {
     private static Map<Class<?>, Set<String>> beanPropertiesNameCache =
         new ConcurrentReferenceHashMap(ReferenceStrength.WEAK, ReferenceStrength.HARD);
 
+    // generic shapes that field and setter handles are adapted to
+    private static final MethodType GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE =
+        MethodType.methodType(Object.class, Object[].class);
+
     private static Method getGetterMethod(Class<?> cls, String prop) {
         Method rtnMethod = null;
         Map<String, Method> clsMap = getterMethodCache.get(cls);
@@ -350,6 +363,172 @@ public class Reflection {
         return new GeneralException(t);
     }
 
+    /**
+     * Return a method handle reading the given field, adapted to
+     * <code>(Object)Object</code>. Primitive values are boxed.
+     *
+     * @since 3.2.3
+     */
+    public static MethodHandle unreflectGetter(Field field) {
+        makeAccessible(field, field.getModifiers());
+        try {
+            return MethodHandles.lookup().unreflectGetter(field)
+                .asType(GETTER_TYPE);
+        } catch (Throwable t) {
+            throw wrapReflectionException(t, _loc.get("get-field",
+                field.getDeclaringClass(), field));
+        }
+    }
+
+    /**
+     * Return a method handle writing the given field, adapted to
+     * <code>(Object,Object)void</code>. Primitive values are unboxed.
+     *
+     * @since 3.2.3
+     */
+    public static MethodHandle unreflectSetter(Field field) {
+        makeAccessible(field, field.getModifiers());
+        try {
+            return MethodHandles.lookup().unreflectSetter(field)
+                .asType(SETTER_TYPE);
+        } catch (Throwable t) {
+            throw wrapReflectionException(t, _loc.get("set-field",
+                new Object[]{ field.getDeclaringClass(), field, null,
+                field.getType() }));
+        }
+    }
+
+    /**
+     * Return a method handle invoking the given setter, adapted to
+     * <code>(Object,Object)void</code>. Primitive values are unboxed.
+     *
+     * @since 3.2.3
+     */
+    public static MethodHandle unreflectSetter(Method setter) {
+        makeAccessible(setter, setter.getModifiers());
+        try {
+            return MethodHandles.lookup().unreflect(setter)
+                .asType(SETTER_TYPE);
+        } catch (Throwable t) {
+            throw wrapReflectionException(t, _loc.get("set-method",
+                new Object[]{ setter.getDeclaringClass(), setter, null,
+                setter.getParameterTypes()[0] }));
+        }
+    }
+
+    /**
+     * Return a method handle invoking the given constructor, adapted to
+     * <code>(Object[])Object</code>. The arguments are passed in an array,
+     * and primitive arguments are unboxed.
+     *
+     * @since 3.2.3
+     */
+    public static MethodHandle unreflectConstructor(Constructor<?> cons) {
+        makeAccessible(cons, cons.getModifiers());
+        try {
+            return MethodHandles.lookup().unreflectConstructor(cons)
+                .asSpreader(Object[].class, cons.getParameterTypes().length)
+                .asType(CONSTRUCTOR_TYPE);
+        } catch (Throwable t) {
+            throw wrapReflectionException(t, _loc.get("new-handle",
+                cons.getDeclaringClass(), cons));
+        }
+    }
+
+    /**
+     * Return a method handle invoking the given method, adapted to
+     * <code>(Object[])Object</code>. The arguments are passed in an array,
+     * preceded by the target instance if the method is not static.
+     * Primitive arguments are unboxed and primitive results boxed.
+     *
+     * @since 3.2.3
+     */
+    public static MethodHandle unreflect(Method meth) {
+        makeAccessible(meth, meth.getModifiers());
+        int args = meth.getParameterTypes().length;
+        if (!Modifier.isStatic(meth.getModifiers()))
+            args++;
+        try {
+            return MethodHandles.lookup().unreflect(meth)
+                .asSpreader(Object[].class, args)
+                .asType(CONSTRUCTOR_TYPE);
+        } catch (Throwable t) {
+            throw wrapReflectionException(t, _loc.get("method-handle",
+                meth.getDeclaringClass(), meth));
+        }
+    }
+
+    /**
+     * Invoke the given handle with the given arguments. The handle must
+     * have the shape of those returned by {@link #unreflect} or
+     * {@link #unreflectConstructor}, or an {@link IllegalArgumentException}
+     * is thrown. Anything thrown by the target is wrapped in an
+     * {@link InvocationTargetException}, as by {@link Method#invoke}.
+     *
+     * @since 3.2.3
+     */
+    public static Object invoke(MethodHandle handle, Object[] args)
+        throws InvocationTargetException {
+        try {
+            return (Object) handle.invokeExact(args);
+        } catch (WrongMethodTypeException wmte) {
+            throw new IllegalArgumentException(wmte);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Return a new instance created by the given handle from the given
+     * arguments. The handle must have the shape of those returned by
+     * {@link #unreflectConstructor}, or an {@link IllegalArgumentException}
+     * is thrown. Anything thrown by the constructor is wrapped in an
+     * {@link InvocationTargetException}, as by {@link Constructor#newInstance}.
+     *
+     * @since 3.2.3
+     */
+    public static Object newInstance(MethodHandle cons, Object[] args)
+        throws InvocationTargetException {
+        return invoke(cons, args);
+    }
+
+    /**
+     * Return the value read by the given handle from the given object.
+     * The handle must have the shape of those returned by
+     * {@link #unreflectGetter}.
+     *
+     * @since 3.2.3
+     */
+    public static Object get(Object target, MethodHandle getter) {
+        if (target == null || getter == null)
+            return null;
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Throwable t) {
+            throw wrapReflectionException(t, _loc.get("get-handle", target,
+                getter));
+        }
+    }
+
+    /**
+     * Write the given value into the given object through the given handle.
+     * The handle must have the shape of those returned by
+     * {@link #unreflectSetter}.
+     *
+     * @since 3.2.3
+     */
+    public static void set(Object target, MethodHandle setter, Object value) {
+        if (target == null || setter == null)
+            return;
+        try {
+            setter.invokeExact(target, value);
+        } catch (Throwable t) {
+            throw wrapReflectionException(t, _loc.get("set-handle",
+                new Object[]{ target, setter, value,
+                value == null ? "" : value.getClass() }));
+        }
+    }
+
     /**
      * Return the value of the given field in the given object.
      */
@@ -42,6 +42,12 @@ public class BeanLifecycleCallbacks
 
     private transient Object _listener;
 
+    /**
+     * Constructor for deserialization.
+     */
+    public BeanLifecycleCallbacks() {
+    }
+
     /**
      * Constructor. Make the callback on an instance of the given type.
      *
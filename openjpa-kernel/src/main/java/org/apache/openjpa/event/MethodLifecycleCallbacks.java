@@ -44,6 +44,12 @@ public class MethodLifecycleCallbacks
     private transient Method _callback;
     private boolean _arg;
 
+    /**
+     * Constructor for deserialization.
+     */
+    public MethodLifecycleCallbacks() {
+    }
+
     /**
      * Constructor. Supply callback class and its callback method name.
      *
@@ -149,17 +155,17 @@ public class MethodLifecycleCallbacks
         throws IOException, ClassNotFoundException {
         Class cls = (Class) in.readObject();
         String methName = (String) in.readObject();
+        Class[] args = (Class[]) in.readObject();
         _arg = in.readBoolean();
-
-        Class[] args = _arg ? new Class[]{ Object.class } : null;
         _callback = getMethod(cls, methName, args);
     }
 
     @Override
     public void writeExternal(ObjectOutput out)
         throws IOException {
-        out.writeObject(_callback.getClass());
+        out.writeObject(_callback.getDeclaringClass());
         out.writeObject(_callback.getName());
+        out.writeObject(_callback.getParameterTypes());
         out.writeBoolean(_arg);
     }
 }
@@ -42,6 +42,10 @@ import javax.transaction.TransactionManager;
 import org.apache.openjpa.lib.util.collections.AbstractReferenceMap.ReferenceStrength;
 import org.apache.openjpa.audit.Auditor;
 import org.apache.openjpa.conf.BrokerValue;
+import org.apache.openjpa.conf.CacheMarshaller;
+import org.apache.openjpa.conf.CacheMarshallerImpl;
+import org.apache.openjpa.conf.CacheMarshallersValue;
+import org.apache.openjpa.conf.MetaDataCacheMaintenance;
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
 import org.apache.openjpa.conf.OpenJPAVersion;
@@ -391,6 +395,11 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
                     _pool.remove(_poolKey);
             }
 
+            // record the hot queries while the compilation cache is intact
+            QueryWarmStart warmStart = _conf.getQueryWarmStartInstance();
+            if (warmStart != null)
+                warmStart.close();
+
             // close all brokers
             for (Broker broker : _brokers) {
                 // Check for null because _brokers may contain weak references
@@ -905,11 +914,25 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
             loadPersistentTypes(AccessController.doPrivileged(J2DoPrivHelper
                 .getContextClassLoaderAction()));
             mdr.preload();
+
+            // snapshot the resolved metadata for later starts, if the
+            // metadata cache marshaller found nothing valid to load
+            CacheMarshaller cm = CacheMarshallersValue.getMarshallerById(_conf,
+                MetaDataCacheMaintenance.class.getName());
+            if (cm instanceof CacheMarshallerImpl
+                && ((CacheMarshallerImpl) cm).isStoreRequired())
+                cm.store(new Object[] {
+                    mdr, _conf.getQueryCompilationCacheInstance()
+                });
         }
 
         // Get a DataCacheManager instance up front to avoid threading concerns on first call.
         // _conf.getDataCacheManagerInstance();
 
+        QueryWarmStart warmStart = _conf.getQueryWarmStartInstance();
+        if (warmStart != null)
+            warmStart.start(this);
+
         InstrumentationManager imgr = _conf.getInstrumentationManagerInstance();
         if (imgr != null) {
             // Start all factory level instrumentation
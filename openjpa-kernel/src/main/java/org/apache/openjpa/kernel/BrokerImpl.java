@@ -193,6 +193,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     private Set<StateManagerImpl> _transAdditions = null;
     private Set<StateManagerImpl> _derefCache = null;
     private Set<StateManagerImpl> _derefAdditions = null;
+    private Set<StateManagerImpl> _journal = null;
 
     // these are used for method-internal state only
     private transient Map<Object, StateManagerImpl> _loading = null;
@@ -243,6 +244,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     private boolean _suppressBatchOLELogging = false;
     private boolean _allowReferenceToSiblingContext = false;
     private boolean _postLoadOnMerge = false;
+    private boolean _dirtyJournal = false;
 
     // status
     private int _flags = 0;
@@ -980,6 +982,39 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     public boolean getSuppressBatchOLELogging() {
         return _suppressBatchOLELogging;
     }
+
+    /**
+     * Whether this Broker records the state managers that are dirtied,
+     * version-checked or change lifecycle state in a per-broker journal,
+     * and flushes only the journaled instances. Instances of classes whose
+     * data access is not intercepted are still compared against their saved
+     * state before each flush, and instances dirtied while the flush runs,
+     * such as by callbacks, are flushed with it. The journal is kept until
+     * its instances have been flushed successfully. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public void setDirtyJournal(boolean journal) {
+        assertOpen();
+        _dirtyJournal = journal;
+        if (!journal)
+            _journal = null;
+        else if (_transCache != null) {
+            // seed with the instances already dirtied in this transaction
+            for (Object sm : _transCache.copyDirty())
+                journal((StateManagerImpl) sm);
+        }
+    }
+
+    /**
+     * Whether this Broker flushes only the instances recorded in its dirty
+     * journal.
+     *
+     * @since 3.2.3
+     */
+    public boolean getDirtyJournal() {
+        return _dirtyJournal;
+    }
     ///////////
     // Lookups
     ///////////
@@ -2216,8 +2251,15 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
      */
     protected void flush(int reason) {
         // this will enlist proxied states as necessary so we know whether we
-        // have anything to flush
-        Collection transactional = getTransactionalStates();
+        // have anything to flush; when journaling we only visit instances
+        // that changed since the last flush, so the untracked instances are
+        // dirty checked without copying all transactional instances
+        Collection transactional;
+        if (_dirtyJournal) {
+            hasTransactionalObjects();
+            transactional = getJournaledStates();
+        } else
+            transactional = getTransactionalStates();
 
         // do we actually have to flush?  only if our flags say so, or if
         // we have transaction listeners that need to be invoked for commit
@@ -2303,11 +2345,13 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
 
         // flush to store manager
         List<Exception> exceps = null;
+        boolean stored = false;
         try {
             if (flush && reason != FLUSH_LOGICAL) {
                 _flags |= FLAG_STORE_FLUSHING;
                 exceps = add(exceps,
                     newFlushException(_store.flush(transactional)));
+                stored = exceps == null;
             }
         } finally {
             _flags &= ~FLAG_STORE_FLUSHING;
@@ -2322,6 +2366,9 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
                 StateManagerImpl sm;
                 for (Object o : transactional) {
                     sm = (StateManagerImpl) o;
+                    // keep the journal of a failed flush for the next one
+                    if (stored && _journal != null)
+                        _journal.remove(sm);
                     try {
                         // the state may have become transient, such as if
                         // it is embedded and the owner has been deleted during
@@ -2365,10 +2412,38 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         do {
             // flush new transactional instances; note logical or
             loop = flushTransAdditions(transactional, reason)
+                | flushJournalAdditions(transactional, reason)
                 | deleteDerefAdditions(_derefCache);
         } while (loop);
     }
 
+    /**
+     * Flush instances journaled since the flush began, such as instances
+     * changed by callbacks or inverse management of other instances.
+     */
+    private boolean flushJournalAdditions(Collection transactional,
+        int reason) {
+        if (_journal == null || _journal.isEmpty())
+            return false;
+
+        List<StateManagerImpl> states = null;
+        for (StateManagerImpl sm : _journal) {
+            if (!transactional.contains(sm)) {
+                if (states == null)
+                    states = new ArrayList<>();
+                states.add(sm);
+            }
+        }
+        if (states == null)
+            return false;
+
+        transactional.addAll(states);
+        for (StateManagerImpl state : states) {
+            state.beforeFlush(reason, _call);
+        }
+        return true;
+    }
+
     /**
      * Flush transactional additions.
      */
@@ -2518,6 +2593,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         // clear trans cache object because we still need the transStates
         // reference to it below
         _transCache = null;
+        _journal = null;
         if (_persistedClss != null)
             _persistedClss = null;
         if (_updatedClss != null)
@@ -3625,6 +3701,9 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         if (_transAdditions != null) {
             _transAdditions.clear();
         }
+        if (_journal != null) {
+            _journal.clear();
+        }
         if (_pending != null) {
             _pending = null;
         }
@@ -3781,6 +3860,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
                         sm.setCheckVersion(true);
                         if (updateVersion)
                             sm.setUpdateVersion(true);
+                        journal(sm);
                         _flags |= FLAG_FLUSH_REQUIRED; // version check/up
                     }
                 }
@@ -3832,6 +3912,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
                 sm.setCheckVersion(true);
                 if (updateVersion)
                     sm.setUpdateVersion(true);
+                journal(sm);
                 _flags |= FLAG_FLUSH_REQUIRED; // version check/up
             } else if (sm == null) {
                 // manage transient instance
@@ -4264,6 +4345,27 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         return _transCache.copy();
     }
 
+    /**
+     * Return a copy of the state managers recorded in the dirty journal
+     * since the last successful flush.
+     */
+    Collection<StateManagerImpl> getJournaledStates() {
+        if (_journal == null || _journal.isEmpty())
+            return new LinkedHashSet<>();
+        return new LinkedHashSet<>(_journal);
+    }
+
+    /**
+     * Record the given state manager in the dirty journal, if journaling.
+     */
+    private void journal(StateManagerImpl sm) {
+        if (!_dirtyJournal)
+            return;
+        if (_journal == null)
+            _journal = new LinkedHashSet<>();
+        _journal.add(sm);
+    }
+
     /**
      * Whether or not there are any transactional objects in the current
      * persistence context. If there are any instances with untracked state,
@@ -4367,6 +4469,8 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
                 _transCache.remove(sm);
             if (_derefCache != null && !sm.isPersistent())
                 _derefCache.remove(sm);
+            if (_journal != null)
+                _journal.remove(sm);
         } finally {
             unlock();
         }
@@ -4380,6 +4484,8 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
     void setDirty(StateManagerImpl sm, boolean firstDirty) {
         if (sm.isPersistent())
             _flags |= FLAG_FLUSH_REQUIRED;
+        if (sm.isTransactional())
+            journal(sm);
 
         if (_savepoints != null && !_savepoints.isEmpty()) {
             if (_savepointCache == null)
@@ -4586,6 +4692,7 @@ public class BrokerImpl implements Broker, FindCallbacks, Cloneable, Serializabl
         _userObjects = null;
         _cache.clear();
         _transCache = null;
+        _journal = null;
         _persistedClss = null;
         _updatedClss = null;
         _deletedClss = null;
@@ -140,6 +140,25 @@ public class DelegatingFetchConfiguration
         }
     }
 
+    @Override
+    public int getResultSpillThreshold() {
+        try {
+            return _fetch.getResultSpillThreshold();
+        } catch (RuntimeException re) {
+            throw translate(re);
+        }
+    }
+
+    @Override
+    public FetchConfiguration setResultSpillThreshold(int threshold) {
+        try {
+            _fetch.setResultSpillThreshold(threshold);
+            return this;
+        } catch (RuntimeException re) {
+            throw translate(re);
+        }
+    }
+
     @Override
     public int getMaxFetchDepth() {
         try {
@@ -505,6 +524,15 @@ public class DelegatingFetchConfiguration
         }
     }
 
+    @Override
+    public ResultList<?> newEagerResultList(ResultObjectProvider rop) {
+        try {
+            return _fetch.newEagerResultList(rop);
+        } catch (RuntimeException re) {
+            throw translate(re);
+        }
+    }
+
     @Override
     public void copy(FetchConfiguration fetch) {
         try {
@@ -264,6 +264,30 @@ public class ExpressionStoreQuery
         return null;
     }
 
+    /**
+     * Select the ids of the instances that a bulk delete or update with the
+     * given expression changes, so that only those instances are evicted
+     * from the data cache rather than all instances of their types.
+     *
+     * @param ex current executor
+     * @param base the base type the query should match
+     * @param types the independent candidate types
+     * @param subclasses true if subclasses should be included in the results
+     * @param facts the expression factory used to build the query for
+     * each base type
+     * @param parsed the parsed query values
+     * @param params parameter values, or empty array
+     * @param limit the maximum number of ids to select
+     * @return the ids of the instances the bulk operation changes, or null
+     * if they cannot be selected or there are more than the limit
+     * @since 3.2.3
+     */
+    protected Collection<Object> selectBulkIds(Executor ex, ClassMetaData base,
+        ClassMetaData[] types, boolean subclasses, ExpressionFactory[] facts,
+        QueryExpressions[] parsed, Object[] params, int limit) {
+        return null;
+    }
+
     /**
      * Return the commands that will be sent to the datastore in order
      * to execute the query, typically in the database's native language.
@@ -655,29 +679,32 @@ public class ExpressionStoreQuery
             // execute in memory for candidate collection;
             // also execute in memory for transactional extents
             Collection coll = q.getContext().getCandidateCollection();
-            Iterator itr;
-            if (coll != null)
-                itr = coll.iterator();
-            else
-                itr = q.getContext().getStoreContext().
-                    extentIterator(_meta.getDescribedType(), _subs,
-                        q.getContext().getFetchConfiguration(),
-                        q.getContext().getIgnoreChanges());
-
-            // find matching objects
-            List results = new ArrayList();
             StoreContext ctx = q.getContext().getStoreContext();
-            try {
-                Object obj;
-                while (itr.hasNext()) {
-                    obj = itr.next();
-                    if (_factory.matches(_exps[0], _meta, _subs, obj, ctx,
-                        params))
-                        results.add(obj);
+            List results;
+            Iterator itr;
+            if (coll != null) {
+                // find matching objects, in parallel for large collections
+                results = _factory.matches(_exps[0], _meta, _subs, coll, ctx,
+                    params);
+            } else {
+                itr = ctx.extentIterator(_meta.getDescribedType(), _subs,
+                    q.getContext().getFetchConfiguration(),
+                    q.getContext().getIgnoreChanges());
+
+                // find matching objects
+                results = new ArrayList();
+                try {
+                    Object obj;
+                    while (itr.hasNext()) {
+                        obj = itr.next();
+                        if (_factory.matches(_exps[0], _meta, _subs, obj, ctx,
+                            params))
+                            results.add(obj);
+                    }
+                }
+                finally {
+                    ImplHelper.close(itr);
                 }
-            }
-            finally {
-                ImplHelper.close(itr);
             }
 
             // group results
@@ -828,6 +855,7 @@ public class ExpressionStoreQuery
 
         @Override
         public Number executeDelete(StoreQuery q, Object[] params) {
+            Collection<Object> oids = selectBulkIds(q, params);
             try {
                 Number num =
                     ((ExpressionStoreQuery) q).executeDelete(this, _meta, _metas, _subs, _facts, _exps, params);
@@ -835,17 +863,13 @@ public class ExpressionStoreQuery
                     return q.getContext().deleteInMemory(q, this, params);
                 return num;
             } finally {
-                for (ClassMetaData cmd : getAccessPathMetaDatas(q)) {
-                    DataCache cache = cmd.getDataCache();
-                    if (cache != null && cache.getEvictOnBulkUpdate()) {
-                        cache.removeAll(cmd.getDescribedType(), true);
-                    }
-                }
+                evictBulk(q, oids);
             }
         }
 
         @Override
         public Number executeUpdate(StoreQuery q, Object[] params) {
+            Collection<Object> oids = selectBulkIds(q, params);
             try {
                 Number num =
                     ((ExpressionStoreQuery) q).executeUpdate(this, _meta, _metas, _subs, _facts, _exps, params);
@@ -853,15 +877,56 @@ public class ExpressionStoreQuery
                     return q.getContext().updateInMemory(q, this, params);
                 return num;
             } finally {
-                for (ClassMetaData cmd : getAccessPathMetaDatas(q)) {
-                    DataCache cache = cmd.getDataCache();
-                    if (cache != null && cache.getEvictOnBulkUpdate()) {
-                        cache.removeAll(cmd.getDescribedType(), true);
-                    }
-                }
+                evictBulk(q, oids);
             }
         }
 
+        /**
+         * Select the ids of the candidates of a bulk operation before it
+         * executes, if the configured limit allows and a data cache of the
+         * access path is to be evicted.
+         */
+        private Collection<Object> selectBulkIds(StoreQuery q,
+            Object[] params) {
+            int limit = q.getContext().getStoreContext().getConfiguration()
+                .getBulkUpdateEvictionLimit();
+            if (limit <= 0)
+                return null;
+            boolean evict = false;
+            for (ClassMetaData cmd : getAccessPathMetaDatas(q)) {
+                DataCache cache = cmd.getDataCache();
+                evict |= cache != null && cache.getEvictOnBulkUpdate();
+            }
+            if (!evict)
+                return null;
+            return ((ExpressionStoreQuery) q).selectBulkIds(this, _meta,
+                _metas, _subs, _facts, _exps, params, limit);
+        }
+
+        /**
+         * Evict the types of the access path from their data caches, or
+         * only the given instances of the candidate types if their ids are
+         * known.
+         */
+        private void evictBulk(StoreQuery q, Collection<Object> oids) {
+            for (ClassMetaData cmd : getAccessPathMetaDatas(q)) {
+                DataCache cache = cmd.getDataCache();
+                if (cache == null || !cache.getEvictOnBulkUpdate())
+                    continue;
+                if (oids != null && isCandidate(cmd))
+                    cache.removeAll(oids);
+                else
+                    cache.removeAll(cmd.getDescribedType(), true);
+            }
+        }
+
+        private boolean isCandidate(ClassMetaData cmd) {
+            for (ClassMetaData meta : _metas)
+                if (meta.getDescribedType().isAssignableFrom(cmd.getDescribedType()))
+                    return true;
+            return false;
+        }
+
         @Override
         public String[] getDataStoreActions(StoreQuery q, Object[] params,
             Range range) {
@@ -108,6 +108,26 @@ public interface FetchConfiguration
      */
     FetchConfiguration setFetchBatchSize(int fetchBatchSize);
 
+    /**
+     * Return the number of results held in memory when all results of a
+     * query are read at once. Further results are spilled to a temporary
+     * file. Zero holds all results in memory.
+     * Defaults to the <code>openjpa.ResultSpillThreshold</code> setting.
+     *
+     * @since 3.2.3
+     */
+    int getResultSpillThreshold();
+
+    /**
+     * Set the number of results held in memory when all results of a
+     * query are read at once. Further results are spilled to a temporary
+     * file. Zero holds all results in memory.
+     * Defaults to the <code>openjpa.ResultSpillThreshold</code> setting.
+     *
+     * @since 3.2.3
+     */
+    FetchConfiguration setResultSpillThreshold(int threshold);
+
     /**
      * Return the maximum depth of fetched instance graph.
      * Defaults to <code>1</code>
@@ -360,6 +380,15 @@ public interface FetchConfiguration
      */
     ResultList<?> newResultList(ResultObjectProvider rop);
 
+    /**
+     * Return a new result list that reads all results of the given provider
+     * at once, spilling results beyond the
+     * {@link #getResultSpillThreshold() threshold} to a temporary file.
+     *
+     * @since 3.2.3
+     */
+    ResultList<?> newEagerResultList(ResultObjectProvider rop);
+
     /**
      * Sets an arbitrary query hint that may be utilized during execution.
      * The hint may be specific to a particular database. A hint, if known
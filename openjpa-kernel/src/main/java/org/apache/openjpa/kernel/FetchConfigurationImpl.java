@@ -38,6 +38,7 @@ import org.apache.openjpa.lib.rop.ListResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultList;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
 import org.apache.openjpa.lib.rop.SimpleResultList;
+import org.apache.openjpa.lib.rop.SpillingResultList;
 import org.apache.openjpa.lib.rop.WindowResultList;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.StringUtil;
@@ -83,6 +84,7 @@ public class FetchConfigurationImpl
             populateHintSetter(target, "QueryTimeout", int.class, prefixes);
             populateHintSetter(target, "setQueryTimeout", "timeout", int.class, "javax.persistence.query");
             populateHintSetter(target, "ReadLockLevel", int.class, prefixes);
+            populateHintSetter(target, "ResultSpillThreshold", int.class, prefixes);
             populateHintSetter(target, "setReadLockLevel", "ReadLockMode", int.class, prefixes);
             populateHintSetter(target, "WriteLockLevel", int.class, prefixes);
             populateHintSetter(target, "setWriteLockLevel", "WriteLockMode", int.class, prefixes);
@@ -132,6 +134,7 @@ public class FetchConfigurationImpl
         private static final long serialVersionUID = 1L;
         public transient StoreContext ctx = null;
         public int fetchBatchSize = 0;
+        public int resultSpillThreshold = 0;
         public int maxFetchDepth = 1;
         public boolean queryCache = true;
         public int flushQuery = 0;
@@ -189,6 +192,7 @@ public class FetchConfigurationImpl
         // initialize to conf info
         OpenJPAConfiguration conf = ctx.getConfiguration();
         setFetchBatchSize(conf.getFetchBatchSize());
+        setResultSpillThreshold(conf.getResultSpillThreshold());
         setFlushBeforeQueries(conf.getFlushBeforeQueriesConstant());
         setLockTimeout(conf.getLockTimeout());
         setQueryTimeout(conf.getQueryTimeout());
@@ -231,6 +235,7 @@ public class FetchConfigurationImpl
     @Override
     public void copy(FetchConfiguration fetch) {
         setFetchBatchSize(fetch.getFetchBatchSize());
+        setResultSpillThreshold(fetch.getResultSpillThreshold());
         setMaxFetchDepth(fetch.getMaxFetchDepth());
         setQueryCacheEnabled(fetch.getQueryCacheEnabled());
         setFlushBeforeQueries(fetch.getFlushBeforeQueries());
@@ -279,6 +284,20 @@ public class FetchConfigurationImpl
         return this;
     }
 
+    @Override
+    public int getResultSpillThreshold() {
+        return _state.resultSpillThreshold;
+    }
+
+    @Override
+    public FetchConfiguration setResultSpillThreshold(int threshold) {
+        if (threshold == DEFAULT && _state.ctx != null)
+            threshold = _state.ctx.getConfiguration().getResultSpillThreshold();
+        if (threshold != DEFAULT)
+            _state.resultSpillThreshold = threshold;
+        return this;
+    }
+
     @Override
     public int getMaxFetchDepth() {
         return _state.maxFetchDepth;
@@ -767,12 +786,20 @@ public class FetchConfigurationImpl
         if (rop instanceof ListResultObjectProvider)
             return new SimpleResultList(rop);
         if (_state.fetchBatchSize < 0)
-            return new EagerResultList(rop);
+            return newEagerResultList(rop);
         if (rop.supportsRandomAccess())
             return new SimpleResultList(rop);
         return new WindowResultList(rop);
     }
 
+    @Override
+    public ResultList<?> newEagerResultList(ResultObjectProvider rop) {
+        if (_state.resultSpillThreshold <= 0 || _state.ctx == null)
+            return new EagerResultList(rop);
+        return new SpillingResultList(rop, _state.resultSpillThreshold,
+            new ResultSpillCodec(_state.ctx, this));
+    }
+
     /**
      * Throw an exception if no transaction is active.
      */
@@ -18,6 +18,7 @@
  */
 package org.apache.openjpa.kernel;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -105,6 +106,8 @@ public interface FillStrategy<T> {
     public static class NewInstance<T> implements FillStrategy<T> {
         private Constructor<? extends T> cons;
         private Class<T> cls;
+        private MethodHandle handle;
+        private boolean unreflected;
 
         public NewInstance(Constructor<? extends T> cons) {
             this.cons = cons;
@@ -146,10 +149,21 @@ public interface FillStrategy<T> {
             if (cons == null) {
                 cons = findConstructor(cls, types);
             }
+            if (!unreflected) {
+                // invoke the constructor through a method handle, unless it
+                // is only accessible to reflection
+                try {
+                    handle = Reflection.unreflectConstructor(cons);
+                } catch (RuntimeException re) {
+                }
+                unreflected = true;
+            }
             try {
                 for (int i = 0; i < values.length; i++) {
                     values[i] = Filters.convert(values[i], types[i]);
                 }
+                if (handle != null)
+                    return (T) Reflection.newInstance(handle, values);
                 return cons.newInstance(values);
             } catch (Exception e) {
                 throw new RuntimeException(_loc.get("fill-ctor-error", cons, Arrays.toString(values),
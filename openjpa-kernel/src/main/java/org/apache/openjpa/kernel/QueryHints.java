@@ -108,4 +108,24 @@ public interface QueryHints {
      * if possible.
      */
     String HINT_USE_LITERAL_IN_SQL = "openjpa.hint.UseLiteralInSQL";
+
+    /**
+     * The number of milliseconds the result of a query is kept in the query
+     * cache, replacing the timeout of the data cache of its candidate class.
+     * A value of -1 keeps the result until it is invalidated.
+     *
+     * @since 3.2.3
+     */
+    String HINT_QUERY_CACHE_TIMEOUT = "openjpa.hint.QueryCacheTimeout";
+
+    /**
+     * A boolean directive to serve the result of a query that has timed out
+     * in the query cache while a single execution of the query caches a new
+     * result. A result invalidated by a change to the types of the query is
+     * never served.
+     *
+     * @since 3.2.3
+     */
+    String HINT_QUERY_CACHE_STALE_WHILE_REVALIDATE =
+        "openjpa.hint.QueryCacheStaleWhileRevalidate";
 }
@@ -31,6 +31,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
@@ -691,15 +692,20 @@ public class QueryImpl implements Query {
                 comp = newCompilation();
                 // only cache those queries that can be compiled
                 if (comp.storeData != null) {
-
-                    synchronized (compCache) {
-                        Compilation existingComp = (Compilation) compCache.get(key);
-                        if (existingComp == null) {
-                            compCache.put(key, comp);
-                        } else {
-                            comp = existingComp;
+                    Compilation existingComp;
+                    if (compCache instanceof ConcurrentMap) {
+                        existingComp = (Compilation) ((ConcurrentMap) compCache).putIfAbsent(key, comp);
+                    } else {
+                        synchronized (compCache) {
+                            existingComp = (Compilation) compCache.get(key);
+                            if (existingComp == null) {
+                                compCache.put(key, comp);
+                            }
                         }
                     }
+                    if (existingComp != null) {
+                        comp = existingComp;
+                    }
                 }
             } else {
                 _storeQuery.populateFromCompilation(comp.storeData);
@@ -1311,7 +1317,11 @@ public class QueryImpl implements Query {
         boolean lrs = range.lrs && !ex.isAggregate(q) && !ex.hasGrouping(q);
         ResultList<?> res;
         try {
-            res = (!detach && lrs) ? _fc.newResultList(rop) : new EagerResultList(rop);
+            // detached results can not be found again once spilled
+            if (detach)
+                res = new EagerResultList(rop);
+            else
+                res = lrs ? _fc.newResultList(rop) : _fc.newEagerResultList(rop);
             res.setUserObject(new Object[]{rop,ex});
             _resultLists.add(decorateResultList(res));
         } catch (OpenJPAException e) {
@@ -1890,7 +1900,7 @@ public class QueryImpl implements Query {
     /**
      * Struct to hold the unparsed properties associated with a query.
      */
-    private static class CompilationKey
+    static class CompilationKey
         implements Serializable {
 
         
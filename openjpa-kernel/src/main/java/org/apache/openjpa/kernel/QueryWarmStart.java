@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.conf.CacheMarshaller;
+import org.apache.openjpa.conf.CacheMarshallersValue;
+import org.apache.openjpa.conf.NoOpCacheMarshaller;
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAVersion;
+import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.conf.ObjectValue;
+import org.apache.openjpa.lib.conf.Value;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Closeable;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.FrequencyCacheMap;
+
+/**
+ * Records the queries used most in the query compilation cache, and compiles
+ * them again in the background when the application starts the next time,
+ * so that a restart under full load does not parse every query at once.
+ * <br>
+ * The queries are recorded when the broker factory closes and, if a
+ * {@link #setStoreInterval store interval} is set, periodically. They are
+ * stored and loaded by the {@link CacheMarshaller} whose id is the name of
+ * this class, which must be configured with the
+ * <code>openjpa.CacheMarshallers</code> property. A record made for another
+ * OpenJPA version, database dictionary or set of persistent types is
+ * ignored, and a query that no longer compiles against the current metadata
+ * is skipped.
+ *
+ * @since 3.2.3
+ */
+public class QueryWarmStart implements Configurable, Closeable {
+    private static final Localizer _loc = Localizer.forPackage(QueryWarmStart.class);
+
+    /**
+     * Version of the format of the stored queries.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private OpenJPAConfiguration _conf;
+    private Log _log;
+    private int _size = 100;
+    private int _storeInterval = 0;
+    private ScheduledExecutorService _scheduler;
+    private volatile String _fingerprint;
+
+    /**
+     * The maximum number of queries recorded. Defaults to 100.
+     */
+    public void setSize(int size) {
+        _size = size;
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
+    /**
+     * The interval in seconds between recordings, in addition to the
+     * recording on close. Defaults to 0, which only records on close.
+     */
+    public void setStoreInterval(int seconds) {
+        _storeInterval = seconds;
+    }
+
+    public int getStoreInterval() {
+        return _storeInterval;
+    }
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        _conf = (OpenJPAConfiguration) conf;
+        _log = _conf.getLog(OpenJPAConfiguration.LOG_QUERY);
+    }
+
+    @Override
+    public void startConfiguration() {
+    }
+
+    @Override
+    public void endConfiguration() {
+    }
+
+    /**
+     * Compile the recorded queries in the background with brokers of the
+     * given factory, and start the periodic recording, if any.
+     */
+    public synchronized void start(final BrokerFactory factory) {
+        if (_scheduler != null)
+            return;
+        if (getMarshaller() instanceof NoOpCacheMarshaller) {
+            if (_log.isWarnEnabled())
+                _log.warn(_loc.get("warm-start-no-marshaller",
+                    QueryWarmStart.class.getName()));
+            return;
+        }
+        _scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "openjpa-query-warm-start");
+            t.setDaemon(true);
+            return t;
+        });
+        _scheduler.execute(() -> warm(factory));
+        if (_storeInterval > 0)
+            _scheduler.scheduleWithFixedDelay(this::store, _storeInterval,
+                _storeInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Record the queries and stop compiling.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = _scheduler;
+            _scheduler = null;
+        }
+        if (scheduler == null)
+            return;
+        scheduler.shutdownNow();
+        store();
+    }
+
+    /**
+     * Compile the queries recorded by an earlier run with a broker of the
+     * given factory.
+     */
+    void warm(BrokerFactory factory) {
+        CacheMarshaller cm = getMarshaller();
+        Broker broker = null;
+        try {
+            broker = factory.newBroker();
+            _fingerprint = fingerprint(broker);
+            Object o = cm.load();
+            if (!(o instanceof Snapshot))
+                return;
+            Snapshot snapshot = (Snapshot) o;
+            if (snapshot.version != FORMAT_VERSION
+                || !_fingerprint.equals(snapshot.fingerprint)) {
+                if (_log.isInfoEnabled())
+                    _log.info(_loc.get("warm-start-stale", cm.getId()));
+                return;
+            }
+            int compiled = 0;
+            for (Shape shape : snapshot.shapes) {
+                if (Thread.currentThread().isInterrupted() || broker.isClosed())
+                    break;
+                if (compile(broker, shape))
+                    compiled++;
+            }
+            if (_log.isInfoEnabled())
+                _log.info(_loc.get("warm-start-compiled", compiled,
+                    snapshot.shapes.size()));
+        } catch (RuntimeException re) {
+            if (_log.isWarnEnabled())
+                _log.warn(_loc.get("warm-start-failed", re.toString()), re);
+        } finally {
+            if (broker != null && !broker.isClosed())
+                broker.close();
+        }
+    }
+
+    private boolean compile(Broker broker, Shape shape) {
+        try {
+            Query q = broker.newQuery(shape.language, shape.query);
+            if (shape.candidate != null) {
+                Class<?> cls = Class.forName(shape.candidate, false,
+                    broker.getClassLoader());
+                q.setCandidateType(cls, shape.subclasses);
+            }
+            q.compile();
+            q.closeAll();
+            return true;
+        } catch (Exception | LinkageError e) {
+            if (_log.isTraceEnabled())
+                _log.trace(_loc.get("warm-start-skip", shape.query, e.toString()));
+            return false;
+        }
+    }
+
+    /**
+     * Record the queries used most in the compilation cache.
+     */
+    public void store() {
+        String fingerprint = _fingerprint;
+        Map cache = _conf.getQueryCompilationCacheInstance();
+        if (fingerprint == null || cache == null)
+            return;
+
+        List<QueryImpl.CompilationKey> keys = new ArrayList<>();
+        for (Object key : cache.keySet().toArray())
+            if (key instanceof QueryImpl.CompilationKey)
+                keys.add((QueryImpl.CompilationKey) key);
+        if (cache instanceof FrequencyCacheMap) {
+            final FrequencyCacheMap<?, ?> freq = (FrequencyCacheMap<?, ?>) cache;
+            keys.sort(Comparator.comparingInt(
+                (QueryImpl.CompilationKey k) -> freq.getFrequency(k)).reversed());
+        }
+
+        Snapshot snapshot = new Snapshot();
+        snapshot.version = FORMAT_VERSION;
+        snapshot.fingerprint = fingerprint;
+        for (QueryImpl.CompilationKey key : keys) {
+            if (snapshot.shapes.size() >= _size)
+                break;
+            if (key.query == null || key.language == null)
+                continue;
+            Shape shape = new Shape();
+            shape.language = key.language;
+            shape.query = key.query;
+            shape.candidate = (key.candidateType == null) ? null
+                : key.candidateType.getName();
+            shape.subclasses = key.subclasses;
+            snapshot.shapes.add(shape);
+        }
+        getMarshaller().store(snapshot);
+    }
+
+    private CacheMarshaller getMarshaller() {
+        return CacheMarshallersValue.getMarshallerById(_conf,
+            QueryWarmStart.class.getName());
+    }
+
+    /**
+     * Identify the OpenJPA version, the database dictionary and the
+     * persistent types that compiled queries depend on.
+     */
+    private String fingerprint(Broker broker) {
+        StringBuilder buf = new StringBuilder(OpenJPAVersion.VERSION_ID);
+        Value dict = _conf.getValue("jdbc.DBDictionary");
+        if (dict instanceof ObjectValue && ((ObjectValue) dict).get() != null)
+            buf.append(';').append(((ObjectValue) dict).get().getClass().getName());
+        else if (dict != null)
+            buf.append(';').append(dict.getString());
+        MetaDataRepository repos = _conf.getMetaDataRepositoryInstance();
+        int hash = new TreeSet<>(repos.getPersistentTypeNames(false,
+            broker.getClassLoader())).hashCode();
+        buf.append(';').append(Integer.toHexString(hash));
+        return buf.toString();
+    }
+
+    /**
+     * The queries recorded, in a compact versioned form.
+     */
+    public static class Snapshot implements Externalizable {
+        private static final long serialVersionUID = 1L;
+
+        int version;
+        String fingerprint;
+        List<Shape> shapes = new ArrayList<>();
+
+        /**
+         * Gets the number of queries recorded.
+         */
+        public int size() {
+            return shapes.size();
+        }
+
+        /**
+         * Gets the query strings recorded, most used first.
+         */
+        public List<String> getQueries() {
+            List<String> queries = new ArrayList<>(shapes.size());
+            for (Shape shape : shapes)
+                queries.add(shape.query);
+            return Collections.unmodifiableList(queries);
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeInt(version);
+            out.writeUTF(fingerprint);
+            out.writeInt(shapes.size());
+            for (Shape shape : shapes) {
+                out.writeUTF(shape.language);
+                out.writeObject(shape.query);
+                out.writeBoolean(shape.candidate != null);
+                if (shape.candidate != null)
+                    out.writeUTF(shape.candidate);
+                out.writeBoolean(shape.subclasses);
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in)
+            throws IOException, ClassNotFoundException {
+            version = in.readInt();
+            if (version != FORMAT_VERSION)
+                return;
+            fingerprint = in.readUTF();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Shape shape = new Shape();
+                shape.language = in.readUTF();
+                shape.query = (String) in.readObject();
+                shape.candidate = in.readBoolean() ? in.readUTF() : null;
+                shape.subclasses = in.readBoolean();
+                shapes.add(shape);
+            }
+        }
+    }
+
+    /**
+     * A recorded query.
+     */
+    static class Shape {
+        String language;
+        String query;
+        String candidate;
+        boolean subclasses;
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.openjpa.kernel;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
@@ -36,6 +37,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.openjpa.enhance.Reflection;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.StringUtil;
@@ -53,6 +55,7 @@ public class ResultPacker {
     private static final Localizer _loc = Localizer.forPackage
         (ResultPacker.class);
     private static final Set<Class<?>> _stdTypes = new HashSet<>();
+    private static final Object[] NO_ARGS = new Object[0];
 
     static {
         _stdTypes.add(Object[].class);
@@ -84,6 +87,12 @@ public class ResultPacker {
     private final Method _put;
     private final Constructor<?> _constructor;
 
+    // method handles for the constructor, or the no-arg constructor of a
+    // bean, and the setters, resolved once so that packing a row does not
+    // go through reflection
+    private final MethodHandle _construct;
+    private final MethodHandle[] _setters;
+
     /**
      * Protected constructor to bypass this implementation but allow extension.
      */
@@ -93,6 +102,8 @@ public class ResultPacker {
         _sets = null;
         _put = null;
         _constructor = null;
+        _construct = null;
+        _setters = null;
     }
 
     /**
@@ -125,12 +136,16 @@ public class ResultPacker {
             _sets = null;
             _put = null;
             _constructor = null;
+            _construct = null;
+            _setters = null;
         } else if (resultClass.isPrimitive()) {
             assertConvertable(candidate, types, resultClass);
             _resultClass = Filters.wrap(resultClass);
             _sets = null;
             _put = null;
             _constructor = null;
+            _construct = null;
+            _setters = null;
         } else if (!_stdTypes.contains(_resultClass = resultClass)) {
             // check for a constructor that matches the projection types
             Constructor<?> cons = null;
@@ -147,6 +162,7 @@ public class ResultPacker {
                 Field[] fields = _resultClass.getFields();
                 _put = findPut(methods);
                 _sets = new Member[aliases.length];
+                _setters = new MethodHandle[aliases.length];
 
                 Class<?> type;
                 for (int i = 0; i < _sets.length; i++) {
@@ -156,10 +172,14 @@ public class ResultPacker {
                         throw new UserException(_loc.get("cant-set",
                             resultClass, aliases[i],
                             types == null ? null : Arrays.asList(types)));
+                    _setters[i] = unreflect(_sets[i]);
                 }
+                _construct = unreflectDefault(_resultClass);
             } else {
                 _sets = null;
                 _put = null;
+                _construct = unreflect(cons);
+                _setters = null;
             }
         } else {
             if (resultClass != Map.class && resultClass != HashMap.class
@@ -168,6 +188,38 @@ public class ResultPacker {
             _sets = null;
             _put = null;
             _constructor = null;
+            _construct = null;
+            _setters = null;
+        }
+    }
+
+    /**
+     * Return a method handle for the given constructor, field or setter,
+     * or null to fall back on reflection if the member is not accessible
+     * to method handles.
+     */
+    private static MethodHandle unreflect(Object member) {
+        try {
+            if (member instanceof Constructor)
+                return Reflection.unreflectConstructor((Constructor<?>) member);
+            if (member instanceof Method)
+                return Reflection.unreflectSetter((Method) member);
+            if (member instanceof Field)
+                return Reflection.unreflectSetter((Field) member);
+        } catch (RuntimeException re) {
+        }
+        return null;
+    }
+
+    /**
+     * Return a method handle for the public no-arg constructor of the given
+     * class, or null to fall back on reflection.
+     */
+    private static MethodHandle unreflectDefault(Class<?> cls) {
+        try {
+            return unreflect(cls.getConstructor());
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
         }
     }
 
@@ -268,20 +320,34 @@ public class ResultPacker {
     private Object packUserType(Object[] result) {
         try {
             // use the constructor first, if we have one
-            if (_constructor != null)
+            if (_sets == null) {
+                if (_construct != null)
+                    return Reflection.newInstance(_construct, result);
                 return _constructor.newInstance(result);
+            }
 
-            Object user = AccessController.doPrivileged(
-                J2DoPrivHelper.newInstanceAction(_resultClass));
+            Object user;
+            if (_construct != null)
+                user = Reflection.newInstance(_construct, NO_ARGS);
+            else
+                user = AccessController.doPrivileged(
+                    J2DoPrivHelper.newInstanceAction(_resultClass));
             for (int i = 0; i < _aliases.length; i++) {
                 if (_sets[i] instanceof Method) {
                     Method meth = (Method) _sets[i];
-                    meth.invoke(user, new Object[]{ Filters.convert
-                        (result[i], meth.getParameterTypes()[0]) });
+                    Object val = Filters.convert(result[i],
+                        meth.getParameterTypes()[0]);
+                    if (_setters[i] != null)
+                        Reflection.set(user, _setters[i], val);
+                    else
+                        meth.invoke(user, new Object[]{ val });
                 } else if (_sets[i] instanceof Field) {
                     Field field = (Field) _sets[i];
-                    field.set(user, Filters.convert(result[i],
-                        field.getType()));
+                    Object val = Filters.convert(result[i], field.getType());
+                    if (_setters[i] != null)
+                        Reflection.set(user, _setters[i], val);
+                    else
+                        field.set(user, val);
                 } else if (_put != null) {
                     _put.invoke(user, new Object[]{ _aliases[i], result[i] });
                 }
@@ -19,7 +19,6 @@
 package org.apache.openjpa.kernel;
 
 import java.io.Serializable;
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -339,37 +338,38 @@ public class ResultShape<T> implements Serializable {
         if (values.length < argLength()) // input can be longer than required
             throw new IndexOutOfBoundsException(values.length + " values are less than " +
                     argLength() + " argumenets required to pack " + this);
+        return pack(values, types, aliases, 0);
+    }
+
+    /**
+     * Fill this shape and its children with the array element values from the given start index,
+     * without copying the part of the arrays for each child.
+     */
+    private T pack(Object[] values, Class<?>[] types, String[] aliases, int start) {
         Object[] args = new Object[length()];
         Class<?>[] argTypes = new Class[length()];
         String[] argAliases = new String[length()];
         if (isPrimitive() || children.isEmpty()) {
-            args[0] = values[0];
-            argTypes[0] = types[0];
-            argAliases[0] = aliases[0];
+            args[0] = values[start];
+            argTypes[0] = types[start];
+            argAliases[0] = aliases[start];
         } else { // pack each children
-            int start = 0;
             int i = 0;
             for (ResultShape<?> rs : children) {
-                int finish = start + rs.argLength();
-                args[i] = rs.pack(chop(values, start, finish), chop(types, start, finish),
-                        chop(aliases, start, finish));
+                // a primitive child assigned as is needs no packing
+                if (rs.isPrimitive() && rs.strategy instanceof FillStrategy.Assign)
+                    args[i] = values[start];
+                else
+                    args[i] = rs.pack(values, types, aliases, start);
                 argTypes[i] = rs.getType();
                 argAliases[0] = rs.getAlias();
-                start = finish;
+                start += rs.argLength();
                 i++;
             }
         }
         return strategy.fill(args, argTypes, argAliases);
     }
 
-    /**
-     * Chop an array from start to finish.
-     */
-    <X> X[] chop(X[] values, int start, int finish) {
-        X[] result = (X[])Array.newInstance(values.getClass().getComponentType(), finish-start);
-        System.arraycopy(values, start, result, 0, finish-start);
-        return result;
-    }
     /**
      * Gets a human-readable representation of this shape.
      *
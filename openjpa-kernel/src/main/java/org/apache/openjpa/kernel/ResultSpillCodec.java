@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.openjpa.lib.rop.SpillingResultList;
+
+/**
+ * Encodes the query results spilled by a {@link SpillingResultList}.
+ * A managed instance is encoded by its identity and decoded by finding it
+ * in the context, so that the same managed instance is returned as long
+ * as the context holds it. A new instance can not be found by its identity
+ * and is held in memory. Other results are encoded as by the default codec.
+ *
+ * @since 3.2.3
+ */
+class ResultSpillCodec extends SpillingResultList.DefaultCodec {
+    private static final byte MANAGED = EXTENSION;
+
+    private final StoreContext _ctx;
+    private final FetchConfiguration _fetch;
+
+    ResultSpillCodec(StoreContext ctx, FetchConfiguration fetch) {
+        super(ctx.getClassLoader());
+        _ctx = ctx;
+        _fetch = fetch;
+    }
+
+    @Override
+    protected boolean write(DataOutputStream out, Object val) throws IOException {
+        OpenJPAStateManager sm = (val == null || isSimple(val)) ? null
+            : _ctx.getStateManager(val);
+        if (sm == null)
+            return super.write(out, val);
+        if (sm.isNew() || sm.isDeleted() || sm.getObjectId() == null)
+            return false;
+        out.writeByte(MANAGED);
+        return super.write(out, sm.getObjectId());
+    }
+
+    @Override
+    protected Object read(DataInputStream in, byte tag) throws Exception {
+        if (tag != MANAGED)
+            return super.read(in, tag);
+        Object oid = super.read(in, in.readByte());
+        return _ctx.find(oid, _fetch, null, null, 0);
+    }
+
+    /**
+     * Affirms if the given value is of a type that can not be persistent,
+     * to avoid looking it up in the context.
+     */
+    private static boolean isSimple(Object val) {
+        return val instanceof String || val instanceof Number
+            || val instanceof Boolean || val instanceof Character
+            || val instanceof java.util.Date || val instanceof Object[];
+    }
+}
@@ -22,6 +22,7 @@ import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Objects;
 
+import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.kernel.Broker;
 import org.apache.openjpa.kernel.Filters;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
@@ -112,6 +113,7 @@ public class CandidatePath
         Object action;
         OpenJPAStateManager sm;
         Broker tmpBroker = null;
+        boolean concurrent = InMemoryExpressionFactory.isConcurrent();
         for (Object o : _actions) {
             action = o;
 
@@ -129,6 +131,13 @@ public class CandidatePath
                 continue;
             }
 
+            // other threads may read the same instances; only read fields
+            // that are loaded, one thread at a time per instance
+            if (concurrent) {
+                candidate = fetchLoaded(candidate, (Traversal) action);
+                continue;
+            }
+
             // make sure we can access the instance; even non-pc vals might
             // be proxyable
             sm = null;
@@ -159,6 +168,26 @@ public class CandidatePath
         return candidate;
     }
 
+    /**
+     * Return the value of the given loaded field of a managed instance.
+     * Evaluation is deferred to the calling thread if the field would
+     * have to be loaded, or the instance made transactional.
+     */
+    private static Object fetchLoaded(Object candidate, Traversal traversal) {
+        OpenJPAStateManager sm = null;
+        if (candidate instanceof PersistenceCapable)
+            sm = (OpenJPAStateManager) ((PersistenceCapable) candidate)
+                .pcGetStateManager();
+        int field = traversal.field.getIndex();
+        if (sm == null || !sm.getLoaded().get(field))
+            throw InMemoryExpressionFactory.DEFERRED;
+        // the field is loaded; read it without the state transitions of an
+        // access, which could load fields or change the state
+        synchronized (sm) {
+            return sm.fetchField(field, false);
+        }
+    }
+
     @Override
     public int hashCode() {
         return (_actions == null) ? 0 : _actions.hashCode();
@@ -49,7 +49,8 @@ abstract class CompareExpression
         StoreContext ctx, Object[] params) {
         Object o1 = _val1.eval(candidate, orig, ctx, params);
         Object o2 = _val2.eval(candidate, orig, ctx, params);
-        if (o1 != null && o2 != null) {
+        // values of the same class need no conversion
+        if (o1 != null && o2 != null && o1.getClass() != o2.getClass()) {
             Class c = Filters.promote(o1.getClass(), o2.getClass());
             o1 = Filters.convert(o1, c);
             o2 = Filters.convert(o2, c);
@@ -67,7 +68,8 @@ abstract class CompareExpression
         Object o2 = (c2 == null || c2.isEmpty()) ? null
             : c2.iterator().next();
 
-        if (o1 != null && o2 != null) {
+        // values of the same class need no conversion
+        if (o1 != null && o2 != null && o1.getClass() != o2.getClass()) {
             Class c = Filters.promote(o1.getClass(), o2.getClass());
             o1 = Filters.convert(o1, c);
             o2 = Filters.convert(o2, c);
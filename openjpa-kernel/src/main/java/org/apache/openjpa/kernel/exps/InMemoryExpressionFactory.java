@@ -30,6 +30,10 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 import org.apache.openjpa.kernel.Extent;
 import org.apache.openjpa.kernel.StoreContext;
@@ -49,11 +53,57 @@ public class InMemoryExpressionFactory
     implements ExpressionFactory {
 
     private static final Value NULL = new Null();
-    private static final Object UNIQUE = new Object();
+
+    /**
+     * Thrown by an evaluation in a thread that runs concurrently with others
+     * when it would have side effects, such as loading a field, to evaluate
+     * the candidate in the calling thread instead.
+     */
+    static final RuntimeException DEFERRED = new RuntimeException("deferred",
+        null, false, false) {
+        private static final long serialVersionUID = 1L;
+    };
+
+    /**
+     * Smallest number of candidates evaluated by a task in parallel.
+     */
+    private static final int MIN_GRAIN = 256;
+
+    // the types of the expressions and values that have no side effects,
+    // so that candidates can be evaluated in parallel
+    private static final Set<Class<?>> SIDE_EFFECT_FREE = new HashSet<>(
+        Arrays.asList(Exp.class, AndExpression.class, OrExpression.class,
+            NotExpression.class, ValExpression.class, EqualExpression.class,
+            NotEqualExpression.class, LessThanExpression.class,
+            LessThanEqualExpression.class, GreaterThanExpression.class,
+            GreaterThanEqualExpression.class, StartsWithExpression.class,
+            EndsWithExpression.class, MatchesExpression.class,
+            InstanceofExpression.class, WhenCondition.class, WhenScalar.class,
+            CandidatePath.class, ValuePath.class, This.class, Lit.class,
+            Param.class, Null.class, TypeLit.class, Type.class, Args.class,
+            Add.class, Subtract.class, Multiply.class, Divide.class, Mod.class,
+            Abs.class, Sqrt.class, Concat.class, Substring.class,
+            ToLowerCase.class, ToUpperCase.class, Trim.class,
+            StringLength.class, IndexOf.class, Cast.class, Coalesce.class,
+            NullIf.class, GeneralCase.class, SimpleCase.class,
+            CurrentDate.class));
+
+    private static final ThreadLocal<Boolean> _concurrent = new ThreadLocal<>();
 
     // list of unbound variables in this query
     private List<UnboundVariable> _unbounds = null;
 
+    // whether the filter and ordering of this query have no side effects
+    private Boolean _sideEffectFree = null;
+
+    /**
+     * Whether the current thread evaluates candidates concurrently with
+     * other threads, and so must not have side effects.
+     */
+    static boolean isConcurrent() {
+        return _concurrent.get() != null;
+    }
+
     /**
      * Tests whether the given candidate matches the given type and this
      * expression.
@@ -75,6 +125,99 @@ public class InMemoryExpressionFactory
         return matches((Exp) exps.filter, candidate, ctx, params, 0);
     }
 
+    /**
+     * Return the candidates that match the given type and this expression,
+     * in the order of the given candidates. The candidates are evaluated in
+     * parallel if there are at least as many as the
+     * <code>openjpa.InMemoryParallelThreshold</code> and the expression has
+     * no side effects, on the fork-join pool of the calling thread or on the
+     * common pool.
+     *
+     * @since 3.2.3
+     */
+    public List matches(final QueryExpressions exps, final ClassMetaData type,
+        final boolean subs, Collection candidates, final StoreContext ctx,
+        final Object[] params) {
+        List results = new ArrayList();
+        if (!isParallel(exps, candidates.size(), ctx)) {
+            Iterator itr = candidates.iterator();
+            try {
+                Object candidate;
+                while (itr.hasNext()) {
+                    candidate = itr.next();
+                    if (matches(exps, type, subs, candidate, ctx, params))
+                        results.add(candidate);
+                }
+            } finally {
+                ImplHelper.close(itr);
+            }
+            return results;
+        }
+
+        final Object[] cands = candidates.toArray();
+        final boolean[] matched = new boolean[cands.length];
+        IntConsumer eval = i -> matched[i] = matches(exps, type, subs,
+            cands[i], ctx, params);
+        boolean[] deferred = evaluate(cands.length, eval);
+        for (int i = 0; i < cands.length; i++) {
+            if (deferred[i])
+                eval.accept(i);
+            if (matched[i])
+                results.add(cands[i]);
+        }
+        return results;
+    }
+
+    /**
+     * Whether to evaluate the given number of candidates of the given
+     * query in parallel.
+     */
+    private boolean isParallel(QueryExpressions exps, int candidates,
+        StoreContext ctx) {
+        int threshold = ctx.getConfiguration().getInMemoryParallelThreshold();
+        if (threshold <= 0 || candidates < threshold || candidates < 2
+            || _unbounds != null
+            || getPool().getParallelism() < 2)
+            return false;
+        if (_sideEffectFree == null) {
+            SideEffectFreeVisitor visitor = new SideEffectFreeVisitor();
+            if (exps.filter != null)
+                exps.filter.acceptVisit(visitor);
+            for (Value val : exps.ordering)
+                val.acceptVisit(visitor);
+            _sideEffectFree = visitor.free;
+        }
+        return _sideEffectFree;
+    }
+
+    /**
+     * The fork-join pool that runs the calling thread, if any, or else the
+     * common pool.
+     */
+    private static ForkJoinPool getPool() {
+        ForkJoinPool pool = ForkJoinTask.getPool();
+        return (pool == null) ? ForkJoinPool.commonPool() : pool;
+    }
+
+    /**
+     * Evaluate the candidates of the given indexes in parallel on the
+     * fork-join pool of the calling thread or on the common pool.
+     *
+     * @return for each index, whether its evaluation was deferred and has
+     * still to be done in the calling thread
+     */
+    private static boolean[] evaluate(int size, IntConsumer eval) {
+        boolean[] deferred = new boolean[size];
+        ForkJoinPool pool = getPool();
+        int grain = Math.max(MIN_GRAIN, size / (pool.getParallelism() * 4));
+        Evaluation task = new Evaluation(eval, deferred, 0, size, grain);
+        if (ForkJoinTask.inForkJoinPool())
+            task.invoke();
+        else
+            pool.invoke(task);
+        return deferred;
+    }
+
     /**
      * Recursive method to evaluate the expression for all possible
      * combinations of unbound variables. This method simulates a sequence
@@ -122,36 +265,25 @@ public class InMemoryExpressionFactory
             return matches;
 
         // to form groups we first order on the grouping criteria
-        matches = order(exps, exps.grouping, false, matches, ctx, params);
+        Ordered[] ordered = order(exps.grouping, null, false, matches, ctx,
+            params);
 
         // now we combine all results whose values for each grouping clause
         // are the same, relying on the fact that these values will already be
         // together due to the sorting
-        Object[] prevs = new Object[exps.grouping.length];
-        Arrays.fill(prevs, UNIQUE);
-        Object[] curs = new Object[exps.grouping.length];
+        Object[] prevs = null;
         List grouped = new ArrayList();
         List group = null;
-        Object pc;
-        boolean eq;
-        for (Object match : matches) {
-            pc = match;
-            eq = true;
-            for (int i = 0; i < exps.grouping.length; i++) {
-                curs[i] = ((Val) exps.grouping[i]).evaluate(pc, pc, ctx,
-                        params);
-                eq = eq && Objects.equals(prevs[i], curs[i]);
-            }
-
+        for (Ordered match : ordered) {
             // if this object's grouping values differ from the prev,
             // start a new group
-            if (!eq) {
+            if (prevs == null || !Arrays.equals(prevs, match.values)) {
                 if (group != null)
                     grouped.add(group);
                 group = new ArrayList();
             }
-            group.add(pc);
-            System.arraycopy(curs, 0, prevs, 0, curs.length);
+            group.add(match.candidate);
+            prevs = match.values;
         }
         // add the last group formed
         if (group != null)
@@ -223,25 +355,39 @@ public class InMemoryExpressionFactory
         if (exps.projections.length == 0)
             return matches;
 
+        // find the ordering values already selected as results once, rather
+        // than for every candidate
+        int[] repeats = new int[exps.ordering.length];
+        for (int i = 0; i < exps.ordering.length; i++) {
+            repeats[i] = -1;
+            for (int j = 0; repeats[i] == -1 && j < exps.projections.length; j++)
+                if (exps.orderingClauses[i].equals(exps.projectionClauses[j]))
+                    repeats[i] = j;
+        }
+
         // if an ungrouped aggregate, evaluate the whole matches list
         if (exps.grouping.length == 0 && exps.isAggregate()) {
-            Object[] projection = project(matches, exps, true, ctx, params);
+            Object[] projection = project(matches, exps, repeats, true, ctx,
+                params);
             return Arrays.asList(new Object[]{ projection });
         }
 
         // evaluate each candidate
         List projected = new ArrayList(matches.size());
         for (Object match : matches)
-            projected.add(project(match, exps, exps.grouping.length > 0,
-                    ctx, params));
+            projected.add(project(match, exps, repeats,
+                exps.grouping.length > 0, ctx, params));
         return projected;
     }
 
     /**
      * Generate a projection on the given candidate.
+     *
+     * @param repeats for each ordering value, the index of the result that
+     * selects it, or -1
      */
     private Object[] project(Object candidate, QueryExpressions exps,
-        boolean agg, StoreContext ctx, Object[] params) {
+        int[] repeats, boolean agg, StoreContext ctx, Object[] params) {
         Object[] projection = new Object[exps.projections.length
             + exps.ordering.length];
 
@@ -258,26 +404,16 @@ public class InMemoryExpressionFactory
         }
 
         // tack on ordering values
-        boolean repeat;
         for (int i = 0; i < exps.ordering.length; i++) {
             // already selected as a result?
-            repeat = false;
-            for (int j = 0; !repeat && j < exps.projections.length; j++) {
-                if (exps.orderingClauses[i].equals(exps.projectionClauses[j])) {
-                    result = projection[j];
-                    repeat = true;
-                }
-            }
-
-            // not selected as result; calculate value
-            if (!repeat) {
-                if (agg)
-                    result = ((Val) exps.ordering[i]).evaluate((Collection)
-                        candidate, null, ctx, params);
-                else
-                    result = ((Val) exps.ordering[i]).evaluate(candidate,
-                        candidate, ctx, params);
-            }
+            if (repeats[i] != -1)
+                result = projection[repeats[i]];
+            else if (agg)
+                result = ((Val) exps.ordering[i]).evaluate((Collection)
+                    candidate, null, ctx, params);
+            else
+                result = ((Val) exps.ordering[i]).evaluate(candidate,
+                    candidate, ctx, params);
 
             projection[i + exps.projections.length] = result;
         }
@@ -289,32 +425,71 @@ public class InMemoryExpressionFactory
      */
     public List order(QueryExpressions exps, List matches,
         StoreContext ctx, Object[] params) {
-        return order(exps, exps.ordering, true, matches, ctx, params);
+        if (matches == null || matches.isEmpty()
+            || exps.ordering == null || exps.ordering.length == 0)
+            return matches;
+
+        // if this is a projection, then in project() we must have selected
+        // the ordering values already after the projection values
+        int results = exps.projections.length;
+        boolean parallel = isParallel(exps, matches.size(), ctx);
+        Object[] ordered;
+        if (results > 0) {
+            Comparator comp = new OrderValueComparator(exps.ascending, results);
+            if (!parallel) {
+                Collections.sort(matches, comp);
+                return matches;
+            }
+            ordered = matches.toArray();
+            Arrays.parallelSort(ordered, comp);
+        } else
+            ordered = order(exps.ordering, exps.ascending, parallel, matches,
+                ctx, params);
+
+        ListIterator li = matches.listIterator();
+        for (Object match : ordered) {
+            li.next();
+            li.set((match instanceof Ordered) ? ((Ordered) match).candidate
+                : match);
+        }
+        return matches;
     }
 
     /**
-     * Order the given list of matches on the given value.
+     * Order the given candidates on the given values. Each value is
+     * evaluated once for every candidate, rather than for every comparison.
      *
-     * @param projected whether projections have been applied to the matches yet
+     * @param asc whether to order ascending on each value; null to order
+     * ascending on all
+     * @param parallel whether to evaluate and sort the candidates in parallel
+     * @return the candidates with their values, in order
      */
-    private List order(QueryExpressions exps, Value[] orderValues,
-        boolean projected, List matches, StoreContext ctx, Object[] params) {
-        if (matches == null || matches.isEmpty()
-            || orderValues == null || orderValues.length == 0)
-            return matches;
-
-        int results = (projected) ? exps.projections.length : 0;
-        boolean[] asc = (projected) ? exps.ascending : null;
-        int idx;
-        for (int i = orderValues.length - 1; i >= 0; i--) {
-            // if this is a projection, then in project() we must have selected
-            // the ordering value already after the projection values
-            idx = (results > 0) ? results + i : -1;
-            Collections.sort(matches,
-                new OrderValueComparator((Val) orderValues[i],
-                    asc == null || asc[i], idx, ctx, params));
+    private Ordered[] order(final Value[] orderValues, boolean[] asc,
+        boolean parallel, List matches, final StoreContext ctx,
+        final Object[] params) {
+        final Object[] cands = matches.toArray();
+        final Ordered[] ordered = new Ordered[cands.length];
+        IntConsumer eval = i -> {
+            Object[] values = new Object[orderValues.length];
+            for (int j = 0; j < orderValues.length; j++)
+                values[j] = ((Val) orderValues[j]).evaluate(cands[i], cands[i],
+                    ctx, params);
+            ordered[i] = new Ordered(cands[i], values);
+        };
+
+        Comparator comp = new OrderValueComparator(asc, 0);
+        if (parallel) {
+            boolean[] deferred = evaluate(cands.length, eval);
+            for (int i = 0; i < cands.length; i++)
+                if (deferred[i])
+                    eval.accept(i);
+            Arrays.parallelSort(ordered, comp);
+        } else {
+            for (int i = 0; i < cands.length; i++)
+                eval.accept(i);
+            Arrays.sort(ordered, comp);
         }
-        return matches;
+        return ordered;
     }
 
     /**
@@ -778,62 +953,158 @@ public class InMemoryExpressionFactory
     }
 
     /**
-     * Comparator that uses the result of eval'ing a Value to sort on. Null
+     * Evaluates the candidates of a range of indexes, splitting the range
+     * between tasks. An evaluation that throws {@link #DEFERRED} is marked
+     * as deferred.
+     */
+    private static class Evaluation
+        extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private final IntConsumer _eval;
+        private final boolean[] _deferred;
+        private final int _start;
+        private final int _end;
+        private final int _grain;
+
+        private Evaluation(IntConsumer eval, boolean[] deferred, int start,
+            int end, int grain) {
+            _eval = eval;
+            _deferred = deferred;
+            _start = start;
+            _end = end;
+            _grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (_end - _start > _grain) {
+                int mid = (_start + _end) >>> 1;
+                invokeAll(new Evaluation(_eval, _deferred, _start, mid, _grain),
+                    new Evaluation(_eval, _deferred, mid, _end, _grain));
+                return;
+            }
+
+            _concurrent.set(Boolean.TRUE);
+            try {
+                for (int i = _start; i < _end; i++) {
+                    try {
+                        _eval.accept(i);
+                    } catch (RuntimeException re) {
+                        if (re != DEFERRED)
+                            throw re;
+                        _deferred[i] = true;
+                    }
+                }
+            } finally {
+                _concurrent.remove();
+            }
+        }
+    }
+
+    /**
+     * Finds whether all the expressions and values visited are of types
+     * known to have no side effects.
+     */
+    private static class SideEffectFreeVisitor
+        extends AbstractExpressionVisitor {
+
+        private boolean free = true;
+
+        @Override
+        public void enter(Expression exp) {
+            free = free && SIDE_EFFECT_FREE.contains(exp.getClass());
+        }
+
+        @Override
+        public void enter(Value val) {
+            free = free && SIDE_EFFECT_FREE.contains(val.getClass());
+        }
+    }
+
+    /**
+     * A candidate with the values it is ordered on.
+     */
+    private static class Ordered {
+
+        private final Object candidate;
+        private final Object[] values;
+
+        private Ordered(Object candidate, Object[] values) {
+            this.candidate = candidate;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Comparator of the values to sort on, either of {@link Ordered}
+     * candidates or selected after the results of projections. Null
      * values are placed last if sorting in ascending order, first if
      * descending.
      */
     private static class OrderValueComparator
         implements Comparator {
 
-        private final StoreContext _ctx;
-        private final Val _val;
-        private final boolean _asc;
+        private final boolean[] _asc;
         private final int _idx;
-        private final Object[] _params;
 
-        private OrderValueComparator(Val val, boolean asc, int idx,
-            StoreContext ctx, Object[] params) {
-            _ctx = ctx;
-            _val = val;
+        /**
+         * @param asc whether to sort ascending on each value; null to sort
+         * ascending on all
+         * @param idx the index of the first value in a projection
+         */
+        private OrderValueComparator(boolean[] asc, int idx) {
             _asc = asc;
             _idx = idx;
-            _params = params;
         }
 
         @Override
         public int compare(Object o1, Object o2) {
-            if (_idx != -1) {
-                o1 = ((Object[]) o1)[_idx];
-                o2 = ((Object[]) o2)[_idx];
+            Object[] vals1;
+            Object[] vals2;
+            if (o1 instanceof Ordered) {
+                vals1 = ((Ordered) o1).values;
+                vals2 = ((Ordered) o2).values;
             } else {
-                o1 = _val.evaluate(o1, o1, _ctx, _params);
-                o2 = _val.evaluate(o2, o2, _ctx, _params);
+                vals1 = (Object[]) o1;
+                vals2 = (Object[]) o2;
             }
 
+            int cmp;
+            for (int i = 0; i + _idx < vals1.length; i++) {
+                cmp = compare(vals1[i + _idx], vals2[i + _idx],
+                    _asc == null || _asc[i]);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return 0;
+        }
+
+        private static int compare(Object o1, Object o2, boolean asc) {
             if (o1 == null && o2 == null)
                 return 0;
             if (o1 == null)
-                return (_asc) ? 1 : -1;
+                return (asc) ? 1 : -1;
             if (o2 == null)
-                return (_asc) ? -1 : 1;
+                return (asc) ? -1 : 1;
 
             if (o1 instanceof Boolean && o2 instanceof Boolean) {
                 int i1 = (Boolean) o1 ? 1 : 0;
                 int i2 = (Boolean) o2 ? 1 : 0;
-                return i1 - i2;
+                return (asc) ? i1 - i2 : i2 - i1;
             }
 
             try {
-                if (_asc)
+                if (asc)
                     return ((Comparable) o1).compareTo(o2);
                 return ((Comparable) o2).compareTo(o1);
             } catch (ClassCastException cce) {
                 Localizer loc = Localizer.forPackage
                     (InMemoryExpressionFactory.class);
                 throw new UserException(loc.get("not-comp", o1, o2));
-			}
-		}
-	}
+            }
+        }
+    }
 
     @Override
     public Value generalCaseExpression(Expression[] exp, Value val) {
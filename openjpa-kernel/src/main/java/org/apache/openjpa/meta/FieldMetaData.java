@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
@@ -45,6 +46,7 @@ import java.util.Set;
 import java.util.TimeZone;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.enhance.Reflection;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.StoreContext;
 import org.apache.openjpa.lib.conf.Configurations;
@@ -198,6 +200,8 @@ public class FieldMetaData
     // DEFAULT_METHOD is sufficient to trigger lazy population of these fields.
     private transient Method _extMethod = DEFAULT_METHOD;
     private transient Member _factMethod = DEFAULT_METHOD;
+    private transient MethodHandle _extHandle;
+    private transient MethodHandle _factHandle;
 
     private transient Constructor _converterConstructor;
     private transient Method _converterExtMethod;
@@ -1331,18 +1335,22 @@ public class FieldMetaData
                 return val;
 
             try {
+                if (_extHandle == null)
+                    _extHandle = Reflection.unreflect(externalizer);
+
                 // either invoke the static toExternal(val[, ctx]) method, or the
                 // non-static val.toExternal([ctx]) method
                 if (Modifier.isStatic(externalizer.getModifiers())) {
                     if (externalizer.getParameterTypes().length == 1)
-                        return externalizer.invoke(null, new Object[]{ val });
-                    return externalizer.invoke(null, new Object[]{ val, ctx });
+                        return Reflection.invoke(_extHandle, new Object[]{ val });
+                    return Reflection.invoke(_extHandle,
+                        new Object[]{ val, ctx });
                 }
                 if (val == null)
                     return null;
                 if (externalizer.getParameterTypes().length == 0)
-                    return externalizer.invoke(val, (Object[]) null);
-                return externalizer.invoke(val, new Object[]{ ctx });
+                    return Reflection.invoke(_extHandle, new Object[]{ val });
+                return Reflection.invoke(_extHandle, new Object[]{ val, ctx });
             } catch (OpenJPAException ke) {
                 throw ke;
             } catch (Exception e) {
@@ -1398,14 +1406,18 @@ public class FieldMetaData
                 if (factory instanceof Constructor) {
                     if (val == null)
                         return null;
-                    return ((Constructor) factory).newInstance
-                        (new Object[]{ val });
+                    if (_factHandle == null)
+                        _factHandle = Reflection.unreflectConstructor
+                            ((Constructor<?>) factory);
+                    return Reflection.invoke(_factHandle, new Object[]{ val });
                 }
 
                 Method meth = (Method) factory;
+                if (_factHandle == null)
+                    _factHandle = Reflection.unreflect(meth);
                 if (meth.getParameterTypes().length == 1)
-                    return meth.invoke(null, new Object[]{ val });
-                return meth.invoke(null, new Object[]{ val, ctx });
+                    return Reflection.invoke(_factHandle, new Object[]{ val });
+                return Reflection.invoke(_factHandle, new Object[]{ val, ctx });
             } catch (Exception e) {
                 // unwrap cause
                 if (e instanceof InvocationTargetException) {
@@ -1469,6 +1481,7 @@ public class FieldMetaData
     public void setExternalizer(String externalizer) {
         _extName = externalizer;
         _extMethod = DEFAULT_METHOD;
+        _extHandle = null;
     }
 
     public void setConverter(Class converter) {
@@ -1490,6 +1503,7 @@ public class FieldMetaData
     public void setFactory(String factory) {
         _factName = factory;
         _factMethod = DEFAULT_METHOD;
+        _factHandle = null;
     }
 
     /**
@@ -2085,8 +2099,10 @@ public class FieldMetaData
         _explicit = field.isExplicit();
         _extName = field.getExternalizer();
         _extMethod = DEFAULT_METHOD;
+        _extHandle = null;
         _factName = field.getFactory();
         _factMethod = DEFAULT_METHOD;
+        _factHandle = null;
         _extString = field.getExternalValues();
         _extValues = Collections.EMPTY_MAP;
         _fieldValues = Collections.EMPTY_MAP;
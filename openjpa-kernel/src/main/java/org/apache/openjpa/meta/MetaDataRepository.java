@@ -33,7 +33,13 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.DynamicPersistenceCapable;
@@ -157,6 +163,8 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
     protected boolean _preload = false;
     protected boolean _preloadComplete = false;
+    private int _preloadThreads = 1;
+    private transient boolean _listening = false;
     protected boolean _locking = true;
     private static final String PRELOAD_STR = "Preload";
 
@@ -308,6 +316,83 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         _preload = l;
     }
 
+    /**
+     * The number of threads used to load and initialize the persistent
+     * classes during {@link #preload}. Only class loading and static
+     * initialization run in parallel; metadata parsing and resolution
+     * remain serial. Defaults to 1.
+     *
+     * @since 3.2.3
+     */
+    public int getPreloadThreads() {
+        return _preloadThreads;
+    }
+
+    /**
+     * Set the number of threads used to load and initialize the persistent
+     * classes during {@link #preload}. Values below 1 are treated as 1.
+     *
+     * @since 3.2.3
+     */
+    public void setPreloadThreads(int threads) {
+        _preloadThreads = Math.max(1, threads);
+    }
+
+    /**
+     * Load and initialize the given persistent classes, in parallel when
+     * more than one preload thread is configured. Class loading and static
+     * initialization are thread safe, unlike the metadata parsers, so this
+     * is the part of preloading that can be spread across cores. The
+     * workers run with the context class loader of the calling thread, as
+     * static initializers may rely on it.
+     */
+    List<Class<?>> loadPreloadClasses(Collection<String> classes, final ClassLoader loader) {
+        List<Class<?>> loaded = new ArrayList<>(classes.size());
+        if (_preloadThreads <= 1 || classes.size() <= 1) {
+            for (String c : classes) {
+                try {
+                    loaded.add(AccessController.doPrivileged(J2DoPrivHelper.getForNameAction(c, true, loader)));
+                } catch (PrivilegedActionException pae) {
+                    throw new MetaDataException(_loc.get("repos-initializeEager-error"), pae);
+                }
+            }
+            return loaded;
+        }
+
+        final ClassLoader context = AccessController.doPrivileged(
+            J2DoPrivHelper.getContextClassLoaderAction());
+        ForkJoinPool pool = new ForkJoinPool(_preloadThreads,
+            new ForkJoinWorkerThreadFactory() {
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool p) {
+                    ForkJoinWorkerThread thread = ForkJoinPool
+                        .defaultForkJoinWorkerThreadFactory.newThread(p);
+                    thread.setContextClassLoader(context);
+                    return thread;
+                }
+            }, null, false);
+        try {
+            List<Future<Class<?>>> results = new ArrayList<>(classes.size());
+            for (final String c : classes) {
+                results.add(pool.submit(new Callable<Class<?>>() {
+                    @Override
+                    public Class<?> call() throws PrivilegedActionException {
+                        return AccessController.doPrivileged(J2DoPrivHelper.getForNameAction(c, true, loader));
+                    }
+                }));
+            }
+            for (Future<Class<?>> result : results)
+                loaded.add(result.get());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), ie);
+        } catch (ExecutionException ee) {
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), ee.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return loaded;
+    }
 
      /**
      * If the openjpa.MetaDataRepository plugin value Preload=true is set, this method will load all
@@ -319,6 +404,12 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         }
         // If pooling EMFs, this method may be invoked more than once. Only perform this work once.
         if (_preloadComplete) {
+            // a repository restored from a cached snapshot is already
+            // resolved, but still has to hear about registered classes
+            if (!_listening) {
+                PCRegistry.addRegisterClassListener(this);
+                _listening = true;
+            }
             return;
         }
 
@@ -345,16 +436,10 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _log.trace(_loc.get("repos-initializeEager-found", classes));
         }
 
-        List<Class<?>> loaded = new ArrayList<>();
-        for (String c : classes) {
-            try {
-                Class<?> cls = AccessController.doPrivileged((J2DoPrivHelper.getForNameAction(c, true, multi)));
-                loaded.add(cls);
-                // This call may be unnecessary?
-                _factory.load(cls, MODE_ALL, multi);
-            } catch (PrivilegedActionException pae) {
-                throw new MetaDataException(_loc.get("repos-initializeEager-error"), pae);
-            }
+        List<Class<?>> loaded = loadPreloadClasses(classes, multi);
+        for (Class<?> cls : loaded) {
+            // This call may be unnecessary?
+            _factory.load(cls, MODE_ALL, multi);
         }
         resolveAll(multi);
 
@@ -372,6 +457,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         // Hook in this class as a listener and process registered classes list to populate _aliases
         // list.
         PCRegistry.addRegisterClassListener(this);
+        _listening = true;
         processRegisteredClasses(multi);
         _locking = false;
         _preloadComplete = true;
@@ -1967,7 +2053,8 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         initializeMetaDataFactory();
         if (_implGen == null)
             _implGen = new InterfaceImplGenerator(this);
-        if (_preload) {
+        // keep the maps of a repository restored from a preloaded snapshot
+        if (_preload && !_preloadComplete) {
             _oids = new HashMap<>();
             _impls = new HashMap<>();
             _ifaces = new HashMap<>();
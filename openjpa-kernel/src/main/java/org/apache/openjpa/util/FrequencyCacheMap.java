@@ -0,0 +1,429 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A size-bounded map that keeps the entries used most often, suited to
+ * caches whose keys are used with very different frequencies, such as
+ * compiled queries built from dynamic query strings.
+ * <br>
+ * Reads do not lock. Every read of a key, whether it hits or misses, counts
+ * towards the frequency of the key in a small approximate sketch, whose
+ * counts are halved periodically so that the frequencies follow recent use.
+ * When the map is full, a new entry is only admitted if its key is used more
+ * often than an entry sampled for eviction, so that keys used once do not
+ * evict the keys used all the time. A key that is rejected is admitted once
+ * it has been used often enough.
+ * <br>
+ * Writes are serialized. The map counts its hits, misses and evictions.
+ * The map is serialized as a plain map of its entries.
+ *
+ * @since 3.2.3
+ */
+public class FrequencyCacheMap<K, V> extends AbstractMap<K, V>
+    implements ConcurrentMap<K, V>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default maximum number of entries.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /**
+     * Number of entries sampled to choose the entry to evict.
+     */
+    private static final int SAMPLE = 8;
+
+    /**
+     * Maximum count of a key in the sketch.
+     */
+    private static final int MAX_COUNT = 15;
+
+    private final transient ConcurrentHashMap<K, Node<K, V>> _map = new ConcurrentHashMap<>();
+    private final transient LongAdder _hits = new LongAdder();
+    private final transient LongAdder _misses = new LongAdder();
+    private final transient LongAdder _evictions = new LongAdder();
+    private transient volatile int _max;
+    private transient volatile Sketch _sketch;
+
+    // entries by slot, to sample entries for eviction; guarded by this
+    private transient Node<K, V>[] _slots;
+    private transient int _size;
+
+    private transient Set<Map.Entry<K, V>> _entries;
+
+    /**
+     * Create a map of the default size.
+     */
+    public FrequencyCacheMap() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create a map holding at most the given number of entries.
+     */
+    public FrequencyCacheMap(int max) {
+        setCacheSize(max);
+    }
+
+    /**
+     * The maximum number of entries.
+     */
+    public int getCacheSize() {
+        return _max;
+    }
+
+    /**
+     * The maximum number of entries. Entries in excess of a smaller size
+     * are evicted.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void setCacheSize(int max) {
+        if (max < 1)
+            throw new IllegalArgumentException(String.valueOf(max));
+        _max = max;
+        _sketch = new Sketch(max);
+        Node<K, V>[] slots = new Node[max];
+        int size = 0;
+        if (_slots != null) {
+            for (int i = 0; i < _size; i++) {
+                if (size < max) {
+                    _slots[i].slot = size;
+                    slots[size++] = _slots[i];
+                } else {
+                    _map.remove(_slots[i].key, _slots[i]);
+                    _evictions.increment();
+                }
+            }
+        }
+        _slots = slots;
+        _size = size;
+    }
+
+    /**
+     * Number of reads that found an entry.
+     */
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * Number of reads that found no entry.
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * Number of entries evicted to admit others.
+     */
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    /**
+     * Approximate number of recent reads of the given key, at most 15.
+     */
+    public int getFrequency(Object key) {
+        return (key == null) ? 0 : _sketch.frequency(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key == null)
+            return null;
+        _sketch.increment(key);
+        Node<K, V> node = _map.get(key);
+        if (node == null) {
+            _misses.increment();
+            return null;
+        }
+        _hits.increment();
+        return node.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && _map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return _map.size();
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        Node<K, V> node = _map.get(key);
+        if (node != null) {
+            V old = node.value;
+            node.value = value;
+            return old;
+        }
+        admit(key, value);
+        return null;
+    }
+
+    @Override
+    public synchronized V putIfAbsent(K key, V value) {
+        Node<K, V> node = _map.get(key);
+        if (node != null)
+            return node.value;
+        admit(key, value);
+        return null;
+    }
+
+    /**
+     * Add an entry for the given key, evicting a sampled entry used less
+     * often if the map is full. The entry is not added if the sampled entry
+     * is used as often.
+     */
+    private void admit(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        if (_size == _max) {
+            Node<K, V> victim = sample();
+            Sketch sketch = _sketch;
+            if (sketch.frequency(key) <= sketch.frequency(victim.key))
+                return;
+            unlink(victim);
+            _map.remove(victim.key, victim);
+            _evictions.increment();
+        }
+        Node<K, V> node = new Node<>(key, value);
+        node.slot = _size;
+        _slots[_size++] = node;
+        _map.put(key, node);
+    }
+
+    /**
+     * Return the least frequently used of some randomly chosen entries.
+     */
+    private Node<K, V> sample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Sketch sketch = _sketch;
+        Node<K, V> victim = null;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < Math.min(SAMPLE, _size); i++) {
+            Node<K, V> node = _slots[random.nextInt(_size)];
+            int freq = sketch.frequency(node.key);
+            if (freq < min) {
+                min = freq;
+                victim = node;
+            }
+        }
+        return victim;
+    }
+
+    private void unlink(Node<K, V> node) {
+        Node<K, V> last = _slots[--_size];
+        _slots[node.slot] = last;
+        last.slot = node.slot;
+        _slots[_size] = null;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        Node<K, V> node = (key == null) ? null : _map.remove(key);
+        if (node == null)
+            return null;
+        unlink(node);
+        return node.value;
+    }
+
+    @Override
+    public synchronized boolean remove(Object key, Object value) {
+        Node<K, V> node = (key == null) ? null : _map.get(key);
+        if (node == null || !node.value.equals(value))
+            return false;
+        _map.remove(key);
+        unlink(node);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean replace(K key, V oldValue, V newValue) {
+        Node<K, V> node = _map.get(key);
+        if (node == null || !node.value.equals(oldValue))
+            return false;
+        node.value = newValue;
+        return true;
+    }
+
+    @Override
+    public synchronized V replace(K key, V value) {
+        Node<K, V> node = _map.get(key);
+        if (node == null)
+            return null;
+        V old = node.value;
+        node.value = value;
+        return old;
+    }
+
+    @Override
+    public synchronized void clear() {
+        _map.clear();
+        for (int i = 0; i < _size; i++)
+            _slots[i] = null;
+        _size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (_entries == null) {
+            _entries = new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public int size() {
+                    return FrequencyCacheMap.this.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    final Iterator<Node<K, V>> itr = _map.values().iterator();
+                    return new Iterator<Map.Entry<K, V>>() {
+                        private Node<K, V> _last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return itr.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<K, V> next() {
+                            _last = itr.next();
+                            return new SimpleImmutableEntry<>(_last.key, _last.value);
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (_last == null)
+                                throw new IllegalStateException();
+                            FrequencyCacheMap.this.remove(_last.key, _last.value);
+                            _last = null;
+                        }
+                    };
+                }
+            };
+        }
+        return _entries;
+    }
+
+    /**
+     * Serialize a snapshot of the entries.
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        return new HashMap<>(this);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[size=" + size() + ", hits="
+            + getHitCount() + ", misses=" + getMissCount() + ", evictions="
+            + getEvictionCount() + "]";
+    }
+
+    /**
+     * An entry of the map.
+     */
+    private static class Node<K, V> {
+        final K key;
+        volatile V value;
+        int slot;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * An approximate count of the uses of keys: a count-min sketch of four
+     * rows, whose counts saturate and are halved after a number of uses
+     * proportional to the size of the map. Counts are updated without
+     * synchronization, so concurrent uses may be lost, which only makes the
+     * frequencies less exact.
+     */
+    private static class Sketch {
+        private static final int[] SEEDS = {
+            0x97cb3127, 0xb3f5c4d1, 0x5a1e8f63, 0xe3b8d2a5
+        };
+
+        private final int[] _counts;
+        private final int _mask;
+        private final int _period;
+        private int _uses;
+
+        Sketch(int max) {
+            int width = Integer.highestOneBit(Math.max(16, max * 2 - 1)) << 1;
+            _counts = new int[width * SEEDS.length];
+            _mask = width - 1;
+            _period = (int) Math.min(Integer.MAX_VALUE, 10L * max);
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            for (int i = 0; i < SEEDS.length; i++) {
+                int idx = index(hash, i);
+                if (_counts[idx] < MAX_COUNT)
+                    _counts[idx]++;
+            }
+            if (++_uses >= _period)
+                age();
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++)
+                min = Math.min(min, _counts[index(hash, i)]);
+            return min;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            return row * (_mask + 1) + ((h ^ (h >>> 16)) & _mask);
+        }
+
+        private void age() {
+            _uses = 0;
+            for (int i = 0; i < _counts.length; i++)
+                _counts[i] >>>= 1;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            return hash ^ (hash >>> 11);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.openjpa.conf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.openjpa.util.ClassResolverImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+/*
+ClasspathValidationPolicy wraps the data stored by the cache marshaller
+with a fingerprint of the classpath. Data stored under the same classpath
+is handed back, while data stored under a different classpath, by an
+older layout or in an unknown shape is rejected.
+ */
+public class ClasspathValidationPolicyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String classpath;
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        classpath = System.getProperty("java.class.path");
+        dir = folder.newFolder("classes");
+        Files.write(new File(dir, "A.class").toPath(), new byte[]{ 1 });
+        System.setProperty("java.class.path",
+            classpath + File.pathSeparator + dir.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        System.setProperty("java.class.path", classpath);
+    }
+
+    private ClasspathValidationPolicy newPolicy() {
+        ClasspathValidationPolicy policy = new ClasspathValidationPolicy();
+        OpenJPAConfiguration conf = mock(OpenJPAConfiguration.class);
+        when(conf.getClassResolverInstance())
+            .thenReturn(new ClassResolverImpl());
+        policy.setConfiguration(conf);
+        return policy;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Object stored = newPolicy().getCacheableData("data");
+        Assert.assertEquals("data", newPolicy().getValidData(stored));
+    }
+
+    @Test
+    public void testFingerprintIsStable() {
+        Assert.assertEquals(newPolicy().getFingerprint(),
+            newPolicy().getFingerprint());
+    }
+
+    @Test
+    public void testChangedClassRejected() throws IOException {
+        Object stored = newPolicy().getCacheableData("data");
+        File file = new File(dir, "A.class");
+        Files.write(file.toPath(), new byte[]{ 1, 2 });
+        Assert.assertNull(newPolicy().getValidData(stored));
+    }
+
+    @Test
+    public void testAddedClassRejected() throws IOException {
+        Object stored = newPolicy().getCacheableData("data");
+        Files.write(new File(dir, "B.class").toPath(), new byte[]{ 1 });
+        Assert.assertNull(newPolicy().getValidData(stored));
+    }
+
+    @Test
+    public void testOtherLayoutRejected() {
+        ClasspathValidationPolicy policy = newPolicy();
+        Object[] stored = (Object[]) policy.getCacheableData("data");
+        stored[0] = ClasspathValidationPolicy.SNAPSHOT_VERSION + 1;
+        Assert.assertNull(policy.getValidData(stored));
+        Assert.assertNull(policy.getValidData(new Object[]{ "data" }));
+        Assert.assertNull(policy.getValidData("data"));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/*
+An execution of a query is registered with the query cache, so that other
+executions of the same query wait at most the coalesce timeout for it to
+cache its result. An execution that is not ended in time is taken over by
+the next one, and ending an execution releases the queries waiting for it.
+ */
+public class QueryCacheExecutionTest {
+
+    @Test
+    public void testOneExecutionPerKey() {
+        AbstractQueryCache cache = new ConcurrentQueryCache();
+        QueryKey key = Mockito.mock(QueryKey.class);
+        QueryKey other = Mockito.mock(QueryKey.class);
+
+        CountDownLatch execution = cache.startExecution(key);
+        Assert.assertNotNull(execution);
+        Assert.assertNull(cache.startExecution(key));
+        Assert.assertNotNull(cache.startExecution(other));
+
+        cache.endExecution(key, execution);
+        Assert.assertEquals(0, execution.getCount());
+        Assert.assertNotNull(cache.startExecution(key));
+    }
+
+    @Test
+    public void testNoWaitWithoutCoalesceTimeout() {
+        AbstractQueryCache cache = new ConcurrentQueryCache();
+        QueryKey key = Mockito.mock(QueryKey.class);
+        Assert.assertTrue(cache.awaitExecution(key));
+
+        cache.startExecution(key);
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(cache.awaitExecution(key));
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+    }
+
+    @Test
+    public void testAwaitsEndOfExecution() throws Exception {
+        final AbstractQueryCache cache = new ConcurrentQueryCache();
+        cache.setCoalesceTimeout(10000);
+        final QueryKey key = Mockito.mock(QueryKey.class);
+        final CountDownLatch execution = cache.startExecution(key);
+
+        final AtomicBoolean ended = new AtomicBoolean();
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                ended.set(cache.awaitExecution(key));
+            }
+        };
+        waiter.start();
+        Thread.sleep(100);
+        Assert.assertTrue(waiter.isAlive());
+
+        cache.endExecution(key, execution);
+        waiter.join(5000);
+        Assert.assertFalse(waiter.isAlive());
+        Assert.assertTrue(ended.get());
+    }
+
+    @Test
+    public void testAwaitTimesOut() {
+        AbstractQueryCache cache = new ConcurrentQueryCache();
+        cache.setCoalesceTimeout(50);
+        QueryKey key = Mockito.mock(QueryKey.class);
+        cache.startExecution(key);
+        Assert.assertFalse(cache.awaitExecution(key));
+    }
+
+    @Test
+    public void testExecutionNotEndedInTimeIsTakenOver() throws Exception {
+        AbstractQueryCache cache = new ConcurrentQueryCache();
+        cache.setCoalesceTimeout(50);
+        QueryKey key = Mockito.mock(QueryKey.class);
+        CountDownLatch execution = cache.startExecution(key);
+        Assert.assertNull(cache.startExecution(key));
+
+        Thread.sleep(100);
+        CountDownLatch next = cache.startExecution(key);
+        Assert.assertNotNull(next);
+        Assert.assertNotSame(execution, next);
+        Assert.assertEquals(0, execution.getCount());
+
+        // ending the execution taken over leaves the new one registered
+        cache.endExecution(key, execution);
+        Assert.assertNull(cache.startExecution(key));
+        cache.endExecution(key, next);
+        Assert.assertNotNull(cache.startExecution(key));
+    }
+}
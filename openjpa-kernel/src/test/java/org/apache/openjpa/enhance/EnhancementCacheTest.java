@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.openjpa.enhance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.openjpa.lib.log.NoneLogFactory;
+import org.apache.openjpa.lib.meta.SourceTracker;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+/*
+EnhancementCache keys enhanced bytecode on everything the enhancer reads:
+the class bytes, the bytes of its superclasses, the enhancer settings and
+the metadata sources of the class and its persistent superclasses. A
+change to any of them must produce a new key, while unchanged inputs must
+keep hitting the same entry.
+ */
+public class EnhancementCacheTest {
+
+    private static final String NAME = "org/apache/openjpa/enhance/Sub";
+    private static final byte[] BYTES = { 1, 2, 3 };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EnhancementCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = newCache("jpa");
+    }
+
+    private EnhancementCache newCache(String metaFactory) throws IOException {
+        return new EnhancementCache(new File(folder.getRoot(), "cache"),
+            new PCEnhancer.Flags(), metaFactory,
+            new NoneLogFactory().getLog("test"));
+    }
+
+    private ClassMetaData meta(File source, ClassMetaData sup) {
+        ClassMetaData meta = mock(ClassMetaData.class);
+        when(meta.getSourceFile()).thenReturn(source);
+        when(meta.getSourceType()).thenReturn(SourceTracker.SRC_XML);
+        when(meta.getPCSuperclassMetaData()).thenReturn(sup);
+        return meta;
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testSameInputsSameKey() throws IOException {
+        File orm = write("orm.xml", "<entity-mappings/>");
+        Assert.assertEquals(
+            cache.getKey(NAME, BYTES, Sub.class, meta(orm, null)),
+            cache.getKey(NAME, BYTES, Sub.class, meta(orm, null)));
+    }
+
+    @Test
+    public void testClassBytesChangeKey() {
+        Assert.assertNotEquals(cache.getKey(NAME, BYTES, Sub.class, null),
+            cache.getKey(NAME, new byte[]{ 1, 2, 4 }, Sub.class, null));
+    }
+
+    @Test
+    public void testMetaDataSourceChangesKey() throws IOException {
+        File orm = write("orm.xml", "<entity-mappings/>");
+        String key = cache.getKey(NAME, BYTES, Sub.class, meta(orm, null));
+
+        write("orm.xml", "<entity-mappings><entity/></entity-mappings>");
+        // a new cache, as a new run would create, sees the new contents
+        Assert.assertNotEquals(key, newCache("jpa").getKey(NAME, BYTES,
+            Sub.class, meta(orm, null)));
+    }
+
+    @Test
+    public void testSuperclassMetaDataSourceChangesKey() throws IOException {
+        File sub = write("sub.xml", "<entity-mappings/>");
+        File sup1 = write("sup1.xml", "<entity-mappings/>");
+        File sup2 = write("sup2.xml",
+            "<entity-mappings><entity/></entity-mappings>");
+        Assert.assertNotEquals(
+            cache.getKey(NAME, BYTES, Sub.class, meta(sub, meta(sup1, null))),
+            cache.getKey(NAME, BYTES, Sub.class, meta(sub, meta(sup2, null))));
+    }
+
+    @Test
+    public void testSuperclassBytesChangeKey() {
+        // same class bytes, but a different superclass hierarchy
+        Assert.assertNotEquals(cache.getKey(NAME, BYTES, Sub.class, null),
+            cache.getKey(NAME, BYTES, OtherSub.class, null));
+    }
+
+    @Test
+    public void testMetaDataFactoryChangesKey() throws IOException {
+        Assert.assertNotEquals(cache.getKey(NAME, BYTES, Sub.class, null),
+            newCache("jpa(Types=Sub)").getKey(NAME, BYTES, Sub.class, null));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        String key = cache.getKey(NAME, BYTES, Sub.class, null);
+        Assert.assertNull(cache.get(key));
+
+        cache.put(key, BYTES);
+        Assert.assertArrayEquals(BYTES, cache.get(key));
+
+        // no temporary files are left behind
+        File[] files = new File(folder.getRoot(), "cache").listFiles();
+        Assert.assertEquals(1, files.length);
+        Assert.assertEquals(key + ".class", files[0].getName());
+    }
+
+    @Test
+    public void testPutNoEnhancement() {
+        String key = cache.getKey(NAME, BYTES, Sub.class, null);
+        cache.put(key, new byte[0]);
+        Assert.assertEquals(0, cache.get(key).length);
+    }
+
+    public static class Base {
+    }
+
+    public static class OtherBase {
+        public int field;
+    }
+
+    public static class Sub extends Base {
+    }
+
+    public static class OtherSub extends OtherBase {
+    }
+}
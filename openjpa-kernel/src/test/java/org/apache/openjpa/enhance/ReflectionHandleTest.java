@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.openjpa.enhance;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+Reflection resolves accessors of unenhanced types, externalizers and
+factories into method handles adapted to a generic shape. The handles
+must behave like the java.lang.reflect calls they replace: primitives
+are boxed and unboxed, private members are reachable, and exceptions
+thrown by the target surface the same way.
+ */
+public class ReflectionHandleTest {
+
+    @Test
+    public void testFieldHandles() throws Exception {
+        Holder holder = new Holder();
+        MethodHandle getter = Reflection.unreflectGetter(
+            Holder.class.getDeclaredField("count"));
+        MethodHandle setter = Reflection.unreflectSetter(
+            Holder.class.getDeclaredField("count"));
+
+        Reflection.set(holder, setter, 42);
+        Assert.assertEquals(42, holder.count);
+        Assert.assertEquals(42, Reflection.get(holder, getter));
+        Assert.assertNull(Reflection.get(null, getter));
+    }
+
+    @Test
+    public void testSetterMethodHandle() throws Exception {
+        Holder holder = new Holder();
+        MethodHandle setter = Reflection.unreflectSetter(
+            Holder.class.getDeclaredMethod("setName", String.class));
+
+        Reflection.set(holder, setter, "x");
+        Assert.assertEquals("x", holder.name);
+    }
+
+    @Test
+    public void testStaticMethodHandle() throws Exception {
+        MethodHandle handle = Reflection.unreflect(
+            Holder.class.getDeclaredMethod("twice", int.class));
+        Assert.assertEquals(8, Reflection.invoke(handle, new Object[]{ 4 }));
+    }
+
+    @Test
+    public void testInstanceMethodHandle() throws Exception {
+        Holder holder = new Holder();
+        holder.name = "abc";
+        MethodHandle handle = Reflection.unreflect(
+            Holder.class.getDeclaredMethod("suffix", String.class));
+        Assert.assertEquals("abc!",
+            Reflection.invoke(handle, new Object[]{ holder, "!" }));
+    }
+
+    @Test
+    public void testConstructorHandle() throws Exception {
+        MethodHandle handle = Reflection.unreflectConstructor(
+            Holder.class.getDeclaredConstructor(String.class));
+        Holder holder = (Holder) Reflection.invoke(handle,
+            new Object[]{ "y" });
+        Assert.assertEquals("y", holder.name);
+    }
+
+    @Test
+    public void testInvokeWrapsTargetExceptions() throws Exception {
+        MethodHandle handle = Reflection.unreflect(
+            Holder.class.getDeclaredMethod("fail"));
+        try {
+            Reflection.invoke(handle, new Object[0]);
+            Assert.fail("no exception");
+        } catch (InvocationTargetException ite) {
+            Assert.assertTrue(ite.getTargetException()
+                instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testNewInstanceWrapsConstructorExceptions() throws Exception {
+        MethodHandle handle = Reflection.unreflectConstructor(
+            Holder.class.getDeclaredConstructor(boolean.class));
+        try {
+            Reflection.newInstance(handle, new Object[]{ true });
+            Assert.fail("no exception");
+        } catch (InvocationTargetException ite) {
+            Assert.assertTrue(ite.getTargetException()
+                instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testMisshapedHandleIsRejected() throws Exception {
+        MethodHandle getter = Reflection.unreflectGetter(
+            Holder.class.getDeclaredField("count"));
+        try {
+            Reflection.invoke(getter, new Object[]{ new Holder() });
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+        try {
+            Reflection.newInstance(getter, new Object[0]);
+            Assert.fail("no exception");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Holder {
+        private int count;
+        private String name;
+
+        private Holder() {
+        }
+
+        private Holder(String name) {
+            this.name = name;
+        }
+
+        private Holder(boolean fail) {
+            throw new IllegalStateException();
+        }
+
+        private void setName(String name) {
+            this.name = name;
+        }
+
+        private String suffix(String suffix) {
+            return name + suffix;
+        }
+
+        private static int twice(int i) {
+            return i * 2;
+        }
+
+        private static void fail() {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.openjpa.util.UserException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ResultPacker packs projections into a result class through its constructor
+of the projection types, or through the setters, public fields or put
+method of a bean, which it resolves once per packer. Values are converted to
+the declared types, and failures of the result class are reported as user
+errors. ResultShape packs nested shapes from their offsets into the row.
+ */
+public class ResultPackerTest {
+
+    private static final Class<?>[] TYPES = { String.class, int.class };
+    private static final String[] ALIASES = { "name", "id" };
+
+    @Test
+    public void testPacksThroughConstructor() {
+        ResultPacker packer = new ResultPacker(TYPES, ALIASES, Pair.class);
+        for (int i = 0; i < 3; i++) {
+            Pair pair = (Pair) packer.pack(new Object[] { "n" + i, i });
+            Assert.assertEquals("n" + i, pair.name);
+            Assert.assertEquals(i, pair.id);
+            Assert.assertTrue(pair.constructed);
+        }
+    }
+
+    @Test
+    public void testPacksSingleValueThroughConstructor() {
+        ResultPacker packer = new ResultPacker(new Class<?>[] { String.class },
+            new String[] { "name" }, Name.class);
+        Assert.assertEquals("a", ((Name) packer.pack("a")).value);
+        Assert.assertEquals("b", ((Name) packer.pack(new Object[] { "b" })).value);
+    }
+
+    @Test
+    public void testPacksThroughSetters() {
+        ResultPacker packer = new ResultPacker(new Class<?>[] { String.class, long.class },
+            ALIASES, Bean.class);
+        // the long is converted to the int of the setter
+        Bean bean = (Bean) packer.pack(new Object[] { "a", 7L });
+        Assert.assertEquals("a", bean.name);
+        Assert.assertEquals(7, bean.id);
+        Assert.assertEquals(2, bean.sets);
+
+        bean = (Bean) packer.pack(new Object[] { null, 8 });
+        Assert.assertNull(bean.name);
+        Assert.assertEquals(8, bean.id);
+    }
+
+    @Test
+    public void testPacksThroughPublicFields() {
+        ResultPacker packer = new ResultPacker(TYPES, new String[] { "NAME", "id" },
+            FieldBean.class);
+        FieldBean bean = (FieldBean) packer.pack(new Object[] { "a", 3 });
+        Assert.assertEquals("a", bean.name);
+        Assert.assertEquals(3, bean.id);
+    }
+
+    @Test
+    public void testPacksUnknownAliasesThroughPut() {
+        ResultPacker packer = new ResultPacker(TYPES, new String[] { "name", "other" },
+            PutBean.class);
+        PutBean bean = (PutBean) packer.pack(new Object[] { "a", 3 });
+        Assert.assertEquals("a", bean.name);
+        Assert.assertEquals(3, bean.values.get("other"));
+        Assert.assertFalse(bean.values.containsKey("name"));
+    }
+
+    @Test
+    public void testStandardTypesAreNotPackedAsBeans() {
+        Object[] row = { "a", 3 };
+        Assert.assertSame(row, new ResultPacker(TYPES, ALIASES, Object[].class).pack(row));
+        Map<?, ?> map = (Map<?, ?>) new ResultPacker(TYPES, ALIASES, Map.class).pack(row);
+        Assert.assertEquals("a", map.get("name"));
+        Assert.assertEquals(3, map.get("id"));
+        Assert.assertEquals(3L, new ResultPacker(new Class<?>[] { int.class },
+            new String[] { "id" }, long.class).pack(3));
+    }
+
+    @Test
+    public void testNoSetterIsRejected() {
+        try {
+            new ResultPacker(TYPES, new String[] { "name", "missing" }, Bean.class);
+            Assert.fail();
+        } catch (UserException ue) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFailureOfConstructorIsReported() {
+        ResultPacker packer = new ResultPacker(TYPES, ALIASES, Pair.class);
+        try {
+            packer.pack(new Object[] { "fail", 1 });
+            Assert.fail();
+        } catch (UserException ue) {
+            Assert.assertTrue(hasCause(ue, IllegalArgumentException.class));
+        }
+
+        packer = new ResultPacker(TYPES, ALIASES, Bean.class);
+        try {
+            packer.pack(new Object[] { "fail", 1 });
+            Assert.fail();
+        } catch (UserException ue) {
+            Assert.assertTrue(hasCause(ue, IllegalArgumentException.class));
+        }
+    }
+
+    @Test
+    public void testPacksNestedShapes() {
+        ResultShape<Object[]> shape = new ResultShape<>(Object[].class);
+        ResultShape<Pair> pair = new ResultShape<>(Pair.class,
+            new FillStrategy.NewInstance<>(Pair.class));
+        pair.add(String.class, int.class);
+        shape.add(String.class);
+        shape.nest(pair);
+        shape.add(Integer.class);
+
+        Object[] values = { "first", "n", 5, 9, "extra" };
+        Class<?>[] types = { String.class, String.class, int.class, Integer.class, String.class };
+        String[] aliases = { "a", "b", "c", "d", "e" };
+        for (int i = 0; i < 2; i++) {
+            Object[] packed = shape.pack(values, types, aliases);
+            Assert.assertEquals(3, packed.length);
+            Assert.assertEquals("first", packed[0]);
+            Assert.assertEquals("n", ((Pair) packed[1]).name);
+            Assert.assertEquals(5, ((Pair) packed[1]).id);
+            Assert.assertEquals(9, packed[2]);
+        }
+    }
+
+    private static boolean hasCause(Throwable t, Class<?> cls) {
+        for (; t != null; t = t.getCause())
+            if (cls.isInstance(t))
+                return true;
+        return false;
+    }
+
+    public static class Pair {
+        private final String name;
+        private final int id;
+        private final boolean constructed;
+
+        public Pair(String name, int id) {
+            if ("fail".equals(name))
+                throw new IllegalArgumentException(name);
+            this.name = name;
+            this.id = id;
+            this.constructed = true;
+        }
+    }
+
+    public static class Name {
+        private final String value;
+
+        public Name(String value) {
+            this.value = value;
+        }
+    }
+
+    public static class Bean {
+        private String name;
+        private int id;
+        private int sets;
+
+        public void setName(String name) {
+            if ("fail".equals(name))
+                throw new IllegalArgumentException(name);
+            this.name = name;
+            sets++;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+            sets++;
+        }
+    }
+
+    public static class FieldBean {
+        public String name;
+        public int id;
+    }
+
+    public static class PutBean {
+        private String name;
+        private final Map<Object, Object> values = new HashMap<>();
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void put(Object key, Object value) {
+            values.put(key, value);
+        }
+    }
+}
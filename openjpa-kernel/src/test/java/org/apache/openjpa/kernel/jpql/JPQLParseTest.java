@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.jpql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+The JPQL parser sizes its character buffer to the query string and reads
+tokens ahead. A query parses to the same tree as with the stream's default
+buffer, or with a buffer that has to grow for every character, whether the
+query is shorter or much longer than the default buffer, and contains
+escapes, subqueries or the multi-token operators that need lookahead.
+ */
+public class JPQLParseTest {
+
+    private static final List<String> QUERIES = Arrays.asList(
+        "SELECT e FROM Employee e WHERE e.salary > 1000 ORDER BY e.name DESC",
+        "SELECT e.name, COUNT(p) FROM Employee e JOIN e.projects p "
+            + "GROUP BY e.name HAVING COUNT(p) > 2",
+        "SELECT DISTINCT e FROM Employee e LEFT JOIN FETCH e.address "
+            + "WHERE e.name LIKE 'A\\_%' ESCAPE '\\' AND e.dept.name = :dept",
+        "SELECT e FROM Employee e WHERE e.salary NOT BETWEEN ?1 AND ?2 "
+            + "AND e.projects IS NOT EMPTY AND :p NOT MEMBER OF e.projects "
+            + "AND e.manager IS NOT NULL AND e.name NOT LIKE 'x%' AND e.id NOT IN (1, 2, 3)",
+        "SELECT e FROM Employee e WHERE EXISTS (SELECT p FROM Project p "
+            + "WHERE p.lead = e) AND e.salary > ALL (SELECT m.salary FROM Manager m)",
+        "SELECT CASE WHEN e.salary > 10 THEN 'high' ELSE 'low' END, "
+            + "COALESCE(e.nick, e.name), UPPER(TRIM(e.name)), TYPE(e) "
+            + "FROM Employee e WHERE TYPE(e) IN (Manager) AND KEY(e) = 'k'",
+        "SELECT e FROM Employee e WHERE e.name = 'O''Neil' OR e.name = '\\u0041bc'",
+        "UPDATE Employee e SET e.salary = e.salary * 1.1 WHERE e.dept.id = :id",
+        "DELETE FROM Employee e WHERE e.hired < CURRENT_DATE");
+
+    @Test
+    public void testSameTreeAsDefaultBuffer() throws Exception {
+        for (String query : QUERIES) {
+            String tree = dump(new JPQL(query));
+            Assert.assertEquals(query, tree, dump(withBuffer(query, 4096)));
+            Assert.assertEquals(query, tree, dump(withBuffer(query, 1)));
+        }
+    }
+
+    @Test
+    public void testQueryLongerThanDefaultBuffer() throws Exception {
+        StringBuilder query = new StringBuilder("SELECT e FROM Employee e WHERE e.id = 0");
+        for (int i = 1; query.length() < 3 * 4096; i++)
+            query.append(" OR e.name = 'name").append(i).append('\'');
+
+        String tree = dump(new JPQL(query.toString()));
+        Assert.assertEquals(tree, dump(withBuffer(query.toString(), 4096)));
+        Assert.assertEquals(count(query.toString(), " OR "), count(tree, "OR"));
+        Assert.assertTrue(tree.contains("['name" + count(query.toString(), " OR ") + "']"));
+    }
+
+    @Test
+    public void testEscapesAreRead() throws Exception {
+        String tree = dump(new JPQL(QUERIES.get(6)));
+        Assert.assertTrue(tree, tree.contains("O''Neil"));
+        Assert.assertTrue(tree, tree.contains("Abc"));
+    }
+
+    @Test
+    public void testInvalidQueriesAreRejected() {
+        for (String query : Arrays.asList("SELECT FROM Employee e",
+            "SELECT e FROM Employee e WHERE", "SELECT e FROM Employee e WHERE e.id NOT 1",
+            "SELECT e FROM Employee e ORDER e.name")) {
+            try {
+                new JPQL(query).parseQuery();
+                Assert.fail(query);
+            } catch (ParseException e) {
+                // expected
+            }
+        }
+    }
+
+    private static int count(String str, String part) {
+        int count = 0;
+        for (int i = str.indexOf(part); i != -1; i = str.indexOf(part, i + 1))
+            count++;
+        return count;
+    }
+
+    private static JPQL withBuffer(String query, int size) {
+        return new JPQL(new JPQLTokenManager(new JavaCharStream(
+            new StringReader(query), 1, 1, size)));
+    }
+
+    private static String dump(JPQL parser) throws ParseException {
+        JPQLExpressionBuilder.JPQLNode node = (JPQLExpressionBuilder.JPQLNode) parser.parseQuery();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        node.dump(out, "", true);
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
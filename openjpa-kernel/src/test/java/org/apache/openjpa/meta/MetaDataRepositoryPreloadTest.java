@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.openjpa.meta;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.openjpa.util.MetaDataException;
+import org.junit.Assert;
+import org.junit.Test;
+/*
+With PreloadThreads above one, MetaDataRepository loads and initializes
+the persistent classes on a fork-join pool. The classes must come back
+in their original order, and static initializers must run with the
+context class loader of the thread that preloads.
+ */
+public class MetaDataRepositoryPreloadTest {
+
+    @Test
+    public void testParallelLoad() {
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setPreloadThreads(3);
+
+        Thread thread = Thread.currentThread();
+        ClassLoader old = thread.getContextClassLoader();
+        ClassLoader context = new URLClassLoader(new URL[0], old);
+        thread.setContextClassLoader(context);
+        List<Class<?>> loaded;
+        try {
+            loaded = repos.loadPreloadClasses(Arrays.asList(
+                Init1.class.getName(), Init2.class.getName(),
+                Init3.class.getName()), getClass().getClassLoader());
+        } finally {
+            thread.setContextClassLoader(old);
+        }
+
+        Assert.assertEquals(Arrays.asList(Init1.class, Init2.class,
+            Init3.class), loaded);
+        Assert.assertNotSame(thread, Init1.THREAD);
+        Assert.assertSame(context, Init1.LOADER);
+        Assert.assertSame(context, Init2.LOADER);
+        Assert.assertSame(context, Init3.LOADER);
+    }
+
+    @Test
+    public void testSerialLoad() {
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setPreloadThreads(0);
+        Assert.assertEquals(1, repos.getPreloadThreads());
+
+        List<Class<?>> loaded = repos.loadPreloadClasses(Arrays.asList(
+            Serial1.class.getName(), Serial2.class.getName()),
+            getClass().getClassLoader());
+        Assert.assertEquals(Arrays.asList(Serial1.class, Serial2.class),
+            loaded);
+        Assert.assertSame(Thread.currentThread(), Serial1.THREAD);
+    }
+
+    @Test(expected = MetaDataException.class)
+    public void testMissingClass() {
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setPreloadThreads(2);
+        repos.loadPreloadClasses(Arrays.asList(Serial2.class.getName(),
+            "org.apache.openjpa.meta.NoSuchClass"),
+            getClass().getClassLoader());
+    }
+
+    public static class Init1 {
+        static final Thread THREAD = Thread.currentThread();
+        static final ClassLoader LOADER = THREAD.getContextClassLoader();
+    }
+
+    public static class Init2 {
+        static final ClassLoader LOADER =
+            Thread.currentThread().getContextClassLoader();
+    }
+
+    public static class Init3 {
+        static final ClassLoader LOADER =
+            Thread.currentThread().getContextClassLoader();
+    }
+
+    public static class Serial1 {
+        static final Thread THREAD = Thread.currentThread();
+    }
+
+    public static class Serial2 {
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+FrequencyCacheMap holds a bounded number of entries. Every read counts
+towards the frequency of its key, and a full map only admits a new entry
+whose key is used more often than the entry sampled for eviction, so that
+keys used once do not evict the keys used all the time. Frequencies are
+halved periodically to follow recent use.
+ */
+public class FrequencyCacheMapTest {
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(4);
+        Assert.assertNull(map.get("a"));
+        map.put("a", "A");
+        Assert.assertEquals("A", map.get("a"));
+        Assert.assertEquals("A", map.get("a"));
+
+        Assert.assertEquals(2, map.getHitCount());
+        Assert.assertEquals(1, map.getMissCount());
+        Assert.assertEquals(0, map.getEvictionCount());
+        Assert.assertEquals(3, map.getFrequency("a"));
+        Assert.assertEquals(0, map.getFrequency(null));
+    }
+
+    @Test
+    public void testRareKeyIsNotAdmittedToFullMap() {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(2);
+        read(map, "a", 3);
+        read(map, "b", 3);
+        map.put("a", "A");
+        map.put("b", "B");
+
+        Assert.assertNull(map.put("c", "C"));
+        Assert.assertFalse(map.containsKey("c"));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(0, map.getEvictionCount());
+
+        // once used more often than the entries, the key is admitted
+        read(map, "c", 5);
+        map.put("c", "C");
+        Assert.assertTrue(map.containsKey("c"));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(1, map.getEvictionCount());
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(100);
+        for (int i = 0; i < 1000; i++) {
+            for (int hot = 0; hot < 10; hot++) {
+                String key = "hot" + hot;
+                if (map.get(key) == null)
+                    map.put(key, key);
+            }
+            String cold = "cold" + i;
+            if (map.get(cold) == null)
+                map.put(cold, cold);
+        }
+
+        Assert.assertEquals(100, map.size());
+        for (int hot = 0; hot < 10; hot++)
+            Assert.assertTrue("hot" + hot, map.containsKey("hot" + hot));
+        Assert.assertTrue(map.getHitCount() >= 10 * 999);
+    }
+
+    @Test
+    public void testFrequenciesAge() {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(1);
+        read(map, "a", 4);
+        Assert.assertEquals(4, map.getFrequency("a"));
+
+        // the counts are halved after ten reads per entry
+        read(map, "b", 6);
+        Assert.assertEquals(2, map.getFrequency("a"));
+        Assert.assertEquals(3, map.getFrequency("b"));
+    }
+
+    @Test
+    public void testSmallerCacheSizeEvicts() {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(4);
+        for (String key : new String[] { "a", "b", "c", "d" })
+            map.put(key, key);
+        Assert.assertEquals(4, map.size());
+
+        map.setCacheSize(2);
+        Assert.assertEquals(2, map.getCacheSize());
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(2, map.getEvictionCount());
+    }
+
+    @Test
+    public void testMapOperations() {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(4);
+        Assert.assertNull(map.putIfAbsent("a", "A"));
+        Assert.assertEquals("A", map.putIfAbsent("a", "X"));
+        Assert.assertEquals("A", map.put("a", "B"));
+        Assert.assertFalse(map.replace("a", "A", "C"));
+        Assert.assertTrue(map.replace("a", "B", "C"));
+        Assert.assertEquals("C", map.replace("a", "D"));
+        Assert.assertNull(map.replace("b", "B"));
+        Assert.assertFalse(map.remove("a", "C"));
+        Assert.assertTrue(map.remove("a", "D"));
+        Assert.assertTrue(map.isEmpty());
+
+        map.put("a", "A");
+        map.put("b", "B");
+        Assert.assertEquals("A", map.remove("a"));
+        Assert.assertNull(map.remove("a"));
+        Assert.assertNull(map.remove(null));
+        Assert.assertNull(map.get(null));
+        Assert.assertFalse(map.containsKey(null));
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        // the slots of cleared entries are free again
+        for (String key : new String[] { "a", "b", "c", "d" })
+            map.put(key, key);
+        Assert.assertEquals(4, map.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValueIsRejected() {
+        new FrequencyCacheMap<String, String>(4).put("a", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheSizeMustBePositive() {
+        new FrequencyCacheMap<String, String>(0);
+    }
+
+    @Test
+    public void testEntryIteratorRemoves() {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(4);
+        map.put("a", "A");
+        map.put("b", "B");
+        Iterator<Map.Entry<String, String>> itr = map.entrySet().iterator();
+        Map.Entry<String, String> entry = itr.next();
+        itr.remove();
+
+        Assert.assertEquals(1, map.size());
+        Assert.assertFalse(map.containsKey(entry.getKey()));
+        map.put("c", "C");
+        map.put("d", "D");
+        map.put("e", "E");
+        Assert.assertEquals(4, map.size());
+    }
+
+    @Test
+    public void testSerializesAsPlainMap() throws Exception {
+        FrequencyCacheMap<String, String> map = new FrequencyCacheMap<>(4);
+        map.put("a", "A");
+        map.put("b", "B");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))) {
+            Object copy = in.readObject();
+            Assert.assertEquals(HashMap.class, copy.getClass());
+            Assert.assertEquals(map, copy);
+        }
+    }
+
+    @Test
+    public void testConcurrentUseStaysBounded() throws Exception {
+        final FrequencyCacheMap<Integer, Integer> map = new FrequencyCacheMap<>(20);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int t = 0; t < futures.length; t++) {
+                final int seed = t;
+                futures[t] = pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 10000; i++) {
+                            Integer key = (i * 31 + seed) % 50;
+                            if (map.get(key) == null)
+                                map.putIfAbsent(key, key);
+                            if (i % 100 == 0)
+                                map.remove(key);
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertTrue(map.size() <= 20);
+        for (Map.Entry<Integer, Integer> entry : map.entrySet())
+            Assert.assertEquals(entry.getKey(), map.get(entry.getKey()));
+        // the slots still match the entries
+        for (int i = 0; i < 50; i++)
+            map.remove(i);
+        Assert.assertTrue(map.isEmpty());
+        for (int i = 0; i < 20; i++)
+            map.put(i, i);
+        Assert.assertEquals(20, map.size());
+    }
+
+    private static void read(FrequencyCacheMap<String, String> map, String key, int times) {
+        for (int i = 0; i < times; i++)
+            map.get(key);
+    }
+}
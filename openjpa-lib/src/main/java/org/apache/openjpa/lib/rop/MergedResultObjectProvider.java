@@ -19,12 +19,15 @@
 package org.apache.openjpa.lib.rop;
 
 import java.util.Comparator;
-
+import java.util.PriorityQueue;
 
 /**
  * A result object provider that merges multiple result object provider
  * delegates. Support exists for maintaining ordering of the internally held
  * results, provided that each of the individual results is itself ordered.
+ * Ordered results are merged through a heap of the current head of each
+ * delegate, and a delegate is only advanced when its head has been
+ * consumed, so that no more results are read than are returned.
  *
  * @author Abe White
  * @author Marc Prud'hommeaux
@@ -41,6 +44,9 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
     private final byte[] _status;
     private Object[] _values;
     private Object[] _orderValues;
+    private final PriorityQueue<Integer> _heap;
+    private boolean _primed = false;
+    private int _last = -1;
     private Object _cur = null;
     private int _size = -1;
 
@@ -61,6 +67,15 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
         _status = new byte[rops.length];
         _values = (comp == null) ? null : new Object[rops.length];
         _orderValues = (comp == null) ? null : new Object[rops.length];
+        _heap = (comp == null) ? null : new PriorityQueue<>(
+            Math.max(1, rops.length), new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    int cmp = _comp.compare(_orderValues[i1], _orderValues[i2]);
+                    // prefer the earlier delegate on ties, as a linear scan would
+                    return (cmp != 0) ? cmp : i1 - i2;
+                }
+            });
     }
 
     @Override
@@ -138,6 +153,10 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     private void clear() {
         _cur = null;
+        _primed = false;
+        _last = -1;
+        if (_heap != null)
+            _heap.clear();
         for (int i = 0; i < _rops.length; i++) {
             _status[i] = OPENED;
             if (_values != null)
@@ -156,56 +175,42 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     @Override
     public boolean next() throws Exception {
-        // initialize all rops with the latest values
-        boolean hasValue = false;
+        if (_comp != null)
+            return nextOrdered();
+
         for (int i = 0; i < _status.length; i++) {
-            switch (_status[i]) {
-                case UNOPENED:
-                    // this will only ever be the case if we aren't ordering
-                    _rops[i].open();
-                    _status[i] = OPENED;
-                    // no break
-                case OPENED:
-                    // if this rop has a value, cache it; if we're not ordering,
-                    // then that's the value to return
-                    if (_rops[i].next()) {
-                        if (_comp == null) {
-                            _cur = _rops[i].getResultObject();
-                            return true;
-                        } else {
-                            hasValue = true;
-                            _status[i] = VALUE;
-                            _values[i] = _rops[i].getResultObject();
-                            _orderValues[i] = getOrderingValue(_values[i],
-                                i, _rops[i]);
-                        }
-                    } else
-                        _status[i] = DONE;
-                    break;
-                case VALUE:
-                    // we only use this state when ordering
-                    hasValue = true;
-                    break;
+            if (_status[i] == UNOPENED) {
+                _rops[i].open();
+                _status[i] = OPENED;
+            }
+            if (_status[i] == OPENED) {
+                if (_rops[i].next()) {
+                    _cur = _rops[i].getResultObject();
+                    return true;
+                }
+                _status[i] = DONE;
             }
         }
+        return false;
+    }
 
-        // if we get to this point without a comparator, it means none
-        // of our rops have any more values
-        if (_comp == null || !hasValue)
-            return false;
+    /**
+     * Return the least of the current heads of the delegates according to
+     * the comparator. The first call reads the head of every delegate;
+     * subsequent calls only replace the head consumed by the previous call.
+     */
+    private boolean nextOrdered() throws Exception {
+        if (!_primed) {
+            for (int i = 0; i < _status.length; i++)
+                advance(i);
+            _primed = true;
+        } else if (_last != -1)
+            advance(_last);
+        _last = -1;
 
-        // for all the rops with values, find the 'least' one according to
-        // the comparator
-        int least = -1;
-        Object orderVal = null;
-        for (int i = 0; i < _orderValues.length; i++) {
-            if (_status[i] != VALUE)
-                continue;
-            if (least == -1 || _comp.compare(_orderValues[i], orderVal) < 0) {
-                least = i;
-                orderVal = _orderValues[i];
-            }
-        }
+        Integer least = _heap.poll();
+        if (least == null)
+            return false;
 
         // assign the least value to the current one, and clear the cached
         // value for that rop so that we know to get the next value for
@@ -214,9 +219,29 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
         _values[least] = null;
         _orderValues[least] = null;
         _status[least] = OPENED;
+        _last = least;
         return true;
     }
 
+    /**
+     * Cache the next value of the given delegate and place it in the heap.
+     */
+    private void advance(int i) throws Exception {
+        if (_status[i] == UNOPENED) {
+            _rops[i].open();
+            _status[i] = OPENED;
+        }
+        if (_status[i] != OPENED)
+            return;
+        if (_rops[i].next()) {
+            _status[i] = VALUE;
+            _values[i] = _rops[i].getResultObject();
+            _orderValues[i] = getOrderingValue(_values[i], i, _rops[i]);
+            _heap.add(i);
+        } else
+            _status[i] = DONE;
+    }
+
     @Override
     public Object getResultObject() throws Exception {
         return _cur;
@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.rop;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A result object provider that merges multiple unordered delegates by
+ * reading them concurrently. Tasks run on an {@link Executor} open each
+ * delegate and advance it to its next result, and the delegates are returned
+ * in the order their results become available rather than one after another,
+ * so that the latency of the delegates overlaps.
+ * <br>
+ * The tasks only move the cursor of a delegate: the result objects
+ * themselves are always obtained by the thread that uses this provider, as
+ * they may be loaded into a context that is not thread safe. Once a
+ * delegate is ready, up to a chunk of its results are returned by the
+ * thread that uses this provider before the delegate is handed back to a
+ * task, so a slow consumer holds back the delegates.
+ * <br>
+ * Each delegate is only used by one thread at a time, but not always by the
+ * thread that uses this provider. The delegates must therefore not share
+ * resources, such as a connection, that can not be used from another
+ * thread.
+ *
+ * @since 3.2.3
+ */
+public class PrefetchingMergedResultObjectProvider implements ResultObjectProvider {
+
+    /**
+     * Default number of results read from a delegate at a time.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final ResultObjectProvider[] _rops;
+    private final Executor[] _executors;
+    private final int _chunkSize;
+    private final boolean[] _opened;
+    private final BlockingQueue<Ready> _arrivals = new LinkedBlockingQueue<>();
+    private volatile int _generation = 0;
+    private boolean _started = false;
+    private int _active = 0;
+    private int _current = -1;
+    private int _read = 0;
+    private int _index = -1;
+    private Object _cur = null;
+    private int _size = -1;
+
+    /**
+     * Constructor. Provide delegates and the executor that reads them.
+     */
+    public PrefetchingMergedResultObjectProvider(ResultObjectProvider[] rops,
+        Executor executor, int chunkSize) {
+        this(rops, fill(executor, rops.length), chunkSize);
+    }
+
+    /**
+     * Constructor. Provide delegates and the executor that reads each of
+     * them.
+     *
+     * @param executors the executor of each delegate at the same index
+     * @param chunkSize the number of results read from a delegate before it
+     * is handed back to its executor
+     */
+    public PrefetchingMergedResultObjectProvider(ResultObjectProvider[] rops,
+        Executor[] executors, int chunkSize) {
+        if (executors.length != rops.length)
+            throw new IllegalArgumentException(executors.length + " != " + rops.length);
+        _rops = rops;
+        _executors = executors;
+        _chunkSize = (chunkSize < 1) ? DEFAULT_CHUNK_SIZE : chunkSize;
+        _opened = new boolean[rops.length];
+    }
+
+    private static Executor[] fill(Executor executor, int length) {
+        Executor[] executors = new Executor[length];
+        Arrays.fill(executors, executor);
+        return executors;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    /**
+     * Starts to advance every delegate to its first result.
+     */
+    @Override
+    public void open() throws Exception {
+        start();
+    }
+
+    private void start() {
+        if (_started)
+            return;
+        _started = true;
+        _active = _rops.length;
+        for (int i = 0; i < _rops.length; i++)
+            prefetch(i);
+    }
+
+    /**
+     * Submits the advance of the given delegate to its next result. A task
+     * that the executor rejects is run by the calling thread.
+     */
+    private void prefetch(int idx) {
+        Prefetch task = new Prefetch(idx, _generation);
+        try {
+            _executors[idx].execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        start();
+        while (true) {
+            if (_current != -1) {
+                if (_read == _chunkSize) {
+                    prefetch(_current);
+                    _current = -1;
+                    continue;
+                }
+                ResultObjectProvider rop = _rops[_current];
+                synchronized (rop) {
+                    // the first result of a chunk has been advanced to by
+                    // the task that handed over the delegate
+                    if (_read == 0 || rop.next()) {
+                        _cur = rop.getResultObject();
+                        _read++;
+                        _index++;
+                        return true;
+                    }
+                }
+                _active--;
+                _current = -1;
+            }
+            if (_active == 0)
+                return false;
+
+            Ready ready = _arrivals.take();
+            if (ready.generation != _generation)
+                continue;
+            if (ready.error != null || !ready.found)
+                _active--;
+            if (ready.error instanceof Exception)
+                throw (Exception) ready.error;
+            if (ready.error instanceof Error)
+                throw (Error) ready.error;
+            if (ready.found) {
+                _current = ready.idx;
+                _read = 0;
+            }
+        }
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return _cur;
+    }
+
+    /**
+     * Moves to the given position by stepping through the results, starting
+     * over if the position has already been passed.
+     */
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        if (pos < 0)
+            return false;
+        if (pos < _index)
+            reset();
+        while (_index < pos)
+            if (!next())
+                return false;
+        return true;
+    }
+
+    /**
+     * Sums the sizes of the delegates, waiting for each to finish advancing
+     * to its next result.
+     */
+    @Override
+    public int size() throws Exception {
+        if (_size != -1)
+            return _size;
+
+        int total = 0;
+        for (int i = 0; i < _rops.length; i++) {
+            int size;
+            synchronized (_rops[i]) {
+                if (!_opened[i]) {
+                    _rops[i].open();
+                    _opened[i] = true;
+                }
+                size = _rops[i].size();
+            }
+            if (size == Integer.MAX_VALUE) {
+                total = size;
+                break;
+            }
+            total += size;
+        }
+        _size = total;
+        return _size;
+    }
+
+    @Override
+    public void reset() throws Exception {
+        clear();
+        for (int i = 0; i < _rops.length; i++) {
+            synchronized (_rops[i]) {
+                if (_opened[i])
+                    _rops[i].reset();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        clear();
+        Exception err = null;
+        for (int i = 0; i < _rops.length; i++) {
+            synchronized (_rops[i]) {
+                try {
+                    if (_opened[i])
+                        _rops[i].close();
+                } catch (Exception e) {
+                    if (err == null)
+                        err = e;
+                }
+                _opened[i] = false;
+            }
+        }
+        if (err != null)
+            throw err;
+    }
+
+    /**
+     * Discards the delegates that are ready. Delegates still being advanced
+     * are discarded on arrival.
+     */
+    private void clear() {
+        _generation++;
+        _arrivals.clear();
+        _started = false;
+        _active = 0;
+        _current = -1;
+        _read = 0;
+        _index = -1;
+        _cur = null;
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        if (_rops.length == 0)
+            throw new RuntimeException(e);
+        _rops[0].handleCheckedException(e);
+    }
+
+    /**
+     * A delegate that has been advanced to its next result, or has none.
+     */
+    private static class Ready {
+        final int idx;
+        final int generation;
+        boolean found;
+        Throwable error;
+
+        Ready(int idx, int generation) {
+            this.idx = idx;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Advances a delegate to its next result, opening it first if needed.
+     */
+    private class Prefetch implements Runnable {
+        private final int _idx;
+        private final int _gen;
+
+        Prefetch(int idx, int gen) {
+            _idx = idx;
+            _gen = gen;
+        }
+
+        @Override
+        public void run() {
+            Ready ready = new Ready(_idx, _gen);
+            ResultObjectProvider rop = _rops[_idx];
+            synchronized (rop) {
+                // the results have been reset or closed since submission
+                if (_gen != _generation)
+                    return;
+                try {
+                    if (!_opened[_idx]) {
+                        rop.open();
+                        _opened[_idx] = true;
+                    }
+                    ready.found = rop.next();
+                } catch (Throwable t) {
+                    ready.error = t;
+                }
+            }
+            _arrivals.add(ready);
+        }
+    }
+}
@@ -0,0 +1,540 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.rop;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openjpa.lib.util.ReferenceHashMap;
+import org.apache.openjpa.lib.util.collections.AbstractReferenceMap.ReferenceStrength;
+
+/**
+ * Non-lazy ResultList implementation that keeps a bounded number of results
+ * in memory and spills the rest to a temporary file.
+ * <br>
+ * Like {@link EagerResultList}, all results are read on construction and
+ * the provider is closed. The first results, up to the given threshold, are
+ * held in memory. Each further result is encoded by a {@link Codec} and
+ * appended to a temporary file, which is then memory-mapped to decode the
+ * results on access. An index of the offset and length of each spilled
+ * result provides random access. A result that the codec can not encode is
+ * held in memory.
+ * <br>
+ * Decoded results are weakly cached, so that accessing a spilled result
+ * again returns the same object as long as that object is still in use.
+ * Once it is no longer referenced, a further access decodes a new copy that
+ * is equal to, but not identical with, the result originally read.
+ * <br>
+ * The temporary file is deleted when the list is closed.
+ *
+ * @since 3.2.3
+ */
+public class SpillingResultList extends AbstractNonSequentialResultList {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Largest part of the file mapped at once. A result is never split
+     * across two parts.
+     */
+    static final int SEGMENT_SIZE = 1 << 28;
+
+    private final List<Object> _head;
+    private final transient Codec _codec;
+    private final File _dir;
+    private transient File _file;
+    private transient RandomAccessFile _raf;
+    private transient MappedByteBuffer[] _segments;
+    private long[] _offsets = new long[0];
+    private int[] _lengths = new int[0];
+    private Map<Integer, Object> _unspilled;
+    private transient Map<Integer, Object> _decoded;
+    private int _spilled = 0;
+    private long _position = 0;
+    private boolean _closed = false;
+
+    /**
+     * Reads all results of the given provider, spilling those beyond the
+     * given number to a file in the default temporary directory.
+     */
+    public SpillingResultList(ResultObjectProvider rop, int threshold, Codec codec) {
+        this(rop, threshold, codec, null);
+    }
+
+    /**
+     * Reads all results of the given provider, spilling those beyond the
+     * given number.
+     *
+     * @param threshold the number of results held in memory
+     * @param codec encodes the spilled results
+     * @param dir the directory of the temporary file, or null for the
+     * default temporary directory
+     */
+    public SpillingResultList(ResultObjectProvider rop, int threshold,
+        Codec codec, File dir) {
+        _head = new ArrayList<>(Math.min(Math.max(threshold, 0), 1024));
+        _codec = codec;
+        _dir = dir;
+        try {
+            rop.open();
+            while (rop.next()) {
+                Object result = rop.getResultObject();
+                if (_head.size() < threshold)
+                    _head.add(result);
+                else
+                    spill(result);
+            }
+            if (_raf != null)
+                map();
+        } catch (RuntimeException re) {
+            close();
+            throw re;
+        } catch (Exception e) {
+            close();
+            rop.handleCheckedException(e);
+        } finally {
+            try {
+                rop.close();
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    /**
+     * Gets the number of results spilled to the file.
+     */
+    public int getSpilledCount() {
+        return _spilled - ((_unspilled == null) ? 0 : _unspilled.size());
+    }
+
+    /**
+     * Gets the size of the file in bytes.
+     */
+    public long getSpilledSize() {
+        return _position;
+    }
+
+    private void spill(Object result) throws Exception {
+        byte[] bytes = _codec.encode(result);
+        if (_spilled == _offsets.length) {
+            int length = Math.max(16, _offsets.length * 2);
+            _offsets = Arrays.copyOf(_offsets, length);
+            _lengths = Arrays.copyOf(_lengths, length);
+        }
+        if (bytes == null || bytes.length > SEGMENT_SIZE) {
+            if (_unspilled == null)
+                _unspilled = new HashMap<>();
+            _unspilled.put(_spilled, result);
+            _lengths[_spilled++] = -1;
+            return;
+        }
+        if (_raf == null) {
+            _file = File.createTempFile("openjpa-result", ".spill", _dir);
+            _raf = new RandomAccessFile(_file, "rw");
+        }
+        // start a result that would straddle two parts at the next part
+        long rest = SEGMENT_SIZE - (_position % SEGMENT_SIZE);
+        if (bytes.length > rest)
+            _position += rest;
+        FileChannel channel = _raf.getChannel();
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        long pos = _position;
+        while (buf.hasRemaining())
+            pos += channel.write(buf, pos);
+        _offsets[_spilled] = _position;
+        _lengths[_spilled++] = bytes.length;
+        _position = pos;
+    }
+
+    /**
+     * Maps the file, one part at a time.
+     */
+    private void map() throws IOException {
+        FileChannel channel = _raf.getChannel();
+        int parts = (int) ((_position + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        _segments = new MappedByteBuffer[parts];
+        for (int i = 0; i < parts; i++) {
+            long start = (long) i * SEGMENT_SIZE;
+            _segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                Math.min(SEGMENT_SIZE, _position - start));
+        }
+    }
+
+    @Override
+    protected Object getInternal(int index) {
+        if (index < 0)
+            return PAST_END;
+        if (index < _head.size())
+            return _head.get(index);
+        int i = index - _head.size();
+        if (i >= _spilled)
+            return PAST_END;
+        if (_lengths[i] == -1)
+            return _unspilled.get(i);
+        if (_decoded == null)
+            _decoded = new ReferenceHashMap(ReferenceStrength.HARD, ReferenceStrength.WEAK);
+        Object result = _decoded.get(i);
+        if (result == null) {
+            result = decode(i);
+            if (result != null)
+                _decoded.put(i, result);
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the spilled result at the given index of the file.
+     */
+    private Object decode(int i) {
+        ByteBuffer buf = _segments[(int) (_offsets[i] / SEGMENT_SIZE)].duplicate();
+        buf.position((int) (_offsets[i] % SEGMENT_SIZE));
+        byte[] bytes = new byte[_lengths[i]];
+        buf.get(bytes);
+        try {
+            return _codec.decode(bytes);
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        assertOpen();
+        return _head.size() + _spilled;
+    }
+
+    @Override
+    public boolean isProviderOpen() {
+        return false;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return _closed;
+    }
+
+    /**
+     * Deletes the temporary file.
+     */
+    @Override
+    public void close() {
+        _closed = true;
+        _segments = null;
+        _unspilled = null;
+        _decoded = null;
+        if (_raf != null) {
+            try {
+                _raf.close();
+            } catch (IOException e) {
+            }
+            _raf = null;
+        }
+        // a mapped file can not be deleted on some platforms until the
+        // mapping is collected
+        if (_file != null && !_file.delete())
+            _file.deleteOnExit();
+        _file = null;
+    }
+
+    public Object writeReplace() throws ObjectStreamException {
+        if (_closed)
+            return this;
+
+        // load results into list
+        List<Object> list = new ArrayList<>(size());
+        for (Object o : this)
+            list.add(o);
+        return list;
+    }
+
+    /**
+     * Encodes and decodes the spilled results.
+     */
+    public interface Codec {
+
+        /**
+         * Encodes the given result, or returns null if the result can not be
+         * encoded and must be held in memory.
+         */
+        byte[] encode(Object result) throws Exception;
+
+        /**
+         * Decodes a result from the bytes it was encoded to.
+         */
+        Object decode(byte[] bytes) throws Exception;
+    }
+
+    /**
+     * Encodes nulls, strings, primitive wrappers, big numbers, dates and
+     * arrays of these compactly, and other serializable results by
+     * serialization.
+     */
+    public static class DefaultCodec implements Codec {
+        protected static final byte NULL = 0;
+        protected static final byte STRING = 1;
+        protected static final byte INTEGER = 2;
+        protected static final byte LONG = 3;
+        protected static final byte SHORT = 4;
+        protected static final byte BYTE = 5;
+        protected static final byte DOUBLE = 6;
+        protected static final byte FLOAT = 7;
+        protected static final byte BOOLEAN = 8;
+        protected static final byte CHARACTER = 9;
+        protected static final byte BIG_DECIMAL = 10;
+        protected static final byte BIG_INTEGER = 11;
+        protected static final byte DATE = 12;
+        protected static final byte SQL_DATE = 13;
+        protected static final byte SQL_TIME = 14;
+        protected static final byte SQL_TIMESTAMP = 15;
+        protected static final byte ARRAY = 16;
+        protected static final byte SERIALIZED = 17;
+
+        /**
+         * First tag free for subclasses.
+         */
+        protected static final byte EXTENSION = 64;
+
+        private final ClassLoader _loader;
+
+        /**
+         * Create a codec that resolves serialized classes with the given
+         * loader, or the default loader if null.
+         */
+        public DefaultCodec(ClassLoader loader) {
+            _loader = loader;
+        }
+
+        @Override
+        public byte[] encode(Object result) throws Exception {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (!write(out, result))
+                return null;
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public Object decode(byte[] bytes) throws Exception {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            return read(in, in.readByte());
+        }
+
+        /**
+         * Writes the given value with its tag.
+         *
+         * @return false if the value can not be encoded
+         */
+        protected boolean write(DataOutputStream out, Object val) throws IOException {
+            if (val == null) {
+                out.writeByte(NULL);
+            } else if (val instanceof String) {
+                out.writeByte(STRING);
+                writeUTF(out, (String) val);
+            } else if (val instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt((Integer) val);
+            } else if (val instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) val);
+            } else if (val instanceof Short) {
+                out.writeByte(SHORT);
+                out.writeShort((Short) val);
+            } else if (val instanceof Byte) {
+                out.writeByte(BYTE);
+                out.writeByte((Byte) val);
+            } else if (val instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) val);
+            } else if (val instanceof Float) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) val);
+            } else if (val instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) val);
+            } else if (val instanceof Character) {
+                out.writeByte(CHARACTER);
+                out.writeChar((Character) val);
+            } else if (val.getClass() == BigDecimal.class) {
+                out.writeByte(BIG_DECIMAL);
+                writeUTF(out, val.toString());
+            } else if (val.getClass() == BigInteger.class) {
+                out.writeByte(BIG_INTEGER);
+                writeUTF(out, val.toString());
+            } else if (val.getClass() == java.util.Date.class) {
+                out.writeByte(DATE);
+                out.writeLong(((java.util.Date) val).getTime());
+            } else if (val.getClass() == java.sql.Date.class) {
+                out.writeByte(SQL_DATE);
+                out.writeLong(((java.util.Date) val).getTime());
+            } else if (val.getClass() == java.sql.Time.class) {
+                out.writeByte(SQL_TIME);
+                out.writeLong(((java.util.Date) val).getTime());
+            } else if (val.getClass() == java.sql.Timestamp.class) {
+                out.writeByte(SQL_TIMESTAMP);
+                out.writeLong(((java.util.Date) val).getTime());
+                out.writeInt(((java.sql.Timestamp) val).getNanos());
+            } else if (val.getClass() == Object[].class) {
+                Object[] arr = (Object[]) val;
+                out.writeByte(ARRAY);
+                out.writeInt(arr.length);
+                for (Object elem : arr)
+                    if (!write(out, elem))
+                        return false;
+            } else if (val instanceof Serializable) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                    oos.writeObject(val);
+                } catch (NotSerializableException e) {
+                    return false;
+                }
+                out.writeByte(SERIALIZED);
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Reads a value of the given tag.
+         */
+        protected Object read(DataInputStream in, byte tag) throws Exception {
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readUTF(in);
+                case INTEGER:
+                    return in.readInt();
+                case LONG:
+                    return in.readLong();
+                case SHORT:
+                    return in.readShort();
+                case BYTE:
+                    return in.readByte();
+                case DOUBLE:
+                    return in.readDouble();
+                case FLOAT:
+                    return in.readFloat();
+                case BOOLEAN:
+                    return in.readBoolean();
+                case CHARACTER:
+                    return in.readChar();
+                case BIG_DECIMAL:
+                    return new BigDecimal(readUTF(in));
+                case BIG_INTEGER:
+                    return new BigInteger(readUTF(in));
+                case DATE:
+                    return new java.util.Date(in.readLong());
+                case SQL_DATE:
+                    return new java.sql.Date(in.readLong());
+                case SQL_TIME:
+                    return new java.sql.Time(in.readLong());
+                case SQL_TIMESTAMP:
+                    java.sql.Timestamp ts = new java.sql.Timestamp(in.readLong());
+                    ts.setNanos(in.readInt());
+                    return ts;
+                case ARRAY:
+                    Object[] arr = new Object[in.readInt()];
+                    for (int i = 0; i < arr.length; i++)
+                        arr[i] = read(in, in.readByte());
+                    return arr;
+                case SERIALIZED:
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    try (ObjectInputStream ois = new LoaderObjectInputStream(
+                        new ByteArrayInputStream(bytes), _loader)) {
+                        return ois.readObject();
+                    }
+                default:
+                    throw new IOException("tag " + tag);
+            }
+        }
+
+        /**
+         * Writes a string, which unlike {@link DataOutputStream#writeUTF}
+         * may be longer than 64K.
+         */
+        private static void writeUTF(DataOutputStream out, String str)
+            throws IOException {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readUTF(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Resolves classes with a given loader first.
+     */
+    private static class LoaderObjectInputStream extends ObjectInputStream {
+        private final ClassLoader _loader;
+
+        LoaderObjectInputStream(InputStream in, ClassLoader loader)
+            throws IOException {
+            super(in);
+            _loader = loader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+            throws IOException, ClassNotFoundException {
+            if (_loader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, _loader);
+                } catch (ClassNotFoundException e) {
+                    // fall back to the default resolution
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.rop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+MergedResultObjectProvider merges the results of several delegates. With a
+comparator it keeps the current head of every delegate in a heap and only
+advances the delegate whose head was consumed, so the merged results are
+ordered, ties keep the order of the delegates, and no delegate is read
+further than the results returned require.
+ */
+public class MergedResultObjectProviderTest {
+
+    private static final Comparator<Object> NATURAL = new Comparator<Object>() {
+        @Override
+        public int compare(Object o1, Object o2) {
+            return ((Comparable) o1).compareTo(o2);
+        }
+    };
+
+    @Test
+    public void testOrderedMerge() throws Exception {
+        CountingProvider[] rops = providers(
+            Arrays.asList(1, 4, 7, 10),
+            Collections.emptyList(),
+            Arrays.asList(2, 3, 8),
+            Arrays.asList(5, 6, 9, 11, 12));
+        MergedResultObjectProvider merged =
+            new MergedResultObjectProvider(rops, NATURAL);
+
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10,
+            11, 12), drain(merged));
+        for (CountingProvider rop : rops)
+            Assert.assertTrue(rop.closed);
+    }
+
+    @Test
+    public void testOrderedMergeOfUnevenDelegates() throws Exception {
+        List<Integer> longer = new ArrayList<>();
+        for (int i = 0; i < 1000; i += 2)
+            longer.add(i);
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            providers(longer, Arrays.asList(1, 3, 999)), NATURAL);
+
+        List<Object> res = drain(merged);
+        Assert.assertEquals(503, res.size());
+        for (int i = 1; i < res.size(); i++)
+            Assert.assertTrue((Integer) res.get(i - 1) <= (Integer) res.get(i));
+    }
+
+    @Test
+    public void testTiesKeepDelegateOrder() throws Exception {
+        Comparator<Object> byLetter = new Comparator<Object>() {
+            @Override
+            public int compare(Object o1, Object o2) {
+                return ((String) o1).charAt(0) - ((String) o2).charAt(0);
+            }
+        };
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            providers(Arrays.asList("a0", "b0"), Arrays.asList("a1", "b1"),
+                Arrays.asList("a2", "c2")), byLetter);
+
+        Assert.assertEquals(Arrays.asList("a0", "a1", "a2", "b0", "b1", "c2"),
+            drain(merged));
+    }
+
+    @Test
+    public void testOnlyConsumedDelegateAdvances() throws Exception {
+        CountingProvider[] rops = providers(
+            Arrays.asList(1, 2, 3), Arrays.asList(10, 11), Arrays.asList(20));
+        MergedResultObjectProvider merged =
+            new MergedResultObjectProvider(rops, NATURAL);
+        merged.open();
+
+        Assert.assertTrue(merged.next());
+        Assert.assertEquals(1, merged.getResultObject());
+        assertNextCalls(rops, 1, 1, 1);
+
+        Assert.assertTrue(merged.next());
+        Assert.assertEquals(2, merged.getResultObject());
+        assertNextCalls(rops, 2, 1, 1);
+
+        Assert.assertTrue(merged.next());
+        Assert.assertTrue(merged.next());
+        Assert.assertEquals(10, merged.getResultObject());
+        // the first delegate is exhausted; the second has not moved past
+        // the head that was just returned
+        assertNextCalls(rops, 4, 1, 1);
+        merged.close();
+    }
+
+    @Test
+    public void testOrderingValue() throws Exception {
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            providers(Arrays.asList("ccc", "a"), Arrays.asList("bb")),
+            new Comparator<Object>() {
+                @Override
+                public int compare(Object o1, Object o2) {
+                    return ((Integer) o2).compareTo((Integer) o1);
+                }
+            }) {
+            @Override
+            protected Object getOrderingValue(Object val, int idx,
+                ResultObjectProvider rop) {
+                return ((String) val).length();
+            }
+        };
+
+        Assert.assertEquals(Arrays.asList("ccc", "bb", "a"), drain(merged));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            providers(Arrays.asList(1, 3), Arrays.asList(2)), NATURAL);
+        merged.open();
+        Assert.assertTrue(merged.next());
+        Assert.assertTrue(merged.next());
+        Assert.assertEquals(2, merged.getResultObject());
+
+        merged.reset();
+        List<Object> res = new ArrayList<>();
+        while (merged.next())
+            res.add(merged.getResultObject());
+        Assert.assertEquals(Arrays.asList(1, 2, 3), res);
+        merged.close();
+    }
+
+    @Test
+    public void testUnorderedConcatenation() throws Exception {
+        CountingProvider[] rops = providers(
+            Arrays.asList(3, 1), Collections.emptyList(), Arrays.asList(2));
+        MergedResultObjectProvider merged =
+            new MergedResultObjectProvider(rops);
+        merged.open();
+        Assert.assertTrue(rops[0].opened);
+        Assert.assertFalse(rops[2].opened);
+
+        List<Object> res = new ArrayList<>();
+        while (merged.next())
+            res.add(merged.getResultObject());
+        merged.close();
+        Assert.assertEquals(Arrays.asList(3, 1, 2), res);
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        MergedResultObjectProvider merged = new MergedResultObjectProvider(
+            providers(Arrays.asList(1, 2), Arrays.asList(3)), NATURAL);
+        merged.open();
+        Assert.assertEquals(3, merged.size());
+        merged.close();
+    }
+
+    private static void assertNextCalls(CountingProvider[] rops,
+        int... calls) {
+        for (int i = 0; i < rops.length; i++)
+            Assert.assertEquals("delegate " + i, calls[i], rops[i].nexts);
+    }
+
+    private static List<Object> drain(ResultObjectProvider rop)
+        throws Exception {
+        List<Object> res = new ArrayList<>();
+        rop.open();
+        try {
+            while (rop.next())
+                res.add(rop.getResultObject());
+        } finally {
+            rop.close();
+        }
+        return res;
+    }
+
+    private static CountingProvider[] providers(List<?>... lists) {
+        CountingProvider[] rops = new CountingProvider[lists.length];
+        for (int i = 0; i < lists.length; i++)
+            rops[i] = new CountingProvider(lists[i]);
+        return rops;
+    }
+
+    /**
+     * List provider that records how often it is advanced.
+     */
+    private static class CountingProvider extends ListResultObjectProvider {
+
+        private int nexts;
+        private boolean opened;
+        private boolean closed;
+
+        CountingProvider(List<?> list) {
+            super(list);
+        }
+
+        @Override
+        public void open() throws Exception {
+            opened = true;
+        }
+
+        @Override
+        public boolean next() throws Exception {
+            nexts++;
+            return super.next();
+        }
+
+        @Override
+        public void close() throws Exception {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.rop;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+PrefetchingMergedResultObjectProvider advances its delegates on executor
+threads and returns up to a chunk of results of each delegate in the order
+the delegates become ready. Result objects are only ever obtained by the
+thread that reads the merged results, since they may be loaded into a
+context that is not thread safe.
+ */
+public class PrefetchingMergedResultObjectProviderTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testChunksInReadyOrder() throws Exception {
+        PrefetchingMergedResultObjectProvider merged = new PrefetchingMergedResultObjectProvider(
+            providers(Arrays.asList(1, 2, 3), Arrays.asList(10, 11)), DIRECT, 2);
+
+        Assert.assertEquals(Arrays.asList(1, 2, 10, 11, 3), drain(merged));
+    }
+
+    @Test
+    public void testConcurrentMergeReturnsEveryResult() throws Exception {
+        List<Integer> expected = new ArrayList<>();
+        List<?>[] lists = new List<?>[4];
+        for (int i = 0; i < lists.length; i++) {
+            List<Integer> list = new ArrayList<>();
+            for (int j = 0; j < 100; j++) {
+                list.add(i * 100 + j);
+                expected.add(i * 100 + j);
+            }
+            lists[i] = list;
+        }
+        ThreadProvider[] rops = providers(lists);
+        PrefetchingMergedResultObjectProvider merged =
+            new PrefetchingMergedResultObjectProvider(rops, pool, 7);
+
+        List<Object> res = drain(merged);
+        Assert.assertEquals(expected.size(), res.size());
+        Assert.assertEquals(new HashSet<Object>(expected), new HashSet<Object>(res));
+        for (ThreadProvider rop : rops)
+            Assert.assertTrue(rop.closed);
+    }
+
+    @Test
+    public void testResultObjectsAreReadByConsumer() throws Exception {
+        ThreadProvider[] rops = providers(Arrays.asList(1, 2, 3),
+            Arrays.asList(4, 5), Collections.emptyList());
+        PrefetchingMergedResultObjectProvider merged =
+            new PrefetchingMergedResultObjectProvider(rops, pool, 1);
+
+        Assert.assertEquals(5, drain(merged).size());
+        Set<Thread> advancing = new HashSet<>();
+        for (ThreadProvider rop : rops) {
+            if (rop.size() > 0)
+                Assert.assertEquals(Collections.singleton(Thread.currentThread()), rop.reading);
+            advancing.addAll(rop.advancing);
+        }
+        // every delegate was advanced to its first result by the pool
+        advancing.remove(Thread.currentThread());
+        Assert.assertFalse(advancing.isEmpty());
+    }
+
+    @Test
+    public void testAbsoluteStepsThroughResults() throws Exception {
+        PrefetchingMergedResultObjectProvider merged = new PrefetchingMergedResultObjectProvider(
+            providers(Arrays.asList(1, 2, 3), Arrays.asList(10, 11)), DIRECT, 2);
+        merged.open();
+
+        Assert.assertTrue(merged.absolute(3));
+        Assert.assertEquals(11, merged.getResultObject());
+        Assert.assertTrue(merged.absolute(3));
+        Assert.assertEquals(11, merged.getResultObject());
+        Assert.assertTrue(merged.absolute(1));
+        Assert.assertEquals(2, merged.getResultObject());
+        Assert.assertTrue(merged.next());
+        Assert.assertEquals(10, merged.getResultObject());
+        Assert.assertFalse(merged.absolute(5));
+        Assert.assertFalse(merged.absolute(-1));
+        merged.close();
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        PrefetchingMergedResultObjectProvider merged = new PrefetchingMergedResultObjectProvider(
+            providers(Arrays.asList(1, 2), Arrays.asList(3)), pool, 1);
+        merged.open();
+        Assert.assertTrue(merged.next());
+
+        merged.reset();
+        List<Object> res = new ArrayList<>();
+        while (merged.next())
+            res.add(merged.getResultObject());
+        merged.close();
+        Assert.assertEquals(new HashSet<Object>(Arrays.asList(1, 2, 3)), new HashSet<>(res));
+        Assert.assertEquals(3, res.size());
+    }
+
+    @Test
+    public void testFailureIsRaisedToConsumer() throws Exception {
+        ThreadProvider failing = new ThreadProvider(Arrays.asList(1)) {
+            @Override
+            public void open() throws Exception {
+                throw new IllegalStateException("slice down");
+            }
+        };
+        PrefetchingMergedResultObjectProvider merged = new PrefetchingMergedResultObjectProvider(
+            new ResultObjectProvider[] { failing }, pool, 4);
+        try {
+            merged.next();
+            Assert.fail("failure of delegate ignored");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("slice down", e.getMessage());
+        } finally {
+            merged.close();
+        }
+    }
+
+    @Test
+    public void testSize() throws Exception {
+        PrefetchingMergedResultObjectProvider merged = new PrefetchingMergedResultObjectProvider(
+            providers(Arrays.asList(1, 2), Arrays.asList(3)), pool, 4);
+        merged.open();
+        Assert.assertEquals(3, merged.size());
+        merged.close();
+    }
+
+    private static List<Object> drain(ResultObjectProvider rop)
+        throws Exception {
+        List<Object> res = new ArrayList<>();
+        rop.open();
+        try {
+            while (rop.next())
+                res.add(rop.getResultObject());
+        } finally {
+            rop.close();
+        }
+        return res;
+    }
+
+    private static ThreadProvider[] providers(List<?>... lists) {
+        ThreadProvider[] rops = new ThreadProvider[lists.length];
+        for (int i = 0; i < lists.length; i++)
+            rops[i] = new ThreadProvider(lists[i]);
+        return rops;
+    }
+
+    /**
+     * List provider that records the threads that advance it and that read
+     * its results.
+     */
+    private static class ThreadProvider extends ListResultObjectProvider {
+
+        private final Set<Thread> advancing = Collections.synchronizedSet(new HashSet<Thread>());
+        private final Set<Thread> reading = Collections.synchronizedSet(new HashSet<Thread>());
+        private volatile boolean closed;
+
+        ThreadProvider(List<?> list) {
+            super(list);
+        }
+
+        @Override
+        public boolean next() throws Exception {
+            advancing.add(Thread.currentThread());
+            return super.next();
+        }
+
+        @Override
+        public Object getResultObject() throws Exception {
+            reading.add(Thread.currentThread());
+            return super.getResultObject();
+        }
+
+        @Override
+        public void close() throws Exception {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.rop;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*
+SpillingResultList holds the first results in memory and encodes the rest
+to a temporary file. Every result reads back equal to the result it was
+given, a spilled result is the same object on each access while it is in
+use, a result the codec can not encode is held in memory, and the file is
+deleted when the list is closed.
+ */
+public class SpillingResultListTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SpillingResultList.Codec codec;
+
+    @Before
+    public void setUp() {
+        codec = new SpillingResultList.DefaultCodec(getClass().getClassLoader());
+    }
+
+    @Test
+    public void testCodecRoundTrip() throws Exception {
+        java.sql.Timestamp ts = new java.sql.Timestamp(1234567890123L);
+        ts.setNanos(123456789);
+        char[] chars = new char[70000];
+        Arrays.fill(chars, '\u00e9');
+        List<Object> values = Arrays.asList(null, "", "text", new String(chars),
+            42, 42L, (short) 42, (byte) 42, 4.2d, 4.2f, true, 'c',
+            new BigDecimal("123456789.000000001"), new BigInteger("123456789012345678901234567890"),
+            new java.util.Date(1234567890123L), new java.sql.Date(1234567890123L),
+            new java.sql.Time(1234567890123L), ts, new ArrayList<>(Arrays.asList(1, "a")));
+        for (Object value : values) {
+            Object decoded = codec.decode(codec.encode(value));
+            Assert.assertEquals(value, decoded);
+            if (value != null)
+                Assert.assertEquals(value.getClass(), decoded.getClass());
+        }
+        Assert.assertEquals(123456789, ((java.sql.Timestamp) codec.decode(codec.encode(ts))).getNanos());
+    }
+
+    @Test
+    public void testCodecRoundTripOfArrays() throws Exception {
+        Object[] row = { 1, "a", null, new Object[] { 2L, new BigDecimal("3.5") } };
+        Object[] decoded = (Object[]) codec.decode(codec.encode(row));
+        Assert.assertTrue(Arrays.deepEquals(row, decoded));
+    }
+
+    @Test
+    public void testCodecRejectsUnserializable() throws Exception {
+        Assert.assertNull(codec.encode(new Object()));
+        Assert.assertNull(codec.encode(new Object[] { 1, new Object() }));
+    }
+
+    @Test
+    public void testResultsBeyondThresholdAreSpilled() throws Exception {
+        List<Object> results = results(100);
+        SpillingResultList list = spill(results, 10);
+
+        Assert.assertEquals(100, list.size());
+        Assert.assertEquals(90, list.getSpilledCount());
+        Assert.assertTrue(list.getSpilledSize() > 0);
+        for (int i = 0; i < results.size(); i++)
+            Assert.assertArrayEquals((Object[]) results.get(i), (Object[]) list.get(i));
+        Assert.assertEquals(results.size(), new ArrayList<>(list).size());
+        list.close();
+    }
+
+    @Test
+    public void testNothingSpilledWithinThreshold() throws Exception {
+        SpillingResultList list = spill(results(5), 10);
+        Assert.assertEquals(5, list.size());
+        Assert.assertEquals(0, list.getSpilledCount());
+        Assert.assertEquals(0, list.getSpilledSize());
+        Assert.assertEquals(0, folder.getRoot().list().length);
+        list.close();
+    }
+
+    @Test
+    public void testSpilledResultKeepsIdentityWhileInUse() throws Exception {
+        SpillingResultList list = spill(results(20), 2);
+        Object first = list.get(15);
+        Assert.assertSame(first, list.get(15));
+        Assert.assertSame(first, list.listIterator(15).next());
+        Assert.assertNotSame(first, list.get(16));
+        list.close();
+    }
+
+    @Test
+    public void testUnencodableResultIsHeldInMemory() throws Exception {
+        Object unencodable = new Object();
+        List<Object> results = new ArrayList<>(Arrays.asList("a", "b", unencodable, "c"));
+        SpillingResultList list = spill(results, 1);
+
+        Assert.assertEquals(4, list.size());
+        Assert.assertEquals(2, list.getSpilledCount());
+        Assert.assertSame(unencodable, list.get(2));
+        Assert.assertEquals("c", list.get(3));
+        list.close();
+    }
+
+    @Test
+    public void testCloseDeletesFile() throws Exception {
+        SpillingResultList list = spill(results(10), 1);
+        Assert.assertEquals(1, folder.getRoot().list().length);
+
+        list.close();
+        Assert.assertTrue(list.isClosed());
+        Assert.assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testSerializesAsList() throws Exception {
+        List<Object> results = new ArrayList<>(Arrays.asList("a", 1, 2L, "b"));
+        SpillingResultList list = spill(results, 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(list);
+        }
+        list.close();
+        try (ObjectInputStream in = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertEquals(results, in.readObject());
+        }
+    }
+
+    private SpillingResultList spill(List<Object> results, int threshold) {
+        return new SpillingResultList(new ListResultObjectProvider(results),
+            threshold, codec, folder.getRoot());
+    }
+
+    private static List<Object> results(int count) {
+        List<Object> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            results.add(new Object[] { i, "name" + i, new BigDecimal(i).movePointLeft(2) });
+        return results;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import org.apache.openjpa.kernel.QueryHints;
+import org.apache.openjpa.kernel.entities.DummyEntity;
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Query results cached for the time of the query cache timeout hint, served
+ * stale while the query is executed again, or awaited by executions of the
+ * same query that miss the cache while it is in progress.
+ */
+public class TestQueryCacheHints extends AbstractPersistenceTestCase {
+
+    private static final String QUERY = "select d from DummyEntity d where d.name like :name";
+
+    private static final List<Thread> SELECTS = Collections.synchronizedList(new ArrayList<>());
+
+    private static volatile Thread _blocked;
+    private static volatile CountDownLatch _entered;
+    private static volatile CountDownLatch _release;
+
+    @Before
+    public void setUp() {
+        SELECTS.clear();
+        _entered = new CountDownLatch(1);
+        _release = new CountDownLatch(1);
+    }
+
+    @After
+    public void tearDown() {
+        _blocked = null;
+        _release.countDown();
+    }
+
+    @Test
+    public void testResultCachedForTimeout() throws Exception {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF("true");
+        assertEquals(3, execute(emf, 300, false).size());
+        assertEquals(1, selects(Thread.currentThread()));
+
+        assertEquals(3, execute(emf, 300, false).size());
+        assertEquals(1, selects(Thread.currentThread()));
+
+        Thread.sleep(500);
+        assertEquals(3, execute(emf, 300, false).size());
+        assertEquals(2, selects(Thread.currentThread()));
+    }
+
+    @Test
+    public void testResultKeptWithoutTimeout() throws Exception {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF("true");
+        assertEquals(3, execute(emf, -1, false).size());
+        Thread.sleep(300);
+        assertEquals(3, execute(emf, -1, false).size());
+        assertEquals(1, selects(Thread.currentThread()));
+    }
+
+    @Test
+    public void testStaleResultServedDuringExecution() throws Exception {
+        final OpenJPAEntityManagerFactorySPI emf = createCachedEMF("true");
+        assertEquals(3, execute(emf, 200, true).size());
+        Thread.sleep(400);
+
+        Executing revalidation = new Executing(emf, 200, true);
+        _blocked = revalidation;
+        revalidation.start();
+        assertTrue(_entered.await(10, TimeUnit.SECONDS));
+
+        // the timed out result is served while it is executed again
+        SELECTS.clear();
+        assertEquals(3, execute(emf, 200, true).size());
+        assertEquals(0, selects(Thread.currentThread()));
+
+        _release.countDown();
+        revalidation.join(10000);
+        assertEquals(3, revalidation.size);
+        assertEquals(3, execute(emf, 200, true).size());
+        assertEquals(0, selects(Thread.currentThread()));
+    }
+
+    @Test
+    public void testTimedOutResultNotServedWithoutHint() throws Exception {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF("true");
+        assertEquals(3, execute(emf, 200, false).size());
+        Thread.sleep(400);
+
+        Executing execution = new Executing(emf, 200, false);
+        _blocked = execution;
+        execution.start();
+        assertTrue(_entered.await(10, TimeUnit.SECONDS));
+
+        SELECTS.clear();
+        assertEquals(3, execute(emf, 200, false).size());
+        assertEquals(1, selects(Thread.currentThread()));
+
+        _release.countDown();
+        execution.join(10000);
+        assertEquals(3, execution.size);
+    }
+
+    @Test
+    public void testExecutionsCoalesced() throws Exception {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF("true(CoalesceTimeout=10000)");
+        Executing first = new Executing(emf, -1, false);
+        _blocked = first;
+        first.start();
+        assertTrue(_entered.await(10, TimeUnit.SECONDS));
+
+        Executing second = new Executing(emf, -1, false);
+        second.start();
+        Thread.sleep(200);
+        assertTrue(second.isAlive());
+
+        _release.countDown();
+        first.join(10000);
+        second.join(10000);
+        assertEquals(3, first.size);
+        assertEquals(3, second.size);
+        assertEquals(1, selects(first));
+        assertEquals(0, selects(second));
+    }
+
+    @Test
+    public void testFailedExecutionIsEnded() {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF("true(CoalesceTimeout=10000)");
+        update(emf, "RENAME TABLE isw2_tests TO isw2_renamed");
+        try {
+            execute(emf, -1, false);
+            fail();
+        } catch (RuntimeException re) {
+            // expected
+        }
+        update(emf, "RENAME TABLE isw2_renamed TO isw2_tests");
+
+        // the next execution does not wait for the failed one
+        long start = System.currentTimeMillis();
+        assertEquals(3, execute(emf, -1, false).size());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    private OpenJPAEntityManagerFactorySPI createCachedEMF(String queryCache) {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(new Class<?>[] { DummyEntity.class },
+            "openjpa.DataCache", "true",
+            "openjpa.QueryCache", queryCache,
+            "openjpa.RemoteCommitProvider", "sjvm",
+            "openjpa.jdbc.QuerySQLCache", "false",
+            "openjpa.jdbc.JDBCListeners", Listener.class.getName());
+        for (int i = 0; i < 3; i++)
+            persist(emf, new DummyEntity("name" + i, i));
+        persist(emf, new DummyEntity("other", 3));
+        SELECTS.clear();
+        return emf;
+    }
+
+    private static List<DummyEntity> execute(OpenJPAEntityManagerFactorySPI emf, long timeout,
+        boolean stale) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            TypedQuery<DummyEntity> q = em.createQuery(QUERY, DummyEntity.class)
+                .setParameter("name", "name%")
+                .setHint(QueryHints.HINT_QUERY_CACHE_TIMEOUT, timeout);
+            if (stale)
+                q.setHint(QueryHints.HINT_QUERY_CACHE_STALE_WHILE_REVALIDATE, true);
+            return new ArrayList<>(q.getResultList());
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void update(OpenJPAEntityManagerFactorySPI emf, String sql) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createNativeQuery(sql).executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static int selects(Thread thread) {
+        int count = 0;
+        synchronized (SELECTS) {
+            for (Thread t : SELECTS)
+                if (t == thread)
+                    count++;
+        }
+        return count;
+    }
+
+    /**
+     * Executes the query in its own thread.
+     */
+    private static class Executing extends Thread {
+        private final OpenJPAEntityManagerFactorySPI _emf;
+        private final long _timeout;
+        private final boolean _stale;
+        volatile int size = -1;
+
+        Executing(OpenJPAEntityManagerFactorySPI emf, long timeout, boolean stale) {
+            _emf = emf;
+            _timeout = timeout;
+            _stale = stale;
+        }
+
+        @Override
+        public void run() {
+            size = execute(_emf, _timeout, _stale).size();
+        }
+    }
+
+    /**
+     * Records the threads executing selects, and holds the selects of the
+     * blocked thread until released.
+     */
+    public static class Listener extends AbstractJDBCListener {
+
+        @Override
+        public void beforeExecuteStatement(JDBCEvent event) {
+            if (event.getSQL() == null || !event.getSQL().startsWith("SELECT"))
+                return;
+            Thread thread = Thread.currentThread();
+            SELECTS.add(thread);
+            if (thread == _blocked) {
+                _entered.countDown();
+                try {
+                    assertTrue(_release.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException ie) {
+                    throw new IllegalStateException(ie);
+                }
+            }
+        }
+    }
+}
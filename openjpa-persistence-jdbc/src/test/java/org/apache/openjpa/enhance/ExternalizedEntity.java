@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.enhance;
+
+import java.net.URL;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.apache.openjpa.persistence.Externalizer;
+import org.apache.openjpa.persistence.Factory;
+import org.apache.openjpa.persistence.Persistent;
+
+@Entity
+public class ExternalizedEntity {
+    @Id
+    private int id;
+
+    // externalized through an instance method, created by a static factory
+    @Persistent
+    @Externalizer("toExternal")
+    @Factory("org.apache.openjpa.enhance.ExternalizedEntity$Money.parse")
+    private Money price;
+
+    // externalized through an instance method, created by its constructor
+    @Persistent
+    @Externalizer("toExternalForm")
+    private URL link;
+
+    public ExternalizedEntity() {
+    }
+
+    public ExternalizedEntity(int id, Money price, URL link) {
+        this.id = id;
+        this.price = price;
+        this.link = link;
+    }
+
+    public Money getPrice() {
+        return price;
+    }
+
+    public URL getLink() {
+        return link;
+    }
+
+    public static class Money {
+        private final long cents;
+
+        public Money(long cents) {
+            this.cents = cents;
+        }
+
+        public long getCents() {
+            return cents;
+        }
+
+        public String toExternal() {
+            return Long.toString(cents);
+        }
+
+        public static Money parse(String str) {
+            return new Money(Long.parseLong(str));
+        }
+    }
+}
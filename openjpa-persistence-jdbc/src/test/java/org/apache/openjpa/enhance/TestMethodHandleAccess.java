@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.enhance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Test;
+
+/**
+ * Field access of unenhanced types and externalizer and factory
+ * invocation through cached method handles.
+ */
+public class TestMethodHandleAccess extends AbstractPersistenceTestCase {
+
+    @Test
+    public void testUnenhancedFieldAccess() {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { UnenhancedHandleEntity.class },
+            "openjpa.RuntimeUnenhancedClasses", "supported");
+        persist(emf, new UnenhancedHandleEntity(1, 10L, true, "a"));
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        UnenhancedHandleEntity pc = em.find(UnenhancedHandleEntity.class, 1);
+        assertEquals(10L, pc.getAmount());
+        assertTrue(pc.isActive());
+        assertEquals("a", pc.getLabel());
+        pc.setAmount(11L);
+        em.getTransaction().commit();
+        em.close();
+
+        em = emf.createEntityManager();
+        pc = em.find(UnenhancedHandleEntity.class, 1);
+        assertEquals(11L, pc.getAmount());
+        em.close();
+    }
+
+    @Test
+    public void testExternalizerAndFactory() throws Exception {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { ExternalizedEntity.class });
+        persist(emf, new ExternalizedEntity(1,
+            new ExternalizedEntity.Money(250),
+            new URL("http://openjpa.apache.org/")));
+
+        EntityManager em = emf.createEntityManager();
+        ExternalizedEntity pc = em.find(ExternalizedEntity.class, 1);
+        assertEquals(250, pc.getPrice().getCents());
+        assertEquals(new URL("http://openjpa.apache.org/"), pc.getLink());
+        assertEquals(1L, em.createQuery("select count(e) from "
+            + "ExternalizedEntity e where e.price = :price")
+            .setParameter("price", new ExternalizedEntity.Money(250))
+            .getSingleResult());
+        em.close();
+    }
+
+    @Test
+    public void testNullExternalizedValues() {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { ExternalizedEntity.class });
+        persist(emf, new ExternalizedEntity(1, null, null));
+
+        EntityManager em = emf.createEntityManager();
+        ExternalizedEntity pc = em.find(ExternalizedEntity.class, 1);
+        assertEquals(null, pc.getPrice());
+        assertEquals(null, pc.getLink());
+        em.close();
+    }
+}
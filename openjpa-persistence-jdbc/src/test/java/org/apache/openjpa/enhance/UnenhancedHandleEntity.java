@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.enhance;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+@Entity
+public class UnenhancedHandleEntity {
+    @Id
+    private int id;
+
+    private long amount;
+
+    private boolean active;
+
+    private String label;
+
+    public UnenhancedHandleEntity() {
+    }
+
+    public UnenhancedHandleEntity(int id, long amount, boolean active,
+        String label) {
+        this.id = id;
+        this.amount = amount;
+        this.active = active;
+        this.label = label;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public void setAmount(long amount) {
+        this.amount = amount;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.kernel.entities.DummyEntity;
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Bulk updates and deletes that select the ids of the rows they change for
+ * update, and evict only those instances from the data cache, or all
+ * instances of the type when there are too many or the rows can not be
+ * locked.
+ */
+public class TestBulkUpdateEviction extends AbstractPersistenceTestCase {
+
+    private static final int COUNT = 20;
+    private static final String UPDATE = "update DummyEntity d set d.name = 'x' where d.id < 5";
+
+    private static final List<String> SQL = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+        SQL.clear();
+    }
+
+    @Test
+    public void testUpdateEvictsChangedInstances() {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF(100, "derby");
+        assertEquals(5, execute(emf, UPDATE));
+
+        Cache cache = emf.getCache();
+        for (int i = 0; i < COUNT; i++)
+            assertEquals(String.valueOf(i), i >= 5, cache.contains(DummyEntity.class, i));
+        assertTrue(selectedForUpdate());
+
+        EntityManager em = emf.createEntityManager();
+        assertEquals("x", em.find(DummyEntity.class, 1).getName());
+        assertEquals("name5", em.find(DummyEntity.class, 5).getName());
+        em.close();
+    }
+
+    @Test
+    public void testDeleteEvictsDeletedInstances() {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF(100, "derby");
+        assertEquals(5, execute(emf, "delete from DummyEntity d where d.id >= 15"));
+
+        Cache cache = emf.getCache();
+        for (int i = 0; i < COUNT; i++)
+            assertEquals(String.valueOf(i), i < 15, cache.contains(DummyEntity.class, i));
+
+        EntityManager em = emf.createEntityManager();
+        assertNull(em.find(DummyEntity.class, 15));
+        em.close();
+    }
+
+    @Test
+    public void testMoreChangesThanLimitEvictType() {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF(3, "derby");
+        assertEquals(5, execute(emf, UPDATE));
+        assertNothingCached(emf);
+    }
+
+    @Test
+    public void testRowsThatCanNotBeLockedEvictType() {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF(100, "derby(SimulateLocking=true)");
+        assertEquals(5, execute(emf, UPDATE));
+        assertNothingCached(emf);
+        assertFalse(selectedForUpdate());
+
+        emf = createCachedEMF(100, "derby(SupportsSelectForUpdate=false)");
+        assertEquals(5, execute(emf, UPDATE));
+        assertNothingCached(emf);
+    }
+
+    @Test
+    public void testNoLimitEvictsType() {
+        OpenJPAEntityManagerFactorySPI emf = createCachedEMF(0, "derby");
+        assertEquals(5, execute(emf, UPDATE));
+        assertNothingCached(emf);
+        assertFalse(selectedForUpdate());
+    }
+
+    private OpenJPAEntityManagerFactorySPI createCachedEMF(int limit, String dict) {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(new Class<?>[] { DummyEntity.class },
+            "openjpa.DataCache", "true",
+            "openjpa.RemoteCommitProvider", "sjvm",
+            "openjpa.BulkUpdateEvictionLimit", String.valueOf(limit),
+            "openjpa.jdbc.DBDictionary", dict,
+            "openjpa.jdbc.JDBCListeners", Listener.class.getName());
+        for (int i = 0; i < COUNT; i++)
+            persist(emf, new DummyEntity("name" + i, i));
+
+        Cache cache = emf.getCache();
+        for (int i = 0; i < COUNT; i++)
+            assertTrue(cache.contains(DummyEntity.class, i));
+        SQL.clear();
+        return emf;
+    }
+
+    private static int execute(OpenJPAEntityManagerFactorySPI emf, String jpql) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int count = em.createQuery(jpql).executeUpdate();
+            em.getTransaction().commit();
+            return count;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void assertNothingCached(OpenJPAEntityManagerFactorySPI emf) {
+        for (int i = 0; i < COUNT; i++)
+            assertFalse(String.valueOf(i), emf.getCache().contains(DummyEntity.class, i));
+    }
+
+    private static boolean selectedForUpdate() {
+        synchronized (SQL) {
+            for (String sql : SQL)
+                if (sql.startsWith("SELECT") && sql.contains("FOR UPDATE"))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the SQL of the executed statements.
+     */
+    public static class Listener extends AbstractJDBCListener {
+
+        @Override
+        public void beforeExecuteStatement(JDBCEvent event) {
+            if (event.getSQL() != null)
+                SQL.add(event.getSQL());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.kernel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.kernel.entities.DummyEntity;
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Collection-valued parameters of IN expressions padded to the next power of
+ * two, or to a multiple of the IN clause limit, which select the same rows
+ * as the collection itself.
+ */
+public class TestInClausePadding extends AbstractPersistenceTestCase {
+
+    private static final String QUERY = "select d.id from DummyEntity d where d.id in :ids order by d.id";
+
+    private static final List<String> SQL = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() {
+        SQL.clear();
+    }
+
+    @Test
+    public void testPaddedToPowerOfTwo() {
+        OpenJPAEntityManagerFactorySPI emf = createPopulatedEMF("derby(InClausePadding=true)");
+        assertSelects(emf, Arrays.asList(1), 1);
+        assertSelects(emf, Arrays.asList(1, 2), 2);
+        assertSelects(emf, Arrays.asList(1, 2, 3), 4);
+        assertSelects(emf, Arrays.asList(1, 2, 3, 4, 5), 8);
+        assertSelects(emf, Arrays.asList(5, 4, 3, 2, 1, 1, 99), 8);
+    }
+
+    @Test
+    public void testPaddedToMultipleOfLimit() {
+        OpenJPAEntityManagerFactorySPI emf = createPopulatedEMF(
+            "derby(InClausePadding=true,InClauseLimit=4)");
+        assertSelects(emf, Arrays.asList(1, 2, 3), 4);
+        assertSelects(emf, Arrays.asList(1, 2, 3, 4, 5, 6), 8);
+        assertSelects(emf, Arrays.asList(10, 11, 12, 13, 14, 15, 16, 17, 18), 12);
+    }
+
+    @Test
+    public void testNotPaddedByDefault() {
+        OpenJPAEntityManagerFactorySPI emf = createPopulatedEMF("derby");
+        assertSelects(emf, Arrays.asList(1, 2, 3), 3);
+        assertSelects(emf, Arrays.asList(1, 2, 3, 4, 5), 5);
+    }
+
+    private OpenJPAEntityManagerFactorySPI createPopulatedEMF(String dict) {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(new Class<?>[] { DummyEntity.class },
+            "openjpa.jdbc.DBDictionary", dict,
+            "openjpa.jdbc.JDBCListeners", Listener.class.getName());
+        List<Object> pcs = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            pcs.add(new DummyEntity("name" + i, i));
+        persist(emf, pcs.toArray());
+        return emf;
+    }
+
+    private static void assertSelects(OpenJPAEntityManagerFactorySPI emf, List<Integer> ids,
+        int params) {
+        SQL.clear();
+        EntityManager em = emf.createEntityManager();
+        List<Integer> found;
+        try {
+            found = em.createQuery(QUERY, Integer.class).setParameter("ids", ids)
+                .getResultList();
+        } finally {
+            em.close();
+        }
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            if (ids.contains(i))
+                expected.add(i);
+        assertEquals(expected, found);
+
+        String select = null;
+        synchronized (SQL) {
+            for (String sql : SQL)
+                if (sql.startsWith("SELECT"))
+                    select = sql;
+        }
+        assertEquals(select, params, select.length() - select.replace("?", "").length());
+    }
+
+    /**
+     * Records the SQL of the executed statements.
+     */
+    public static class Listener extends AbstractJDBCListener {
+
+        @Override
+        public void beforeExecuteStatement(JDBCEvent event) {
+            if (event.getSQL() != null)
+                SQL.add(event.getSQL());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.event.AbstractLifecycleListener;
+import org.apache.openjpa.event.LifecycleEvent;
+
+import org.apache.openjpa.kernel.entities.JournalEntity;
+import org.apache.openjpa.kernel.entities.UnenhancedJournalEntity;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerSPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Test;
+
+/**
+ * Flushes with the dirty journal of {@link BrokerImpl} enabled.
+ */
+public class TestDirtyJournal extends AbstractPersistenceTestCase {
+
+    private static final String JOURNAL = "DirtyJournal=true";
+
+    @Test
+    public void testFlushesJournaledInstances() {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { JournalEntity.class },
+            "openjpa.BrokerImpl", JOURNAL);
+        persist(emf, new JournalEntity(1, "a"), new JournalEntity(2, "b"));
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.find(JournalEntity.class, 1).setName("a2");
+        em.find(JournalEntity.class, 2);
+        BrokerImpl broker = (BrokerImpl) JPAFacadeHelper.toBroker(em);
+        assertEquals(1, broker.getJournaledStates().size());
+        em.getTransaction().commit();
+        assertTrue(broker.getJournaledStates().isEmpty());
+        em.close();
+
+        assertEquals("a2", findName(emf, 1));
+        assertEquals("b", findName(emf, 2));
+    }
+
+    @Test
+    public void testFlushesInstancesDirtiedDuringFlush() {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { JournalEntity.class },
+            "openjpa.BrokerImpl", JOURNAL);
+        JournalEntity partner = new JournalEntity(2, "b");
+        JournalEntity owner = new JournalEntity(1, "a");
+        owner.setPartner(partner);
+        persist(emf, partner, owner);
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        // make the partner transactional but clean
+        em.find(JournalEntity.class, 2).setName("b2");
+        em.flush();
+        // the pre-update callback changes the partner while flushing
+        em.find(JournalEntity.class, 1).setName("a2");
+        em.flush();
+        BrokerImpl broker = (BrokerImpl) JPAFacadeHelper.toBroker(em);
+        assertTrue(broker.getJournaledStates().isEmpty());
+        em.getTransaction().commit();
+        em.close();
+
+        assertEquals("a2", findName(emf, 1));
+        assertEquals("touched by 1", findName(emf, 2));
+    }
+
+    @Test
+    public void testSkipsInstancesCleanSinceLastFlush() {
+        assertEquals(2, countStoresOfFlushed("DirtyJournal=false"));
+        assertEquals(1, countStoresOfFlushed(JOURNAL));
+    }
+
+    /**
+     * Flush a change to one instance, then a change to another, and return
+     * the number of times the first one is visited before being stored.
+     */
+    private int countStoresOfFlushed(String brokerImpl) {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { JournalEntity.class },
+            "openjpa.BrokerImpl", brokerImpl);
+        persist(emf, new JournalEntity(1, "a"), new JournalEntity(2, "b"));
+
+        final List<Object> stored = new ArrayList<>();
+        OpenJPAEntityManagerSPI em = (OpenJPAEntityManagerSPI) emf.createEntityManager();
+        em.addLifecycleListener(new AbstractLifecycleListener() {
+            @Override
+            protected void eventOccurred(LifecycleEvent event) {
+                if (event.getType() == LifecycleEvent.BEFORE_STORE)
+                    stored.add(event.getSource());
+            }
+        }, JournalEntity.class);
+        em.getTransaction().begin();
+        JournalEntity first = em.find(JournalEntity.class, 1);
+        first.setName("a2");
+        em.flush();
+        em.find(JournalEntity.class, 2).setName("b2");
+        em.flush();
+        em.getTransaction().commit();
+        em.close();
+
+        int count = 0;
+        for (Object o : stored)
+            if (o == first)
+                count++;
+        return count;
+    }
+
+    @Test
+    public void testDetectsChangesToUntrackedInstances() {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { UnenhancedJournalEntity.class },
+            "openjpa.BrokerImpl", JOURNAL,
+            "openjpa.RuntimeUnenhancedClasses", "supported");
+        persist(emf, new UnenhancedJournalEntity(1, "a"));
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.find(UnenhancedJournalEntity.class, 1).setName("a2");
+        em.getTransaction().commit();
+        em.close();
+
+        em = emf.createEntityManager();
+        assertEquals("a2",
+            em.find(UnenhancedJournalEntity.class, 1).getName());
+        em.close();
+    }
+
+    @Test
+    public void testKeepsJournalWhenFlushFails() {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(
+            new Class<?>[] { JournalEntity.class },
+            "openjpa.BrokerImpl", JOURNAL);
+        persist(emf, new JournalEntity(1, "a"));
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        JournalEntity pc = em.find(JournalEntity.class, 1);
+        // longer than the column allows
+        pc.setName("0123456789012345678901234567890123456789");
+        BrokerImpl broker = (BrokerImpl) JPAFacadeHelper.toBroker(em);
+        try {
+            em.flush();
+            fail("flush of oversized value succeeded");
+        } catch (RuntimeException re) {
+            // expected
+        }
+        assertEquals(1, broker.getJournaledStates().size());
+        em.getTransaction().rollback();
+        em.close();
+
+        assertEquals("a", findName(emf, 1));
+    }
+
+    private String findName(OpenJPAEntityManagerFactorySPI emf, int id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(JournalEntity.class, id).getName();
+        } finally {
+            em.close();
+        }
+    }
+}
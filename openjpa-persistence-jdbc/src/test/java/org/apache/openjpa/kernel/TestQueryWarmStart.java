@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.conf.CacheMarshallersValue;
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAVersionAndConfigurationTypeValidationPolicy;
+import org.apache.openjpa.kernel.entities.DummyEntity;
+import org.apache.openjpa.kernel.entities.JournalEntity;
+import org.apache.openjpa.kernel.jpql.JPQLParser;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Recording the queries of the compilation cache when a factory closes, and
+ * compiling them again when the next factory starts.
+ */
+public class TestQueryWarmStart extends AbstractPersistenceTestCase {
+
+    private static final String FIND = "select d from DummyEntity d where d.id = :id";
+    private static final String COUNT = "select count(d) from DummyEntity d";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "queries.ser");
+    }
+
+    @Test
+    public void testSnapshotRoundTrip() throws Exception {
+        QueryWarmStart.Snapshot snapshot = new QueryWarmStart.Snapshot();
+        snapshot.version = QueryWarmStart.FORMAT_VERSION;
+        snapshot.fingerprint = "fingerprint";
+        snapshot.shapes.add(shape(FIND, null, true));
+        snapshot.shapes.add(shape(COUNT, DummyEntity.class.getName(), false));
+
+        QueryWarmStart.Snapshot copy = roundTrip(snapshot);
+        assertEquals(QueryWarmStart.FORMAT_VERSION, copy.version);
+        assertEquals("fingerprint", copy.fingerprint);
+        assertEquals(Arrays.asList(FIND, COUNT), copy.getQueries());
+        assertNull(copy.shapes.get(0).candidate);
+        assertTrue(copy.shapes.get(0).subclasses);
+        assertEquals(DummyEntity.class.getName(), copy.shapes.get(1).candidate);
+        assertFalse(copy.shapes.get(1).subclasses);
+        assertEquals(JPQLParser.LANG_JPQL, copy.shapes.get(0).language);
+    }
+
+    @Test
+    public void testSnapshotOfOtherFormatIsEmpty() throws Exception {
+        QueryWarmStart.Snapshot snapshot = new QueryWarmStart.Snapshot();
+        snapshot.version = QueryWarmStart.FORMAT_VERSION + 1;
+        snapshot.fingerprint = "fingerprint";
+        snapshot.shapes.add(shape(FIND, null, true));
+
+        QueryWarmStart.Snapshot copy = roundTrip(snapshot);
+        assertEquals(QueryWarmStart.FORMAT_VERSION + 1, copy.version);
+        assertNull(copy.fingerprint);
+        assertEquals(0, copy.size());
+    }
+
+    @Test
+    public void testRecordedQueriesAreCompiledOnStart() {
+        OpenJPAEntityManagerFactorySPI emf = createWarmEMF(DummyEntity.class);
+        EntityManager em = emf.createEntityManager();
+        warm(emf);
+        for (int i = 0; i < 3; i++)
+            em.createQuery(FIND).setParameter("id", i).getResultList();
+        em.createQuery(COUNT).getSingleResult();
+        em.close();
+        emf.close();
+        assertTrue(file.exists());
+
+        emf = createWarmEMF(DummyEntity.class);
+        QueryWarmStart.Snapshot snapshot = load(emf);
+        assertEquals(2, snapshot.size());
+        assertTrue(snapshot.getQueries().containsAll(Arrays.asList(FIND, COUNT)));
+
+        emf.createEntityManager().close();
+        warm(emf);
+        assertTrue(isCompiled(emf, FIND));
+        assertTrue(isCompiled(emf, COUNT));
+    }
+
+    @Test
+    public void testOtherPersistentTypesIgnoreRecord() {
+        OpenJPAEntityManagerFactorySPI emf = createWarmEMF(DummyEntity.class);
+        EntityManager em = emf.createEntityManager();
+        warm(emf);
+        em.createQuery(COUNT).getSingleResult();
+        em.close();
+        emf.close();
+        assertTrue(file.exists());
+
+        // the record is read, but made for another set of persistent types
+        emf = createWarmEMF(DummyEntity.class, JournalEntity.class);
+        assertEquals(Arrays.asList(COUNT), load(emf).getQueries());
+        emf.createEntityManager().close();
+        warm(emf);
+        assertFalse(isCompiled(emf, COUNT));
+    }
+
+    private OpenJPAEntityManagerFactorySPI createWarmEMF(Class<?>... types) {
+        String path = file.getAbsolutePath();
+        return createEMF(types,
+            "openjpa.QueryWarmStart", "true",
+            "openjpa.CacheMarshallers", "default(Id=" + QueryWarmStart.class.getName()
+                + ",OutputFile=" + path + ",InputURL=" + file.toURI()
+                + ",ValidationPolicy=" + OpenJPAVersionAndConfigurationTypeValidationPolicy.class.getName() + ")");
+    }
+
+    /**
+     * Compiles the recorded queries in the calling thread, so that their
+     * compilation does not depend on the background thread of the factory.
+     */
+    private static void warm(OpenJPAEntityManagerFactorySPI emf) {
+        emf.getConfiguration().getQueryWarmStartInstance()
+            .warm(JPAFacadeHelper.toBrokerFactory(emf));
+    }
+
+    private static QueryWarmStart.Snapshot load(OpenJPAEntityManagerFactorySPI emf) {
+        return (QueryWarmStart.Snapshot) CacheMarshallersValue.getMarshallerById(
+            emf.getConfiguration(), QueryWarmStart.class.getName()).load();
+    }
+
+    private static boolean isCompiled(OpenJPAEntityManagerFactorySPI emf, String query) {
+        OpenJPAConfiguration conf = emf.getConfiguration();
+        Map<?, ?> cache = conf.getQueryCompilationCacheInstance();
+        for (Object key : cache.keySet().toArray())
+            if (key instanceof QueryImpl.CompilationKey
+                && query.equals(((QueryImpl.CompilationKey) key).query))
+                return true;
+        return false;
+    }
+
+    private static QueryWarmStart.Shape shape(String query, String candidate,
+        boolean subclasses) {
+        QueryWarmStart.Shape shape = new QueryWarmStart.Shape();
+        shape.language = JPQLParser.LANG_JPQL;
+        shape.query = query;
+        shape.candidate = candidate;
+        shape.subclasses = subclasses;
+        return shape;
+    }
+
+    private static QueryWarmStart.Snapshot roundTrip(QueryWarmStart.Snapshot snapshot)
+        throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(snapshot);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (QueryWarmStart.Snapshot) in.readObject();
+        }
+    }
+}
@@ -251,6 +251,21 @@ public class DummyFetchConfiguration implements FetchConfiguration {
         return null;
     }
 
+    @Override
+    public int getResultSpillThreshold() {
+        return 0;
+    }
+
+    @Override
+    public FetchConfiguration setResultSpillThreshold(int threshold) {
+        return null;
+    }
+
+    @Override
+    public ResultList<?> newEagerResultList(ResultObjectProvider rop) {
+        return null;
+    }
+
     @Override
     public void setHint(String name, Object value, Object original) {
 
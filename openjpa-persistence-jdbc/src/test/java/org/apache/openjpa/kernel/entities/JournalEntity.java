@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.entities;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+
+//Used for tests; touches its partner whenever it is updated
+@Entity
+@Table(name = "journal_tests")
+public class JournalEntity {
+
+    @Id
+    private int id;
+
+    @Column(length = 35)
+    private String name;
+
+    @ManyToOne
+    private JournalEntity partner;
+
+    public JournalEntity() {
+    }
+
+    public JournalEntity(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    @PreUpdate
+    public void touchPartner() {
+        if (partner != null)
+            partner.setName("touched by " + id);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public JournalEntity getPartner() {
+        return partner;
+    }
+
+    public void setPartner(JournalEntity partner) {
+        this.partner = partner;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.exps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.openjpa.kernel.entities.JournalEntity;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Ordering and grouping of queries evaluated in memory over a candidate
+ * collection, which give the results of the same queries run in the
+ * database.
+ */
+public class TestInMemoryOrdering extends AbstractPersistenceTestCase {
+
+    private static final String[] NAMES = { "b", "a", "c", "a", "b", "a" };
+
+    private OpenJPAEntityManagerFactorySPI emf;
+    private OpenJPAEntityManager em;
+    private List<JournalEntity> candidates;
+
+    @Before
+    public void setUp() {
+        // the same query string is run in the database and in memory, so it
+        // must not be replaced by its prepared SQL
+        emf = createEMF(new Class<?>[] { JournalEntity.class },
+            "openjpa.jdbc.QuerySQLCache", "false");
+        List<JournalEntity> pcs = new ArrayList<>();
+        for (int i = 0; i < 12; i++)
+            pcs.add(new JournalEntity(i, NAMES[i % NAMES.length]));
+        for (int i = 0; i < 12; i++)
+            pcs.get(i).setPartner(pcs.get((i * 5) % 12));
+        persist(emf, pcs.toArray());
+
+        em = OpenJPAPersistence.cast(emf.createEntityManager());
+        candidates = em.createQuery("select j from JournalEntity j",
+            JournalEntity.class).getResultList();
+    }
+
+    @After
+    public void tearDown() {
+        em.close();
+    }
+
+    @Test
+    public void testOrderingOnSeveralValues() {
+        assertSameResults("select j from JournalEntity j order by j.name, j.id desc");
+        assertSameResults("select j from JournalEntity j order by j.name desc, j.id");
+        assertSameResults("select j from JournalEntity j order by j.partner.name, j.name desc, j.id");
+    }
+
+    @Test
+    public void testOrderingOfProjections() {
+        // ordering values both selected and not selected as results
+        assertSameResults("select j.name, j.id from JournalEntity j order by j.id desc");
+        assertSameResults("select j.id from JournalEntity j order by j.name, j.id desc");
+        assertSameResults("select j.id, j.partner.id from JournalEntity j "
+            + "order by j.partner.name desc, j.id");
+    }
+
+    @Test
+    public void testGrouping() {
+        assertSameResults("select j.name, count(j) from JournalEntity j "
+            + "group by j.name order by j.name");
+        assertSameResults("select j.name, max(j.id), min(j.id) from JournalEntity j "
+            + "group by j.name order by j.name desc");
+        assertSameResults("select j.name, j.partner.name, count(j) from JournalEntity j "
+            + "group by j.name, j.partner.name order by j.name, j.partner.name");
+    }
+
+    @Test
+    public void testGroupingWithHaving() {
+        assertSameResults("select j.name, sum(j.id) from JournalEntity j "
+            + "group by j.name having count(j) > 2 order by j.name");
+    }
+
+    @Test
+    public void testNullsLastAscendingFirstDescending() {
+        candidates.get(0).setName(null);
+        List<?> asc = inMemory("select j.name from JournalEntity j order by j.name, j.id");
+        assertNull(asc.get(asc.size() - 1));
+        assertEquals("a", asc.get(0));
+        List<?> desc = inMemory("select j.name from JournalEntity j order by j.name desc, j.id");
+        assertNull(desc.get(0));
+        assertEquals("c", desc.get(1));
+    }
+
+    private void assertSameResults(String jpql) {
+        List<?> expected = em.createQuery(jpql).getResultList();
+        List<?> actual = inMemory(jpql);
+        assertEquals(jpql, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Object e = expected.get(i);
+            Object a = actual.get(i);
+            if (e instanceof Object[])
+                assertArrayEquals(jpql + " " + i, (Object[]) e, (Object[]) a);
+            else
+                assertEquals(jpql + " " + i + " " + Arrays.asList(e, a), e, a);
+        }
+    }
+
+    private List<?> inMemory(String jpql) {
+        return em.createQuery(jpql).setCandidateCollection(candidates).getResultList();
+    }
+}
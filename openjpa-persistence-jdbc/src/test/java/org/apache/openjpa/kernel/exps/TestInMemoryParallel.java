@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.exps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.openjpa.kernel.entities.JournalEntity;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Queries over a large candidate collection evaluated in parallel, which
+ * give the same results in the same order as evaluated serially, whether
+ * or not the candidates are managed. The queries run on a fork-join pool of
+ * their own, whose parallelism does not depend on the processors available.
+ */
+public class TestInMemoryParallel extends AbstractPersistenceTestCase {
+
+    private static final int COUNT = 1200;
+    private static final String[] NAMES = { "b", "a", "c", "a", "d" };
+
+    private OpenJPAEntityManagerFactorySPI emf;
+    private OpenJPAEntityManager em;
+    private List<JournalEntity> candidates;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+        emf = createEMF(new Class<?>[] { JournalEntity.class });
+        List<JournalEntity> pcs = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++)
+            pcs.add(new JournalEntity(i, NAMES[i % NAMES.length]));
+        for (int i = 0; i < COUNT; i++)
+            pcs.get(i).setPartner(pcs.get((i * 7) % COUNT));
+        persist(emf, pcs.toArray());
+
+        em = OpenJPAPersistence.cast(emf.createEntityManager());
+        candidates = new ArrayList<>(em.createQuery("select j from JournalEntity j",
+            JournalEntity.class).getResultList());
+    }
+
+    @After
+    public void tearDown() {
+        if (em != null)
+            em.close();
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFilterAndOrdering() {
+        assertParallelAsSerial("select j from JournalEntity j "
+            + "where j.id >= 100 and j.name <> 'c' order by j.name, j.id desc");
+        assertParallelAsSerial("select j from JournalEntity j "
+            + "where j.partner.name = 'a' or j.id < 10 order by j.partner.id desc");
+        assertParallelAsSerial("select j from JournalEntity j "
+            + "where upper(j.name) = 'B' and mod(j.id, 3) = 1");
+    }
+
+    @Test
+    public void testEqualValuesKeepCandidateOrder() {
+        // the sort is stable, so candidates of the same name keep their order
+        assertParallelAsSerial("select j from JournalEntity j order by j.name");
+        assertParallelAsSerial("select j from JournalEntity j order by j.partner.name desc");
+    }
+
+    @Test
+    public void testUnmanagedCandidatesAreDeferred() {
+        for (int i = 0; i < 300; i++) {
+            JournalEntity pc = new JournalEntity(COUNT + i, NAMES[i % NAMES.length]);
+            pc.setPartner(candidates.get(i));
+            candidates.add(i * 4, pc);
+        }
+        assertParallelAsSerial("select j from JournalEntity j "
+            + "where j.partner.name <> 'a' order by j.name desc, j.id");
+    }
+
+    @Test
+    public void testParallelEvaluationLeavesInstancesClean() {
+        assertParallelAsSerial("select j from JournalEntity j where j.name = 'a'");
+        for (JournalEntity pc : candidates)
+            assertFalse(OpenJPAPersistence.cast(em).isDirty(pc));
+    }
+
+    private void assertParallelAsSerial(String jpql) {
+        emf.getConfiguration().setInMemoryParallelThreshold(0);
+        List<?> serial = inMemory(jpql);
+        emf.getConfiguration().setInMemoryParallelThreshold(2);
+        List<?> parallel = inMemory(jpql);
+        assertFalse(jpql, serial.isEmpty());
+        assertEquals(jpql, serial, parallel);
+    }
+
+    private List<?> inMemory(final String jpql) {
+        return pool.submit(new Callable<List<?>>() {
+            @Override
+            public List<?> call() {
+                return new ArrayList<>(em.createQuery(jpql)
+                    .setCandidateCollection(candidates).getResultList());
+            }
+        }).join();
+    }
+}
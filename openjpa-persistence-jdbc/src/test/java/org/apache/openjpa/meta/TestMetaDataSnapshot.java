@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.meta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.conf.CacheMarshallerImpl;
+import org.apache.openjpa.conf.CacheMarshallersValue;
+import org.apache.openjpa.conf.ClasspathValidationPolicy;
+import org.apache.openjpa.conf.MetaDataCacheMaintenance;
+import org.apache.openjpa.kernel.entities.JournalEntity;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * A preloaded metadata repository stored by the first factory of a unit
+ * whose cache marshaller stores on miss, and restored by the next factory
+ * instead of being preloaded again.
+ */
+public class TestMetaDataSnapshot extends AbstractPersistenceTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRepositoryStoredThenRestored() throws Exception {
+        File snapshot = new File(folder.getRoot(), "metadata.ser");
+
+        OpenJPAEntityManagerFactorySPI emf = createSnapshotEMF(snapshot);
+        emf.createEntityManager().close();
+        assertTrue(snapshot.isFile());
+        assertFalse(getMarshaller(emf).isStoreRequired());
+        emf.close();
+
+        // a snapshot that is stored again would have a new modification time
+        assertTrue(snapshot.setLastModified(1000L));
+        long length = snapshot.length();
+
+        emf = createSnapshotEMF(snapshot);
+        EntityManager em = emf.createEntityManager();
+        assertFalse(getMarshaller(emf).isStoreRequired());
+        assertEquals(1000L, snapshot.lastModified());
+        assertEquals(length, snapshot.length());
+
+        MetaDataRepository repos = emf.getConfiguration()
+            .getMetaDataRepositoryInstance();
+        assertNotNull(repos.getCachedMetaData(JournalEntity.class));
+        assertEquals(JournalEntity.class, repos.getMetaData("JournalEntity",
+            getClass().getClassLoader(), true).getDescribedType());
+
+        JournalEntity partner = new JournalEntity(2, "b");
+        JournalEntity owner = new JournalEntity(1, "a");
+        owner.setPartner(partner);
+        em.getTransaction().begin();
+        em.persist(partner);
+        em.persist(owner);
+        em.getTransaction().commit();
+        em.clear();
+
+        assertEquals("b", em.find(JournalEntity.class, 1).getPartner().getName());
+        List<String> names = em.createQuery("select j.name from JournalEntity j "
+            + "where j.partner is not null", String.class).getResultList();
+        assertEquals(1, names.size());
+        assertEquals("a", names.get(0));
+        em.close();
+    }
+
+    private OpenJPAEntityManagerFactorySPI createSnapshotEMF(File snapshot)
+        throws Exception {
+        return createEMF(new Class<?>[] { JournalEntity.class },
+            "openjpa.MetaDataRepository", "Preload=true",
+            "openjpa.CacheMarshallers", "default(Id="
+                + MetaDataCacheMaintenance.class.getName()
+                + ",OutputFile=" + snapshot.getAbsolutePath()
+                + ",InputURL=" + snapshot.toURI().toURL()
+                + ",StoreOnMiss=true,ValidationPolicy="
+                + ClasspathValidationPolicy.class.getName() + ")");
+    }
+
+    private static CacheMarshallerImpl getMarshaller(
+        OpenJPAEntityManagerFactorySPI emf) {
+        return (CacheMarshallerImpl) CacheMarshallersValue.getMarshallerById(
+            emf.getConfiguration(), MetaDataCacheMaintenance.class.getName());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.meta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.meta.entities.PreloadA;
+import org.apache.openjpa.meta.entities.PreloadB;
+import org.apache.openjpa.meta.entities.PreloadC;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Test;
+
+/**
+ * Preloading the metadata repository with several threads.
+ */
+public class TestParallelPreload extends AbstractPersistenceTestCase {
+
+    @Test
+    public void testParallelPreload() {
+        OpenJPAEntityManagerFactorySPI emf = createEMF(new Class<?>[] {
+            PreloadA.class, PreloadB.class, PreloadC.class },
+            "openjpa.MetaDataRepository", "Preload=true,PreloadThreads=3");
+        emf.createEntityManager().close();
+
+        MetaDataRepository repos = emf.getConfiguration()
+            .getMetaDataRepositoryInstance();
+        assertEquals(3, repos.getPreloadThreads());
+        for (Class<?> type : new Class<?>[] { PreloadA.class, PreloadB.class,
+            PreloadC.class })
+            assertNotNull(repos.getCachedMetaData(type));
+
+        EntityManager em = emf.createEntityManager();
+        em.createQuery("select a from PreloadA a").getResultList();
+        em.close();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.criteria;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import org.apache.openjpa.kernel.entities.JournalEntity;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Fingerprints of criteria queries, which are equal for the queries built of
+ * the same terms and differ for queries of another structure.
+ */
+public class TestCriteriaFingerprint extends AbstractPersistenceTestCase {
+
+    private OpenJPAEntityManagerFactorySPI emf;
+    private CriteriaBuilder cb;
+
+    @Before
+    public void setUp() {
+        emf = createEMF(new Class<?>[] { JournalEntity.class });
+        cb = emf.getCriteriaBuilder();
+    }
+
+    @Test
+    public void testSameTermsAreEqual() {
+        assertSameStructure(byName("a", true), byName("a", true));
+        assertSameStructure(byParameter("name"), byParameter("name"));
+        assertSameStructure(withSubquery(1), withSubquery(1));
+        assertSameStructure(joined(), joined());
+    }
+
+    @Test
+    public void testBoundValuesAreIgnored() {
+        CriteriaQuery<JournalEntity> q = byParameter("name");
+        CriteriaFingerprint before = fingerprint(q);
+        EntityManager em = emf.createEntityManager();
+        em.createQuery(q).setParameter("name", "a").getResultList();
+        em.close();
+        assertEquals(before, fingerprint(q));
+        assertEquals(fingerprint(byParameter("name")), fingerprint(q));
+    }
+
+    @Test
+    public void testOtherTermsDiffer() {
+        assertNotEquals(fingerprint(byName("a", true)), fingerprint(byName("b", true)));
+        assertNotEquals(fingerprint(byName("a", true)), fingerprint(byName("a", false)));
+        assertNotEquals(fingerprint(byParameter("name")), fingerprint(byParameter("other")));
+        assertNotEquals(fingerprint(withSubquery(1)), fingerprint(withSubquery(2)));
+        assertNotEquals(fingerprint(byName("a", true)), fingerprint(byParameter("name")));
+
+        CriteriaQuery<JournalEntity> distinct = byName("a", true);
+        distinct.distinct(true);
+        assertNotEquals(fingerprint(byName("a", true)), fingerprint(distinct));
+    }
+
+    @Test
+    public void testOtherOperatorsDiffer() {
+        CriteriaQuery<JournalEntity> gt = cb.createQuery(JournalEntity.class);
+        Root<JournalEntity> r = gt.from(JournalEntity.class);
+        gt.where(cb.gt(r.<Integer> get("id"), 1));
+
+        CriteriaQuery<JournalEntity> lt = cb.createQuery(JournalEntity.class);
+        r = lt.from(JournalEntity.class);
+        lt.where(cb.lt(r.<Integer> get("id"), 1));
+        assertNotEquals(fingerprint(gt), fingerprint(lt));
+    }
+
+    @Test
+    public void testReusedTermDiffersFromEqualTerms() {
+        // the same root twice, against two roots of the same type
+        CriteriaQuery<JournalEntity> once = cb.createQuery(JournalEntity.class);
+        Root<JournalEntity> r = once.from(JournalEntity.class);
+        once.select(r).where(cb.equal(r.get("name"), r.get("name")));
+
+        CriteriaQuery<JournalEntity> twice = cb.createQuery(JournalEntity.class);
+        Root<JournalEntity> r1 = twice.from(JournalEntity.class);
+        Root<JournalEntity> r2 = twice.from(JournalEntity.class);
+        twice.select(r1).where(cb.equal(r1.get("name"), r2.get("name")));
+        assertNotEquals(fingerprint(once), fingerprint(twice));
+
+        // the same parameter twice, against two parameters of the same name
+        CriteriaQuery<JournalEntity> shared = cb.createQuery(JournalEntity.class);
+        r = shared.from(JournalEntity.class);
+        ParameterExpression<String> p = cb.parameter(String.class, "name");
+        shared.where(cb.or(cb.equal(r.get("name"), p), cb.like(r.<String> get("name"), p)));
+
+        CriteriaQuery<JournalEntity> distinct = cb.createQuery(JournalEntity.class);
+        r = distinct.from(JournalEntity.class);
+        distinct.where(cb.or(cb.equal(r.get("name"), cb.parameter(String.class, "name")),
+            cb.like(r.<String> get("name"), cb.parameter(String.class, "name"))));
+        assertNotEquals(fingerprint(shared), fingerprint(distinct));
+    }
+
+    @Test
+    public void testEqualStructuresShareString() {
+        String cql = byName("a", true).toString();
+        assertSame(cql, byName("a", true).toString());
+        assertNotEquals(cql, byName("b", true).toString());
+    }
+
+    private CriteriaQuery<JournalEntity> byName(String name, boolean ascending) {
+        CriteriaQuery<JournalEntity> q = cb.createQuery(JournalEntity.class);
+        Root<JournalEntity> r = q.from(JournalEntity.class);
+        q.select(r).where(cb.equal(r.get("name"), name));
+        q.orderBy(ascending ? cb.asc(r.get("id")) : cb.desc(r.get("id")));
+        return q;
+    }
+
+    private CriteriaQuery<JournalEntity> byParameter(String param) {
+        CriteriaQuery<JournalEntity> q = cb.createQuery(JournalEntity.class);
+        Root<JournalEntity> r = q.from(JournalEntity.class);
+        q.select(r).where(cb.equal(r.get("name"), cb.parameter(String.class, param)));
+        return q;
+    }
+
+    private CriteriaQuery<JournalEntity> withSubquery(int id) {
+        CriteriaQuery<JournalEntity> q = cb.createQuery(JournalEntity.class);
+        Root<JournalEntity> r = q.from(JournalEntity.class);
+        Subquery<Integer> sq = q.subquery(Integer.class);
+        Root<JournalEntity> s = sq.from(JournalEntity.class);
+        sq.select(s.<Integer> get("id")).where(cb.gt(s.<Integer> get("id"), id));
+        q.select(r).where(r.get("id").in(sq));
+        return q;
+    }
+
+    private CriteriaQuery<Object[]> joined() {
+        CriteriaQuery<Object[]> q = cb.createQuery(Object[].class);
+        Root<JournalEntity> r = q.from(JournalEntity.class);
+        Join<JournalEntity, JournalEntity> partner = r.join("partner");
+        q.multiselect(r.get("name"), partner.get("name"));
+        q.groupBy(r.get("name"), partner.get("name"));
+        return q;
+    }
+
+    private static void assertSameStructure(CriteriaQuery<?> q1, CriteriaQuery<?> q2) {
+        CriteriaFingerprint fp1 = fingerprint(q1);
+        CriteriaFingerprint fp2 = fingerprint(q2);
+        assertEquals(fp1, fp2);
+        assertEquals(fp1.hashCode(), fp2.hashCode());
+    }
+
+    private static CriteriaFingerprint fingerprint(CriteriaQuery<?> q) {
+        return ((CriteriaQueryImpl<?>) q).getFingerprint();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Persistence;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.junit.After;
+
+/**
+ * Base class for tests that run against an in-memory Derby database.
+ * Each factory created through {@link #createEMF} gets its own database
+ * and is closed after the test.
+ */
+public abstract class AbstractPersistenceTestCase {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    static {
+        if (System.getProperty("derby.stream.error.file") == null)
+            System.setProperty("derby.stream.error.file", "target/derby.log");
+    }
+
+    private final List<OpenJPAEntityManagerFactorySPI> _emfs =
+        new ArrayList<>();
+
+    /**
+     * Create a factory for the given persistent types. The remaining
+     * arguments are property name and value pairs.
+     */
+    protected OpenJPAEntityManagerFactorySPI createEMF(Class<?>[] types,
+        Object... props) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("openjpa.ConnectionDriverName",
+            "org.apache.derby.jdbc.EmbeddedDriver");
+        map.put("openjpa.ConnectionURL", "jdbc:derby:memory:"
+            + getClass().getSimpleName() + DATABASES.incrementAndGet()
+            + ";create=true");
+        map.put("openjpa.jdbc.SynchronizeMappings",
+            "buildSchema(ForeignKeys=true)");
+        map.put("openjpa.Log", "DefaultLevel=WARN");
+        // test classes are enhanced at build time
+        map.put("openjpa.DynamicEnhancementAgent", "false");
+        StringBuilder names = new StringBuilder();
+        for (Class<?> type : types) {
+            if (names.length() > 0)
+                names.append(';');
+            names.append(type.getName());
+        }
+        map.put("openjpa.MetaDataFactory", "jpa(Types=" + names + ")");
+        for (int i = 0; i + 1 < props.length; i += 2)
+            map.put((String) props[i], props[i + 1]);
+
+        OpenJPAEntityManagerFactorySPI emf = (OpenJPAEntityManagerFactorySPI)
+            Persistence.createEntityManagerFactory("test", map);
+        _emfs.add(emf);
+        return emf;
+    }
+
+    /**
+     * Persist the given instances in their own transaction.
+     */
+    protected void persist(OpenJPAEntityManagerFactorySPI emf,
+        Object... pcs) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (Object pc : pcs)
+                em.persist(pc);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @After
+    public void closeEMFs() {
+        for (OpenJPAEntityManagerFactorySPI emf : _emfs) {
+            if (emf.isOpen())
+                emf.close();
+        }
+        _emfs.clear();
+    }
+}
@@ -85,6 +85,25 @@ public interface FetchPlan {
      */
     FetchPlan setFetchBatchSize(int fetchBatchSize);
 
+    /**
+     * Return the number of results held in memory when all results of a
+     * query are read at once. Further results are spilled to a temporary
+     * file. Defaults to the <code>openjpa.ResultSpillThreshold</code>
+     * setting.
+     *
+     * @since 3.2.3
+     */
+    int getResultSpillThreshold();
+
+    /**
+     * Set the number of results held in memory when all results of a
+     * query are read at once. Further results are spilled to a temporary
+     * file. Zero holds all results in memory.
+     *
+     * @since 3.2.3
+     */
+    FetchPlan setResultSpillThreshold(int threshold);
+
     /**
      * Return whether or not query caching is enabled. If this returns
      * <code>true</code> but the datacache plugin is not installed, caching
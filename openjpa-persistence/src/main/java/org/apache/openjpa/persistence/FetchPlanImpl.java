@@ -67,6 +67,8 @@ public class FetchPlanImpl
                 new HintValueConverter.StringToInteger());
         registerHint(new String[]{"openjpa.MaxFetchDepth", "openjpa.FetchPlan.MaxFetchDepth"},
                 new HintValueConverter.StringToInteger());
+        registerHint(new String[]{"openjpa.ResultSpillThreshold", "openjpa.FetchPlan.ResultSpillThreshold"},
+                new HintValueConverter.StringToInteger());
         registerHint(new String[]{"openjpa.LockTimeout", "openjpa.FetchPlan.LockTimeout",
                 "javax.persistence.lock.timeout"}, new HintValueConverter.StringToInteger());
         registerHint(new String[]{"openjpa.QueryTimeout", "openjpa.FetchPlan.QueryTimeout",
@@ -153,6 +155,17 @@ public class FetchPlanImpl
         return this;
     }
 
+    @Override
+    public int getResultSpillThreshold() {
+        return _fetch.getResultSpillThreshold();
+    }
+
+    @Override
+    public FetchPlan setResultSpillThreshold(int threshold) {
+        _fetch.setResultSpillThreshold(threshold);
+        return this;
+    }
+
     @Override
     public boolean getQueryResultCacheEnabled() {
         return _fetch.getQueryCacheEnabled();
@@ -178,6 +178,14 @@ public class HintHandler  {
         } else if (QueryHints.HINT_USE_LITERAL_IN_SQL.equals(key)) {
             Boolean convertedValue = (Boolean)Filters.convert(value, Boolean.class);
             plan.setHint(key, convertedValue);
+        } else if (QueryHints.HINT_QUERY_CACHE_TIMEOUT.equals(key)) {
+            int v = (Integer) Filters.convert(value, Integer.class);
+            if (v < -1) {
+                throw new IllegalArgumentException(_loc.get("bad-query-hint-value", key, value).toString());
+            }
+            plan.setHint(key, v);
+        } else if (QueryHints.HINT_QUERY_CACHE_STALE_WHILE_REVALIDATE.equals(key)) {
+            plan.setHint(key, Filters.convert(value, Boolean.class));
         } else { // default
             plan.setHint(key, value);
         }
@@ -117,6 +117,8 @@ public class PersistenceProductDerivation
         _hints.add("openjpa.FetchPlan.FetchBatchSize");
         _hints.add("openjpa.MaxFetchDepth");
         _hints.add("openjpa.FetchPlan.MaxFetchDepth");
+        _hints.add("openjpa.ResultSpillThreshold");
+        _hints.add("openjpa.FetchPlan.ResultSpillThreshold");
         _hints.add("openjpa.LockTimeout");
         _hints.add("openjpa.FetchPlan.LockTimeout");
         _hints.add("openjpa.QueryTimeout");
@@ -148,6 +150,8 @@ public class PersistenceProductDerivation
         _hints.add(QueryHints.HINT_SUBCLASSES);
         _hints.add(QueryHints.HINT_RELAX_BIND_PARAM_TYPE_CHECK);
         _hints.add(QueryHints.HINT_USE_LITERAL_IN_SQL);
+        _hints.add(QueryHints.HINT_QUERY_CACHE_TIMEOUT);
+        _hints.add(QueryHints.HINT_QUERY_CACHE_STALE_WHILE_REVALIDATE);
 
         _hints = Collections.unmodifiableSet(_hints);
     }
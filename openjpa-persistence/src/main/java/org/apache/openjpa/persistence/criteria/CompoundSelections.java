@@ -95,6 +95,12 @@ class CompoundSelections {
 
         abstract FillStrategy<X> getFillStrategy();
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(_args);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             StringBuilder buffer = new StringBuilder();
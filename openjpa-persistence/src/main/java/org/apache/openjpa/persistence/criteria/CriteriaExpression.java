@@ -33,6 +33,16 @@ interface CriteriaExpression  {
      */
     void acceptVisit(CriteriaExpressionVisitor visitor);
 
+    /**
+     * Add the terms of this node to the given fingerprint. The receiver adds
+     * its own state and its constituent sub-nodes, if any, so that nodes that
+     * are not equivalent add different terms.
+     *
+     * @param fp the fingerprint of the query this node is part of.
+     * @since 3.2.3
+     */
+    void fingerprint(CriteriaFingerprint.Builder fp);
+
     /**
      * Get a string representation of this node as a value in the context of the given query.
      */
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.persistence.criteria;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * The structure of a criteria query, to compare queries without rendering
+ * them to strings.
+ * <br>
+ * The fingerprint is a flat sequence of the terms of the query tree: the
+ * type of every node followed by the terms that the node adds for its
+ * state and its sub-nodes. A root, join, parameter or subquery reached
+ * again is recorded by its position in the sequence, so that a term used
+ * twice is told apart from two equal terms. Metamodel elements, classes and
+ * literal values are compared by their own equality. Parameters are
+ * compared by name and type, but not by the value bound to them, and the
+ * aliases assigned automatically are ignored.
+ * <br>
+ * Two queries built of the same terms have equal fingerprints, whatever
+ * the instances of their nodes.
+ *
+ * @since 3.2.3
+ */
+final class CriteriaFingerprint {
+    // markers of the structure of the sequence
+    private static final Object NODE       = new Marker("node");
+    private static final Object REFERENCE  = new Marker("reference");
+    private static final Object COLLECTION = new Marker("collection");
+    private static final Object ARRAY      = new Marker("array");
+
+    private final Object[] _terms;
+    private final int _size;
+    private final int _hash;
+
+    /**
+     * Takes the fingerprint of the given query.
+     */
+    CriteriaFingerprint(CriteriaQueryImpl<?> q) {
+        Builder builder = new Builder();
+        builder.add(q);
+        // trimmed, as fingerprints are kept as cache keys
+        _terms = Arrays.copyOf(builder._terms, builder._size);
+        _size = builder._size;
+        _hash = builder._hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return _hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this)
+            return true;
+        if (!(other instanceof CriteriaFingerprint))
+            return false;
+        CriteriaFingerprint that = (CriteriaFingerprint) other;
+        if (_hash != that._hash || _size != that._size)
+            return false;
+        for (int i = 0; i < _size; i++)
+            if (!Objects.equals(_terms[i], that._terms[i]))
+                return false;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[terms=" + _size
+            + ", hash=" + Integer.toHexString(_hash) + "]";
+    }
+
+    /**
+     * Collects the terms of a query tree.
+     */
+    static class Builder {
+        private Object[] _terms = new Object[128];
+        private int _size;
+        private int _hash = 1;
+
+        // the nodes with an identity added so far, and their positions
+        private Object[] _nodes = new Object[8];
+        private int[] _positions = new int[8];
+        private int _nodeCount;
+
+        /**
+         * Adds a single term, which is compared by its own equality.
+         */
+        void term(Object o) {
+            if (_size == _terms.length)
+                _terms = Arrays.copyOf(_terms, _size * 2);
+            _terms[_size++] = o;
+            _hash = 31 * _hash + (o == null ? 0 : o.hashCode());
+        }
+
+        /**
+         * Adds the given value: a node, a collection or array of values, or
+         * otherwise a single term.
+         */
+        void add(Object o) {
+            if (o == null) {
+                term(null);
+            } else if (o instanceof SelectionImpl) {
+                // tested by class rather than by interface, which is slower
+                SelectionImpl<?> node = (SelectionImpl<?>) o;
+                if (enter(node))
+                    node.fingerprint(this);
+            } else if (o instanceof OrderImpl) {
+                OrderImpl node = (OrderImpl) o;
+                if (enter(node))
+                    node.fingerprint(this);
+            } else if (o instanceof CriteriaQueryImpl) {
+                CriteriaQueryImpl<?> q = (CriteriaQueryImpl<?>) o;
+                if (enter(q))
+                    q.fingerprint(this);
+            } else if (o instanceof Collection) {
+                Collection<?> coll = (Collection<?>) o;
+                term(COLLECTION);
+                term(coll.size());
+                for (Object e : coll)
+                    add(e);
+            } else if (o instanceof Object[]) {
+                Object[] array = (Object[]) o;
+                term(ARRAY);
+                term(array.length);
+                for (Object e : array)
+                    add(e);
+            } else {
+                term(o);
+            }
+        }
+
+        /**
+         * Adds the type of the given node, or a reference to the node if it
+         * has an identity and has been added before.
+         *
+         * @return true if the terms of the node are to be added
+         */
+        private boolean enter(Object node) {
+            if (node instanceof FromImpl || node instanceof ParameterExpressionImpl
+                || node instanceof SubqueryImpl || node instanceof CriteriaQueryImpl) {
+                for (int i = 0; i < _nodeCount; i++) {
+                    if (_nodes[i] == node) {
+                        term(REFERENCE);
+                        term(_positions[i]);
+                        return false;
+                    }
+                }
+                if (_nodeCount == _nodes.length) {
+                    _nodes = Arrays.copyOf(_nodes, _nodeCount * 2);
+                    _positions = Arrays.copyOf(_positions, _nodeCount * 2);
+                }
+                _nodes[_nodeCount] = node;
+                _positions[_nodeCount++] = _size;
+            }
+            term(NODE);
+            term(node.getClass());
+            return true;
+        }
+    }
+
+    /**
+     * A marker of the structure, equal only to itself.
+     */
+    private static class Marker {
+        private final String _name;
+
+        Marker(String name) {
+            _name = name;
+        }
+
+        @Override
+        public String toString() {
+            return _name;
+        }
+    }
+}
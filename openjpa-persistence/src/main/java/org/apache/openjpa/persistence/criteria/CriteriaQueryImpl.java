@@ -772,19 +772,59 @@ class CriteriaQueryImpl<T> implements OpenJPACriteriaQuery<T>, AliasContext {
         }
     }
 
+    /**
+     * Adds the terms of this query to the given fingerprint.
+     */
+    void fingerprint(CriteriaFingerprint.Builder fp) {
+        fp.add(_resultClass);
+        fp.term(_distinct);
+        fp.add(_roots);
+        fp.add(_selection);
+        fp.add(_where);
+        fp.add(_orders);
+        fp.add(_groups);
+        fp.add(_having);
+        fp.add(_delegator);
+    }
+
+    /**
+     * Gets the structure of this query, which equals the structure of every
+     * query built of the same terms.
+     */
+    CriteriaFingerprint getFingerprint() {
+        return new CriteriaFingerprint(this);
+    }
+
     /**
      * Returns a JPQL-like string, if this receiver is populated. Otherwise
      * returns <code>Object.toString()</code>.
+     * The string is rendered once for all the queries of the same
+     * structure, which share the same string, so that caches keyed by the
+     * string do not render every query again.
      */
     @Override
     public String toString() {
         try {
-            return toCQL();
+            if (_model == null)
+                return toCQL();
+            Map<Object, String> strings = _model.getQueryStrings();
+            CriteriaFingerprint fp = getFingerprint();
+            String cql = strings.get(fp);
+            if (cql == null) {
+                cql = toCQL();
+                strings.put(fp, cql);
+            }
+            return cql;
         } catch (Throwable t) {
             return super.toString();
         }
     }
 
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
     @Override
     public boolean equals(Object other) {
         if(other == null) {
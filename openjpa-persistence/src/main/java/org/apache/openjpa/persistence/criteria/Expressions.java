@@ -206,6 +206,12 @@ class Expressions {
         public void acceptVisit(CriteriaExpressionVisitor visitor) {
             Expressions.acceptVisit(visitor, this, e);
         }
+
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e);
+        }
     }
 
     /**
@@ -230,6 +236,13 @@ class Expressions {
         public void acceptVisit(CriteriaExpressionVisitor visitor) {
             Expressions.acceptVisit(visitor, this, e1, e2);
         }
+
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e1);
+            fp.add(e2);
+        }
     }
 
     /**
@@ -256,6 +269,12 @@ class Expressions {
         public void acceptVisit(CriteriaExpressionVisitor visitor) {
             Expressions.acceptVisit(visitor, this, args);
         }
+
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(args);
+        }
     }
 
     /**
@@ -277,6 +296,13 @@ class Expressions {
         public void acceptVisit(CriteriaExpressionVisitor visitor) {
             Expressions.acceptVisit(visitor, this, e1, e2);
         }
+
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e1);
+            fp.add(e2);
+        }
     }
 
 
@@ -316,6 +342,12 @@ class Expressions {
             return _distinct ? factory.count(factory.distinct(v)) : factory.count(v);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.term(_distinct);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, "COUNT", OPEN_BRACE, _distinct ? "DISTINCT"+OPEN_BRACE : "",
@@ -439,6 +471,12 @@ class Expressions {
                 new Expressions.ListArgument(resultType, args).toValue(factory, q));
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.term(functionName);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, functionName, OPEN_BRACE, Expressions.asValue(q, args, COMMA), CLOSE_BRACE);
@@ -544,6 +582,13 @@ class Expressions {
             Expressions.acceptVisit(visitor, from, len);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(from);
+            fp.add(len);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, "SUBSTRING", OPEN_BRACE, e, COMMA, from, COMMA, len, CLOSE_BRACE);
@@ -594,6 +639,14 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, pattern, from, path);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(pattern);
+            fp.add(from);
+            fp.add(path);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, "LOCATE", OPEN_BRACE, pattern, COMMA, path, CLOSE_BRACE);
@@ -647,6 +700,12 @@ class Expressions {
                 Expressions.toValue(e2, factory, q), spec);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.term(ts);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, "TRIM", OPEN_BRACE, e1, COMMA, e2, CLOSE_BRACE);
@@ -1086,6 +1145,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, arg instanceof Expression ? ((Expression)arg) : null);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(arg);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             if (arg == null)
@@ -1139,6 +1204,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, collection);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(collection);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, collection, " IS EMPTY");
@@ -1175,6 +1246,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, collection);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(collection);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, collection, " IS NOT EMPTY");
@@ -1230,6 +1307,13 @@ class Expressions {
             Expressions.acceptVisit(visitor, collection, element);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(element);
+            fp.add(collection);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, element, "MEMBER OF ", collection);
@@ -1290,6 +1374,14 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, str, pattern, escapeChar);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(str);
+            fp.add(pattern);
+            fp.add(escapeChar);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, str, " LIKE ", pattern);
@@ -1329,6 +1421,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, values.toArray(new ExpressionImpl[values.size()]));
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(values);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, "COALESCE", OPEN_BRACE, Expressions.asValue(q, values == null
@@ -1362,6 +1460,13 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, val1, val2);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(val1);
+            fp.add(val2);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, "NULLIF", OPEN_BRACE, val1, COMMA, val2, CLOSE_BRACE);
@@ -1394,6 +1499,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, e);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, e, " IS NULL");
@@ -1426,6 +1537,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, e);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, e, " IS NOT NULL");
@@ -1532,6 +1649,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, e);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             StringBuilder buffer = Expressions.asValue(q, e, " IN ", OPEN_BRACE);
@@ -1600,6 +1723,14 @@ class Expressions {
             visitor.exit(this);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(whens);
+            fp.add(thens);
+            fp.add(otherwise);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             StringBuilder buffer = new StringBuilder("CASE ");
@@ -1686,6 +1817,15 @@ class Expressions {
             visitor.exit(this);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(caseOperand);
+            fp.add(whens);
+            fp.add(thens);
+            fp.add(otherwise);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             StringBuilder buffer = new StringBuilder("CASE ");
@@ -1758,6 +1898,12 @@ class Expressions {
         public void acceptVisit(CriteriaExpressionVisitor visitor) {
             Expressions.acceptVisit(visitor, this, e);
         }
+
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e);
+        }
     }
 
     public static abstract class SubqueryExpression<X> extends ExpressionImpl<X> {
@@ -1772,6 +1918,12 @@ class Expressions {
         public void acceptVisit(CriteriaExpressionVisitor visitor) {
             Expressions.acceptVisit(visitor, this, e);
         }
+
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e);
+        }
     }
 
     public static class Exists<X> extends SubqueryPredicate<X> {
@@ -1843,6 +1995,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, e);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(e);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return Expressions.asValue(q, "NOT ", e);
@@ -1868,6 +2026,12 @@ class Expressions {
             Expressions.acceptVisit(visitor, this, actual);
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(actual);
+        }
+
         @Override
         public StringBuilder asValue(AliasContext q) {
             return actual.asValue(q);
@@ -1902,5 +2066,11 @@ class Expressions {
         public void acceptVisit(CriteriaExpressionVisitor visitor) {
             Expressions.acceptVisit(visitor, this, _args);
         }
+
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(_args);
+        }
     }
 }
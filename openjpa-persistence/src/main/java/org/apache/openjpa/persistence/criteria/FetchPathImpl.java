@@ -18,7 +18,7 @@
  */
 package org.apache.openjpa.persistence.criteria;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import javax.persistence.criteria.Fetch;
@@ -104,7 +104,7 @@ class FetchPathImpl<Z,X> extends PathImpl<Z,X> implements Fetch<Z, X> {
 
     @Override
     public Set<Fetch<X, ?>> getFetches() {
-        Set<Fetch<X,?>> result = new HashSet<>();
+        Set<Fetch<X,?>> result = new LinkedHashSet<>();
         for (Fetch f : _fetches) {
             result.add(f);
         }
@@ -114,11 +114,18 @@ class FetchPathImpl<Z,X> extends PathImpl<Z,X> implements Fetch<Z, X> {
     private <X,Y> Fetch<X,Y> addFetch(Members.Member<? super X, Y> member, JoinType jt) {
         Fetch<X,Y> fetch = new FetchPathImpl(this, member, jt);
         if (_fetches == null)
-            _fetches = new HashSet<>();
+            _fetches = new LinkedHashSet<>();
         _fetches.add(fetch);
         return fetch;
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        super.fingerprint(fp);
+        fp.term(joinType);
+        fp.add(_fetches);
+    }
+
     @Override
     public StringBuilder asValue(AliasContext q) {
         return super.asValue(q).insert(0, " " + joinType + " JOIN FETCH ");
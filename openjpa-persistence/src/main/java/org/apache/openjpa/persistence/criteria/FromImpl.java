@@ -19,7 +19,7 @@
 
 package org.apache.openjpa.persistence.criteria;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 import javax.persistence.criteria.CollectionJoin;
 import javax.persistence.criteria.Fetch;
@@ -265,7 +265,7 @@ class FromImpl<Z,X> extends PathImpl<Z,X> implements From<Z,X> {
 
     private void addJoin(Join<X,?> join) {
         if (_joins == null)
-            _joins = new HashSet<>();
+            _joins = new LinkedHashSet<>();
          _joins.add(join);
     }
 
@@ -318,7 +318,7 @@ class FromImpl<Z,X> extends PathImpl<Z,X> implements From<Z,X> {
             JoinType jt) {
         Fetch<X,Y> fetch = new FetchPathImpl(this, member, jt);
         if (_fetches == null)
-            _fetches = new HashSet<>();
+            _fetches = new LinkedHashSet<>();
         _fetches.add(fetch);
         return fetch;
     }
@@ -329,6 +329,14 @@ class FromImpl<Z,X> extends PathImpl<Z,X> implements From<Z,X> {
             _joins == null ? null : _joins.toArray(new ExpressionImpl<?>[_joins.size()]));
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        super.fingerprint(fp);
+        fp.term(type);
+        fp.add(_joins);
+        fp.add(_fetches);
+    }
+
     @Override
     public From<Z,X> getCorrelationParent() {
         return (From<Z,X>)getCorrelatedPath();
@@ -133,6 +133,12 @@ abstract class Joins {
             return joinType;
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.term(joinType);
+        }
+
         @Override
         public FromImpl<?, Z> getParent() {
             return (FromImpl<?, Z>) _parent;
@@ -349,6 +355,12 @@ abstract class Joins {
             return joinType;
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.term(joinType);
+        }
+
         /**
          * Gets the parent of this join.
          */
@@ -650,6 +662,12 @@ abstract class Joins {
             return (MapAttribute<? super Z, K,V>) _member;
         }
 
+        @Override
+        public void fingerprint(CriteriaFingerprint.Builder fp) {
+            super.fingerprint(fp);
+            fp.add(_keyJoin);
+        }
+
         public Join<java.util.Map<K, V>, K> joinKey() {
             return joinKey(JoinType.INNER);
         }
@@ -718,6 +736,13 @@ abstract class Joins {
            return factory.getKey(path);
        }
 
+       @Override
+       public void fingerprint(CriteriaFingerprint.Builder fp) {
+           super.fingerprint(fp);
+           fp.add(map);
+           fp.term(attr);
+       }
+
        @Override
        public StringBuilder asValue(AliasContext q) {
            StringBuilder buffer = new StringBuilder("KEY(");
@@ -747,6 +772,12 @@ abstract class Joins {
            return factory.mapEntry(path, var);
        }
 
+       @Override
+       public void fingerprint(CriteriaFingerprint.Builder fp) {
+           super.fingerprint(fp);
+           fp.add(map);
+       }
+
        @Override
        public StringBuilder asValue(AliasContext q) {
            StringBuilder buffer = new StringBuilder("ENTRY(");
@@ -64,6 +64,12 @@ class OrderImpl implements Order, CriteriaExpression {
         }
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        fp.term(_ascending);
+        fp.add(e);
+    }
+
     @Override
     public StringBuilder asValue(AliasContext q) {
         return (e.isAutoAliased() ? e.asValue(q) : new StringBuilder(e.getAlias()))
@@ -131,6 +131,12 @@ class ParameterExpressionImpl<T> extends ExpressionImpl<T>
         return -1;
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        super.fingerprint(fp);
+        fp.term(_name);
+    }
+
     @Override
     public StringBuilder asValue(AliasContext q) {
         return Expressions.asValue(q, ":", _name == null ? "param" : _name);
@@ -308,6 +308,15 @@ class PathImpl<Z,X> extends ExpressionImpl<X> implements Path<X> {
         return new Expressions.Type<>(this);
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        super.fingerprint(fp);
+        fp.add(_parent);
+        fp.term(_member);
+        fp.term(isEmbedded);
+        fp.add(_correlatedPath);
+    }
+
     @Override
     public StringBuilder asValue(AliasContext q) {
         StringBuilder buffer = new StringBuilder();
@@ -194,6 +194,14 @@ abstract class PredicateImpl extends ExpressionImpl<Boolean> implements Predicat
         Expressions.acceptVisit(visitor, this, _exps.toArray(new Expression<?>[_exps.size()]));
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        super.fingerprint(fp);
+        fp.term(_op);
+        fp.term(_negated);
+        fp.add(_exps);
+    }
+
     @Override
     public StringBuilder asValue(AliasContext q) {
         boolean braces = _exps.size() > 1;
@@ -102,6 +102,12 @@ class RootImpl<X> extends FromImpl<X,X> implements Root<X> {
         return factory.bindVariable(var, path);
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        super.fingerprint(fp);
+        fp.term(_entity);
+    }
+
     @Override
     public StringBuilder asValue(AliasContext q) {
         Value v = q.getRegisteredRootVariable(this);
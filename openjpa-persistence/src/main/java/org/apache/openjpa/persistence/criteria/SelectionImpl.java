@@ -155,4 +155,10 @@ abstract class SelectionImpl<X> implements Selection<X>, CriteriaExpression {
     public void acceptVisit(CriteriaExpressionVisitor visitor) {
         Expressions.acceptVisit(visitor, this, (Expression<?>[])null);
     }
+
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        fp.term(_cls);
+        fp.term(isAliased() ? _alias : null);
+    }
 }
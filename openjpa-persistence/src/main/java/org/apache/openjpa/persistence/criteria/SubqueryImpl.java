@@ -393,6 +393,14 @@ class SubqueryImpl<T> extends ExpressionImpl<T> implements Subquery<T> {
         return getJavaType();
     }
 
+    @Override
+    public void fingerprint(CriteriaFingerprint.Builder fp) {
+        super.fingerprint(fp);
+        fp.add(_parent);
+        fp.add(_delegate);
+        fp.add(_corrJoins);
+    }
+
     @Override
     public StringBuilder asValue(AliasContext q) {
         StringBuilder buffer = new StringBuilder();
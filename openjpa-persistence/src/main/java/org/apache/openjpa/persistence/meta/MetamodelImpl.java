@@ -56,6 +56,7 @@ import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.FieldMetaData;
 import org.apache.openjpa.meta.MetaDataRepository;
 import org.apache.openjpa.persistence.meta.Members.Member;
+import org.apache.openjpa.util.CacheMap;
 import org.apache.openjpa.util.InternalException;
 
 /**
@@ -65,6 +66,11 @@ import org.apache.openjpa.util.InternalException;
  *
  */
 public class MetamodelImpl implements Metamodel, Resolver {
+    /**
+     * Maximum number of distinct criteria queries whose string is kept.
+     */
+    public static final int MAX_QUERY_STRINGS = 1000;
+
     private final MetaDataRepository repos;
     private Map<Class<?>, Type<?>> _basics = new HashMap<>();
     private Map<Class<?>, EntityType<?>> _entities = new HashMap<>();
@@ -72,6 +78,7 @@ public class MetamodelImpl implements Metamodel, Resolver {
     private Map<Class<?>, EmbeddableType<?>> _embeddables = new HashMap<>();
     private Map<Class<?>, MappedSuperclassType<?>> _mappedsupers = new HashMap<>();
     private Map<Class<?>, Types.PseudoEntity<?>> _pseudos = new HashMap<>();
+    private final Map<Object, String> _queryStrings = new CacheMap(true, MAX_QUERY_STRINGS);
 
     private static Localizer _loc = Localizer.forPackage(MetamodelImpl.class);
 
@@ -110,6 +117,16 @@ public class MetamodelImpl implements Metamodel, Resolver {
         return repos;
     }
 
+    /**
+     * Gets the strings rendered for the criteria queries over this model,
+     * keyed by the structure of the queries.
+     *
+     * @since 3.2.3
+     */
+    public Map<Object, String> getQueryStrings() {
+        return _queryStrings;
+    }
+
     /**
      *  Return the metamodel embeddable type representing the embeddable class.
      *
@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.openjpa.enhance.PersistenceCapable;
+import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.ValueStrategies;
+import org.apache.openjpa.util.ApplicationIds;
+import org.apache.openjpa.util.GeneralException;
+import org.apache.openjpa.util.UserException;
+
+/**
+ * Distributes instances on a consistent hash ring of their primary key.
+ * <br>
+ * Each active slice owns a number of points, or <em>virtual nodes</em>, on
+ * the ring, and an instance is stored in the slice that owns the first
+ * point at or after the hash of its primary key. Adding a slice to a
+ * configuration of <code>n</code> slices hence moves only about
+ * <code>1/(n+1)</code> of the instances, all of them to the new slice.
+ * A slice may be given a weight to own proportionally more points.
+ * <br>
+ * Because the slice of an instance is a function of its primary key, the
+ * policy also serves as {@link FinderTargetPolicy} and routes a find to the
+ * single slice that stores the instance. While instances are moved by the
+ * {@link Rebalancer} after the slices have changed, configure the slice
+ * names before the change as <code>PreviousSlices</code> and finds are
+ * routed to both the previous and the current owner of the primary key.
+ * <br>
+ * The policy applies to types with application identity only, whose
+ * primary key values have a stable string form. The slice is determined
+ * only after the primary key is assigned, so a generated key must be
+ * assigned before flush i.e. must not be an identity column.
+ * <br>
+ * Configured as the <code>consistent-hash</code> alias, for example
+ * <pre>
+ * openjpa.slice.DistributionPolicy=consistent-hash(VirtualNodes=200, Weights="Four:2")
+ * </pre>
+ *
+ * @since 3.2.3
+ */
+public class ConsistentHashPolicy implements DistributionPolicy,
+    FinderTargetPolicy, Configurable {
+    private static final Localizer _loc = Localizer.forPackage(ConsistentHashPolicy.class);
+    private static final String SEPARATORS = "[,;\\s]+";
+
+    /**
+     * Digest of each thread, as creating a digest per hash is costly and a
+     * digest can not be shared.
+     */
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new GeneralException(e);
+            }
+        }
+    };
+
+    private int _virtualNodes = 128;
+    private final Map<String, Integer> _weights = new HashMap<>();
+    private List<String> _previous = Collections.emptyList();
+    private DistributedConfiguration _conf;
+    private volatile Ring _ring;
+    private volatile Ring _previousRing;
+
+    /**
+     * Gets the number of points each slice of unit weight owns on the ring.
+     */
+    public int getVirtualNodes() {
+        return _virtualNodes;
+    }
+
+    /**
+     * Sets the number of points each slice of unit weight owns on the ring.
+     * More points spread the instances more evenly at the cost of a larger
+     * ring. Defaults to 128.
+     */
+    public void setVirtualNodes(int virtualNodes) {
+        if (virtualNodes < 1)
+            throw new UserException(_loc.get("hash-bad-nodes", virtualNodes));
+        _virtualNodes = virtualNodes;
+        _ring = null;
+        _previousRing = null;
+    }
+
+    /**
+     * Sets the weights of slices as a list of <code>name:weight</code>
+     * pairs e.g. <code>"One:1,Two:2"</code>. A slice not listed has unit
+     * weight.
+     */
+    public void setWeights(String weights) {
+        _weights.clear();
+        for (String pair : split(weights)) {
+            int colon = pair.indexOf(':');
+            int weight;
+            try {
+                weight = (colon == -1) ? -1
+                    : Integer.parseInt(pair.substring(colon + 1).trim());
+            } catch (NumberFormatException e) {
+                weight = -1;
+            }
+            if (weight < 1)
+                throw new UserException(_loc.get("hash-bad-weight", pair));
+            _weights.put(pair.substring(0, colon).trim(), weight);
+        }
+        _ring = null;
+        _previousRing = null;
+    }
+
+    /**
+     * Gets the weight of the given slice.
+     */
+    public int getWeight(String slice) {
+        Integer weight = _weights.get(slice);
+        return (weight == null) ? 1 : weight;
+    }
+
+    /**
+     * Sets the names of the slices before the slices have changed, while
+     * the instances are being moved. A find is then routed to the slice that
+     * owned the primary key before the change as well as the one that owns
+     * it now. Unset once the instances have been moved.
+     */
+    public void setPreviousSlices(String slices) {
+        _previous = Collections.unmodifiableList(split(slices));
+        _previousRing = null;
+    }
+
+    /**
+     * Gets the names of the slices before the slices have changed.
+     */
+    public List<String> getPreviousSlices() {
+        return _previous;
+    }
+
+    /**
+     * Affirms if finds are routed to both previous and current owners.
+     */
+    public boolean isMigrating() {
+        return !_previous.isEmpty();
+    }
+
+    /**
+     * Gets the slice that owns the given primary key values.
+     *
+     * @param pks primary key values in the order of the primary key fields
+     * @param slices names of the slices on the ring
+     */
+    public String getSlice(Object[] pks, List<String> slices) {
+        return getRing(slices).get(hash(toKey(pks)));
+    }
+
+    @Override
+    public String distribute(Object pc, List<String> slices, Object context) {
+        ClassMetaData meta = getMetaData(pc.getClass());
+        Object oid = ApplicationIds.create((PersistenceCapable) pc, meta);
+        if (oid == null)
+            return null;
+        Object[] pks = ApplicationIds.toPKValues(oid, meta);
+        return isAssigned(pks, meta) ? getSlice(pks, slices) : null;
+    }
+
+    /**
+     * Gets the owner of the given primary key, and also its previous owner
+     * if it differs while the instances are being moved. Returns null, i.e.
+     * all slices, if the type does not use application identity.
+     */
+    @Override
+    public String[] getTargets(Class<?> cls, Object oid, List<String> slices,
+        Object context) {
+        ClassMetaData meta = getRepository().getMetaData(cls, null, false);
+        if (meta == null || meta.getIdentityType() != ClassMetaData.ID_APPLICATION)
+            return null;
+        Object[] pks = meta.isOpenJPAIdentity() ? new Object[] { oid }
+            : ApplicationIds.toPKValues(oid, meta);
+        if (!isSet(pks))
+            return null;
+        String key = toKey(pks);
+        long hash = hash(key);
+        String current = getRing(slices).get(hash);
+        if (!isMigrating())
+            return new String[] { current };
+        String previous = getPreviousRing(slices).get(hash);
+        if (previous == null || previous.equals(current))
+            return new String[] { current };
+        return new String[] { current, previous };
+    }
+
+    private ClassMetaData getMetaData(Class<?> cls) {
+        ClassMetaData meta = getRepository().getMetaData(cls, null, true);
+        if (meta.getIdentityType() != ClassMetaData.ID_APPLICATION)
+            throw new UserException(_loc.get("hash-no-app-id", cls.getName()));
+        return meta;
+    }
+
+    private MetaDataRepository getRepository() {
+        return _conf.getMetaDataRepositoryInstance();
+    }
+
+    private Ring getRing(List<String> slices) {
+        Ring ring = _ring;
+        if (ring == null || !ring.slices.equals(slices)) {
+            ring = new Ring(slices);
+            _ring = ring;
+        }
+        return ring;
+    }
+
+    /**
+     * Gets the ring of the previous slices that are still active.
+     */
+    private Ring getPreviousRing(List<String> slices) {
+        Ring ring = _previousRing;
+        if (ring == null || !ring.active.equals(slices)) {
+            List<String> previous = new ArrayList<>(_previous);
+            previous.retainAll(slices);
+            ring = new Ring(previous);
+            ring.active = new ArrayList<>(slices);
+            _previousRing = ring;
+        }
+        return ring;
+    }
+
+    /**
+     * Affirms if all the given primary key values are set.
+     */
+    private static boolean isSet(Object[] pks) {
+        if (pks == null || pks.length == 0)
+            return false;
+        for (Object pk : pks) {
+            if (pk == null)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Affirms if all the given primary key values of an instance of the
+     * given type are assigned. A generated primary key field that still
+     * holds the default value of its type is not assigned yet, whereas
+     * zero or an empty string is a valid value of any other key field.
+     */
+    private static boolean isAssigned(Object[] pks, ClassMetaData meta) {
+        if (!isSet(pks))
+            return false;
+        FieldMetaData[] fields = meta.getPrimaryKeyFields();
+        for (int i = 0; i < pks.length && i < fields.length; i++) {
+            if (fields[i].getValueStrategy() == ValueStrategies.NONE)
+                continue;
+            Object pk = pks[i];
+            if (pk instanceof String && ((String) pk).isEmpty())
+                return false;
+            if (pk instanceof Number && ((Number) pk).longValue() == 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static String toKey(Object[] pks) {
+        if (pks.length == 1)
+            return String.valueOf(pks[0]);
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < pks.length; i++) {
+            if (i > 0)
+                key.append('\u0000');
+            key.append(pks[i]);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Hashes the given key to the first 64 bits of its MD5 digest, which
+     * spreads similar keys such as consecutive numbers evenly on the ring.
+     */
+    static long hash(String key) {
+        byte[] digest = MD5.get().digest(key.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < 8; i++)
+            hash = (hash << 8) | (digest[i] & 0xff);
+        return hash;
+    }
+
+    private static List<String> split(String list) {
+        List<String> result = new ArrayList<>();
+        if (list == null)
+            return result;
+        for (String token : list.trim().split(SEPARATORS)) {
+            if (!token.isEmpty())
+                result.add(token);
+        }
+        return result;
+    }
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        _conf = (DistributedConfiguration) conf;
+    }
+
+    @Override
+    public void startConfiguration() {
+    }
+
+    @Override
+    public void endConfiguration() {
+    }
+
+    /**
+     * Hash ring of a list of slices.
+     */
+    private class Ring {
+        final List<String> slices;
+        final TreeMap<Long, String> points = new TreeMap<>();
+        List<String> active;
+
+        Ring(List<String> slices) {
+            this.slices = new ArrayList<>(slices);
+            for (String slice : slices) {
+                int nodes = _virtualNodes * getWeight(slice);
+                for (int i = 0; i < nodes; i++)
+                    points.put(hash(slice + '#' + i), slice);
+            }
+        }
+
+        /**
+         * Gets the slice that owns the given hash, or null if the ring is
+         * empty.
+         */
+        String get(long hash) {
+            if (points.isEmpty())
+                return null;
+            Map.Entry<Long, String> owner = points.ceilingEntry(hash);
+            return (owner == null) ? points.firstEntry().getValue() : owner.getValue();
+        }
+    }
+}
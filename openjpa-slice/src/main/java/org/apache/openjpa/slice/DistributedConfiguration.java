@@ -176,4 +176,54 @@ public interface DistributedConfiguration extends OpenJPAConfiguration {
      */
     void setFinderTargetPolicy(String policy);
 
+    /**
+     * Gets the executor that runs database operations on the slices in
+     * parallel. The executor is created on first use as per the
+     * <code>openjpa.slice.ThreadPoolSize</code>,
+     * <code>openjpa.slice.ThreadPoolQueueSize</code>,
+     * <code>openjpa.slice.ThreadPoolRejection</code> and
+     * <code>openjpa.slice.VirtualThreads</code> properties, and is shut down
+     * when this configuration is closed.
+     *
+     * @since 3.2.3
+     */
+    SliceExecutor getExecutorInstance();
+
+    /**
+     * Gets the cache of the slices that store instances by identity, or
+     * null if disabled. The cache is created on first use with the size
+     * given by the <code>openjpa.slice.LocationCacheSize</code> property.
+     *
+     * @since 3.2.3
+     */
+    SliceLocationCache getLocationCacheInstance();
+
+    /**
+     * Gets the selector of the slice that executes a query on a replicated
+     * type. The selector is created on first use as per the
+     * <code>openjpa.slice.ReplicaReads</code> and
+     * <code>openjpa.slice.HedgePercentile</code> properties.
+     *
+     * @since 3.2.3
+     */
+    ReplicaSelector getReplicaSelectorInstance();
+
+    /**
+     * Gets the log of the commits that span more than one slice, or null if
+     * such commits are not recorded. The log is opened on first use in the
+     * file given by the <code>openjpa.slice.CommitLog</code> property.
+     *
+     * @since 3.2.3
+     */
+    SliceCommitLog getCommitLogInstance();
+
+    /**
+     * Gets the number of results read from a slice at a time when the
+     * unordered results of several slices are read concurrently, as given by
+     * the <code>openjpa.slice.PrefetchSize</code> property. Zero reads the
+     * slices one after another.
+     *
+     * @since 3.2.3
+     */
+    int getPrefetchSize();
 }
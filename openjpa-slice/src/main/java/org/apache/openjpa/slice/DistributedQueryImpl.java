@@ -51,12 +51,14 @@ public class DistributedQueryImpl extends QueryImpl {
     public Object execute(Map params) {
         TargetFetchConfiguration fetch = (TargetFetchConfiguration)getFetchConfiguration();
         if (!fetch.isExplicitTarget()) {
+            // targets not set by the user may be left by a finder policy
+            String[] targets = null;
             QueryTargetPolicy policy = _conf.getQueryTargetPolicyInstance();
             if (policy != null) {
-                String[] targets = policy.getTargets(getQueryString(), Collections.unmodifiableMap(params),
+                targets = policy.getTargets(getQueryString(), Collections.unmodifiableMap(params),
                         getLanguage(), _conf.getActiveSliceNames(), this.getBroker());
-                fetch.setTargets(targets);
             }
+            fetch.setTargets(targets);
         }
         return super.execute(params);
     }
@@ -0,0 +1,494 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.enhance.PCRegistry;
+import org.apache.openjpa.enhance.PersistenceCapable;
+import org.apache.openjpa.enhance.Reflection;
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.kernel.BrokerFactory;
+import org.apache.openjpa.kernel.OpCallbacks;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+import org.apache.openjpa.kernel.Query;
+import org.apache.openjpa.kernel.jpql.JPQLParser;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FetchGroup;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.JavaTypes;
+import org.apache.openjpa.meta.ValueMetaData;
+import org.apache.openjpa.meta.ValueStrategies;
+import org.apache.openjpa.util.ProxyManager;
+import org.apache.openjpa.util.UserException;
+
+/**
+ * Moves instances to the slice the {@link DistributionPolicy} selects for
+ * them, typically after slices have been added to a configuration.
+ * <br>
+ * The instances of a type are read from each slice in batches ordered by
+ * primary key. The instances of a batch that the policy assigns to a
+ * different slice are refreshed, copied to their target slice in one
+ * transaction and then deleted from their current slice by the transaction
+ * that read them, so that an instance is always present in at least one
+ * slice. The deletes are version-checked: if an instance was updated after
+ * it was refreshed, the delete fails, the copies are removed again and the
+ * rebalance fails without losing the update. A rebalance interrupted
+ * between the two transactions can be run again: an instance already
+ * present in its target slice is replaced by a new copy. While instances
+ * are moved, finds must consider both the previous and the current slice,
+ * as {@link ConsistentHashPolicy} does when its previous slices are
+ * configured.
+ * <br>
+ * Only instances of types with application identity whose primary key is
+ * not assigned by the database can be moved, because the instance retains
+ * its identity. An instance that relates to non-replicated instances, or
+ * that embeds other instances, is not moved either, because its collocated
+ * graph would have to move as one. Such types are skipped with a warning.
+ * A moved instance keeps the value of its version field, and the life cycle
+ * callbacks of the type are invoked as for any persist and delete.
+ *
+ * @since 3.2.3
+ */
+public class Rebalancer {
+    private static final Localizer _loc = Localizer.forPackage(Rebalancer.class);
+
+    /**
+     * Deletes an instance without cascading to its relations, which stay
+     * in their slices.
+     */
+    private static final OpCallbacks NO_CASCADE = new OpCallbacks() {
+        @Override
+        public int processArgument(int op, Object arg, OpenJPAStateManager sm) {
+            return ACT_RUN;
+        }
+    };
+
+    private final BrokerFactory _factory;
+    private final DistributedConfiguration _conf;
+    private final Log _log;
+    private final Map<ClassMetaData, Boolean> _movable = new HashMap<>();
+    private int _batchSize = 500;
+
+    /**
+     * Create a rebalancer for the slices of the given factory.
+     */
+    public Rebalancer(BrokerFactory factory) {
+        _factory = factory;
+        _conf = (DistributedConfiguration) factory.getConfiguration();
+        _log = _conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+    }
+
+    /**
+     * Gets the number of instances read from a slice at a time.
+     */
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
+    /**
+     * Sets the number of instances read from a slice at a time. The moved
+     * instances of a batch are copied in a single transaction and deleted in
+     * another. Defaults to 500.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new UserException(_loc.get("rebalance-bad-batch", batchSize));
+        _batchSize = batchSize;
+    }
+
+    /**
+     * Moves the instances of the given types, including their subtypes,
+     * on every active slice.
+     *
+     * @return number of instances moved
+     */
+    public long rebalance(Class<?>... types) {
+        long moved = 0;
+        for (Class<?> type : types) {
+            for (String slice : getActiveSliceNames())
+                moved += rebalance(type, slice);
+        }
+        return moved;
+    }
+
+    /**
+     * Gets the names of the active slices. Slices are connected, and marked
+     * active, when the connection factory is first created.
+     */
+    private List<String> getActiveSliceNames() {
+        _conf.getConnectionFactory();
+        return _conf.getActiveSliceNames();
+    }
+
+    /**
+     * Creates an initialized broker of the factory. The no-argument variant
+     * of the slice factory only instantiates a broker.
+     */
+    private Broker newBroker() {
+        return _factory.newBroker(_conf.getConnectionUserName(),
+            _conf.getConnectionPassword(), false,
+            _conf.getConnectionRetainModeConstant(), false);
+    }
+
+    /**
+     * Moves the instances of the given type, including its subtypes, that
+     * are stored in the given slice.
+     *
+     * @return number of instances moved
+     */
+    public long rebalance(Class<?> type, String slice) {
+        if (_conf.isReplicated(type))
+            throw new UserException(_loc.get("rebalance-replicated", type.getName()));
+        ClassMetaData meta = _conf.getMetaDataRepositoryInstance()
+            .getMetaData(type, null, true);
+        if (meta.getIdentityType() != ClassMetaData.ID_APPLICATION)
+            throw new UserException(_loc.get("rebalance-no-app-id", type.getName()));
+
+        DistributionPolicy policy = _conf.getDistributionPolicyInstance();
+        List<String> actives = getActiveSliceNames();
+        long moved = 0;
+        long kept = 0;
+        while (true) {
+            Broker reader = newBroker();
+            try {
+                reader.begin();
+                List<?> batch = select(reader, meta, slice, kept);
+                Map<String, List<Object>> moves = new LinkedHashMap<>();
+                for (Object pc : batch) {
+                    String target = isMovable(reader.getStateManager(pc).getMetaData())
+                        ? policy.distribute(pc, actives, reader) : null;
+                    if (target == null || target.equals(slice)) {
+                        kept++;
+                        continue;
+                    }
+                    List<Object> targeted = moves.get(target);
+                    if (targeted == null) {
+                        targeted = new ArrayList<>();
+                        moves.put(target, targeted);
+                    }
+                    targeted.add(pc);
+                }
+                if (!moves.isEmpty())
+                    moved += move(reader, moves);
+                else
+                    reader.commit();
+                if (batch.size() < _batchSize)
+                    break;
+            } finally {
+                if (reader.isActive())
+                    reader.rollback();
+                reader.close();
+            }
+        }
+        if (_log.isInfoEnabled())
+            _log.info(_loc.get("rebalance-done", new Object[] { type.getName(),
+                slice, moved, kept }));
+        return moved;
+    }
+
+    /**
+     * Selects the next batch of instances from the given slice, skipping
+     * the instances that stay in the slice.
+     */
+    private List<?> select(Broker broker, ClassMetaData meta, String slice,
+        long offset) {
+        StringBuilder jpql = new StringBuilder("SELECT o FROM ")
+            .append(meta.getTypeAlias()).append(" o ORDER BY ");
+        FieldMetaData[] pks = meta.getPrimaryKeyFields();
+        for (int i = 0; i < pks.length; i++) {
+            if (i > 0)
+                jpql.append(", ");
+            jpql.append("o.").append(pks[i].getName());
+        }
+        Query query = broker.newQuery(JPQLParser.LANG_JPQL, jpql.toString());
+        query.getFetchConfiguration().setHint(SlicePersistence.HINT_TARGET, slice);
+        query.getFetchConfiguration().addFetchGroup(FetchGroup.NAME_ALL);
+        query.setRange(offset, offset + _batchSize);
+        return new ArrayList<>((Collection<?>) query.execute());
+    }
+
+    /**
+     * Refreshes the given instances of the active transaction of the reader,
+     * copies them to their target slices and deletes them from the reader.
+     * The copies are removed again if the version-checked deletes fail.
+     *
+     * @return number of instances moved
+     */
+    private int move(Broker reader, Map<String, List<Object>> moves) {
+        List<Object> pcs = new ArrayList<>();
+        for (List<Object> targeted : moves.values())
+            pcs.addAll(targeted);
+        reader.refreshAll(pcs, NO_CASCADE);
+
+        Map<String, List<Object>> copied = copy(reader, moves);
+        try {
+            for (Object pc : pcs)
+                reader.delete(pc, NO_CASCADE);
+            reader.commit();
+        } catch (RuntimeException re) {
+            if (_log.isWarnEnabled())
+                _log.warn(_loc.get("rebalance-conflict", copied.keySet()), re);
+            uncopy(copied);
+            throw re;
+        }
+        return pcs.size();
+    }
+
+    /**
+     * Copies the given instances to their target slices in a single
+     * transaction. An instance already present in its target slice is
+     * replaced.
+     *
+     * @return identities of the copies by target slice
+     */
+    private Map<String, List<Object>> copy(Broker reader,
+        Map<String, List<Object>> moves) {
+        Map<String, List<Object>> copied = new LinkedHashMap<>();
+        Broker writer = newBroker();
+        try {
+            writer.begin();
+            for (Map.Entry<String, List<Object>> move : moves.entrySet()) {
+                List<Object> pcs = move.getValue();
+                List<Object> oids = new ArrayList<>(pcs.size());
+                for (Object pc : pcs)
+                    oids.add(reader.getObjectId(pc));
+                writer.getFetchConfiguration().setHint(SlicePersistence.HINT_TARGET,
+                    move.getKey());
+                // finds of a single instance consider the targeted slice
+                boolean replace = false;
+                for (Object oid : oids) {
+                    Object pc = writer.find(oid, true, null);
+                    if (pc != null) {
+                        writer.delete(pc, NO_CASCADE);
+                        replace = true;
+                    }
+                }
+                if (replace)
+                    writer.flush();
+                for (Object pc : pcs)
+                    writer.persist(newCopy(reader, writer, pc), null);
+                copied.put(move.getKey(), oids);
+            }
+            writer.flush();
+            for (Map.Entry<String, List<Object>> move : moves.entrySet())
+                restoreVersions(reader, writer, move.getKey(), move.getValue());
+            writer.commit();
+        } finally {
+            if (writer.isActive())
+                writer.rollback();
+            writer.close();
+        }
+        return copied;
+    }
+
+    /**
+     * Sets the version of the flushed copies of the given instances in the
+     * given slice to the version of the instances, which the insert of the
+     * copies has reset.
+     */
+    private void restoreVersions(Broker reader, Broker writer, String slice,
+        List<Object> pcs) {
+        for (Object pc : pcs) {
+            OpenJPAStateManager sm = reader.getStateManager(pc);
+            ClassMetaData meta = sm.getMetaData();
+            FieldMetaData version = meta.getVersionField();
+            if (version == null)
+                continue;
+
+            StringBuilder jpql = new StringBuilder("UPDATE ")
+                .append(meta.getTypeAlias()).append(" o SET o.")
+                .append(version.getName()).append(" = :v WHERE ");
+            Map<String, Object> params = new HashMap<>();
+            params.put("v", sm.fetchField(version.getIndex(), false));
+            FieldMetaData[] pks = meta.getPrimaryKeyFields();
+            for (int i = 0; i < pks.length; i++) {
+                if (i > 0)
+                    jpql.append(" AND ");
+                jpql.append("o.").append(pks[i].getName()).append(" = :p")
+                    .append(i);
+                params.put("p" + i, sm.fetchField(pks[i].getIndex(), false));
+            }
+            Query query = writer.newQuery(JPQLParser.LANG_JPQL, jpql.toString());
+            query.getFetchConfiguration().setHint(SlicePersistence.HINT_TARGET, slice);
+            query.updateAll(params);
+        }
+    }
+
+    /**
+     * Deletes the copies of the given identities from their slices.
+     */
+    private void uncopy(Map<String, List<Object>> copied) {
+        Broker writer = newBroker();
+        try {
+            writer.begin();
+            for (Map.Entry<String, List<Object>> copy : copied.entrySet()) {
+                writer.getFetchConfiguration().setHint(SlicePersistence.HINT_TARGET,
+                    copy.getKey());
+                for (Object oid : copy.getValue()) {
+                    Object pc = writer.find(oid, true, null);
+                    if (pc != null)
+                        writer.delete(pc, NO_CASCADE);
+                }
+            }
+            writer.commit();
+        } finally {
+            if (writer.isActive())
+                writer.rollback();
+            writer.close();
+        }
+    }
+
+    /**
+     * Creates an unmanaged copy of the given instance of the reader that
+     * refers to the instances of the writer.
+     */
+    private Object newCopy(Broker reader, Broker writer, Object pc) {
+        OpenJPAStateManager sm = reader.getStateManager(pc);
+        ClassMetaData meta = sm.getMetaData();
+        PersistenceCapable copy = PCRegistry.newInstance(meta.getDescribedType(),
+            null, true);
+        for (FieldMetaData fmd : meta.getFields()) {
+            if (fmd.getManagement() != FieldMetaData.MANAGE_PERSISTENT
+                || fmd.isVersion())
+                continue;
+            Object value = copy(reader, writer, fmd, sm.fetchField(fmd.getIndex(), false));
+            Member member = fmd.getBackingMember();
+            if (member instanceof Field) {
+                Reflection.set(copy, (Field) member, value);
+            } else {
+                Method setter = Reflection.findSetter(meta.getDescribedType(),
+                    fmd.getName(), fmd.getDeclaredType(), true);
+                Reflection.set(copy, setter, value);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the given field value. Mutable values are copied and relations
+     * are replaced by the same instances of the writer.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private Object copy(Broker reader, Broker writer, FieldMetaData fmd, Object value) {
+        if (value == null)
+            return null;
+        ProxyManager proxies = _conf.getProxyManagerInstance();
+        switch (fmd.getDeclaredTypeCode()) {
+            case JavaTypes.PC:
+            case JavaTypes.PC_UNTYPED:
+                return relate(reader, writer, value);
+            case JavaTypes.DATE:
+                return proxies.copyDate((Date) value);
+            case JavaTypes.CALENDAR:
+                return proxies.copyCalendar((Calendar) value);
+            case JavaTypes.ARRAY:
+                Object array = proxies.copyArray(value);
+                if (fmd.getElement().isDeclaredTypePC()) {
+                    for (int i = 0; i < Array.getLength(array); i++)
+                        Array.set(array, i, relate(reader, writer, Array.get(array, i)));
+                }
+                return array;
+            case JavaTypes.COLLECTION:
+                Collection collection = proxies.copyCollection((Collection) value);
+                if (fmd.getElement().isDeclaredTypePC()) {
+                    List elements = new ArrayList(collection);
+                    collection.clear();
+                    for (Object element : elements)
+                        collection.add(relate(reader, writer, element));
+                }
+                return collection;
+            case JavaTypes.MAP:
+                Map map = proxies.copyMap((Map) value);
+                if (fmd.getKey().isDeclaredTypePC()
+                    || fmd.getElement().isDeclaredTypePC()) {
+                    Map<Object, Object> entries = new LinkedHashMap<>(map);
+                    map.clear();
+                    for (Map.Entry<Object, Object> entry : entries.entrySet())
+                        map.put(relate(reader, writer, entry.getKey()),
+                            relate(reader, writer, entry.getValue()));
+                }
+                return map;
+            default:
+                Object custom = proxies.copyCustom(value);
+                return (custom == null) ? value : custom;
+        }
+    }
+
+    /**
+     * Gets the instance of the writer with the identity of the given
+     * instance of the reader, without loading it.
+     */
+    private static Object relate(Broker reader, Broker writer, Object value) {
+        if (!(value instanceof PersistenceCapable))
+            return value;
+        return writer.find(reader.getObjectId(value), false, null);
+    }
+
+    /**
+     * Affirms if the instances of the given type can be moved, logging the
+     * reason once if they can not.
+     */
+    private boolean isMovable(ClassMetaData meta) {
+        Boolean movable = _movable.get(meta);
+        if (movable == null) {
+            String reason = getImmovableReason(meta);
+            if (reason != null && _log.isWarnEnabled())
+                _log.warn(_loc.get(reason, meta.getDescribedType().getName()));
+            movable = reason == null;
+            _movable.put(meta, movable);
+        }
+        return movable;
+    }
+
+    private String getImmovableReason(ClassMetaData meta) {
+        if (meta.getIdentityType() != ClassMetaData.ID_APPLICATION)
+            return "rebalance-no-app-id";
+        for (FieldMetaData pk : meta.getPrimaryKeyFields()) {
+            if (pk.getValueStrategy() == ValueStrategies.AUTOASSIGN)
+                return "rebalance-autoassign";
+        }
+        for (FieldMetaData fmd : meta.getFields()) {
+            if (fmd.getManagement() != FieldMetaData.MANAGE_PERSISTENT)
+                continue;
+            for (ValueMetaData vmd : new ValueMetaData[] { fmd, fmd.getKey(), fmd.getElement() }) {
+                if (vmd.isEmbeddedPC())
+                    return "rebalance-embedded";
+                ClassMetaData related = vmd.getDeclaredTypeMetaData();
+                if (related != null && !_conf.isReplicated(related.getDescribedType()))
+                    return "rebalance-collocated";
+            }
+        }
+        return null;
+    }
+}
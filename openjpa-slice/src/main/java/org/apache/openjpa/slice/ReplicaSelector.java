@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.UserException;
+
+/**
+ * Selects the slice that executes a query on a replicated type, which any
+ * slice holding the replica can answer.
+ * <br>
+ * The slice is selected by one of the strategies
+ * <ul>
+ * <li>{@link #FIRST}: the first candidate slice, i.e. always the same.
+ * <li>{@link #ROUND_ROBIN}: each candidate slice in turn.
+ * <li>{@link #LEAST_OUTSTANDING}: the candidate slice with the fewest
+ * queries in progress, or in turn among equally busy ones.
+ * </ul>
+ * If hedging is enabled, the selector also names an alternate slice. When
+ * the selected slice has not answered within the configured percentile of
+ * its recent response times, the query is sent to the alternate slice as
+ * well and the first answer is used.
+ *
+ * @since 3.2.3
+ */
+public class ReplicaSelector {
+    public static final String FIRST = "first";
+    public static final String ROUND_ROBIN = "round-robin";
+    public static final String LEAST_OUTSTANDING = "least-outstanding";
+
+    /**
+     * Number of response times kept per slice.
+     */
+    static final int SAMPLES = 256;
+
+    /**
+     * Number of response times of a slice required before it is hedged.
+     */
+    static final int MIN_SAMPLES = 32;
+
+    private static final Localizer _loc = Localizer.forPackage(ReplicaSelector.class);
+
+    private final String _strategy;
+    private final int _percentile;
+    private final AtomicInteger _next = new AtomicInteger();
+    private final AtomicLong _hedged = new AtomicLong();
+    private final ConcurrentHashMap<String, AtomicInteger> _outstanding = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Latency> _latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Create a selector.
+     *
+     * @param strategy one of {@link #FIRST}, {@link #ROUND_ROBIN} or
+     * {@link #LEAST_OUTSTANDING}
+     * @param hedgePercentile percentile of the response times of a slice
+     * after which the query is sent to an alternate slice. Zero disables
+     * hedging.
+     */
+    public ReplicaSelector(String strategy, int hedgePercentile) {
+        if (strategy == null)
+            strategy = FIRST;
+        if (!FIRST.equalsIgnoreCase(strategy) && !ROUND_ROBIN.equalsIgnoreCase(strategy)
+            && !LEAST_OUTSTANDING.equalsIgnoreCase(strategy))
+            throw new UserException(_loc.get("replica-bad-strategy", strategy,
+                Arrays.asList(FIRST, ROUND_ROBIN, LEAST_OUTSTANDING)));
+        if (hedgePercentile < 0 || hedgePercentile >= 100)
+            throw new UserException(_loc.get("replica-bad-percentile", hedgePercentile));
+        _strategy = strategy.toLowerCase();
+        _percentile = hedgePercentile;
+    }
+
+    /**
+     * Gets the strategy to select a slice.
+     */
+    public String getStrategy() {
+        return _strategy;
+    }
+
+    /**
+     * Gets the percentile of the response times of a slice after which the
+     * query is hedged, or zero if hedging is disabled.
+     */
+    public int getHedgePercentile() {
+        return _percentile;
+    }
+
+    /**
+     * Selects the slice to execute a query and, if hedging is enabled, an
+     * alternate slice.
+     *
+     * @param slices names of the candidate slices
+     * @return index of the selected slice in the given list followed by the
+     * index of the alternate slice, if any
+     */
+    public int[] select(List<String> slices) {
+        int n = slices.size();
+        if (n < 2)
+            return new int[] { 0 };
+        int first;
+        int second;
+        if (FIRST.equals(_strategy)) {
+            first = 0;
+            second = 1;
+        } else {
+            int start = Math.floorMod(_next.getAndIncrement(), n);
+            first = start;
+            second = (start + 1) % n;
+            if (LEAST_OUTSTANDING.equals(_strategy)) {
+                int least = Integer.MAX_VALUE;
+                int next = Integer.MAX_VALUE;
+                for (int k = 0; k < n; k++) {
+                    int i = (start + k) % n;
+                    int load = getOutstanding(slices.get(i));
+                    if (load < least) {
+                        second = first;
+                        next = least;
+                        first = i;
+                        least = load;
+                    } else if (load < next) {
+                        second = i;
+                        next = load;
+                    }
+                }
+            }
+        }
+        return (_percentile == 0) ? new int[] { first } : new int[] { first, second };
+    }
+
+    /**
+     * Gets the time after which a query not yet answered by the given slice
+     * is sent to the alternate slice, or -1 if the query is not hedged.
+     */
+    public long getHedgeDelay(String slice) {
+        if (_percentile == 0)
+            return -1;
+        Latency latency = _latencies.get(slice);
+        return (latency == null) ? -1 : latency.percentile(_percentile);
+    }
+
+    /**
+     * Notes that a query has been submitted to the given slice.
+     */
+    public void submitted(String slice) {
+        AtomicInteger count = _outstanding.get(slice);
+        if (count == null) {
+            count = new AtomicInteger();
+            AtomicInteger existing = _outstanding.putIfAbsent(slice, count);
+            if (existing != null)
+                count = existing;
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Notes that a query submitted to the given slice has been answered
+     * after the given time in nanoseconds.
+     */
+    public void completed(String slice, long nanos) {
+        AtomicInteger count = _outstanding.get(slice);
+        if (count != null)
+            count.decrementAndGet();
+        Latency latency = _latencies.get(slice);
+        if (latency == null) {
+            latency = new Latency();
+            Latency existing = _latencies.putIfAbsent(slice, latency);
+            if (existing != null)
+                latency = existing;
+        }
+        latency.record(nanos);
+    }
+
+    /**
+     * Notes that a query submitted to the given slice has been discarded
+     * before it was answered, without recording its response time.
+     */
+    public void abandoned(String slice) {
+        AtomicInteger count = _outstanding.get(slice);
+        if (count != null)
+            count.decrementAndGet();
+    }
+
+    /**
+     * Notes that a query has been sent to an alternate slice.
+     */
+    public void hedged() {
+        _hedged.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of queries in progress on the given slice.
+     */
+    public int getOutstanding(String slice) {
+        AtomicInteger count = _outstanding.get(slice);
+        return (count == null) ? 0 : count.get();
+    }
+
+    /**
+     * Gets the number of queries sent to an alternate slice.
+     */
+    public long getHedgedCount() {
+        return _hedged.get();
+    }
+
+    /**
+     * Recent response times of a slice.
+     */
+    private static class Latency {
+        private final long[] _samples = new long[SAMPLES];
+        private int _count;
+        private long _recorded;
+        private long _percentile = -1;
+        private long _percentileOf = -1;
+
+        synchronized void record(long nanos) {
+            _samples[_count++ % SAMPLES] = nanos;
+            // wrap around without losing the count of available samples
+            if (_count == 2 * SAMPLES)
+                _count = SAMPLES;
+            _recorded++;
+        }
+
+        /**
+         * Gets the given percentile of the recent response times, recomputed
+         * after every sixteen responses.
+         */
+        synchronized long percentile(int percentile) {
+            if (_count < MIN_SAMPLES)
+                return -1;
+            if (_percentile < 0 || _recorded - _percentileOf >= 16) {
+                long[] sorted = Arrays.copyOf(_samples, Math.min(_count, SAMPLES));
+                Arrays.sort(sorted);
+                _percentile = sorted[(sorted.length - 1) * percentile / 100];
+                _percentileOf = _recorded;
+            }
+            return _percentile;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.GeneralException;
+
+/**
+ * Records the outcome of commits that span more than one slice in a file,
+ * so that a transaction that committed on some slices but not on others can
+ * be reconciled by hand.
+ * <br>
+ * Slices that are not XA-compliant can not take part in a two-phase commit
+ * protocol, so a commit across slices is best-effort. A transaction is
+ * recorded as <em>started</em>, with the names of its slices, before any
+ * slice commits, and is recorded as <em>done</em> once every slice has
+ * committed. Each slice that commits is recorded in between. A transaction
+ * found started but not done when the log is opened again was interrupted
+ * or failed on some slices, and stays in the log until it is
+ * {@link #resolve(String) resolved}. The log is not a recovery log: it holds
+ * no changes, so nothing is replayed or rolled back from it.
+ * <br>
+ * Only the started record is forced to disk before the slices commit, so
+ * after a crash a slice not recorded as committed may nevertheless have
+ * committed.
+ *
+ * @since 3.2.3
+ */
+public class SliceCommitLog {
+    private static final Localizer _loc = Localizer.forPackage(SliceCommitLog.class);
+
+    static final String STARTED = "STARTED";
+    static final String COMMITTED = "COMMITTED";
+    static final String DONE = "DONE";
+
+    /**
+     * Number of transactions done after which the log is compacted.
+     */
+    static final int COMPACT_INTERVAL = 10000;
+
+    private final File _file;
+    private final String _prefix = Long.toString(System.currentTimeMillis(), 36) + '-';
+    private final AtomicLong _next = new AtomicLong();
+    private final Map<String, Entry> _pending = new LinkedHashMap<>();
+    private int _done;
+
+    /**
+     * Opens the log in the given file, reading the transactions left
+     * incomplete in it.
+     */
+    public SliceCommitLog(String path) {
+        _file = new File(path);
+        try {
+            read();
+            compact();
+        } catch (IOException e) {
+            throw new GeneralException(_loc.get("commit-log-io", _file), e);
+        }
+    }
+
+    /**
+     * Gets the file of the log.
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Records that a transaction is about to commit on the given slices.
+     *
+     * @return the identifier of the transaction in the log
+     */
+    public String started(List<String> slices) {
+        String id = _prefix + _next.incrementAndGet();
+        Entry entry = new Entry(id, slices);
+        synchronized (this) {
+            _pending.put(id, entry);
+            write(id + ' ' + STARTED + ' ' + join(slices), true);
+        }
+        return id;
+    }
+
+    /**
+     * Records that the given slice has committed the given transaction.
+     */
+    public void committed(String id, String slice) {
+        synchronized (this) {
+            Entry entry = _pending.get(id);
+            if (entry != null)
+                entry._committed.add(slice);
+            write(id + ' ' + COMMITTED + ' ' + slice, false);
+        }
+    }
+
+    /**
+     * Records that every slice has committed the given transaction, or that
+     * the incomplete transaction has been reconciled.
+     */
+    public synchronized void resolve(String id) {
+        if (_pending.remove(id) == null)
+            return;
+        write(id + ' ' + DONE, false);
+        if (++_done >= COMPACT_INTERVAL) {
+            try {
+                compact();
+            } catch (IOException e) {
+                throw new GeneralException(_loc.get("commit-log-io", _file), e);
+            }
+        }
+    }
+
+    /**
+     * Gets the transactions that are started but not done, including the
+     * ones that are committing now.
+     */
+    public synchronized List<Entry> getIncomplete() {
+        return new ArrayList<>(_pending.values());
+    }
+
+    private void read() throws IOException {
+        if (!_file.exists())
+            return;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+            new FileInputStream(_file), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] tokens = line.trim().split(" ");
+                if (tokens.length < 2)
+                    continue;
+                String id = tokens[0];
+                if (STARTED.equals(tokens[1])) {
+                    List<String> slices = (tokens.length < 3) ? Collections.<String> emptyList()
+                        : Arrays.asList(tokens[2].split(","));
+                    _pending.put(id, new Entry(id, slices));
+                } else if (COMMITTED.equals(tokens[1]) && tokens.length > 2) {
+                    Entry entry = _pending.get(id);
+                    if (entry != null)
+                        entry._committed.add(tokens[2]);
+                } else if (DONE.equals(tokens[1])) {
+                    _pending.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the log with the pending transactions only.
+     */
+    private synchronized void compact() throws IOException {
+        File parent = _file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists())
+            parent.mkdirs();
+        File tmp = new File(_file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp),
+            StandardCharsets.UTF_8)) {
+            for (Entry entry : _pending.values()) {
+                out.write(entry._id + ' ' + STARTED + ' ' + join(entry._slices) + '\n');
+                for (String slice : entry._committed)
+                    out.write(entry._id + ' ' + COMMITTED + ' ' + slice + '\n');
+            }
+        }
+        if (_file.exists() && !_file.delete() || !tmp.renameTo(_file))
+            throw new IOException(_file.getPath());
+        _done = 0;
+    }
+
+    private void write(String line, boolean force) {
+        try (FileOutputStream out = new FileOutputStream(_file, true)) {
+            out.write((line + '\n').getBytes(StandardCharsets.UTF_8));
+            if (force)
+                out.getFD().sync();
+        } catch (IOException e) {
+            throw new GeneralException(_loc.get("commit-log-io", _file), e);
+        }
+    }
+
+    private static String join(Collection<String> slices) {
+        StringBuilder buf = new StringBuilder();
+        for (String slice : slices) {
+            if (buf.length() > 0)
+                buf.append(',');
+            buf.append(slice);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A transaction that is started but not done.
+     */
+    public static class Entry {
+        private final String _id;
+        private final List<String> _slices;
+        private final Set<String> _committed = new LinkedHashSet<>();
+
+        Entry(String id, List<String> slices) {
+            _id = id;
+            _slices = Collections.unmodifiableList(new ArrayList<>(slices));
+        }
+
+        /**
+         * Gets the identifier of the transaction in the log.
+         */
+        public String getId() {
+            return _id;
+        }
+
+        /**
+         * Gets the slices the transaction was to commit on.
+         */
+        public List<String> getSlices() {
+            return _slices;
+        }
+
+        /**
+         * Gets the slices recorded to have committed the transaction.
+         */
+        public Set<String> getCommitted() {
+            return Collections.unmodifiableSet(_committed);
+        }
+
+        @Override
+        public String toString() {
+            return _id + " slices=" + _slices + " committed=" + _committed;
+        }
+    }
+}
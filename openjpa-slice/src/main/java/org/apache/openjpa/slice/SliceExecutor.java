@@ -0,0 +1,441 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.UserException;
+
+/**
+ * Executes database operations against individual slices in parallel.
+ * One executor is created per {@link DistributedConfiguration} and hence
+ * per persistence unit, so that a load spike on one unit can not starve
+ * the others.
+ * <br>
+ * Tasks run either on a bounded pool of {@link SliceThread slice threads}
+ * or, on JDK 21 and later when so configured, on virtual threads. In both
+ * cases {@link SliceThread#isSliceThread()} affirms for the executing
+ * thread, so that {@link ReentrantSliceLock} lets the task work under the
+ * lock held by the submitting thread. Tasks submitted from a thread that
+ * is already executing a slice task run inline, because waiting on the
+ * same bounded pool from within it may deadlock.
+ * <br>
+ * The executor keeps the number of queued tasks and the execution time
+ * of tasks per slice for monitoring.
+ *
+ * @since 3.2.3
+ */
+public class SliceExecutor {
+    /**
+     * Rejection policy that runs a task in the submitting thread when
+     * both the pool and its queue are full.
+     */
+    public static final String REJECT_CALLER_RUNS = "caller-runs";
+
+    /**
+     * Rejection policy that fails a task when both the pool and its queue
+     * are full.
+     */
+    public static final String REJECT_ABORT = "abort";
+
+    private static final Localizer _loc = Localizer.forPackage(SliceExecutor.class);
+
+    private final ExecutorService _pool;
+    private final String _name;
+    private final AtomicInteger _queued = new AtomicInteger();
+    private final AtomicInteger _active = new AtomicInteger();
+    private final AtomicLong _rejected = new AtomicLong();
+    private final ConcurrentHashMap<String, Statistics> _stats = new ConcurrentHashMap<>();
+
+    /**
+     * Create an executor.
+     *
+     * @param name prefix for the names of the threads created
+     * @param threads maximum number of platform threads. Non-positive
+     * value denotes twice the number of available processors.
+     * @param queueSize maximum number of tasks waiting for a thread.
+     * Zero hands tasks directly to threads and negative value denotes an
+     * unbounded queue.
+     * @param rejection either {@link #REJECT_CALLER_RUNS} or
+     * {@link #REJECT_ABORT}
+     * @param virtual if true and the runtime supports them, run each task
+     * in its own virtual thread instead of a bounded platform pool
+     * @param log log to report fallback from virtual threads
+     */
+    public SliceExecutor(String name, int threads, int queueSize,
+        String rejection, boolean virtual, Log log) {
+        _name = name;
+        ExecutorService pool = null;
+        if (virtual) {
+            pool = newVirtualThreadExecutor();
+            if (pool == null && log != null && log.isWarnEnabled())
+                log.warn(_loc.get("slice-virtual-unsupported", name));
+        }
+        if (pool == null)
+            pool = newPlatformThreadExecutor(threads, queueSize, rejection);
+        _pool = pool;
+    }
+
+    private ExecutorService newPlatformThreadExecutor(int threads, int queueSize,
+        String rejection) {
+        if (threads <= 0)
+            threads = 2 * Runtime.getRuntime().availableProcessors();
+        BlockingQueue<Runnable> queue;
+        if (queueSize == 0)
+            queue = new SynchronousQueue<>();
+        else if (queueSize < 0)
+            queue = new LinkedBlockingQueue<>();
+        else
+            queue = new ArrayBlockingQueue<>(queueSize);
+
+        RejectedExecutionHandler handler;
+        if (rejection == null || REJECT_CALLER_RUNS.equalsIgnoreCase(rejection))
+            handler = new CallerRuns();
+        else if (REJECT_ABORT.equalsIgnoreCase(rejection))
+            handler = new Abort();
+        else
+            throw new UserException(_loc.get("slice-bad-rejection", rejection,
+                REJECT_CALLER_RUNS, REJECT_ABORT));
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+            60L, TimeUnit.SECONDS, queue, new SliceThreadFactory(_name), handler);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per task, if the
+     * runtime supports virtual threads. The executor is located reflectively
+     * because this module is compiled against an earlier platform.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory")
+                .invoke(builder);
+            return (ExecutorService) Executors.class
+                .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, factory);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Submit the given task to be executed against the given slice.
+     *
+     * @param slice name of the slice the task operates on. Used to collect
+     * the statistics.
+     */
+    public <T> Future<T> submit(String slice, Callable<T> task) {
+        SliceTask<T> future = new SliceTask<>(new Timed<>(slice, task),
+            Thread.currentThread());
+        if (SliceThread.isSliceThread()) {
+            future.run(true);
+            return future;
+        }
+        _queued.incrementAndGet();
+        try {
+            _pool.execute(future);
+        } catch (RejectedExecutionException e) {
+            _queued.decrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Gets an executor that submits the tasks it is given to be executed
+     * against the given slice.
+     */
+    public Executor executor(final String slice) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                submit(slice, Executors.callable(task));
+            }
+        };
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return _queued.get();
+    }
+
+    /**
+     * Gets the number of tasks being executed.
+     */
+    public int getActiveCount() {
+        return _active.get();
+    }
+
+    /**
+     * Gets the number of tasks rejected or run in the submitting thread
+     * because the pool and its queue were full.
+     */
+    public long getRejectedCount() {
+        return _rejected.get();
+    }
+
+    /**
+     * Gets the execution statistics of the given slice, or null if no task
+     * has been executed against it.
+     */
+    public Statistics getStatistics(String slice) {
+        return _stats.get(slice);
+    }
+
+    /**
+     * Gets the execution statistics of all slices keyed by slice name.
+     */
+    public Map<String, Statistics> getStatistics() {
+        return Collections.unmodifiableMap(new TreeMap<>(_stats));
+    }
+
+    /**
+     * Affirms if this executor runs tasks on virtual threads.
+     */
+    public boolean isVirtual() {
+        return !(_pool instanceof ThreadPoolExecutor);
+    }
+
+    /**
+     * Stops accepting new tasks. Tasks already submitted complete.
+     */
+    public void shutdown() {
+        _pool.shutdown();
+    }
+
+    private void record(String slice, long nanos) {
+        if (slice == null)
+            return;
+        Statistics stats = _stats.get(slice);
+        if (stats == null) {
+            stats = new Statistics();
+            Statistics existing = _stats.putIfAbsent(slice, stats);
+            if (existing != null)
+                stats = existing;
+        }
+        stats.record(nanos);
+    }
+
+    /**
+     * Execution statistics of the tasks run against a single slice.
+     * Times are measured in nanoseconds from the start of execution, so
+     * they do not include the time a task waited in the queue.
+     */
+    public static class Statistics {
+        private final AtomicLong _count = new AtomicLong();
+        private final AtomicLong _total = new AtomicLong();
+        private final AtomicLong _max = new AtomicLong();
+
+        void record(long nanos) {
+            _count.incrementAndGet();
+            _total.addAndGet(nanos);
+            long max;
+            while ((max = _max.get()) < nanos && !_max.compareAndSet(max, nanos));
+        }
+
+        /**
+         * Gets the number of tasks executed.
+         */
+        public long getCount() {
+            return _count.get();
+        }
+
+        /**
+         * Gets the total execution time.
+         */
+        public long getTotalTime() {
+            return _total.get();
+        }
+
+        /**
+         * Gets the longest execution time.
+         */
+        public long getMaxTime() {
+            return _max.get();
+        }
+
+        /**
+         * Gets the average execution time.
+         */
+        public long getAverageTime() {
+            long count = _count.get();
+            return (count == 0) ? 0 : _total.get() / count;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + " avg=" + getAverageTime()
+                + "ns max=" + getMaxTime() + "ns";
+        }
+    }
+
+    /**
+     * Records the execution time of a task before its result is published,
+     * so the statistics are current once the result can be obtained.
+     */
+    private class Timed<T> implements Callable<T> {
+        private final String _slice;
+        private final Callable<T> _task;
+
+        Timed(String slice, Callable<T> task) {
+            _slice = slice;
+            _task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            long start = System.nanoTime();
+            try {
+                return _task.call();
+            } finally {
+                record(_slice, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * A task that marks its executing thread as a slice thread of the
+     * submitting thread.
+     */
+    private class SliceTask<T> extends FutureTask<T> {
+        private final Thread _parent;
+        private boolean _started;
+
+        SliceTask(Callable<T> task, Thread parent) {
+            super(task);
+            _parent = parent;
+        }
+
+        /**
+         * Run on a pool thread, or in the submitting thread when rejected
+         * by the pool.
+         */
+        @Override
+        public void run() {
+            run(false);
+        }
+
+        /**
+         * Run the task.
+         *
+         * @param inline whether the task runs inline in a thread that is
+         * already executing a slice task, in which case it keeps the parent
+         * of that task and was never queued
+         */
+        void run(boolean inline) {
+            if (!inline)
+                dequeue();
+            _active.incrementAndGet();
+            Thread previous = SliceThread.setParent(inline
+                ? SliceThread.getCurrentParent() : _parent);
+            try {
+                super.run();
+            } finally {
+                SliceThread.setParent(previous);
+                _active.decrementAndGet();
+            }
+        }
+
+        /**
+         * Account for this task leaving the queue. Runs at most once.
+         */
+        synchronized void dequeue() {
+            if (!_started) {
+                _started = true;
+                _queued.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Runs a rejected task in the submitting thread, which holds the locks
+     * the task requires.
+     */
+    private class CallerRuns implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+            _rejected.incrementAndGet();
+            if (pool.isShutdown())
+                throw new RejectedExecutionException(_loc.get("slice-pool-shutdown",
+                    _name).getMessage());
+            ((SliceTask<?>) r).dequeue();
+            r.run();
+        }
+    }
+
+    /**
+     * Fails a rejected task.
+     */
+    private class Abort implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+            _rejected.incrementAndGet();
+            throw new RejectedExecutionException(_loc.get("slice-pool-full",
+                _name).getMessage());
+        }
+    }
+
+    /**
+     * Creates slice threads named after the executor.
+     */
+    private static class SliceThreadFactory implements ThreadFactory {
+        private final String _prefix;
+        private final AtomicInteger _n = new AtomicInteger();
+
+        SliceThreadFactory(String prefix) {
+            _prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new SliceThread(_prefix + "-slice-" + _n.getAndIncrement(),
+                Thread.currentThread(), r);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.openjpa.event.RemoteCommitEvent;
+import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.util.CacheMap;
+
+/**
+ * Remembers the slice that stores an instance of a non-replicated type, so
+ * that loading the instance by its identity queries that slice only instead
+ * of every slice in turn.
+ * <br>
+ * The slice of an instance is recorded whenever the instance is loaded from
+ * or flushed to a slice, and forgotten when the instance is deleted, locally
+ * or, if remote commit events are enabled, remotely. A recorded slice is
+ * only a hint: if the instance is not found in it, the entry is discarded
+ * and all slices are queried. The number of entries is bounded; when the
+ * cache is full, arbitrary entries are evicted.
+ *
+ * @since 3.2.3
+ */
+public class SliceLocationCache implements RemoteCommitListener {
+    private final CacheMap _slices;
+    private final AtomicLong _hits = new AtomicLong();
+    private final AtomicLong _misses = new AtomicLong();
+    private final AtomicLong _stale = new AtomicLong();
+    private final AtomicLong _fanOuts = new AtomicLong();
+
+    /**
+     * Create a cache of the given maximum number of entries.
+     */
+    public SliceLocationCache(int size) {
+        _slices = new CacheMap(false, size);
+        _slices.setSoftReferenceSize(0);
+    }
+
+    /**
+     * Gets the slice recorded for the given identity, or null.
+     */
+    public String get(Object oid) {
+        return (oid == null) ? null : (String) _slices.get(oid);
+    }
+
+    /**
+     * Records the slice that stores the instance of the given identity.
+     */
+    public void put(Object oid, String slice) {
+        if (oid != null && slice != null)
+            _slices.put(oid, slice);
+    }
+
+    /**
+     * Forgets the slice of the given identity.
+     */
+    public void remove(Object oid) {
+        if (oid != null)
+            _slices.remove(oid);
+    }
+
+    /**
+     * Forgets all slices.
+     */
+    public void clear() {
+        _slices.clear();
+    }
+
+    /**
+     * Gets the number of identities whose slice is recorded.
+     */
+    public int size() {
+        return _slices.size();
+    }
+
+    /**
+     * Gets the maximum number of identities whose slice is recorded.
+     */
+    public int getCacheSize() {
+        return _slices.getCacheSize();
+    }
+
+    /**
+     * Counts a lookup that found the instance in its recorded slice.
+     */
+    public void hit() {
+        _hits.incrementAndGet();
+    }
+
+    /**
+     * Counts a lookup without a recorded slice. A stale lookup found no
+     * instance in the recorded slice.
+     */
+    public void miss(boolean stale) {
+        _misses.incrementAndGet();
+        if (stale)
+            _stale.incrementAndGet();
+    }
+
+    /**
+     * Counts a lookup that queried more than one slice.
+     */
+    public void fanOut() {
+        _fanOuts.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of lookups that queried the recorded slice only.
+     */
+    public long getHitCount() {
+        return _hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that could not use a recorded slice,
+     * including the stale ones.
+     */
+    public long getMissCount() {
+        return _misses.get();
+    }
+
+    /**
+     * Gets the number of lookups that did not find the instance in the
+     * recorded slice.
+     */
+    public long getStaleCount() {
+        return _stale.get();
+    }
+
+    /**
+     * Gets the number of lookups that queried more than one slice.
+     */
+    public long getFanOutCount() {
+        return _fanOuts.get();
+    }
+
+    /**
+     * Gets the ratio of hits to all lookups, or zero if there has been no
+     * lookup.
+     */
+    public double getHitRatio() {
+        long hits = _hits.get();
+        long total = hits + _misses.get();
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Resets the statistics.
+     */
+    public void reset() {
+        _hits.set(0);
+        _misses.set(0);
+        _stale.set(0);
+        _fanOuts.set(0);
+    }
+
+    /**
+     * Forgets the slices of the instances deleted remotely. Events that
+     * do not carry identities forget all slices.
+     */
+    @Override
+    public void afterCommit(RemoteCommitEvent event) {
+        if (event.getPayloadType() == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+            if (!event.getDeletedTypeNames().isEmpty())
+                clear();
+            return;
+        }
+        for (Object oid : event.getDeletedObjectIds())
+            remove(oid);
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    @Override
+    public String toString() {
+        return "hits=" + getHitCount() + " misses=" + getMissCount()
+            + " stale=" + getStaleCount() + " fan-outs=" + getFanOutCount()
+            + " size=" + size();
+    }
+}
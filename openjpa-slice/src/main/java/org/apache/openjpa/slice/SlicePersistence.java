@@ -57,7 +57,13 @@ public class SlicePersistence {
 		if (info == null)
 			return null;
 		String[] names = info.getSlices();
-		return info.isReplicated() ? Arrays.toString(names) : names[0];
+		if (info.isReplicated())
+			return Arrays.toString(names);
+		SliceLocationCache locations = ((DistributedConfiguration) sm.getContext()
+			.getConfiguration()).getLocationCacheInstance();
+		if (locations != null && !sm.isNew())
+			locations.put(sm.getObjectId(), names[0]);
+		return names[0];
 	}
 
 	/**
@@ -31,6 +31,7 @@ import java.util.concurrent.ThreadFactory;
 public class SliceThread extends Thread {
     private final Thread _parent;
     private static ExecutorService _pool;
+    private static final ThreadLocal<Thread> _currentParent = new ThreadLocal<>();
 
     public SliceThread(String name, Thread parent, Runnable r) {
         super(r, name);
@@ -50,12 +51,51 @@ public class SliceThread extends Thread {
         return _parent;
     }
 
+    /**
+     * Affirms if the current thread executes an operation on behalf of a
+     * parent thread, either because it is a slice thread or because it runs
+     * a task of a {@link SliceExecutor}.
+     *
+     * @since 3.2.3
+     */
+    public static boolean isSliceThread() {
+        return Thread.currentThread() instanceof SliceThread
+            || _currentParent.get() != null;
+    }
+
+    /**
+     * Gets the thread that submitted the slice task the current thread is
+     * executing, or null if it executes no slice task.
+     *
+     * @since 3.2.3
+     */
+    public static Thread getCurrentParent() {
+        return _currentParent.get();
+    }
+
+    /**
+     * Sets the thread that submitted the slice task the current thread is
+     * about to execute, or clears it if null.
+     *
+     * @return the previous value
+     */
+    static Thread setParent(Thread parent) {
+        Thread previous = _currentParent.get();
+        if (parent == null)
+            _currentParent.remove();
+        else
+            _currentParent.set(parent);
+        return previous;
+    }
+
     /**
      * Create a cached pool of <em>slice</em> threads.
      * The thread factory creates specialized threads for preferential locking treatment.
      *
+     * @deprecated the pool is unbounded and shared by all persistence units.
+     * Use {@link DistributedConfiguration#getExecutorInstance()} instead.
      */
-
+    @Deprecated
     public static ExecutorService getPool() {
         if (_pool == null) {
             _pool = Executors.newCachedThreadPool(new SliceThreadFactory());
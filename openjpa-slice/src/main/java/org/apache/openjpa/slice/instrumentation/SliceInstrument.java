@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.instrumentation;
+
+/**
+ * Statistics of the slices of a persistence unit.
+ *
+ * @since 3.2.3
+ */
+public interface SliceInstrument {
+
+    /**
+     * Returns number of loads by identity that queried only the slice
+     * recorded for the identity.
+     */
+    long getLocationHitCount();
+
+    /**
+     * Returns number of loads by identity that could not use a recorded
+     * slice.
+     */
+    long getLocationMissCount();
+
+    /**
+     * Returns number of loads by identity that did not find the instance in
+     * the recorded slice.
+     */
+    long getLocationStaleCount();
+
+    /**
+     * Returns ratio of location hits to all loads by identity that could
+     * have used a recorded slice.
+     */
+    double getLocationHitRatio();
+
+    /**
+     * Returns number of loads by identity that queried more than one slice.
+     */
+    long getFanOutCount();
+
+    /**
+     * Returns number of identities whose slice is recorded.
+     */
+    int getLocationCacheSize();
+
+    /**
+     * Returns number of slice operations waiting for a thread.
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns number of slice operations being executed.
+     */
+    int getActiveCount();
+
+    /**
+     * Returns number of slice operations rejected by, or run outside of,
+     * the full slice thread pool.
+     */
+    long getRejectedCount();
+
+    /**
+     * Gets the number of queries on replicated types that were also sent to
+     * an alternate slice because the selected slice was slow.
+     */
+    long getHedgedCount();
+
+    /**
+     * Returns execution count and times of the operations per slice.
+     */
+    String getExecutionStatistics();
+
+    /**
+     * Resets location statistics.
+     */
+    void reset();
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.instrumentation.jmx;
+
+import javax.management.ObjectName;
+
+import org.apache.openjpa.instrumentation.jmx.JMXInstrument;
+import org.apache.openjpa.instrumentation.jmx.JMXProvider;
+import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
+import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.slice.DistributedConfiguration;
+import org.apache.openjpa.slice.SliceExecutor;
+import org.apache.openjpa.slice.SliceLocationCache;
+import org.apache.openjpa.util.UserException;
+
+/**
+ * A JMX-specific instrument for the slices of a persistence unit.
+ * Configure it by class name, for example
+ * <code>openjpa.Instrumentation=jmx(Instrument=org.apache.openjpa.slice.instrumentation.jmx.SliceJMXInstrument)</code>.
+ *
+ * @since 3.2.3
+ */
+public class SliceJMXInstrument extends AbstractInstrument
+    implements JMXInstrument, SliceJMXInstrumentMBean {
+
+    private static final Localizer _loc = Localizer.forPackage(SliceJMXInstrument.class);
+
+    private static final String MBEAN_TYPE = "Slice";
+
+    private DistributedConfiguration _conf;
+    private ObjectName _objName = null;
+    private String _configId;
+    private String _contextRef;
+
+    @Override
+    public String getName() {
+        return MBEAN_TYPE;
+    }
+
+    @Override
+    public InstrumentationLevel getLevel() {
+        return InstrumentationLevel.FACTORY;
+    }
+
+    @Override
+    public void initialize() {
+        Object conf = getProvider().getConfiguration();
+        if (!(conf instanceof DistributedConfiguration))
+            throw new UserException(_loc.get("slice-config-not-found"));
+        _conf = (DistributedConfiguration) conf;
+        setConfigId(_conf.getId());
+        setContextRef(Integer.toString(System.identityHashCode(getContext())));
+    }
+
+    private SliceLocationCache getLocations() {
+        return _conf.getLocationCacheInstance();
+    }
+
+    private SliceExecutor getExecutor() {
+        return _conf.getExecutorInstance();
+    }
+
+    @Override
+    public long getLocationHitCount() {
+        SliceLocationCache locations = getLocations();
+        return (locations == null) ? 0 : locations.getHitCount();
+    }
+
+    @Override
+    public long getLocationMissCount() {
+        SliceLocationCache locations = getLocations();
+        return (locations == null) ? 0 : locations.getMissCount();
+    }
+
+    @Override
+    public long getLocationStaleCount() {
+        SliceLocationCache locations = getLocations();
+        return (locations == null) ? 0 : locations.getStaleCount();
+    }
+
+    @Override
+    public double getLocationHitRatio() {
+        SliceLocationCache locations = getLocations();
+        return (locations == null) ? 0 : locations.getHitRatio();
+    }
+
+    @Override
+    public long getFanOutCount() {
+        SliceLocationCache locations = getLocations();
+        return (locations == null) ? 0 : locations.getFanOutCount();
+    }
+
+    @Override
+    public int getLocationCacheSize() {
+        SliceLocationCache locations = getLocations();
+        return (locations == null) ? 0 : locations.size();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return getExecutor().getQueueDepth();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return getExecutor().getActiveCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return getExecutor().getRejectedCount();
+    }
+
+    @Override
+    public long getHedgedCount() {
+        return _conf.getReplicaSelectorInstance().getHedgedCount();
+    }
+
+    @Override
+    public String getExecutionStatistics() {
+        return getExecutor().getStatistics().toString();
+    }
+
+    @Override
+    public void reset() {
+        SliceLocationCache locations = getLocations();
+        if (locations != null)
+            locations.reset();
+    }
+
+    @Override
+    public void setConfigId(String cid) {
+        _configId = cid;
+    }
+
+    @Override
+    public String getConfigId() {
+        return _configId;
+    }
+
+    @Override
+    public void setContextRef(String cref) {
+        _contextRef = cref;
+    }
+
+    @Override
+    public String getContextRef() {
+        return _contextRef;
+    }
+
+    @Override
+    public ObjectName getObjectName() {
+        if (_objName != null) {
+            return _objName;
+        }
+
+        try {
+            _objName = JMXProvider.createObjectName(this, null);
+            return _objName;
+        } catch (Throwable t) {
+            throw new UserException(_loc.get("unable-to-create-object-name", getName()), t);
+        }
+    }
+
+    @Override
+    public void start() {
+        getProvider().startInstrument(this);
+    }
+
+    @Override
+    public void stop() {
+        getProvider().stopInstrument(this);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.kernel.exps.ExpressionVisitor;
+import org.apache.openjpa.kernel.exps.InMemoryExpressionFactory;
+import org.apache.openjpa.kernel.exps.Val;
+import org.apache.openjpa.kernel.exps.Value;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.UnsupportedException;
+
+/**
+ * In-memory expression factory that a query is parsed with a second time to
+ * plan the merge of the partial aggregates of slices.
+ * <br>
+ * Every aggregate is built as a {@link PartialAggregate}, which records the
+ * kind of aggregate the parser asked for, whether it operates on distinct
+ * values, and evaluates to the merged value of its column in a merged row.
+ * The <code>HAVING</code> expression of the parsed query can so be evaluated
+ * on merged rows by the coordinator.
+ *
+ * @since 3.2.3
+ */
+class AggregateExpressionFactory extends InMemoryExpressionFactory {
+    private static final Localizer _loc =
+        Localizer.forPackage(AggregateExpressionFactory.class);
+
+    private final Set<Value> _distinct =
+        Collections.newSetFromMap(new IdentityHashMap<Value, Boolean>());
+
+    @Override
+    public Value count(Value val) {
+        return new PartialAggregate(AggregateResultObjectProvider.Plan.COUNT,
+            super.count(val), val, isDistinct(val));
+    }
+
+    @Override
+    public Value sum(Value val) {
+        return new PartialAggregate(AggregateResultObjectProvider.Plan.SUM,
+            super.sum(val), val, isDistinct(val));
+    }
+
+    @Override
+    public Value min(Value val) {
+        return new PartialAggregate(AggregateResultObjectProvider.Plan.MIN,
+            super.min(val), val, isDistinct(val));
+    }
+
+    @Override
+    public Value max(Value val) {
+        return new PartialAggregate(AggregateResultObjectProvider.Plan.MAX,
+            super.max(val), val, isDistinct(val));
+    }
+
+    @Override
+    public Value avg(Value val) {
+        return new PartialAggregate(AggregateResultObjectProvider.Plan.AVG,
+            super.avg(val), val, isDistinct(val));
+    }
+
+    @Override
+    public Value distinct(Value val) {
+        Value distinct = super.distinct(val);
+        _distinct.add(distinct);
+        return distinct;
+    }
+
+    @Override
+    public Value mapEntry(Value key, Value val) {
+        return new Unevaluable("ENTRY");
+    }
+
+    @Override
+    public Value mapKey(Value key, Value val) {
+        return new Unevaluable("KEY");
+    }
+
+    @Override
+    public Value getKey(Value val) {
+        return new Unevaluable("KEY");
+    }
+
+    private boolean isDistinct(Value val) {
+        return _distinct.contains(val);
+    }
+
+    /**
+     * An aggregate whose value is read from a merged row.
+     */
+    static class PartialAggregate extends Val {
+        private static final long serialVersionUID = 1L;
+
+        private final int _kind;
+        private final Val _aggregate;
+        private final Value _arg;
+        private final boolean _distinct;
+        private int _column = -1;
+
+        PartialAggregate(int kind, Value aggregate, Value arg,
+            boolean distinct) {
+            _kind = kind;
+            _aggregate = (Val) aggregate;
+            _arg = arg;
+            _distinct = distinct;
+        }
+
+        /**
+         * The kind of aggregate, one of the aggregate kinds of
+         * {@link AggregateResultObjectProvider.Plan}.
+         */
+        int getKind() {
+            return _kind;
+        }
+
+        /**
+         * Whether the aggregate operates on distinct values.
+         */
+        boolean isDistinct() {
+            return _distinct;
+        }
+
+        /**
+         * Set the column of merged rows this aggregate evaluates to.
+         */
+        void setColumn(int column) {
+            _column = column;
+        }
+
+        @Override
+        public Class getType() {
+            return _aggregate.getType();
+        }
+
+        @Override
+        public void setImplicitType(Class type) {
+        }
+
+        @Override
+        public boolean isAggregate() {
+            return true;
+        }
+
+        @Override
+        protected Object eval(Object candidate, Object orig,
+            StoreContext ctx, Object[] params) {
+            if (candidate instanceof Collection)
+                candidate = ((Collection) candidate).iterator().next();
+            return ((Object[]) candidate)[_column];
+        }
+
+        @Override
+        protected Collection eval(Collection candidates, Object orig,
+            StoreContext ctx, Object[] params) {
+            return Collections.singleton(eval((Object) candidates, orig, ctx,
+                params));
+        }
+
+        @Override
+        public void acceptVisit(ExpressionVisitor visitor) {
+            visitor.enter(this);
+            _arg.acceptVisit(visitor);
+            visitor.exit(this);
+        }
+    }
+
+    /**
+     * A value that the in-memory factory can not evaluate. It only stands in
+     * for parts of the query that are not evaluated by the coordinator.
+     */
+    static class Unevaluable extends Val {
+        private static final long serialVersionUID = 1L;
+
+        private final String _op;
+
+        Unevaluable(String op) {
+            _op = op;
+        }
+
+        @Override
+        public Class getType() {
+            return Object.class;
+        }
+
+        @Override
+        public void setImplicitType(Class type) {
+        }
+
+        @Override
+        protected Object eval(Object candidate, Object orig,
+            StoreContext ctx, Object[] params) {
+            throw new UnsupportedException(_loc.get("aggregate-unsupported",
+                _op));
+        }
+    }
+}
@@ -0,0 +1,525 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openjpa.kernel.Filters;
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.exps.AbstractExpressionVisitor;
+import org.apache.openjpa.kernel.exps.Expression;
+import org.apache.openjpa.kernel.exps.ExpressionFactory;
+import org.apache.openjpa.kernel.exps.Path;
+import org.apache.openjpa.kernel.exps.QueryExpressions;
+import org.apache.openjpa.kernel.exps.Subquery;
+import org.apache.openjpa.kernel.exps.Value;
+import org.apache.openjpa.lib.rop.ListResultObjectProvider;
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.InternalException;
+
+/**
+ * Merges partial aggregates computed by individual slices.
+ * <br>
+ * The query executed on each slice is rewritten by a {@link Plan} so that
+ * every projection can be combined: <code>AVG(x)</code> is replaced by
+ * <code>SUM(x)</code> and an additional <code>COUNT(x)</code> projection,
+ * the aggregates of the <code>HAVING</code> clause and the grouping values
+ * are projected, and the <code>HAVING</code> clause and the ordering are
+ * dropped. The rows of all slices are then merged in a hash table keyed by
+ * the grouping values. Ungrouped aggregates form a single group. Averages
+ * are computed after the merge, the <code>HAVING</code> clause is evaluated
+ * on the merged rows, and the remaining rows are finally sorted as per the
+ * ordering of the original query.
+ *
+ * @since 3.2.3
+ */
+class AggregateResultObjectProvider implements ResultObjectProvider {
+    private static final Localizer _loc =
+        Localizer.forPackage(AggregateResultObjectProvider.class);
+
+    private final ResultObjectProvider[] _rops;
+    private final Plan _plan;
+    private final StoreQuery.Executor _executor;
+    private final StoreQuery _query;
+    private final Object[] _params;
+    private ResultObjectProvider _merged;
+
+    /**
+     * Constructor.
+     *
+     * @param rops the partial results of the slices
+     * @param plan the plan the slice queries were rewritten with
+     * @param executor the executor of the original query, used to extract
+     * the ordering values from merged rows
+     */
+    AggregateResultObjectProvider(ResultObjectProvider[] rops, Plan plan,
+        StoreQuery.Executor executor, StoreQuery q, Object[] params) {
+        _rops = rops;
+        _plan = plan;
+        _executor = executor;
+        _query = q;
+        _params = params;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void open() throws Exception {
+        for (ResultObjectProvider rop : _rops)
+            rop.open();
+        _merged = new ListResultObjectProvider(merge());
+        _merged.open();
+    }
+
+    /**
+     * Merge the partial rows of all slices and finish the aggregates.
+     */
+    private List<Object[]> merge() throws Exception {
+        Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+        for (ResultObjectProvider rop : _rops) {
+            while (rop.next()) {
+                Object[] row = (Object[]) rop.getResultObject();
+                List<Object> key = _plan.getKey(row);
+                Object[] partial = groups.get(key);
+                if (partial == null)
+                    groups.put(key, row.clone());
+                else
+                    _plan.combine(partial, row);
+            }
+        }
+
+        List<Object[]> result = new ArrayList<>(groups.size());
+        StoreContext ctx = _query.getContext().getStoreContext();
+        for (Object[] partial : groups.values()) {
+            Object[] row = _plan.finish(partial, ctx, _params);
+            if (row != null)
+                result.add(row);
+        }
+
+        boolean[] asc = _executor.getAscending(_query);
+        if (asc.length > 0 && result.size() > 1)
+            sort(result, asc);
+        return result;
+    }
+
+    private void sort(List<Object[]> rows, final boolean[] asc) {
+        final Map<Object[], Object[]> orderings = new IdentityHashMap<>();
+        for (Object[] row : rows) {
+            Object[] values = new Object[asc.length];
+            for (int i = 0; i < asc.length; i++)
+                values[i] = _executor.getOrderingValue(_query, _params, row, i);
+            orderings.put(row, values);
+        }
+        Collections.sort(rows, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] r1, Object[] r2) {
+                Object[] o1 = orderings.get(r1);
+                Object[] o2 = orderings.get(r2);
+                for (int i = 0; i < asc.length; i++) {
+                    int cmp = compareValues(o1[i], o2[i], asc[i]);
+                    if (cmp != 0)
+                        return cmp;
+                }
+                return 0;
+            }
+        });
+    }
+
+    private static int compareValues(Object o1, Object o2, boolean asc) {
+        if (o1 == null && o2 == null)
+            return 0;
+        if (o1 == null)
+            return (asc) ? 1 : -1;
+        if (o2 == null)
+            return (asc) ? -1 : 1;
+        int cmp = ((Comparable) o1).compareTo(o2);
+        return (asc) ? cmp : -cmp;
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        if (_merged == null)
+            throw new InternalException(_loc.get("not-open"));
+        return _merged.getResultObject();
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        if (_merged == null)
+            open();
+        return _merged.next();
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        if (_merged == null)
+            open();
+        return _merged.absolute(pos);
+    }
+
+    @Override
+    public int size() throws Exception {
+        if (_merged == null)
+            open();
+        return _merged.size();
+    }
+
+    @Override
+    public void reset() throws Exception {
+        if (_merged != null)
+            _merged.reset();
+    }
+
+    @Override
+    public void close() throws Exception {
+        _merged = null;
+        for (ResultObjectProvider rop : _rops)
+            rop.close();
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        _rops[0].handleCheckedException(e);
+    }
+
+    /**
+     * Describes how the projections of a query are computed in parts by the
+     * slices and combined afterwards.
+     * <br>
+     * The rows of the slices hold the projections of the original query,
+     * followed by the aggregates of the <code>HAVING</code> clause, the
+     * grouping values that are not projected, and the counts of averages.
+     * The <code>HAVING</code> clause is evaluated on merged rows by the
+     * in-memory expressions the query is parsed into by an
+     * {@link AggregateExpressionFactory}.
+     */
+    static class Plan {
+        static final int KEY   = 0;
+        static final int COUNT = 1;
+        static final int SUM   = 2;
+        static final int MIN   = 3;
+        static final int MAX   = 4;
+        static final int AVG   = 5;
+
+        private final int _length;
+        private final int _having;
+        private final int[] _hidden;
+        private final int[] _keys;
+        private final int[] _kinds;
+        private final Class<?>[] _types;
+        private final int[] _counts;
+        private final AggregateExpressionFactory _factory;
+        private final QueryExpressions _mem;
+
+        private Plan(int length, int having, int[] hidden, int[] keys,
+            int[] kinds, Class<?>[] types, int[] counts,
+            AggregateExpressionFactory factory, QueryExpressions mem) {
+            _length = length;
+            _having = having;
+            _hidden = hidden;
+            _keys = keys;
+            _kinds = kinds;
+            _types = types;
+            _counts = counts;
+            _factory = factory;
+            _mem = mem;
+        }
+
+        /**
+         * Create the plan for the given expressions of the original query.
+         *
+         * @param exps the expressions of the original query
+         * @param factory the factory the query was parsed with a second time
+         * @param mem the expressions of the second parse
+         * @exception UnsupportedOperationException if the query can not be
+         * computed in parts, because it uses an aggregate that can not be
+         * combined or its <code>HAVING</code> clause refers to values other
+         * than aggregates, literals and parameters
+         */
+        static Plan newInstance(QueryExpressions exps,
+            AggregateExpressionFactory factory, QueryExpressions mem) {
+            List<Value> having = getAggregates(exps.having);
+            List<Value> memHaving = getAggregates(mem.having);
+            if (having.size() != memHaving.size())
+                throw new InternalException();
+            if (mem.having != null)
+                assertEvaluable(mem.having);
+
+            // key on the projection of each grouping value, or project the
+            // grouping value in an additional column
+            int length = exps.projections.length;
+            int columns = length + having.size();
+            int[] keys = new int[exps.grouping.length];
+            List<Integer> hidden = new ArrayList<>();
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = indexOf(exps.projections, exps.grouping[i]);
+                if (keys[i] == -1) {
+                    keys[i] = columns + hidden.size();
+                    hidden.add(i);
+                }
+            }
+            columns += hidden.size();
+
+            int[] kinds = new int[columns];
+            Class<?>[] types = new Class<?>[columns];
+            int[] counts = new int[columns];
+            int extra = columns;
+            for (int i = 0; i < columns; i++) {
+                if (i < length) {
+                    types[i] = exps.projections[i].getType();
+                    kinds[i] = getKind(exps.projections[i], mem.projections[i]);
+                } else if (i < length + having.size()) {
+                    int k = i - length;
+                    types[i] = having.get(k).getType();
+                    kinds[i] = getKind(having.get(k), memHaving.get(k));
+                    ((AggregateExpressionFactory.PartialAggregate)
+                        memHaving.get(k)).setColumn(i);
+                } else {
+                    types[i] = exps.grouping[hidden.get(i - length
+                        - having.size())].getType();
+                    kinds[i] = KEY;
+                }
+                if (kinds[i] == AVG)
+                    counts[i] = extra++;
+            }
+
+            int[] hiddenIdx = new int[hidden.size()];
+            for (int i = 0; i < hiddenIdx.length; i++)
+                hiddenIdx[i] = hidden.get(i);
+            return new Plan(length, having.size(), hiddenIdx, keys, kinds,
+                types, counts, factory, (mem.having == null) ? null : mem);
+        }
+
+        private static int getKind(Value v, Value mem) {
+            if (!v.isAggregate())
+                return KEY;
+            if (!(mem instanceof AggregateExpressionFactory.PartialAggregate))
+                throw new UnsupportedOperationException(
+                    _loc.get("aggregate-unsupported",
+                        v.getClass().getSimpleName()).getMessage());
+
+            // partial counts, sums and averages of distinct values can not
+            // be combined, because a value may occur on several slices
+            AggregateExpressionFactory.PartialAggregate agg =
+                (AggregateExpressionFactory.PartialAggregate) mem;
+            int kind = agg.getKind();
+            if (agg.isDistinct() && kind != MIN && kind != MAX)
+                throw new UnsupportedOperationException(
+                    _loc.get("aggregate-distinct-unsupported",
+                        v.getClass().getSimpleName()).getMessage());
+            return kind;
+        }
+
+        private static int indexOf(Value[] values, Value value) {
+            for (int i = 0; i < values.length; i++)
+                if (!values[i].isAggregate() && values[i].equals(value))
+                    return i;
+            return -1;
+        }
+
+        /**
+         * Gets the outermost aggregates of the given expression in the order
+         * of their visit.
+         */
+        private static List<Value> getAggregates(Expression exp) {
+            final List<Value> aggregates = new ArrayList<>();
+            if (exp == null)
+                return aggregates;
+            exp.acceptVisit(new AbstractExpressionVisitor() {
+                private int _depth = 0;
+
+                @Override
+                public void enter(Value val) {
+                    if (val.isAggregate() && _depth++ == 0)
+                        aggregates.add(val);
+                }
+
+                @Override
+                public void exit(Value val) {
+                    if (val.isAggregate())
+                        _depth--;
+                }
+            });
+            return aggregates;
+        }
+
+        /**
+         * Assert that the given in-memory <code>HAVING</code> expression can
+         * be evaluated on merged rows.
+         */
+        private static void assertEvaluable(Expression having) {
+            having.acceptVisit(new AbstractExpressionVisitor() {
+                private int _depth = 0;
+
+                @Override
+                public void enter(Value val) {
+                    if (val instanceof AggregateExpressionFactory.Unevaluable
+                        || (_depth == 0 && (val instanceof Path
+                        || val instanceof Subquery || val.isVariable())))
+                        throw new UnsupportedOperationException(
+                            _loc.get("aggregate-having-unsupported")
+                                .getMessage());
+                    if (val.isAggregate())
+                        _depth++;
+                }
+
+                @Override
+                public void exit(Value val) {
+                    if (val.isAggregate())
+                        _depth--;
+                }
+            });
+        }
+
+        /**
+         * Gets the value an aggregate operates on.
+         */
+        private static Value getArgument(Value aggregate) {
+            final Value[] arg = new Value[1];
+            aggregate.acceptVisit(new AbstractExpressionVisitor() {
+                private int _depth = 0;
+
+                @Override
+                public void enter(Value val) {
+                    if (_depth++ == 1 && arg[0] == null)
+                        arg[0] = val;
+                }
+
+                @Override
+                public void exit(Value val) {
+                    _depth--;
+                }
+            });
+            return arg[0];
+        }
+
+        /**
+         * Rewrite the given expressions of a slice query to compute the
+         * partial aggregates of this plan.
+         */
+        void rewrite(QueryExpressions exps, ExpressionFactory factory) {
+            int total = _kinds.length;
+            for (int kind : _kinds)
+                if (kind == AVG)
+                    total++;
+            Value[] projections = Arrays.copyOf(exps.projections, total);
+            String[] clauses = Arrays.copyOf(exps.projectionClauses, total);
+            String[] aliases = Arrays.copyOf(exps.projectionAliases, total);
+            Arrays.fill(clauses, _length, total, "");
+            Arrays.fill(aliases, _length, total, "");
+
+            // the having clause is evaluated by the coordinator
+            List<Value> having = getAggregates(exps.having);
+            for (int i = 0; i < _having; i++)
+                projections[_length + i] = having.get(i);
+            for (int i = 0; i < _hidden.length; i++)
+                projections[_length + _having + i] = exps.grouping[_hidden[i]];
+            for (int i = 0; i < _kinds.length; i++) {
+                if (_kinds[i] != AVG)
+                    continue;
+                Value arg = getArgument(projections[i]);
+                projections[i] = factory.sum(arg);
+                projections[_counts[i]] = factory.count(arg);
+                clauses[_counts[i]] = "COUNT(" + clauses[i] + ")";
+            }
+            exps.projections = projections;
+            exps.projectionClauses = clauses;
+            exps.projectionAliases = aliases;
+            exps.having = null;
+
+            // the merged rows are sorted by the coordinator
+            exps.ordering = QueryExpressions.EMPTY_VALUES;
+            exps.ascending = StoreQuery.EMPTY_BOOLEANS;
+            exps.orderingClauses = StoreQuery.EMPTY_STRINGS;
+            exps.orderingAliases = StoreQuery.EMPTY_STRINGS;
+        }
+
+        /**
+         * Gets the grouping key of the given partial row.
+         */
+        List<Object> getKey(Object[] row) {
+            List<Object> key = new ArrayList<>(_keys.length);
+            for (int i : _keys)
+                key.add(row[i]);
+            return key;
+        }
+
+        /**
+         * Combine the given partial row into the given partial result.
+         */
+        void combine(Object[] partial, Object[] row) {
+            for (int i = 0; i < _kinds.length; i++) {
+                switch (_kinds[i]) {
+                    case COUNT:
+                        partial[i] = UniqueResultObjectProvider.count(partial[i], row[i]);
+                        break;
+                    case SUM:
+                        partial[i] = UniqueResultObjectProvider.sum(partial[i], row[i]);
+                        break;
+                    case MIN:
+                        partial[i] = UniqueResultObjectProvider.min(partial[i], row[i]);
+                        break;
+                    case MAX:
+                        partial[i] = UniqueResultObjectProvider.max(partial[i], row[i]);
+                        break;
+                    case AVG:
+                        partial[i] = UniqueResultObjectProvider.sum(partial[i], row[i]);
+                        partial[_counts[i]] = UniqueResultObjectProvider.count(partial[_counts[i]],
+                            row[_counts[i]]);
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Compute the final row of the original query from the given merged
+         * partial row, or return null if the row does not satisfy the
+         * <code>HAVING</code> clause.
+         */
+        Object[] finish(Object[] partial, StoreContext ctx, Object[] params) {
+            Object[] row = new Object[_kinds.length];
+            for (int i = 0; i < _kinds.length; i++) {
+                Object value = partial[i];
+                if (_kinds[i] == AVG) {
+                    Number count = (Number) partial[_counts[i]];
+                    value = (value == null || count == null || count.longValue() == 0)
+                        ? null
+                        : ((Number) value).doubleValue() / count.longValue();
+                }
+                row[i] = (_kinds[i] == KEY) ? value : Filters.convert(value, _types[i]);
+            }
+            if (_mem != null && !_factory.matches(_mem,
+                Collections.singletonList(row), ctx, params))
+                return null;
+            return (row.length == _length) ? row : Arrays.copyOf(row, _length);
+        }
+    }
+}
@@ -35,11 +35,13 @@ import javax.sql.DataSource;
 import javax.sql.XADataSource;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.event.RemoteCommitEventManager;
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.conf.JDBCConfigurationImpl;
 import org.apache.openjpa.jdbc.schema.DataSourceFactory;
 import org.apache.openjpa.lib.conf.BooleanValue;
 import org.apache.openjpa.lib.conf.ConfigurationProvider;
+import org.apache.openjpa.lib.conf.IntValue;
 import org.apache.openjpa.lib.conf.PluginValue;
 import org.apache.openjpa.lib.conf.StringListValue;
 import org.apache.openjpa.lib.conf.StringValue;
@@ -49,15 +51,21 @@ import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.log.LogFactory;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.lib.util.StringUtil;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.slice.ConsistentHashPolicy;
 import org.apache.openjpa.slice.DistributedBrokerImpl;
 import org.apache.openjpa.slice.DistributionPolicy;
 import org.apache.openjpa.slice.FinderTargetPolicy;
 import org.apache.openjpa.slice.ProductDerivation;
 import org.apache.openjpa.slice.QueryTargetPolicy;
+import org.apache.openjpa.slice.ReplicaSelector;
 import org.apache.openjpa.slice.ReplicationPolicy;
 import org.apache.openjpa.slice.Slice;
+import org.apache.openjpa.slice.SliceCommitLog;
+import org.apache.openjpa.slice.SliceExecutor;
+import org.apache.openjpa.slice.SliceLocationCache;
 import org.apache.openjpa.util.UserException;
 
 /**
@@ -84,8 +92,21 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
     public PluginValue queryTargetPolicyPlugin;
     public PluginValue finderTargetPolicyPlugin;
     public StringListValue replicatedTypesPlugin;
+    public IntValue threadPoolSizePlugin;
+    public IntValue threadPoolQueueSizePlugin;
+    public StringValue threadPoolRejectionPlugin;
+    public BooleanValue virtualThreadsPlugin;
+    public IntValue locationCacheSizePlugin;
+    public StringValue replicaReadsPlugin;
+    public IntValue hedgePercentilePlugin;
+    public StringValue commitLogPlugin;
+    public IntValue prefetchSizePlugin;
 
     private ReplicatedTypeRepository _replicationRepos;
+    private SliceExecutor _executor;
+    private SliceLocationCache _locations;
+    private ReplicaSelector _replicaSelector;
+    private SliceCommitLog _commitLog;
 
     public static final String DOT = ".";
     public static final String REGEX_DOT = "\\.";
@@ -103,6 +124,7 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
 
         distributionPolicyPlugin = addPlugin(PREFIX_SLICE + "DistributionPolicy", true);
         distributionPolicyPlugin.setAlias("random", DistributionPolicy.Default.class.getName());
+        distributionPolicyPlugin.setAlias("consistent-hash", ConsistentHashPolicy.class.getName());
         distributionPolicyPlugin.setDefault("random");
         distributionPolicyPlugin.setString("random");
         distributionPolicyPlugin.setDynamic(true);
@@ -117,6 +139,7 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         queryTargetPolicyPlugin.setDynamic(true);
 
         finderTargetPolicyPlugin = addPlugin(PREFIX_SLICE + "FinderTargetPolicy", true);
+        finderTargetPolicyPlugin.setAlias("consistent-hash", ConsistentHashPolicy.class.getName());
         finderTargetPolicyPlugin.setDynamic(true);
 
         replicatedTypesPlugin = new StringListValue(PREFIX_SLICE + "ReplicatedTypes");
@@ -127,6 +150,39 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
 
         masterPlugin  = addString(PREFIX_SLICE + "Master");
         namesPlugin   = addStringList(PREFIX_SLICE + "Names");
+
+        threadPoolSizePlugin = addInt(PREFIX_SLICE + "ThreadPoolSize");
+        threadPoolSizePlugin.setDefault("0");
+        threadPoolSizePlugin.set(0);
+
+        threadPoolQueueSizePlugin = addInt(PREFIX_SLICE + "ThreadPoolQueueSize");
+        threadPoolQueueSizePlugin.setDefault("256");
+        threadPoolQueueSizePlugin.set(256);
+
+        threadPoolRejectionPlugin = addString(PREFIX_SLICE + "ThreadPoolRejection");
+        threadPoolRejectionPlugin.setDefault(SliceExecutor.REJECT_CALLER_RUNS);
+        threadPoolRejectionPlugin.setString(SliceExecutor.REJECT_CALLER_RUNS);
+
+        virtualThreadsPlugin = addBoolean(PREFIX_SLICE + "VirtualThreads");
+        virtualThreadsPlugin.setDefault("false");
+
+        locationCacheSizePlugin = addInt(PREFIX_SLICE + "LocationCacheSize");
+        locationCacheSizePlugin.setDefault("10000");
+        locationCacheSizePlugin.set(10000);
+
+        replicaReadsPlugin = addString(PREFIX_SLICE + "ReplicaReads");
+        replicaReadsPlugin.setDefault(ReplicaSelector.FIRST);
+        replicaReadsPlugin.setString(ReplicaSelector.FIRST);
+
+        hedgePercentilePlugin = addInt(PREFIX_SLICE + "HedgePercentile");
+        hedgePercentilePlugin.setDefault("0");
+        hedgePercentilePlugin.set(0);
+
+        commitLogPlugin = addString(PREFIX_SLICE + "CommitLog");
+
+        prefetchSizePlugin = addInt(PREFIX_SLICE + "PrefetchSize");
+        prefetchSizePlugin.setDefault("64");
+        prefetchSizePlugin.set(64);
     }
 
     /**
@@ -298,13 +354,20 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         queryTargetPolicyPlugin.setString(policy);
     }
 
+    /**
+     * Gets the configured finder target policy or, if none is configured,
+     * the distribution policy if it also targets finders.
+     */
     @Override
     public FinderTargetPolicy getFinderTargetPolicyInstance() {
         if (finderTargetPolicyPlugin.get() == null) {
             finderTargetPolicyPlugin.instantiate(FinderTargetPolicy.class,
                     this, true);
         }
-        return (FinderTargetPolicy) finderTargetPolicyPlugin.get();
+        FinderTargetPolicy policy = (FinderTargetPolicy) finderTargetPolicyPlugin.get();
+        if (policy == null && getDistributionPolicyInstance() instanceof FinderTargetPolicy)
+            policy = (FinderTargetPolicy) getDistributionPolicyInstance();
+        return policy;
     }
 
     @Override
@@ -348,6 +411,170 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         masterPlugin.set(master);
     }
 
+    /**
+     * Gets the maximum number of threads that execute slice operations.
+     * Non-positive value denotes twice the number of available processors.
+     */
+    public int getThreadPoolSize() {
+        return threadPoolSizePlugin.get();
+    }
+
+    public void setThreadPoolSize(int size) {
+        threadPoolSizePlugin.set(size);
+    }
+
+    /**
+     * Gets the maximum number of slice operations waiting for a thread.
+     * Zero hands operations directly to threads and negative value denotes
+     * an unbounded queue.
+     */
+    public int getThreadPoolQueueSize() {
+        return threadPoolQueueSizePlugin.get();
+    }
+
+    public void setThreadPoolQueueSize(int size) {
+        threadPoolQueueSizePlugin.set(size);
+    }
+
+    /**
+     * Gets what happens to a slice operation when the threads and the queue
+     * are exhausted: <code>caller-runs</code> or <code>abort</code>.
+     */
+    public String getThreadPoolRejection() {
+        return threadPoolRejectionPlugin.get();
+    }
+
+    public void setThreadPoolRejection(String policy) {
+        threadPoolRejectionPlugin.set(policy);
+    }
+
+    /**
+     * Affirms if slice operations run on virtual threads, when supported by
+     * the runtime.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreadsPlugin.get();
+    }
+
+    public void setVirtualThreads(boolean virtual) {
+        virtualThreadsPlugin.set(virtual);
+    }
+
+    /**
+     * Gets the maximum number of instances whose slice is remembered.
+     * Non-positive value disables the cache.
+     */
+    public int getLocationCacheSize() {
+        return locationCacheSizePlugin.get();
+    }
+
+    public void setLocationCacheSize(int size) {
+        locationCacheSizePlugin.set(size);
+    }
+
+    @Override
+    public synchronized SliceLocationCache getLocationCacheInstance() {
+        if (_locations == null && getLocationCacheSize() > 0) {
+            _locations = new SliceLocationCache(getLocationCacheSize());
+            RemoteCommitEventManager rcem = getRemoteCommitEventManager();
+            if (rcem != null && rcem.areRemoteEventsEnabled())
+                rcem.addInternalListener(_locations);
+        }
+        return _locations;
+    }
+
+    /**
+     * Gets how the slice to query a replicated type is selected:
+     * <code>first</code>, <code>round-robin</code> or
+     * <code>least-outstanding</code>.
+     */
+    public String getReplicaReads() {
+        return replicaReadsPlugin.get();
+    }
+
+    public void setReplicaReads(String strategy) {
+        replicaReadsPlugin.set(strategy);
+    }
+
+    /**
+     * Gets the percentile of the response times of a slice after which a
+     * query on a replicated type is also sent to another slice. Zero
+     * disables hedging.
+     */
+    public int getHedgePercentile() {
+        return hedgePercentilePlugin.get();
+    }
+
+    public void setHedgePercentile(int percentile) {
+        hedgePercentilePlugin.set(percentile);
+    }
+
+    /**
+     * Gets the path of the file that records commits spanning more than one
+     * slice, or null if such commits are not recorded.
+     */
+    public String getCommitLog() {
+        return commitLogPlugin.get();
+    }
+
+    public void setCommitLog(String path) {
+        commitLogPlugin.set(path);
+    }
+
+    @Override
+    public int getPrefetchSize() {
+        return prefetchSizePlugin.get();
+    }
+
+    public void setPrefetchSize(int size) {
+        prefetchSizePlugin.set(size);
+    }
+
+    @Override
+    public synchronized SliceCommitLog getCommitLogInstance() {
+        if (_commitLog == null && !StringUtil.isEmpty(getCommitLog())) {
+            _commitLog = new SliceCommitLog(getCommitLog());
+            Log log = getConfigurationLog();
+            for (SliceCommitLog.Entry entry : _commitLog.getIncomplete()) {
+                if (log.isWarnEnabled())
+                    log.warn(_loc.get("commit-incomplete", _commitLog.getFile(), entry));
+            }
+        }
+        return _commitLog;
+    }
+
+    @Override
+    public synchronized ReplicaSelector getReplicaSelectorInstance() {
+        if (_replicaSelector == null)
+            _replicaSelector = new ReplicaSelector(getReplicaReads(), getHedgePercentile());
+        return _replicaSelector;
+    }
+
+    @Override
+    public synchronized SliceExecutor getExecutorInstance() {
+        if (_executor == null) {
+            _executor = new SliceExecutor(String.valueOf(getId()),
+                getThreadPoolSize(), getThreadPoolQueueSize(),
+                getThreadPoolRejection(), isVirtualThreads(),
+                getConfigurationLog());
+        }
+        return _executor;
+    }
+
+    /**
+     * Shut down the slice executor and drop the location cache.
+     */
+    @Override
+    protected void preClose() {
+        synchronized (this) {
+            if (_executor != null)
+                _executor.shutdown();
+            _executor = null;
+            _locations = null;
+        }
+        super.preClose();
+    }
+
     /**
      * Gets the master slice.
      */
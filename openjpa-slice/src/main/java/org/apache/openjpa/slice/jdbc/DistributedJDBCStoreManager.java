@@ -29,9 +29,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 
+import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.kernel.ConnectionInfo;
@@ -49,8 +50,11 @@ import org.apache.openjpa.kernel.StoreManager;
 import org.apache.openjpa.kernel.StoreQuery;
 import org.apache.openjpa.kernel.exps.ExpressionParser;
 import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
+import org.apache.openjpa.lib.rop.PrefetchingMergedResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.lib.util.Localizer.Message;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.FieldMetaData;
 import org.apache.openjpa.slice.DistributedConfiguration;
@@ -59,7 +63,9 @@ import org.apache.openjpa.slice.Slice;
 import org.apache.openjpa.slice.SliceImplHelper;
 import org.apache.openjpa.slice.SliceInfo;
 import org.apache.openjpa.slice.SlicePersistence;
-import org.apache.openjpa.slice.SliceThread;
+import org.apache.openjpa.slice.SliceCommitLog;
+import org.apache.openjpa.slice.SliceExecutor;
+import org.apache.openjpa.slice.SliceLocationCache;
 import org.apache.openjpa.util.InternalException;
 import org.apache.openjpa.util.StoreException;
 
@@ -68,7 +74,7 @@ import org.apache.openjpa.util.StoreException;
  * This receiver behaves like a Transaction Manager as it implements two-phase
  * commit protocol if all the component slices is XA-complaint. The actions are
  * delegated to the underlying slices. The actions are executed in parallel
- * threads whenever possible such as flushing or query. <br>
+ * threads whenever possible such as flushing, query or commit. <br>
  *
  * @author Pinaki Poddar
  *
@@ -152,6 +158,29 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
             return;
         }
         new SliceInfo(hint).setInto(sm);
+        SliceLocationCache locations = _conf.getLocationCacheInstance();
+        if (locations != null)
+            locations.put(sm.getObjectId(), hint);
+    }
+
+    /**
+     * Records the slices of the given flushed instances, or forgets them if
+     * they have been deleted.
+     */
+    private void recordSlices(Map<String, StateManagerSet> subsets) {
+        SliceLocationCache locations = _conf.getLocationCacheInstance();
+        if (locations == null)
+            return;
+        for (Map.Entry<String, StateManagerSet> subset : subsets.entrySet()) {
+            for (OpenJPAStateManager sm : subset.getValue()) {
+                if (_conf.isReplicated(sm.getMetaData().getDescribedType()))
+                    continue;
+                if (sm.isDeleted())
+                    locations.remove(sm.getObjectId());
+                else
+                    locations.put(sm.getObjectId(), subset.getKey());
+            }
+        }
     }
 
     /**
@@ -238,10 +267,28 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
         int i = 0;
         List<SliceStoreManager> targets = getTargets(fetch);
         ResultObjectProvider[] tmp = new ResultObjectProvider[targets.size()];
+        String[] names = new String[targets.size()];
         for (SliceStoreManager slice : targets) {
+            names[i] = slice.getName();
             tmp[i++] = slice.executeExtent(meta, subclasses, fetch);
         }
-        return new MergedResultObjectProvider(tmp);
+        return merge(tmp, names);
+    }
+
+    /**
+     * Merges the given unordered results of the given slices. The slices are
+     * advanced concurrently, and read in chunks of the configured prefetch
+     * size, unless the size is zero.
+     */
+    ResultObjectProvider merge(ResultObjectProvider[] rops, String[] slices) {
+        int chunk = _conf.getPrefetchSize();
+        if (rops.length < 2 || chunk <= 0)
+            return new MergedResultObjectProvider(rops);
+        SliceExecutor threadPool = _conf.getExecutorInstance();
+        Executor[] executors = new Executor[rops.length];
+        for (int i = 0; i < rops.length; i++)
+            executors[i] = threadPool.executor(slices[i]);
+        return new PrefetchingMergedResultObjectProvider(rops, executors, chunk);
     }
 
     @Override
@@ -270,19 +317,22 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
         Map<String, StateManagerSet> subsets = bin(sms, null);
         Collection<StateManagerSet> remaining =
             new ArrayList<>(subsets.values());
-        ExecutorService threadPool = SliceThread.getPool();
+        SliceExecutor threadPool = _conf.getExecutorInstance();
+        // submit the subsets without replicated instances first so that
+        // they flush while the replicated ones flush one after another
         for (SliceStoreManager slice : _slices) {
             StateManagerSet subset = subsets.get(slice.getName());
-            if (subset.isEmpty())
+            if (!subset.isEmpty() && !subset.containsReplicated())
+                futures.add(threadPool.submit(slice.getName(), new Flusher(slice, subset)));
+        }
+        for (SliceStoreManager slice : _slices) {
+            StateManagerSet subset = subsets.get(slice.getName());
+            if (!subset.containsReplicated())
                 continue;
-            if (subset.containsReplicated()) {
-                Map<OpenJPAStateManager, Object> oldVersions = cacheVersion(subset.getReplicated());
-                collectException(slice.flush(subset), exceptions);
-                remaining.remove(subset);
-                rollbackVersion(subset.getReplicated(), oldVersions, remaining);
-            } else {
-                futures.add(threadPool.submit(new Flusher(slice, subset)));
-            }
+            Map<OpenJPAStateManager, Object> oldVersions = cacheVersion(subset.getReplicated());
+            collectException(slice.flush(subset), exceptions);
+            remaining.remove(subset);
+            rollbackVersion(subset.getReplicated(), oldVersions, remaining);
         }
         for (Future<Collection> future : futures) {
             try {
@@ -293,7 +343,8 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
                 throw new StoreException(e.getCause());
             }
         }
-
+        if (exceptions.isEmpty())
+            recordSlices(subsets);
         return exceptions;
     }
 
@@ -303,17 +354,104 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
         }
     }
 
+    /**
+     * Commits the slices in parallel, so that the commit takes as long as
+     * the slowest slice rather than all slices together.
+     * <br>
+     * The slices are not XA-compliant, hence can not vote on the outcome,
+     * and the commit is best-effort rather than atomic. As a cheap guard,
+     * each slice first verifies that its connection is still valid, and no
+     * slice commits unless all are. A slice may nevertheless fail to commit
+     * after others did, which is reported as a fatal error. If configured,
+     * the outcome is recorded in the {@link SliceCommitLog} so that such a
+     * commit can be reconciled by hand; it is neither replayed nor rolled
+     * back.
+     */
     @Override
     public void commit() {
+        // a managed transaction is committed by the transaction manager
+        if (_slices.size() == 1 || getContext().isManaged()) {
+            for (SliceStoreManager slice : _slices)
+                slice.commit();
+            return;
+        }
+        List<String> failed = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        invokeAll(CHECK, null, null, failed, errors);
+        if (!errors.isEmpty())
+            throw new StoreException(_loc.get("commit-check-failed", failed))
+                .setNestedThrowables(errors.toArray(new Throwable[errors.size()]));
+
+        SliceCommitLog log = _conf.getCommitLogInstance();
+        String tx = null;
+        if (log != null) {
+            List<String> names = new ArrayList<>();
+            for (SliceStoreManager slice : _slices)
+                names.add(slice.getName());
+            tx = log.started(names);
+        }
+        List<String> committed = new ArrayList<>();
+        invokeAll(COMMIT, log, tx, failed, errors);
         for (SliceStoreManager slice : _slices) {
-            slice.commit();
+            if (!failed.contains(slice.getName()))
+                committed.add(slice.getName());
         }
+        if (errors.isEmpty()) {
+            if (log != null)
+                log.resolve(tx);
+            return;
+        }
+        Throwable[] nested = errors.toArray(new Throwable[errors.size()]);
+        if (committed.isEmpty())
+            throw new StoreException(_loc.get("commit-failed", failed))
+                .setNestedThrowables(nested);
+        Message msg = (log == null)
+            ? _loc.get("commit-partial", committed, failed)
+            : _loc.get("commit-partial-logged", committed, failed, log.getFile());
+        Log runtime = _conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+        if (runtime.isErrorEnabled())
+            runtime.error(msg);
+        throw new StoreException(msg).setNestedThrowables(nested).setFatal(true);
     }
 
+    /**
+     * Rolls back the slices in parallel.
+     */
     @Override
     public void rollback() {
-        for (SliceStoreManager slice : _slices) {
-            slice.rollback();
+        if (_slices.size() == 1) {
+            _slices.get(0).rollback();
+            return;
+        }
+        List<String> failed = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        invokeAll(ROLLBACK, null, null, failed, errors);
+        if (!errors.isEmpty())
+            throw new StoreException(_loc.get("rollback-failed", failed))
+                .setNestedThrowables(errors.toArray(new Throwable[errors.size()]));
+    }
+
+    /**
+     * Runs the given operation on every slice in parallel and waits for all
+     * of them, collecting the slices that failed with their errors.
+     */
+    private void invokeAll(int op, SliceCommitLog log, String tx,
+        List<String> failed, List<Throwable> errors) {
+        SliceExecutor threadPool = _conf.getExecutorInstance();
+        List<Future<Object>> futures = new ArrayList<>();
+        for (SliceStoreManager slice : _slices)
+            futures.add(threadPool.submit(slice.getName(),
+                new Terminator(slice, op, log, tx)));
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (InterruptedException e) {
+                failed.add(_slices.get(i).getName());
+                errors.add(e);
+            } catch (ExecutionException e) {
+                failed.add(_slices.get(i).getName());
+                errors.add(e.getCause());
+            }
         }
     }
 
@@ -409,9 +547,30 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
                 }
             }
         }
-        // not a part of Query result load. Look into the slices till found
+        // not a part of Query result load. Look into the recorded slice, if
+        // no target is given, and then into the slices till found
         List<SliceStoreManager> targets = getTargets(fetch);
+        SliceLocationCache locations = _conf.getLocationCacheInstance();
+        if (locations != null && _conf.isReplicated(sm.getMetaData().getDescribedType()))
+            locations = null;
+        String recorded = null;
+        if (locations != null && targets == _slices && targets.size() > 1) {
+            recorded = locations.get(sm.getObjectId());
+            SliceStoreManager slice = (recorded == null) ? null : lookup(recorded);
+            if (slice != null && slice.initialize(sm, state, fetch, edata)) {
+                locations.hit();
+                assignSlice(sm, recorded);
+                return true;
+            }
+            if (recorded != null)
+                locations.remove(sm.getObjectId());
+            locations.miss(recorded != null);
+        }
+        if (locations != null && targets.size() > 1)
+            locations.fanOut();
         for (SliceStoreManager slice : targets) {
+            if (slice.getName().equals(recorded))
+                continue;
             if (slice.initialize(sm, state, fetch, edata)) {
                 assignSlice(sm, slice.getName());
                 return true;
@@ -545,6 +704,46 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
         return targets;
     }
 
+    private static final int CHECK = 0;
+    private static final int COMMIT = 1;
+    private static final int ROLLBACK = 2;
+
+    /**
+     * Checks the connection of a slice, or commits or rolls back the
+     * transaction of a slice.
+     */
+    private static class Terminator implements Callable<Object> {
+        final SliceStoreManager store;
+        final int op;
+        final SliceCommitLog log;
+        final String tx;
+
+        Terminator(SliceStoreManager store, int op, SliceCommitLog log,
+            String tx) {
+            this.store = store;
+            this.op = op;
+            this.log = log;
+            this.tx = tx;
+        }
+
+        @Override
+        public Object call() throws Exception {
+            switch (op) {
+            case CHECK:
+                store.checkConnection();
+                break;
+            case COMMIT:
+                store.commit();
+                if (log != null)
+                    log.committed(tx, store.getName());
+                break;
+            default:
+                store.rollback();
+            }
+            return null;
+        }
+    }
+
     private static class Flusher implements Callable<Collection> {
         final SliceStoreManager store;
         final StateManagerSet toFlush;
@@ -23,7 +23,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
@@ -31,14 +30,12 @@ import org.apache.openjpa.jdbc.kernel.SQLStoreQuery;
 import org.apache.openjpa.kernel.FetchConfiguration;
 import org.apache.openjpa.kernel.OrderingMergedResultObjectProvider;
 import org.apache.openjpa.kernel.QueryContext;
-import org.apache.openjpa.kernel.StoreManager;
 import org.apache.openjpa.kernel.StoreQuery;
-import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
 import org.apache.openjpa.lib.rop.RangeResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.slice.DistributedConfiguration;
-import org.apache.openjpa.slice.SliceThread;
+import org.apache.openjpa.slice.SliceExecutor;
 import org.apache.openjpa.util.StoreException;
 
 /**
@@ -104,47 +101,50 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 		/**
          * Each child query must be executed with slice context and not the
 		 * given query context.
+		 * <br>
+		 * The queries are submitted to the slices without waiting for them.
+		 * Each slice is asked for the first <code>end</code> rows of the range
+		 * only, and the range is applied to the merged result. A query on a
+		 * replicated type is executed on a single slice chosen by the
+		 * configured {@link org.apache.openjpa.slice.ReplicaSelector}.
 		 */
 		@Override
         public ResultObjectProvider executeQuery(StoreQuery q,
 				final Object[] params, final Range range) {
-			List<Future<ResultObjectProvider>> futures =
-				new ArrayList<>();
             final List<Executor> usedExecutors = new ArrayList<>();
 			final List<ResultObjectProvider> rops =
 				new ArrayList<>();
 			List<SliceStoreManager> targets = findTargets();
 			QueryContext ctx = q.getContext();
 			boolean isReplicated = containsReplicated(ctx);
-            ExecutorService threadPool = SliceThread.getPool();
+            SliceExecutor threadPool = owner.getDistributedStore().getConfiguration()
+                .getExecutorInstance();
+            Range sliceRange = new Range(0L, range.end);
+            sliceRange.lrs = range.lrs;
+			List<String> names = new ArrayList<>();
+			List<Integer> replicas = new ArrayList<>();
 			for (int i = 0; i < owner._queries.size(); i++) {
-                // if replicated, then execute only on single slice
-				if (isReplicated && !usedExecutors.isEmpty()) {
-					break;
-				}
-                StoreManager sm = owner.getDistributedStore().getSlice(i);
+                SliceStoreManager sm = owner.getDistributedStore().getSlice(i);
 				if (!targets.contains(sm))
 					continue;
+                // if replicated, then execute only on a single selected slice
+				if (isReplicated) {
+					if (usedExecutors.isEmpty())
+						usedExecutors.add(executors.get(i));
+					replicas.add(i);
+					continue;
+				}
 				StoreQuery query = owner._queries.get(i);
 				Executor executor = executors.get(i);
-				if (!targets.contains(sm))
-					continue;
 				usedExecutors.add(executor);
-                QueryExecutor call = new QueryExecutor();
-                call.executor = executor;
-                call.query = query;
-                call.params = params;
-                call.range = range;
-                futures.add(threadPool.submit(call));
+				names.add(sm.getName());
+                rops.add(SliceResultObjectProvider.submit(threadPool, sm.getName(),
+                    executor, query, params, sliceRange));
 			}
-			for (Future<ResultObjectProvider> future : futures) {
-				try {
-					rops.add(future.get());
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (ExecutionException e) {
-					throw new StoreException(e.getCause());
-				}
+			if (!replicas.isEmpty()) {
+				names.add(owner.getDistributedStore().getSlice(replicas.get(0)).getName());
+				rops.add(HedgedResultObjectProvider.submit(owner.getDistributedStore(),
+				    replicas, executors, owner._queries, params, sliceRange));
 			}
 
 			ResultObjectProvider[] tmp = rops
@@ -153,7 +153,7 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			boolean[] ascending = getAscending(q);
 			boolean isAscending = ascending.length > 0;
 			boolean isAggregate = ctx.isAggregate();
-			boolean hasRange = ctx.getEndRange() != Long.MAX_VALUE;
+			boolean hasRange = range.start != 0 || range.end != Long.MAX_VALUE;
 			if (isAggregate) {
 				result = new UniqueResultObjectProvider(tmp, q,
 						getQueryExpressions());
@@ -162,11 +162,12 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
                     usedExecutors.toArray(new Executor[usedExecutors.size()]),
 					q, params);
 			} else {
-				result = new MergedResultObjectProvider(tmp);
+				result = owner.getDistributedStore().merge(tmp,
+				    names.toArray(new String[names.size()]));
 			}
 			if (hasRange) {
                 result = new RangeResultObjectProvider(result,
-                        ctx.getStartRange(), ctx.getEndRange());
+                        range.start, range.end);
 			}
 			return result;
 		}
@@ -195,7 +196,9 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            SliceExecutor threadPool = owner.getDistributedStore().getConfiguration()
+                .getExecutorInstance();
+			int i = 0;
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
@@ -203,7 +206,8 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 				call.executor = ex;
 				call.query = qs.next();
 				call.params = params;
-				futures.add(threadPool.submit(call));
+				futures.add(threadPool.submit(
+                    owner.getDistributedStore().getSlice(i++).getName(), call));
 			}
 			for (Future<Number> future : futures) {
 				try {
@@ -224,7 +228,9 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            SliceExecutor threadPool = owner.getDistributedStore().getConfiguration()
+                .getExecutorInstance();
+			int i = 0;
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
@@ -232,7 +238,8 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 				call.executor = ex;
 				call.query = qs.next();
 				call.params = params;
-				futures.add(threadPool.submit(call));
+				futures.add(threadPool.submit(
+                    owner.getDistributedStore().getSlice(i++).getName(), call));
 			}
 			for (Future<Number> future : futures) {
 				try {
@@ -255,18 +262,6 @@ class DistributedSQLStoreQuery extends SQLStoreQuery {
 
 	}
 
-	static class QueryExecutor implements Callable<ResultObjectProvider> {
-		StoreQuery query;
-		Executor executor;
-		Object[] params;
-		Range range;
-
-		@Override
-        public ResultObjectProvider call() throws Exception {
-			return executor.executeQuery(query, params, range);
-		}
-	}
-
 	static class DeleteExecutor implements Callable<Number> {
 		StoreQuery query;
 		Executor executor;
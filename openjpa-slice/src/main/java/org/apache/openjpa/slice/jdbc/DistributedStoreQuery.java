@@ -23,7 +23,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
@@ -32,15 +31,15 @@ import org.apache.openjpa.kernel.ExpressionStoreQuery;
 import org.apache.openjpa.kernel.FetchConfiguration;
 import org.apache.openjpa.kernel.OrderingMergedResultObjectProvider;
 import org.apache.openjpa.kernel.QueryContext;
-import org.apache.openjpa.kernel.StoreManager;
 import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.exps.ExpressionFactory;
 import org.apache.openjpa.kernel.exps.ExpressionParser;
-import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
+import org.apache.openjpa.kernel.exps.QueryExpressions;
 import org.apache.openjpa.lib.rop.RangeResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.slice.DistributedConfiguration;
-import org.apache.openjpa.slice.SliceThread;
+import org.apache.openjpa.slice.SliceExecutor;
 import org.apache.openjpa.util.StoreException;
 
 /**
@@ -96,13 +95,20 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			ExpressionStoreQuery.DataStoreExecutor {
         private static final long serialVersionUID = 1L;
         private List<Executor> executors = new ArrayList<>();
-		private DistributedStoreQuery owner = null;
+		private final ClassMetaData _meta;
+		private final ExpressionParser _parser;
+		private final Object _parsed;
+		private final boolean _subs;
+		private transient volatile PartialAggregation _partial;
 
         public ParallelExecutor(DistributedStoreQuery dsq, ClassMetaData meta,
                 boolean subclasses, ExpressionParser parser, Object parsed,
 				boolean parallel) {
 			super(dsq, meta, subclasses, parser, parsed);
-			owner = dsq;
+			_meta = meta;
+			_parser = parser;
+			_parsed = parsed;
+			_subs = subclasses;
 		}
 
 		public void addExecutor(Executor ex) {
@@ -112,65 +118,130 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 		/**
          * Each child query must be executed with slice context and not the
 		 * given query context.
+		 * <br>
+		 * The queries are submitted to the slices without waiting for them.
+		 * Each slice is asked for the first <code>end</code> rows of the range
+		 * only, and the range is applied to the merged result. Aggregate and
+		 * grouped queries on more than one slice compute partial aggregates
+		 * on each slice, which are merged by an
+		 * {@link AggregateResultObjectProvider}. A query on a replicated type
+		 * is executed on a single slice chosen by the configured
+		 * {@link org.apache.openjpa.slice.ReplicaSelector}.
+		 * <br>
+		 * An executor is cached with the compilation of its query and shared
+		 * by the queries of every broker, so the slices, the child queries and
+		 * the targets are taken from the given query.
 		 */
 		@Override
         public ResultObjectProvider executeQuery(StoreQuery q,
 				final Object[] params, final Range range) {
-			List<Future<ResultObjectProvider>> futures = new ArrayList<>();
+            DistributedStoreQuery owner = (DistributedStoreQuery) q;
             final List<Executor> usedExecutors = new ArrayList<>();
+            final List<Integer> usedSlices = new ArrayList<>();
 			final List<ResultObjectProvider> rops = new ArrayList<>();
-			List<SliceStoreManager> targets = findTargets();
+			List<SliceStoreManager> targets = findTargets(owner);
 			QueryContext ctx = q.getContext();
 			boolean isReplicated = containsReplicated(ctx);
-            ExecutorService threadPool = SliceThread.getPool();
+			boolean isAggregate = ctx.isAggregate() || hasGrouping(q);
+            SliceExecutor threadPool = owner.getDistributedStore().getConfiguration()
+                .getExecutorInstance();
 
 			for (int i = 0; i < owner._queries.size(); i++) {
-                // if replicated, then execute only on single slice
-				if (isReplicated && !usedExecutors.isEmpty()) {
-					break;
-				}
-                StoreManager sm = owner.getDistributedStore().getSlice(i);
+                SliceStoreManager sm = owner.getDistributedStore().getSlice(i);
 				if (!targets.contains(sm))
 					continue;
-                QueryExecutor call = new QueryExecutor();
-                call.executor = executors.get(i);
-                call.query = owner._queries.get(i);
-                call.params = params;
-                call.range = range;
-				usedExecutors.add(call.executor);
-                futures.add(threadPool.submit(call));
+				usedExecutors.add(executors.get(i));
+				usedSlices.add(i);
 			}
-			for (Future<ResultObjectProvider> future : futures) {
-				try {
-					rops.add(future.get());
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (ExecutionException e) {
-					throw new StoreException(e.getCause());
+			// if replicated, then execute only on a single selected slice
+			List<Integer> replicas = null;
+			if (isReplicated && !usedSlices.isEmpty()) {
+				replicas = new ArrayList<>(usedSlices);
+				usedSlices.subList(1, usedSlices.size()).clear();
+				usedExecutors.subList(1, usedExecutors.size()).clear();
+			}
+
+			// partial aggregates must cover every row of a slice
+			AggregateResultObjectProvider.Plan plan = null;
+			List<Executor> sliceExecutors = executors;
+			Range sliceRange;
+			if (isAggregate) {
+				if (usedSlices.size() != 1) {
+					PartialAggregation partial = getPartialAggregation(owner);
+					plan = partial.plan;
+					sliceExecutors = partial.executors;
 				}
+				sliceRange = new Range();
+			} else {
+				sliceRange = new Range(0L, range.end);
+				sliceRange.lrs = range.lrs;
+			}
+
+			if (replicas != null) {
+				rops.add(HedgedResultObjectProvider.submit(owner.getDistributedStore(),
+				    replicas, executors, owner._queries, params, sliceRange));
+			} else for (int i : usedSlices) {
+                SliceStoreManager sm = owner.getDistributedStore().getSlice(i);
+                rops.add(SliceResultObjectProvider.submit(threadPool, sm.getName(),
+                    sliceExecutors.get(i), owner._queries.get(i), params, sliceRange));
 			}
 
 			ResultObjectProvider[] tmp = rops.toArray(new ResultObjectProvider[rops.size()]);
 			ResultObjectProvider result = null;
 			boolean[] ascending = getAscending(q);
 			boolean isAscending = ascending.length > 0;
-			boolean isAggregate = ctx.isAggregate();
-			boolean hasRange = ctx.getEndRange() != Long.MAX_VALUE;
+			boolean hasRange = range.start != 0 || range.end != Long.MAX_VALUE;
 			if (isAggregate) {
-				result = new UniqueResultObjectProvider(tmp, q,	getQueryExpressions());
+				result = (plan == null) ? tmp[0]
+				    : new AggregateResultObjectProvider(tmp, plan, this, q, params);
 			} else if (isAscending) {
                 result = new OrderingMergedResultObjectProvider(tmp, ascending,
                     usedExecutors.toArray(new Executor[usedExecutors.size()]),
 					q, params);
 			} else {
-				result = new MergedResultObjectProvider(tmp);
+				String[] names = new String[usedSlices.size()];
+				for (int i = 0; i < names.length; i++)
+					names[i] = owner.getDistributedStore().getSlice(usedSlices.get(i)).getName();
+				result = owner.getDistributedStore().merge(tmp, names);
 			}
 			if (hasRange) {
-                result = new RangeResultObjectProvider(result, ctx.getStartRange(), ctx.getEndRange());
+                result = new RangeResultObjectProvider(result, range.start, range.end);
 			}
 			return result;
 		}
 
+		/**
+		 * Gets the plan to compute the aggregates of this query in parts,
+		 * with executors of the slices whose queries are rewritten to compute
+		 * the partial aggregates, on first use. The executors of the slices
+		 * that run the query on a single slice are left as they are, as this
+		 * executor is shared by the queries of every broker. The query is
+		 * parsed into in-memory expressions a second time to plan the merge.
+		 */
+		PartialAggregation getPartialAggregation(DistributedStoreQuery owner) {
+			PartialAggregation partial = _partial;
+			if (partial != null)
+				return partial;
+			synchronized (this) {
+				if (_partial == null) {
+					AggregateExpressionFactory mem = new AggregateExpressionFactory();
+					AggregateResultObjectProvider.Plan plan =
+					    AggregateResultObjectProvider.Plan.newInstance(getQueryExpressions()[0],
+					        mem, _parser.eval(_parsed, owner, mem, _meta));
+					ExpressionFactory factory = owner.getExpressionFactory(_meta);
+					List<Executor> rewritten = new ArrayList<>(owner._queries.size());
+					for (StoreQuery sq : owner._queries) {
+						Executor executor = sq.newDataStoreExecutor(_meta, _subs);
+						for (QueryExpressions exps : executor.getQueryExpressions())
+							plan.rewrite(exps, factory);
+						rewritten.add(executor);
+					}
+					_partial = new PartialAggregation(plan, rewritten);
+				}
+				return _partial;
+			}
+		}
+
 		/**
          * Scans metadata to find out if a replicated class is the candidate.
 		 */
@@ -192,12 +263,14 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 
 		@Override
         public Number executeDelete(StoreQuery q, Object[] params) {
+            DistributedStoreQuery owner = (DistributedStoreQuery) q;
 			List<Future<Number>> futures = new ArrayList<>();
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
-			List<SliceStoreManager> targets = findTargets();
+            SliceExecutor threadPool = owner.getDistributedStore().getConfiguration()
+                .getExecutorInstance();
+			List<SliceStoreManager> targets = findTargets(owner);
 			for (int i = 0; i < owner._queries.size(); i++) {
-                StoreManager sm = owner.getDistributedStore().getSlice(i);
+                SliceStoreManager sm = owner.getDistributedStore().getSlice(i);
 				if (!targets.contains(sm))
 					continue;
 
@@ -205,7 +278,7 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 				call.executor = executors.get(i);
 				call.query = owner._queries.get(i);
 				call.params = params;
-				futures.add(threadPool.submit(call));
+				futures.add(threadPool.submit(sm.getName(), call));
 			}
 			for (Future<Number> future : futures) {
 				try {
@@ -223,10 +296,13 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 
 		@Override
         public Number executeUpdate(StoreQuery q, Object[] params) {
+            DistributedStoreQuery owner = (DistributedStoreQuery) q;
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            SliceExecutor threadPool = owner.getDistributedStore().getConfiguration()
+                .getExecutorInstance();
+			int i = 0;
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
@@ -234,7 +310,8 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 				call.executor = ex;
 				call.query = qs.next();
 				call.params = params;
-				futures.add(threadPool.submit(call));
+				futures.add(threadPool.submit(
+                    owner.getDistributedStore().getSlice(i++).getName(), call));
 			}
 			for (Future<Number> future : futures) {
 				try {
@@ -249,22 +326,25 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			return result;
 		}
 
-		List<SliceStoreManager> findTargets() {
+		List<SliceStoreManager> findTargets(DistributedStoreQuery owner) {
   		    FetchConfiguration fetch = owner.getContext().getFetchConfiguration();
 			return owner.getDistributedStore().getTargets(fetch);
 		}
 
 	}
 
-	static class QueryExecutor implements Callable<ResultObjectProvider> {
-		StoreQuery query;
-		Executor executor;
-		Object[] params;
-		Range range;
+	/**
+	 * The plan to merge the partial aggregates of a query, with the
+	 * executors of the slices that compute them.
+	 */
+	static class PartialAggregation {
+		final AggregateResultObjectProvider.Plan plan;
+		final List<Executor> executors;
 
-		@Override
-        public ResultObjectProvider call() throws Exception {
-			return executor.executeQuery(query, params, range);
+		PartialAggregation(AggregateResultObjectProvider.Plan plan,
+		    List<Executor> executors) {
+			this.plan = plan;
+			this.executors = executors;
 		}
 	}
 
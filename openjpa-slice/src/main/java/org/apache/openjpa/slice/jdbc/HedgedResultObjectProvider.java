@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.StoreQuery.Executor;
+import org.apache.openjpa.kernel.StoreQuery.Range;
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.slice.ReplicaSelector;
+import org.apache.openjpa.slice.SliceExecutor;
+
+/**
+ * Result of a query on a replicated type that is sent to a second slice
+ * if the first slice does not answer in time. The result of the slice that
+ * answers first is used and the query on the other slice is cancelled, or
+ * its result closed if it has answered too.
+ *
+ * @since 3.2.3
+ */
+class HedgedResultObjectProvider implements ResultObjectProvider {
+    private final BlockingQueue<SliceResultObjectProvider> _completion =
+        new ArrayBlockingQueue<>(2);
+    private final SliceExecutor _threadPool;
+    private final ReplicaSelector _selector;
+    private final String _alternate;
+    private final Executor _executor;
+    private final StoreQuery _query;
+    private final Object[] _params;
+    private final Range _range;
+    private final long _delay;
+    private final SliceResultObjectProvider _primary;
+    private SliceResultObjectProvider _secondary;
+    private SliceResultObjectProvider _delegate;
+
+    private HedgedResultObjectProvider(SliceExecutor threadPool,
+        ReplicaSelector selector, String[] slices, Executor[] executors,
+        StoreQuery[] queries, Object[] params, Range range, long delay) {
+        _threadPool = threadPool;
+        _selector = selector;
+        _alternate = slices[1];
+        _executor = executors[1];
+        _query = queries[1];
+        _params = params;
+        _range = range;
+        _delay = delay;
+        _primary = SliceResultObjectProvider.submit(threadPool, slices[0],
+            executors[0], queries[0], params, range, selector, _completion);
+    }
+
+    /**
+     * Submit the given query on a replicated type to the first of the given
+     * slices, to be hedged by the second slice, if any, after the delay the
+     * selector gives for the first slice.
+     *
+     * @param slices the selected slice followed by the alternate slice, if any
+     * @param executors the executors of the given slices
+     * @param queries the queries of the given slices
+     */
+    static ResultObjectProvider submit(SliceExecutor threadPool,
+        ReplicaSelector selector, String[] slices, Executor[] executors,
+        StoreQuery[] queries, Object[] params, Range range) {
+        long delay = (slices.length < 2) ? -1 : selector.getHedgeDelay(slices[0]);
+        if (delay < 0)
+            return SliceResultObjectProvider.submit(threadPool, slices[0],
+                executors[0], queries[0], params, range, selector, null);
+        return new HedgedResultObjectProvider(threadPool, selector, slices,
+            executors, queries, params, range, delay);
+    }
+
+    /**
+     * Submit the given query on a replicated type to one of the given
+     * candidate slices, as chosen by the configured {@link ReplicaSelector}.
+     *
+     * @param candidates indices of the slices that hold the replica
+     * @param executors the executors of all slices
+     * @param queries the queries of all slices
+     */
+    static ResultObjectProvider submit(DistributedJDBCStoreManager store,
+        List<Integer> candidates, List<Executor> executors,
+        List<StoreQuery> queries, Object[] params, Range range) {
+        DistributedJDBCConfiguration conf = store.getConfiguration();
+        ReplicaSelector selector = conf.getReplicaSelectorInstance();
+        List<String> names = new ArrayList<>();
+        for (int i : candidates)
+            names.add(store.getSlice(i).getName());
+        int[] selected = selector.select(names);
+        String[] slices = new String[selected.length];
+        Executor[] sliceExecutors = new Executor[selected.length];
+        StoreQuery[] sliceQueries = new StoreQuery[selected.length];
+        for (int k = 0; k < selected.length; k++) {
+            int i = candidates.get(selected[k]);
+            slices[k] = names.get(selected[k]);
+            sliceExecutors[k] = executors.get(i);
+            sliceQueries[k] = queries.get(i);
+        }
+        return submit(conf.getExecutorInstance(), selector, slices,
+            sliceExecutors, sliceQueries, params, range);
+    }
+
+    /**
+     * Waits for the first slice to answer, sending the query to the second
+     * slice when the delay has passed.
+     */
+    private SliceResultObjectProvider await() throws InterruptedException {
+        if (_delegate != null)
+            return _delegate;
+        SliceResultObjectProvider first = _completion.poll(_delay, TimeUnit.NANOSECONDS);
+        if (first == null || first.isFailed()) {
+            _selector.hedged();
+            _secondary = SliceResultObjectProvider.submit(_threadPool, _alternate,
+                _executor, _query, _params, _range, _selector, _completion);
+            if (first == null)
+                first = _completion.take();
+        }
+        if (first.isFailed() && _secondary != null) {
+            SliceResultObjectProvider second = _completion.take();
+            if (!second.isFailed())
+                first = second;
+        }
+        _delegate = first;
+        if (_secondary != null)
+            ((first == _primary) ? _secondary : _primary).discard();
+        return _delegate;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void open() throws Exception {
+        await().open();
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return await().getResultObject();
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        return await().next();
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        return await().absolute(pos);
+    }
+
+    @Override
+    public int size() throws Exception {
+        return await().size();
+    }
+
+    @Override
+    public void reset() throws Exception {
+        await().reset();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (_delegate == null) {
+            _primary.discard();
+            if (_secondary != null)
+                _secondary.discard();
+            return;
+        }
+        _delegate.close();
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        _primary.handleCheckedException(e);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.StoreQuery.Executor;
+import org.apache.openjpa.kernel.StoreQuery.Range;
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.slice.ReplicaSelector;
+import org.apache.openjpa.slice.SliceExecutor;
+import org.apache.openjpa.util.StoreException;
+
+/**
+ * Result of a query on a single slice that is executed by a slice thread.
+ * The slice thread executes the query and positions the result on its
+ * first row, so that the database round trips of all slices overlap.
+ * The rows themselves are read and loaded by the thread that consumes the
+ * result, as far as it consumes them; the number of rows buffered ahead
+ * of the consumer is bounded by the fetch size of the slice.
+ * <br>
+ * {@link #open()} waits only for this slice, so that a merge which needs
+ * the first row of every slice may start as soon as the slowest slice has
+ * produced it, and an unordered merge may start with the first slice.
+ *
+ * @since 3.2.3
+ */
+class SliceResultObjectProvider implements ResultObjectProvider,
+    Callable<ResultObjectProvider> {
+    private final String _slice;
+    private final Executor _executor;
+    private final StoreQuery _query;
+    private final Object[] _params;
+    private final Range _range;
+    private ReplicaSelector _selector;
+    private BlockingQueue<SliceResultObjectProvider> _completion;
+    private long _submitted;
+    private Future<ResultObjectProvider> _future;
+    private ResultObjectProvider _delegate;
+    private boolean _positioned;
+    private boolean _hasFirst;
+    private boolean _started;
+    private boolean _done;
+    private boolean _discarded;
+    private boolean _released;
+
+    private SliceResultObjectProvider(String slice, Executor executor,
+        StoreQuery query, Object[] params, Range range) {
+        _slice = slice;
+        _executor = executor;
+        _query = query;
+        _params = params;
+        _range = range;
+    }
+
+    /**
+     * Submit the given query to be executed on the named slice.
+     */
+    static SliceResultObjectProvider submit(SliceExecutor threadPool,
+        String slice, Executor executor, StoreQuery query, Object[] params,
+        Range range) {
+        return submit(threadPool, slice, executor, query, params, range, null, null);
+    }
+
+    /**
+     * Submit the given query to be executed on the named slice.
+     *
+     * @param selector if not null, informed of the submission and the
+     * response time of the slice
+     * @param completion if not null, receives the result once the slice
+     * has answered or failed
+     */
+    static SliceResultObjectProvider submit(SliceExecutor threadPool,
+        String slice, Executor executor, StoreQuery query, Object[] params,
+        Range range, ReplicaSelector selector,
+        BlockingQueue<SliceResultObjectProvider> completion) {
+        SliceResultObjectProvider result = new SliceResultObjectProvider(
+            slice, executor, query, params, range);
+        result._selector = selector;
+        result._completion = completion;
+        result._submitted = System.nanoTime();
+        if (selector != null)
+            selector.submitted(slice);
+        result._future = threadPool.submit(slice, result);
+        return result;
+    }
+
+    /**
+     * Gets the name of the slice that executes the query.
+     */
+    String getSlice() {
+        return _slice;
+    }
+
+    /**
+     * Executes the query and fetches the first row in the slice thread.
+     */
+    @Override
+    public ResultObjectProvider call() throws Exception {
+        synchronized (this) {
+            _started = true;
+        }
+        ResultObjectProvider rop = null;
+        try {
+            rop = _executor.executeQuery(_query, _params, _range);
+            rop.open();
+            _hasFirst = rop.next();
+            _positioned = true;
+            return rop;
+        } finally {
+            release(System.nanoTime() - _submitted);
+            boolean discarded;
+            synchronized (this) {
+                _done = true;
+                discarded = _discarded;
+            }
+            if (discarded && rop != null)
+                rop.close();
+            if (_completion != null)
+                _completion.offer(this);
+        }
+    }
+
+    /**
+     * Affirms if the query failed. Waits for the slice.
+     */
+    boolean isFailed() {
+        try {
+            _future.get();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Informs the selector, if any, that the slice has answered after the
+     * given time, or that the query was discarded. Runs at most once.
+     */
+    private void release(long nanos) {
+        if (_selector == null)
+            return;
+        boolean discarded;
+        synchronized (this) {
+            if (_released)
+                return;
+            _released = true;
+            discarded = _discarded;
+        }
+        if (discarded)
+            _selector.abandoned(_slice);
+        else
+            _selector.completed(_slice, nanos);
+    }
+
+    /**
+     * Closes the result if the slice has answered, or cancels the query
+     * without waiting for it, interrupting the slice thread if the query
+     * is executing. A cancelled query counts as outstanding on the slice
+     * until its slice thread is done with it.
+     */
+    void discard() {
+        boolean done;
+        synchronized (this) {
+            _discarded = true;
+            done = _done;
+        }
+        if (done) {
+            try {
+                close();
+            } catch (Exception e) {
+                // the result is not used
+            }
+        } else if (_future.cancel(true)) {
+            boolean started;
+            synchronized (this) {
+                started = _started;
+            }
+            // a query that never started is not released by its thread
+            if (!started)
+                release(0);
+        }
+    }
+
+    /**
+     * Wait for the slice to execute the query.
+     */
+    private ResultObjectProvider await() {
+        if (_delegate == null) {
+            try {
+                _delegate = _future.get();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new StoreException(e.getCause());
+            }
+        }
+        return _delegate;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void open() throws Exception {
+        await();
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return await().getResultObject();
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        ResultObjectProvider rop = await();
+        if (_positioned) {
+            _positioned = false;
+            return _hasFirst;
+        }
+        return rop.next();
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        ResultObjectProvider rop = await();
+        _positioned = false;
+        return rop.absolute(pos);
+    }
+
+    @Override
+    public int size() throws Exception {
+        return await().size();
+    }
+
+    @Override
+    public void reset() throws Exception {
+        ResultObjectProvider rop = await();
+        _positioned = false;
+        rop.reset();
+    }
+
+    /**
+     * Closes the result of the slice, waiting for the slice if the result
+     * has not been opened.
+     */
+    @Override
+    public void close() throws Exception {
+        if (_delegate == null) {
+            try {
+                await();
+            } catch (RuntimeException e) {
+                // the query failed, so there is nothing to close
+                return;
+            }
+        }
+        _delegate.close();
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        if (_delegate != null)
+            _delegate.handleCheckedException(e);
+        else
+            throw new StoreException(e);
+    }
+}
@@ -18,8 +18,15 @@
  */
 package org.apache.openjpa.slice.jdbc;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
 import org.apache.openjpa.jdbc.kernel.JDBCStoreManager;
+import org.apache.openjpa.jdbc.sql.SQLExceptions;
+import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.slice.Slice;
+import org.apache.openjpa.util.StoreException;
 
 /**
  * A specialized JDBCStoreManager for a slice.
@@ -28,6 +35,7 @@ import org.apache.openjpa.slice.Slice;
  *
  */
 public class SliceStoreManager extends JDBCStoreManager {
+	private static final Localizer _loc = Localizer.forPackage(SliceStoreManager.class);
 	private final Slice _slice;
 
 	/**
@@ -47,4 +55,30 @@ public class SliceStoreManager extends JDBCStoreManager {
 	public String getName() {
 	    return _slice.getName();
 	}
+
+	/**
+	 * Verifies that the connection of this slice is still valid before any
+	 * slice commits. This is not a prepare of a two-phase commit: the slice
+	 * does not promise to commit, and may still fail to. A driver that can
+	 * not validate its connections is trusted.
+	 *
+	 * @since 3.2.3
+	 */
+	public void checkConnection() {
+	    Connection conn = getConnection();
+	    try {
+	        if (!conn.isValid(0))
+	            throw new StoreException(_loc.get("slice-connection-invalid", getName()));
+	    } catch (SQLFeatureNotSupportedException | AbstractMethodError e) {
+	        // pre JDBC 4 driver
+	    } catch (SQLException se) {
+	        throw SQLExceptions.getStore(se, getDBDictionary());
+	    } finally {
+	        try {
+	            conn.close();
+	        } catch (SQLException se) {
+	            // the connection is released with the transaction
+	        }
+	    }
+	}
 }
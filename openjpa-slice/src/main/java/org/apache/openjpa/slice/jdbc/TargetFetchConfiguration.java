@@ -52,13 +52,27 @@ public class TargetFetchConfiguration extends JDBCFetchConfigurationImpl impleme
     @Override
     public void setHint(String key, Object value) {
         super.setHint(key, value);
-        _explicitTarget = SlicePersistence.HINT_TARGET.equals(key);
+        if (SlicePersistence.HINT_TARGET.equals(key))
+            _explicitTarget = value != null;
     }
 
     @Override
     public void setHint(String key, Object value, Object original) {
         super.setHint(key, value, original);
-        _explicitTarget = SlicePersistence.HINT_TARGET.equals(key);
+        if (SlicePersistence.HINT_TARGET.equals(key))
+            _explicitTarget = value != null;
+    }
+
+    /**
+     * Copies whether the target is explicit together with the target hint,
+     * so that a query inherits the target set by the user, but not the one
+     * set by a policy for an earlier operation.
+     */
+    @Override
+    public void copy(FetchConfiguration fetch) {
+        super.copy(fetch);
+        if (fetch instanceof TargetFetchConfiguration)
+            _explicitTarget = ((TargetFetchConfiguration) fetch)._explicitTarget;
     }
 
     public void setTargets(String[] targets) {
@@ -123,7 +123,7 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
         return true;
     }
 
-    Object count(Object current, Object other) {
+    static Object count(Object current, Object other) {
         if (current == null)
             return other;
         if (other == null)
@@ -131,7 +131,7 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
         return ((Number)current).longValue() + ((Number)other).longValue();
     }
 
-    Object max(Object current, Object other) {
+    static Object max(Object current, Object other) {
         if (current == null)
             return other;
         if (other == null)
@@ -153,7 +153,7 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
         		"MAX()", (current == null ? other : current).getClass().getName()).toString());
     }
 
-    Object min(Object current, Object other) {
+    static Object min(Object current, Object other) {
         if (current == null)
             return other;
         if (other == null)
@@ -175,7 +175,7 @@ public class UniqueResultObjectProvider implements ResultObjectProvider {
         		"MIN()", (current == null ? other : current).getClass().getName()).toString());
     }
 
-    Object sum(Object current, Object other) {
+    static Object sum(Object current, Object other) {
         if (current == null)
             return other;
         if (other == null)
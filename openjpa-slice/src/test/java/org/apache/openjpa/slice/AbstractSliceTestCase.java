@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.test.AbstractPersistenceTestCase;
+
+/**
+ * Base class for tests that distribute instances across slices, each of
+ * which is an in-memory Derby database of its own.
+ */
+public abstract class AbstractSliceTestCase extends AbstractPersistenceTestCase {
+
+    private static final AtomicInteger TESTS = new AtomicInteger();
+
+    private final int _test = TESTS.incrementAndGet();
+
+    /**
+     * Create a factory for the given persistent types with slices of the
+     * given names. The remaining arguments are property name and value pairs.
+     * Factories created by the same test share the database of a slice name.
+     */
+    protected OpenJPAEntityManagerFactorySPI createSliceEMF(Class<?>[] types,
+        String[] slices, Object... props) {
+        List<Object> map = new ArrayList<>();
+        map.add("openjpa.BrokerFactory");
+        map.add("slice");
+        map.add("openjpa.slice.Names");
+        map.add(String.join(",", slices));
+        map.add("openjpa.slice.Lenient");
+        map.add("false");
+        for (String slice : slices) {
+            map.add("openjpa.slice." + slice + ".ConnectionURL");
+            map.add("jdbc:derby:memory:" + getClass().getSimpleName() + _test
+                + slice + ";create=true");
+        }
+        map.addAll(Arrays.asList(props));
+        return createEMF(types, map.toArray());
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.slice.entities.Account;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ConsistentHashPolicy places an instance on the slice that owns the hash of
+its primary key on a ring of virtual nodes. Adding a slice moves only the
+keys the new slice takes over. Any assigned key value, including zero,
+selects a slice, and the hash is the same on every thread.
+ */
+public class TestConsistentHashPolicy extends AbstractSliceTestCase {
+
+    private static final List<String> THREE = Arrays.asList("One", "Two", "Three");
+
+    @Test
+    public void testAddedSliceTakesOverKeys() {
+        ConsistentHashPolicy policy = new ConsistentHashPolicy();
+        List<String> four = new ArrayList<>(THREE);
+        four.add("Four");
+
+        int moved = 0;
+        for (long key = 0; key < 2000; key++) {
+            String before = policy.getSlice(new Object[]{ key }, THREE);
+            String after = policy.getSlice(new Object[]{ key }, four);
+            if (!before.equals(after)) {
+                Assert.assertEquals("Four", after);
+                moved++;
+            }
+        }
+        Assert.assertTrue("moved " + moved, moved > 300 && moved < 700);
+    }
+
+    @Test
+    public void testHashIsSameOnEveryThread() throws Exception {
+        final long[] expected = new long[1000];
+        for (int i = 0; i < expected.length; i++)
+            expected[i] = ConsistentHashPolicy.hash("key" + i);
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(threads.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int round = 0; round < 20; round++) {
+                            for (int i = 0; i < expected.length; i++)
+                                if (ConsistentHashPolicy.hash("key" + i) != expected[i])
+                                    return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results)
+                Assert.assertTrue(result.get());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void testZeroKeyIsDistributed() {
+        OpenJPAEntityManagerFactorySPI emf = createSliceEMF(
+            new Class<?>[]{ Account.class }, THREE.toArray(new String[0]),
+            "openjpa.slice.DistributionPolicy", "consistent-hash",
+            "openjpa.slice.FinderTargetPolicy", "consistent-hash");
+        persist(emf, new Account(0, "zero"), new Account(1, "one"),
+            new Account(2, "two"));
+        ConsistentHashPolicy policy = (ConsistentHashPolicy)
+            ((DistributedConfiguration) JPAFacadeHelper.toBrokerFactory(emf)
+                .getConfiguration()).getDistributionPolicyInstance();
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (long id = 0; id < 3; id++) {
+                Account account = em.find(Account.class, id);
+                Assert.assertNotNull("account " + id, account);
+                Assert.assertEquals(policy.getSlice(new Object[]{ id }, THREE),
+                    SlicePersistence.getSlice(account));
+            }
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.slice.entities.Account;
+import org.apache.openjpa.slice.entities.UpdatingHashPolicy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+The Rebalancer moves instances to the slice the distribution policy selects
+for them after a slice has been added. A moved instance keeps its state and
+its version, a stale copy left in the target slice by an interrupted run is
+replaced, and an update that commits while the rebalance reads a batch is
+carried over, because the instances are refreshed before they are copied.
+ */
+public class TestRebalancer extends AbstractSliceTestCase {
+
+    private static final int COUNT = 40;
+    private static final List<String> BOTH = Arrays.asList("One", "Two");
+
+    @After
+    public void clearAction() {
+        UpdatingHashPolicy.setAction(null);
+    }
+
+    @Test
+    public void testMoveToAddedSlice() {
+        OpenJPAEntityManagerFactorySPI before = populate();
+        EntityManager em = before.createEntityManager();
+        em.getTransaction().begin();
+        for (long id = 0; id < COUNT; id += 4)
+            em.find(Account.class, id).setOwner("renamed");
+        em.getTransaction().commit();
+        em.getTransaction().begin();
+        for (long id = 0; id < COUNT; id += 4)
+            em.find(Account.class, id).setOwner("renamed again");
+        em.getTransaction().commit();
+        em.close();
+
+        OpenJPAEntityManagerFactorySPI after = createAfter();
+        long moved = new Rebalancer(JPAFacadeHelper.toBrokerFactory(after))
+            .rebalance(Account.class);
+
+        Assert.assertTrue(moved > 0 && moved < COUNT);
+        Assert.assertEquals(COUNT - moved, count(after, "One"));
+        Assert.assertEquals(moved, count(after, "Two"));
+        ConsistentHashPolicy policy = getPolicy(after);
+        em = after.createEntityManager();
+        for (long id = 0; id < COUNT; id++) {
+            Account account = em.find(Account.class, id);
+            Assert.assertEquals(policy.getSlice(new Object[]{ id }, BOTH),
+                SlicePersistence.getSlice(account));
+            if (id % 4 == 0) {
+                Assert.assertEquals("renamed again", account.getOwner());
+                Assert.assertEquals(3, account.getVersion());
+            } else {
+                Assert.assertEquals("owner" + id, account.getOwner());
+                Assert.assertEquals(1, account.getVersion());
+            }
+        }
+        em.close();
+    }
+
+    @Test
+    public void testStaleCopyIsReplaced() {
+        populate();
+        OpenJPAEntityManagerFactorySPI after = createAfter();
+        long id = firstMoved(getPolicy(after));
+        // a copy left by an interrupted rebalance
+        persist(after, new Account(id, "stale"));
+        Assert.assertEquals(1, count(after, "Two"));
+
+        long moved = new Rebalancer(JPAFacadeHelper.toBrokerFactory(after))
+            .rebalance(Account.class);
+
+        Assert.assertEquals(moved, count(after, "Two"));
+        Assert.assertEquals(COUNT, count(after, "One") + count(after, "Two"));
+        EntityManager em = after.createEntityManager();
+        Assert.assertEquals("owner" + id, em.find(Account.class, id).getOwner());
+        em.close();
+    }
+
+    @Test
+    public void testConcurrentUpdateIsCarriedOver() {
+        populate();
+        final OpenJPAEntityManagerFactorySPI after = createAfter();
+        final long id = firstMoved(getPolicy(after));
+        UpdatingHashPolicy.setAction(new Runnable() {
+            @Override
+            public void run() {
+                EntityManager em = after.createEntityManager();
+                em.getTransaction().begin();
+                em.find(Account.class, id).setOwner("concurrent");
+                em.getTransaction().commit();
+                em.close();
+            }
+        });
+
+        new Rebalancer(JPAFacadeHelper.toBrokerFactory(after))
+            .rebalance(Account.class);
+
+        EntityManager em = after.createEntityManager();
+        Account account = em.find(Account.class, id);
+        Assert.assertEquals("Two", SlicePersistence.getSlice(account));
+        Assert.assertEquals("concurrent", account.getOwner());
+        Assert.assertEquals(2, account.getVersion());
+        em.close();
+    }
+
+    /**
+     * Persists the accounts in a single slice.
+     */
+    private OpenJPAEntityManagerFactorySPI populate() {
+        OpenJPAEntityManagerFactorySPI emf = createSliceEMF(
+            new Class<?>[]{ Account.class }, new String[]{ "One" },
+            "openjpa.slice.DistributionPolicy", "consistent-hash");
+        Object[] accounts = new Object[COUNT];
+        for (int i = 0; i < COUNT; i++)
+            accounts[i] = new Account(i, "owner" + i);
+        persist(emf, accounts);
+        return emf;
+    }
+
+    /**
+     * Creates a factory on the slice of the accounts and an added slice.
+     */
+    private OpenJPAEntityManagerFactorySPI createAfter() {
+        return createSliceEMF(new Class<?>[]{ Account.class },
+            BOTH.toArray(new String[0]),
+            "openjpa.slice.DistributionPolicy", UpdatingHashPolicy.class.getName(),
+            "openjpa.slice.FinderTargetPolicy",
+            "consistent-hash(PreviousSlices=One)");
+    }
+
+    private static ConsistentHashPolicy getPolicy(
+        OpenJPAEntityManagerFactorySPI emf) {
+        return (ConsistentHashPolicy) ((DistributedConfiguration) JPAFacadeHelper
+            .toBrokerFactory(emf).getConfiguration())
+            .getDistributionPolicyInstance();
+    }
+
+    private static long firstMoved(ConsistentHashPolicy policy) {
+        for (long id = 0; id < COUNT; id++)
+            if ("Two".equals(policy.getSlice(new Object[]{ id }, BOTH)))
+                return id;
+        throw new AssertionError("no account moves");
+    }
+
+    private static long count(OpenJPAEntityManagerFactorySPI emf, String slice) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return ((Number) em.createQuery("SELECT COUNT(a) FROM Account a")
+                .setHint(SlicePersistence.HINT_TARGET, slice)
+                .getSingleResult()).longValue();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.openjpa.util.UserException;
+import org.junit.Test;
+
+/**
+ * Slice selection, load tracking and hedge delays of the
+ * {@link ReplicaSelector}.
+ */
+public class TestReplicaSelector {
+
+    private static final List<String> SLICES = Arrays.asList("One", "Two", "Three");
+
+    @Test
+    public void testFirstSelectsSameSlice() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.FIRST, 0);
+        for (int i = 0; i < 3; i++)
+            assertArrayEquals(new int[] { 0 }, selector.select(SLICES));
+    }
+
+    @Test
+    public void testSingleCandidateIsNotHedged() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.ROUND_ROBIN, 90);
+        assertArrayEquals(new int[] { 0 }, selector.select(Arrays.asList("One")));
+    }
+
+    @Test
+    public void testRoundRobinSelectsInTurn() {
+        ReplicaSelector selector = new ReplicaSelector("Round-Robin", 0);
+        assertEquals(ReplicaSelector.ROUND_ROBIN, selector.getStrategy());
+        assertArrayEquals(new int[] { 0 }, selector.select(SLICES));
+        assertArrayEquals(new int[] { 1 }, selector.select(SLICES));
+        assertArrayEquals(new int[] { 2 }, selector.select(SLICES));
+        assertArrayEquals(new int[] { 0 }, selector.select(SLICES));
+    }
+
+    @Test
+    public void testHedgingNamesAlternate() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.FIRST, 90);
+        assertArrayEquals(new int[] { 0, 1 }, selector.select(SLICES));
+
+        selector = new ReplicaSelector(ReplicaSelector.ROUND_ROBIN, 90);
+        selector.select(SLICES);
+        selector.select(SLICES);
+        assertArrayEquals(new int[] { 2, 0 }, selector.select(SLICES));
+    }
+
+    @Test
+    public void testLeastOutstandingSelectsIdleSlice() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.LEAST_OUTSTANDING, 90);
+        selector.submitted("One");
+        selector.submitted("One");
+        selector.submitted("Two");
+        assertEquals(2, selector.getOutstanding("One"));
+        assertEquals(0, selector.getOutstanding("Three"));
+
+        assertArrayEquals(new int[] { 2, 1 }, selector.select(SLICES));
+
+        selector.completed("One", 1000);
+        selector.completed("One", 1000);
+        selector.submitted("Three");
+        assertEquals(0, selector.getOutstanding("One"));
+        assertArrayEquals(new int[] { 0, 1 }, selector.select(SLICES));
+    }
+
+    @Test
+    public void testAbandonedQueryIsNotSampled() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.FIRST, 50);
+        for (int i = 0; i < ReplicaSelector.MIN_SAMPLES; i++) {
+            selector.submitted("One");
+            selector.abandoned("One");
+        }
+        assertEquals(0, selector.getOutstanding("One"));
+        assertEquals(-1, selector.getHedgeDelay("One"));
+    }
+
+    @Test
+    public void testHedgeDelayNeedsSamples() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.FIRST, 50);
+        assertEquals(-1, selector.getHedgeDelay("One"));
+        for (int i = 1; i < ReplicaSelector.MIN_SAMPLES; i++)
+            selector.completed("One", i);
+        assertEquals(-1, selector.getHedgeDelay("One"));
+
+        selector.completed("One", ReplicaSelector.MIN_SAMPLES);
+        assertEquals(ReplicaSelector.MIN_SAMPLES / 2, selector.getHedgeDelay("One"));
+        assertEquals(-1, selector.getHedgeDelay("Two"));
+    }
+
+    @Test
+    public void testHedgeDelayFollowsRecentSamples() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.FIRST, 90);
+        for (int i = 0; i < ReplicaSelector.SAMPLES; i++)
+            selector.completed("One", 10);
+        assertEquals(10, selector.getHedgeDelay("One"));
+
+        // older samples are overwritten once the window is full
+        for (int i = 0; i < ReplicaSelector.SAMPLES; i++)
+            selector.completed("One", 1000);
+        assertEquals(1000, selector.getHedgeDelay("One"));
+    }
+
+    @Test
+    public void testNoDelayWithoutHedging() {
+        ReplicaSelector selector = new ReplicaSelector(ReplicaSelector.FIRST, 0);
+        for (int i = 0; i < ReplicaSelector.MIN_SAMPLES; i++)
+            selector.completed("One", 10);
+        assertEquals(-1, selector.getHedgeDelay("One"));
+    }
+
+    @Test(expected = UserException.class)
+    public void testBadStrategy() {
+        new ReplicaSelector("random", 0);
+    }
+
+    @Test(expected = UserException.class)
+    public void testBadPercentile() {
+        new ReplicaSelector(ReplicaSelector.FIRST, 100);
+    }
+}
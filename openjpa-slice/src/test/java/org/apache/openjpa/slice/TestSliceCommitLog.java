@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Records of the {@link SliceCommitLog} and the transactions it reports as
+ * incomplete when it is opened again.
+ */
+public class TestSliceCommitLog {
+
+    private static final List<String> SLICES = Arrays.asList("One", "Two");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String path;
+
+    @Before
+    public void setUp() {
+        path = new File(folder.getRoot(), "commit.log").getPath();
+    }
+
+    @Test
+    public void testResolvedTransactionIsNotIncomplete() {
+        SliceCommitLog log = new SliceCommitLog(path);
+        String tx = log.started(SLICES);
+        assertEquals(1, log.getIncomplete().size());
+        log.committed(tx, "One");
+        log.committed(tx, "Two");
+        log.resolve(tx);
+
+        assertTrue(log.getIncomplete().isEmpty());
+        assertTrue(new SliceCommitLog(path).getIncomplete().isEmpty());
+    }
+
+    @Test
+    public void testIncompleteTransactionIsReadAgain() {
+        SliceCommitLog log = new SliceCommitLog(path);
+        String done = log.started(SLICES);
+        String partial = log.started(SLICES);
+        log.committed(done, "One");
+        log.committed(partial, "Two");
+        log.committed(done, "Two");
+        log.resolve(done);
+
+        List<SliceCommitLog.Entry> incomplete = new SliceCommitLog(path).getIncomplete();
+        assertEquals(1, incomplete.size());
+        SliceCommitLog.Entry entry = incomplete.get(0);
+        assertEquals(partial, entry.getId());
+        assertEquals(SLICES, entry.getSlices());
+        assertEquals(Arrays.asList("Two"), Arrays.asList(entry.getCommitted().toArray()));
+    }
+
+    @Test
+    public void testIncompleteTransactionCanBeResolved() {
+        String tx = new SliceCommitLog(path).started(SLICES);
+
+        SliceCommitLog log = new SliceCommitLog(path);
+        log.resolve(tx);
+
+        assertTrue(new SliceCommitLog(path).getIncomplete().isEmpty());
+    }
+
+    @Test
+    public void testOpenCompactsLog() throws Exception {
+        SliceCommitLog log = new SliceCommitLog(path);
+        for (int i = 0; i < 3; i++)
+            log.resolve(log.started(SLICES));
+        String tx = log.started(SLICES);
+        log.committed(tx, "One");
+        assertEquals(3 * 2 + 2, lines().size());
+
+        new SliceCommitLog(path);
+
+        List<String> lines = lines();
+        assertEquals(2, lines.size());
+        assertEquals(tx + ' ' + SliceCommitLog.STARTED + " One,Two", lines.get(0));
+        assertEquals(tx + ' ' + SliceCommitLog.COMMITTED + " One", lines.get(1));
+    }
+
+    private List<String> lines() throws Exception {
+        return Files.readAllLines(new File(path).toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.util.UserException;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Pool, queue and rejection behavior of the {@link SliceExecutor}.
+ */
+public class TestSliceExecutor {
+
+    private SliceExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null)
+            executor.shutdown();
+    }
+
+    /**
+     * A task that blocks until the test ends, signalling once it started.
+     */
+    private Callable<Thread> block(final CountDownLatch started) {
+        return new Callable<Thread>() {
+            @Override
+            public Thread call() throws Exception {
+                started.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return Thread.currentThread();
+            }
+        };
+    }
+
+    private static Callable<Thread> current() {
+        return new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                assertTrue(SliceThread.isSliceThread());
+                return Thread.currentThread();
+            }
+        };
+    }
+
+    private static Callable<Thread> parent() {
+        return new Callable<Thread>() {
+            @Override
+            public Thread call() {
+                return SliceThread.getCurrentParent();
+            }
+        };
+    }
+
+    @Test
+    public void testRunsOnSliceThreads() throws Exception {
+        executor = new SliceExecutor("unit", 2, -1, null, false, null);
+        assertFalse(executor.isVirtual());
+
+        Thread thread = executor.submit("One", current()).get();
+        assertTrue(thread instanceof SliceThread);
+        assertTrue(thread.getName().startsWith("unit-slice-"));
+        assertSame(Thread.currentThread(), executor.submit("One", parent())
+            .get());
+
+        executor.submit("Two", current()).get();
+        assertEquals(2, executor.getStatistics("One").getCount());
+        assertEquals(1, executor.getStatistics("Two").getCount());
+        assertNull(executor.getStatistics("Three"));
+        assertEquals(2, executor.getStatistics().size());
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(0, executor.getRejectedCount());
+    }
+
+    @Test
+    public void testQueuesWhenPoolIsBusy() throws Exception {
+        executor = new SliceExecutor("unit", 1, 1,
+            SliceExecutor.REJECT_ABORT, false, null);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("One", block(started));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(1, executor.getActiveCount());
+
+        Future<Thread> queued = executor.submit("One", current());
+        assertEquals(1, executor.getQueueDepth());
+        assertFalse(queued.isDone());
+
+        release.countDown();
+        assertNotNull(queued.get(10, TimeUnit.SECONDS));
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testAbortRejectsWhenFull() throws Exception {
+        executor = new SliceExecutor("unit", 1, 0,
+            SliceExecutor.REJECT_ABORT, false, null);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("One", block(started));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        try {
+            executor.submit("One", current());
+            fail("task accepted by a full pool");
+        } catch (RejectedExecutionException ree) {
+            // expected
+        }
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testCallerRunsWhenFull() throws Exception {
+        executor = new SliceExecutor("unit", 1, 0,
+            SliceExecutor.REJECT_CALLER_RUNS, false, null);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit("One", block(started));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        Future<Thread> future = executor.submit("One", current());
+        assertTrue(future.isDone());
+        assertSame(Thread.currentThread(), future.get());
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(0, executor.getQueueDepth());
+        assertFalse(SliceThread.isSliceThread());
+    }
+
+    @Test
+    public void testNestedTaskRunsInline() throws Exception {
+        executor = new SliceExecutor("unit", 1, 0,
+            SliceExecutor.REJECT_ABORT, false, null);
+        Thread[] threads = executor.submit("One", new Callable<Thread[]>() {
+            @Override
+            public Thread[] call() throws Exception {
+                // waiting on the single pool thread would deadlock
+                return new Thread[] { Thread.currentThread(),
+                    executor.submit("Two", current()).get() };
+            }
+        }).get(10, TimeUnit.SECONDS);
+        assertSame(threads[0], threads[1]);
+        assertEquals(0, executor.getRejectedCount());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testRejectsAfterShutdown() {
+        executor = new SliceExecutor("unit", 1, 0, null, false, null);
+        executor.shutdown();
+        try {
+            executor.submit("One", current());
+            fail("task accepted after shutdown");
+        } catch (RejectedExecutionException ree) {
+            // expected
+        }
+    }
+
+    @Test(expected = UserException.class)
+    public void testBadRejectionPolicy() {
+        new SliceExecutor("unit", 1, 0, "discard", false, null);
+    }
+}
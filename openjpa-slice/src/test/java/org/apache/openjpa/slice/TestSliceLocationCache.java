@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.slice.entities.Employee;
+import org.apache.openjpa.slice.entities.EmployeePolicy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+A find by identity queries the slice recorded for the instance when it was
+flushed or loaded, and falls back to every slice when no slice is recorded
+or the recorded slice does not hold the instance any more. The cache counts
+hits, misses, stale entries and fan-outs, and forgets deleted instances.
+ */
+public class TestSliceLocationCache extends AbstractSliceTestCase {
+
+    private OpenJPAEntityManagerFactorySPI emf;
+    private SliceLocationCache locations;
+
+    @Before
+    public void setUp() {
+        emf = createSliceEMF(new Class<?>[]{ Employee.class },
+            new String[]{ "One", "Two" },
+            "openjpa.slice.DistributionPolicy", EmployeePolicy.class.getName());
+        persist(emf,
+            new Employee(1, "a", "A", 10, "One"),
+            new Employee(2, "b", "A", 20, "Two"));
+        locations = ((DistributedConfiguration) JPAFacadeHelper
+            .toBrokerFactory(emf).getConfiguration()).getLocationCacheInstance();
+        locations.reset();
+    }
+
+    @Test
+    public void testFlushRecordsSlice() {
+        Assert.assertEquals("One", locations.get(getObjectId(1)));
+        Assert.assertEquals("Two", locations.get(getObjectId(2)));
+    }
+
+    @Test
+    public void testFindQueriesRecordedSlice() {
+        Assert.assertEquals("Two", findSlice(2));
+
+        Assert.assertEquals(1, locations.getHitCount());
+        Assert.assertEquals(0, locations.getMissCount());
+        Assert.assertEquals(0, locations.getFanOutCount());
+        Assert.assertEquals(1.0, locations.getHitRatio(), 0);
+    }
+
+    @Test
+    public void testFindWithoutRecordedSliceFansOut() {
+        Object oid = getObjectId(2);
+        locations.clear();
+        locations.reset();
+
+        Assert.assertEquals("Two", findSlice(2));
+        Assert.assertEquals(0, locations.getHitCount());
+        Assert.assertEquals(1, locations.getMissCount());
+        Assert.assertEquals(0, locations.getStaleCount());
+        Assert.assertEquals(1, locations.getFanOutCount());
+        Assert.assertEquals("Two", locations.get(oid));
+
+        Assert.assertEquals("Two", findSlice(2));
+        Assert.assertEquals(1, locations.getHitCount());
+        Assert.assertEquals(1, locations.getFanOutCount());
+    }
+
+    @Test
+    public void testStaleSliceFallsBack() {
+        Object oid = getObjectId(2);
+        locations.put(oid, "One");
+        locations.reset();
+
+        Assert.assertEquals("Two", findSlice(2));
+        Assert.assertEquals(0, locations.getHitCount());
+        Assert.assertEquals(1, locations.getMissCount());
+        Assert.assertEquals(1, locations.getStaleCount());
+        Assert.assertEquals(1, locations.getFanOutCount());
+        Assert.assertEquals("Two", locations.get(oid));
+    }
+
+    @Test
+    public void testDeleteForgetsSlice() {
+        Object oid = getObjectId(1);
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.remove(em.find(Employee.class, 1L));
+        em.getTransaction().commit();
+        em.close();
+
+        Assert.assertNull(locations.get(oid));
+        em = emf.createEntityManager();
+        Assert.assertNull(em.find(Employee.class, 1L));
+        em.close();
+    }
+
+    @Test
+    public void testSizeIsBounded() {
+        SliceLocationCache cache = new SliceLocationCache(2);
+        cache.put(1, "One");
+        cache.put(2, "Two");
+        cache.put(3, "One");
+
+        Assert.assertEquals(2, cache.getCacheSize());
+        Assert.assertEquals(2, cache.size());
+        cache.put(null, "One");
+        cache.put(4, null);
+        Assert.assertNull(cache.get(4));
+        Assert.assertNull(cache.get(null));
+    }
+
+    private Object getObjectId(long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return JPAFacadeHelper.toBroker(em).getObjectId(
+                em.getReference(Employee.class, id));
+        } finally {
+            em.close();
+        }
+    }
+
+    private String findSlice(long id) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return SlicePersistence.getSlice(em.find(Employee.class, id));
+        } finally {
+            em.close();
+        }
+    }
+}
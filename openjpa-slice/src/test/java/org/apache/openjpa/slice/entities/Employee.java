@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.entities;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * An entity whose instances are stored in the slice they name.
+ */
+@Entity
+public class Employee {
+
+    @Id
+    private long id;
+
+    private String name;
+
+    private String dept;
+
+    private double salary;
+
+    private String slice;
+
+    public Employee() {
+    }
+
+    public Employee(long id, String name, String dept, double salary,
+        String slice) {
+        this.id = id;
+        this.name = name;
+        this.dept = dept;
+        this.salary = salary;
+        this.slice = slice;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDept() {
+        return dept;
+    }
+
+    public double getSalary() {
+        return salary;
+    }
+
+    public void setSalary(double salary) {
+        this.salary = salary;
+    }
+
+    public String getSlice() {
+        return slice;
+    }
+}
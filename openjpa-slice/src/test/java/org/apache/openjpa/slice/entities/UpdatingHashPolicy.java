@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.entities;
+
+import java.util.List;
+
+import org.apache.openjpa.slice.ConsistentHashPolicy;
+
+/**
+ * Consistent hash policy that runs an action the first time it distributes
+ * an instance, to simulate an update concurrent to a rebalance.
+ */
+public class UpdatingHashPolicy extends ConsistentHashPolicy {
+
+    private static volatile Runnable _action;
+
+    public static void setAction(Runnable action) {
+        _action = action;
+    }
+
+    @Override
+    public String distribute(Object pc, List<String> slices, Object context) {
+        Runnable action = _action;
+        _action = null;
+        if (action != null)
+            action.run();
+        return super.distribute(pc, slices, context);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.slice.AbstractSliceTestCase;
+import org.apache.openjpa.slice.SlicePersistence;
+import org.apache.openjpa.slice.entities.Employee;
+import org.apache.openjpa.slice.entities.EmployeePolicy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+Aggregate and grouped queries across slices compute partial aggregates on
+every slice and merge them on the coordinator. Groups are keyed on the
+grouping values whether or not they are projected, and the HAVING clause is
+evaluated on the merged groups, since no single slice sees a whole group.
+The employees of each department are spread over both slices, so that no
+per-slice result is the right answer. A query targeted at a single slice
+computes its aggregates on that slice, whether or not the same query has been
+planned across slices by another broker.
+ */
+public class TestAggregateMerge extends AbstractSliceTestCase {
+
+    private static final String GROUPED = "SELECT e.dept, COUNT(e), SUM(e.salary), "
+        + "AVG(e.salary) FROM Employee e GROUP BY e.dept ORDER BY e.dept";
+
+    private OpenJPAEntityManagerFactorySPI emf;
+    private EntityManager em;
+
+    @Before
+    public void setUp() {
+        emf = createSliceEMF(new Class<?>[]{ Employee.class },
+            new String[]{ "One", "Two" },
+            "openjpa.slice.DistributionPolicy", EmployeePolicy.class.getName());
+        persist(emf,
+            new Employee(1, "a", "A", 10, "One"),
+            new Employee(2, "b", "A", 20, "One"),
+            new Employee(3, "c", "B", 30, "One"),
+            new Employee(4, "d", "A", 40, "Two"),
+            new Employee(5, "e", "B", 50, "Two"),
+            new Employee(6, "f", "C", 60, "Two"),
+            new Employee(7, "g", "C", 70, "Two"));
+        em = emf.createEntityManager();
+    }
+
+    @After
+    public void tearDown() {
+        em.close();
+    }
+
+    @Test
+    public void testUngroupedAggregates() {
+        Object[] row = (Object[]) em.createQuery(
+            "SELECT COUNT(e), SUM(e.salary), MIN(e.salary), MAX(e.salary), "
+            + "AVG(e.salary) FROM Employee e").getSingleResult();
+
+        Assert.assertEquals(7L, ((Number) row[0]).longValue());
+        Assert.assertEquals(280L, ((Number) row[1]).longValue());
+        Assert.assertEquals(10, ((Number) row[2]).intValue());
+        Assert.assertEquals(70, ((Number) row[3]).intValue());
+        Assert.assertEquals(40.0, ((Number) row[4]).doubleValue(), 0.001);
+    }
+
+    @Test
+    public void testGroupByProjectedValue() {
+        List<?> rows = em.createQuery(
+            "SELECT e.dept, COUNT(e), SUM(e.salary), AVG(e.salary) "
+            + "FROM Employee e GROUP BY e.dept ORDER BY e.dept")
+            .getResultList();
+
+        Assert.assertEquals(3, rows.size());
+        assertRow(rows.get(0), "A", 3L, 70L, 70.0 / 3);
+        assertRow(rows.get(1), "B", 2L, 80L, 40.0);
+        assertRow(rows.get(2), "C", 2L, 130L, 65.0);
+    }
+
+    @Test
+    public void testSingleSliceAfterPlanning() {
+        assertAllSlices(em.createQuery(GROUPED).getResultList());
+        assertSliceOne(em.createQuery(GROUPED)
+            .setHint(SlicePersistence.HINT_TARGET, "One").getResultList());
+        assertAllSlices(em.createQuery(GROUPED).getResultList());
+    }
+
+    @Test
+    public void testSingleAndAllSlicesConcurrently() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final boolean single = i % 2 == 0;
+                futures.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        EntityManager em = emf.createEntityManager();
+                        try {
+                            for (int j = 0; j < 10; j++) {
+                                Query q = em.createQuery(GROUPED);
+                                if (single) {
+                                    q.setHint(SlicePersistence.HINT_TARGET, "One");
+                                    assertSliceOne(q.getResultList());
+                                } else
+                                    assertAllSlices(q.getResultList());
+                            }
+                        } finally {
+                            em.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures)
+                future.get();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGroupByUnprojectedValue() {
+        List<?> rows = em.createQuery(
+            "SELECT COUNT(e) FROM Employee e GROUP BY e.dept").getResultList();
+
+        List<Long> counts = new ArrayList<>();
+        for (Object row : rows)
+            counts.add(((Number) row).longValue());
+        Collections.sort(counts);
+        Assert.assertEquals(Arrays.asList(2L, 2L, 3L), counts);
+    }
+
+    @Test
+    public void testHavingOnMergedGroups() {
+        // department A has two employees on one slice and one on the other
+        List<?> rows = em.createQuery(
+            "SELECT e.dept, COUNT(e) FROM Employee e GROUP BY e.dept "
+            + "HAVING COUNT(e) > 2").getResultList();
+
+        Assert.assertEquals(1, rows.size());
+        Assert.assertEquals("A", ((Object[]) rows.get(0))[0]);
+        Assert.assertEquals(3L, ((Number) ((Object[]) rows.get(0))[1])
+            .longValue());
+    }
+
+    @Test
+    public void testHavingWithParameter() {
+        List<?> rows = em.createQuery(
+            "SELECT e.dept FROM Employee e GROUP BY e.dept "
+            + "HAVING AVG(e.salary) > :min ORDER BY e.dept")
+            .setParameter("min", 40.0).getResultList();
+
+        Assert.assertEquals(Arrays.asList("C"), rows);
+    }
+
+    @Test
+    public void testHavingOnUnprojectedAggregates() {
+        List<?> rows = em.createQuery(
+            "SELECT e.dept FROM Employee e GROUP BY e.dept "
+            + "HAVING SUM(e.salary) >= 80 AND MAX(e.salary) < 70 "
+            + "ORDER BY e.dept").getResultList();
+
+        Assert.assertEquals(Arrays.asList("B"), rows);
+    }
+
+    @Test
+    public void testHavingOnGroupingValueIsRejected() {
+        assertUnsupported("SELECT e.dept, COUNT(e) FROM Employee e "
+            + "GROUP BY e.dept HAVING e.dept <> 'A'");
+    }
+
+    @Test
+    public void testCountDistinctIsRejected() {
+        assertUnsupported("SELECT COUNT(DISTINCT e.dept) FROM Employee e");
+    }
+
+    @Test
+    public void testMinDistinct() {
+        Object min = em.createQuery(
+            "SELECT MIN(DISTINCT e.salary) FROM Employee e").getSingleResult();
+
+        Assert.assertEquals(10, ((Number) min).intValue());
+    }
+
+    private void assertUnsupported(String jpql) {
+        try {
+            em.createQuery(jpql).getResultList();
+            Assert.fail("expected " + jpql + " to be rejected");
+        } catch (RuntimeException e) {
+            Throwable t = e;
+            while (t != null && !(t instanceof UnsupportedOperationException))
+                t = t.getCause();
+            if (t == null)
+                throw e;
+        }
+    }
+
+    private static void assertAllSlices(List<?> rows) {
+        Assert.assertEquals(3, rows.size());
+        assertRow(rows.get(0), "A", 3L, 70L, 70.0 / 3);
+        assertRow(rows.get(1), "B", 2L, 80L, 40.0);
+        assertRow(rows.get(2), "C", 2L, 130L, 65.0);
+    }
+
+    private static void assertSliceOne(List<?> rows) {
+        Assert.assertEquals(2, rows.size());
+        assertRow(rows.get(0), "A", 2L, 30L, 15.0);
+        assertRow(rows.get(1), "B", 1L, 30L, 30.0);
+    }
+
+    private static void assertRow(Object row, String dept, long count,
+        long sum, double avg) {
+        Object[] values = (Object[]) row;
+        Assert.assertEquals(dept, values[0]);
+        Assert.assertEquals(count, ((Number) values[1]).longValue());
+        Assert.assertEquals(sum, ((Number) values[2]).longValue());
+        Assert.assertEquals(avg, ((Number) values[3]).doubleValue(), 0.001);
+    }
+}
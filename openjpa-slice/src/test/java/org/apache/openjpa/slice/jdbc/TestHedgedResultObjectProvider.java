@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.StoreQuery.Executor;
+import org.apache.openjpa.kernel.StoreQuery.Range;
+import org.apache.openjpa.lib.rop.ListResultObjectProvider;
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.slice.ReplicaSelector;
+import org.apache.openjpa.slice.SliceExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Hedged reads of replicated types: a query is sent to the alternate slice
+ * once the selected slice has not answered within its hedge delay, or has
+ * failed, and the result of the slice that answers first is used. The query
+ * on the other slice is cancelled.
+ */
+public class TestHedgedResultObjectProvider {
+
+    private static final String[] SLICES = { "One", "Two" };
+
+    private SliceExecutor threadPool;
+    private ReplicaSelector selector;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        threadPool = new SliceExecutor("unit", 4, -1, null, false, null);
+        selector = new ReplicaSelector(ReplicaSelector.FIRST, 90);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        threadPool.shutdown();
+    }
+
+    @Test
+    public void testNotHedgedWithoutSamples() throws Exception {
+        ResultObjectProvider rop = submit(rows("One"), rows("Two"));
+
+        assertFalse(rop instanceof HedgedResultObjectProvider);
+        assertEquals("One", first(rop));
+        assertEquals(0, selector.getHedgedCount());
+    }
+
+    @Test
+    public void testFastSliceIsNotHedged() throws Exception {
+        sample(TimeUnit.SECONDS.toNanos(10));
+        CountingProvider alternate = new CountingProvider("Two");
+        ResultObjectProvider rop = submit(rows("One"), alternate);
+
+        assertTrue(rop instanceof HedgedResultObjectProvider);
+        assertEquals("One", first(rop));
+        assertEquals(0, selector.getHedgedCount());
+        assertEquals(0, alternate.executed);
+    }
+
+    @Test
+    public void testSlowSliceIsHedged() throws Exception {
+        sample(1);
+        CountingProvider primary = new CountingProvider("One");
+        ResultObjectProvider rop = submit(blocked(primary), rows("Two"));
+
+        assertEquals("Two", first(rop));
+        assertEquals(1, selector.getHedgedCount());
+
+        // the query on the slow slice is cancelled rather than awaited
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, primary.executed);
+        assertOutstanding("One", 0);
+        assertEquals(0, selector.getOutstanding("Two"));
+    }
+
+    @Test
+    public void testQueuedQueryIsCancelled() throws Exception {
+        SliceExecutor single = new SliceExecutor("single", 1, -1, null, false, null);
+        try {
+            // occupy the only thread of the pool
+            single.submit("One", blocked(rows("One")));
+            CountingProvider queued = new CountingProvider("Two");
+            SliceResultObjectProvider rop = SliceResultObjectProvider.submit(single,
+                "Two", executor(queued), null, new Object[0], new Range(),
+                selector, null);
+            assertEquals(1, selector.getOutstanding("Two"));
+
+            rop.discard();
+            assertEquals(0, selector.getOutstanding("Two"));
+            assertTrue(rop.isFailed());
+
+            release.countDown();
+            single.submit("One", rows("One")).get(10, TimeUnit.SECONDS);
+            assertEquals(0, queued.executed);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedSliceIsHedged() throws Exception {
+        sample(TimeUnit.SECONDS.toNanos(10));
+        ResultObjectProvider rop = submit(new Callable<ResultObjectProvider>() {
+            @Override
+            public ResultObjectProvider call() {
+                throw new IllegalStateException("slice down");
+            }
+        }, rows("Two"));
+
+        assertEquals("Two", first(rop));
+        assertEquals(1, selector.getHedgedCount());
+    }
+
+    @Test
+    public void testCompletionUpdatesSelector() throws Exception {
+        sample(TimeUnit.SECONDS.toNanos(10));
+        ResultObjectProvider rop = submit(rows("One"), rows("Two"));
+        first(rop);
+
+        assertEquals(0, selector.getOutstanding("One"));
+        assertEquals(0, selector.getOutstanding("Two"));
+    }
+
+    /**
+     * Records enough response times of the first slice to hedge it after
+     * the given time.
+     */
+    private void sample(long nanos) {
+        for (int i = 0; i < 64; i++)
+            selector.completed("One", nanos);
+    }
+
+    /**
+     * Waits for the number of queries outstanding on the given slice to
+     * drop to the given count.
+     */
+    private void assertOutstanding(String slice, int count) throws Exception {
+        for (int i = 0; i < 100 && selector.getOutstanding(slice) != count; i++)
+            Thread.sleep(100);
+        assertEquals(count, selector.getOutstanding(slice));
+    }
+
+    private ResultObjectProvider submit(Callable<ResultObjectProvider> one,
+        Callable<ResultObjectProvider> two) {
+        Executor[] executors = { executor(one), executor(two) };
+        return HedgedResultObjectProvider.submit(threadPool, selector, SLICES,
+            executors, new StoreQuery[2], new Object[0], new Range());
+    }
+
+    private static Object first(ResultObjectProvider rop) throws Exception {
+        try {
+            rop.open();
+            assertTrue(rop.next());
+            return rop.getResultObject();
+        } finally {
+            rop.close();
+        }
+    }
+
+    private static Callable<ResultObjectProvider> rows(String slice) {
+        return new CountingProvider(slice);
+    }
+
+    /**
+     * Answers with the given result once the test releases it, and notes
+     * whether it is interrupted while waiting.
+     */
+    private Callable<ResultObjectProvider> blocked(
+        final Callable<ResultObjectProvider> result) {
+        return new Callable<ResultObjectProvider>() {
+            @Override
+            public ResultObjectProvider call() throws Exception {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return result.call();
+            }
+        };
+    }
+
+    /**
+     * An executor whose queries answer with the result of the given task.
+     */
+    private static Executor executor(final Callable<ResultObjectProvider> result) {
+        return (Executor) Proxy.newProxyInstance(
+            TestHedgedResultObjectProvider.class.getClassLoader(),
+            new Class<?>[] { Executor.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                    if ("executeQuery".equals(method.getName()))
+                        return result.call();
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /**
+     * A single row naming its slice, which counts its executions and
+     * signals when it is closed.
+     */
+    private static class CountingProvider extends ListResultObjectProvider
+        implements Callable<ResultObjectProvider> {
+        final CountDownLatch closed = new CountDownLatch(1);
+        int executed;
+
+        CountingProvider(String slice) {
+            super(Arrays.asList(slice));
+        }
+
+        @Override
+        public ResultObjectProvider call() {
+            executed++;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.slice.AbstractSliceTestCase;
+import org.apache.openjpa.slice.DistributedConfiguration;
+import org.apache.openjpa.slice.SliceCommitLog;
+import org.apache.openjpa.slice.SlicePersistence;
+import org.apache.openjpa.slice.entities.Employee;
+import org.apache.openjpa.slice.entities.EmployeePolicy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*
+A transaction that spans slices commits, or rolls back, on every slice in
+parallel. Each commit across slices is recorded in the commit log as started
+and, once every slice has committed, as done, so that no transaction is
+left incomplete.
+ */
+public class TestParallelCommit extends AbstractSliceTestCase {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OpenJPAEntityManagerFactorySPI emf;
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "commit.log");
+        emf = createSliceEMF(new Class<?>[]{ Employee.class },
+            new String[]{ "One", "Two" },
+            "openjpa.slice.DistributionPolicy", EmployeePolicy.class.getName(),
+            "openjpa.slice.CommitLog", file.getPath());
+    }
+
+    @Test
+    public void testCommitOnEverySlice() throws Exception {
+        persist(emf,
+            new Employee(1, "a", "A", 10, "One"),
+            new Employee(2, "b", "A", 20, "Two"));
+
+        Assert.assertEquals(1, count("One"));
+        Assert.assertEquals(1, count("Two"));
+        Assert.assertTrue(getCommitLog().getIncomplete().isEmpty());
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(4, lines.size());
+        String tx = lines.get(0).split(" ")[0];
+        Assert.assertEquals(tx + " STARTED One,Two", lines.get(0));
+        Assert.assertTrue(lines.contains(tx + " COMMITTED One"));
+        Assert.assertTrue(lines.contains(tx + " COMMITTED Two"));
+        Assert.assertEquals(tx + " DONE", lines.get(3));
+    }
+
+    @Test
+    public void testEveryCommitIsResolved() {
+        for (int i = 0; i < 5; i++)
+            persist(emf, new Employee(i, "e" + i, "A", 10, (i % 2 == 0) ? "One" : "Two"));
+
+        Assert.assertEquals(3, count("One"));
+        Assert.assertEquals(2, count("Two"));
+        Assert.assertTrue(getCommitLog().getIncomplete().isEmpty());
+        Assert.assertTrue(new SliceCommitLog(file.getPath()).getIncomplete().isEmpty());
+    }
+
+    @Test
+    public void testFailedFlushRollsBackEverySlice() {
+        persist(emf, new Employee(1, "a", "A", 10, "One"));
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.persist(new Employee(2, "b", "A", 20, "Two"));
+        em.persist(new Employee(1, "duplicate", "A", 30, "One"));
+        try {
+            em.getTransaction().commit();
+            Assert.fail("duplicate key committed");
+        } catch (RuntimeException re) {
+            // expected
+        } finally {
+            if (em.getTransaction().isActive())
+                em.getTransaction().rollback();
+            em.close();
+        }
+
+        Assert.assertEquals(1, count("One"));
+        Assert.assertEquals(0, count("Two"));
+        Assert.assertTrue(getCommitLog().getIncomplete().isEmpty());
+    }
+
+    private SliceCommitLog getCommitLog() {
+        return ((DistributedConfiguration) JPAFacadeHelper.toBrokerFactory(emf)
+            .getConfiguration()).getCommitLogInstance();
+    }
+
+    private long count(String slice) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT e FROM Employee e")
+                .setHint(SlicePersistence.HINT_TARGET, slice)
+                .getResultList().size();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -72,6 +72,16 @@ public abstract class AbstractOpenJpaEnhancerMojo extends AbstractOpenJpaMojo {
      */
     private static final String OPTION_USE_TEMP_CLASSLOADER = "tcl";
 
+    /**
+     * The number of threads used to enhance the entity classes in parallel.
+     */
+    @Parameter(defaultValue="1")
+    protected int threads;
+    /**
+     * used for passing the threads parameter to the enhancer tool
+     */
+    private static final String OPTION_THREADS = "threads";
+
 
     /**
      * {@inheritDoc}
@@ -107,6 +117,7 @@ public abstract class AbstractOpenJpaEnhancerMojo extends AbstractOpenJpaMojo {
         opts.put(OPTION_ADD_DEFAULT_CONSTRUCTOR, Boolean.toString(addDefaultConstructor));
         opts.put(OPTION_ENFORCE_PROPERTY_RESTRICTION, Boolean.toString(enforcePropertyRestrictions));
         opts.put(OPTION_USE_TEMP_CLASSLOADER, Boolean.toString(tmpClassLoader));
+        opts.put(OPTION_THREADS, Integer.toString(threads));
 
         return opts;
     }